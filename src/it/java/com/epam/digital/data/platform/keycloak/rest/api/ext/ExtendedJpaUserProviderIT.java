@@ -16,15 +16,23 @@
 package com.epam.digital.data.platform.keycloak.rest.api.ext;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import com.epam.digital.data.platform.keycloak.rest.api.ext.attributes.AttributeIndex;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.attributes.AttributeIndexEventListenerProviderFactory;
 import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.SearchUsersByRoleAndAttributesRequestDto;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.SearchUsersByRoleAndAttributesRequestDto.RoleMatch;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.roles.RoleMembershipEventListenerProviderFactory;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.roles.RoleMembershipIndex;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.search.SearchTimeBudget;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
@@ -37,8 +45,10 @@ import org.keycloak.models.RealmModel;
 import org.keycloak.models.RoleModel;
 import org.keycloak.models.UserModel;
 import org.keycloak.models.jpa.JpaUserProvider;
+import org.keycloak.models.jpa.entities.GroupEntity;
 import org.keycloak.models.jpa.entities.UserAttributeEntity;
 import org.keycloak.models.jpa.entities.UserEntity;
+import org.keycloak.models.jpa.entities.UserGroupMembershipEntity;
 import org.keycloak.models.jpa.entities.UserRoleMappingEntity;
 
 @DisplayName("ExtendedJpaUserProvider Integration Test")
@@ -54,11 +64,12 @@ class ExtendedJpaUserProviderIT {
 
   @BeforeEach
   void setUp() {
-    entityManagerFactory = Persistence.createEntityManagerFactory("test-pu");
+    entityManagerFactory = Persistence.createEntityManagerFactory(getPersistenceUnitName());
     entityManager = entityManagerFactory.createEntityManager();
     session = mock(KeycloakSession.class);
     userProvider = new JpaUserProvider(session, entityManager);
-    extendedJpaUserProvider = new ExtendedJpaUserProvider(session, entityManager);
+    extendedJpaUserProvider = new ExtendedJpaUserProvider(session, entityManager,
+        getSearchDialect(), getRoleMembershipIndex(), getAttributeIndex());
 
     when(session.users()).thenReturn(userProvider);
 
@@ -73,6 +84,22 @@ class ExtendedJpaUserProviderIT {
     entityManager.clear();
   }
 
+  protected String getPersistenceUnitName() {
+    return "test-pu";
+  }
+
+  protected UserSearchDialect getSearchDialect() {
+    return UserSearchDialect.CRITERIA;
+  }
+
+  protected RoleMembershipIndex getRoleMembershipIndex() {
+    return null;
+  }
+
+  protected AttributeIndex getAttributeIndex() {
+    return null;
+  }
+
   @Test
   @DisplayName("Should return user by username")
   void shouldReturnUserByUsername() {
@@ -145,6 +172,53 @@ class ExtendedJpaUserProviderIT {
     assertThat(result).hasSize(0);
   }
 
+  @Test
+  @DisplayName("Should return users that have any of the roles")
+  void shouldReturnUsersByAnyRole() {
+    RealmModel realm = createRealm("test-realm");
+    UserEntity user1 = createUser(realm, "user1", true, Collections.emptyMap());
+    UserEntity user2 = createUser(realm, "user2", true, Collections.emptyMap());
+    UserEntity user3 = createUser(realm, "user3", true, Collections.emptyMap());
+    addRoleMapping(user1, DEFAULT_ROLE);
+    addRoleMapping(user1, "head-officer");
+    addRoleMapping(user2, "head-officer");
+    addRoleMapping(user3, "auditor");
+
+    SearchUsersByRoleAndAttributesRequestDto searchDto = new SearchUsersByRoleAndAttributesRequestDto();
+    searchDto.setRoleNames(List.of(DEFAULT_ROLE, "head-officer"));
+    searchDto.setRoleMatch(RoleMatch.ANY);
+
+    List<UserModel> result = extendedJpaUserProvider.searchForUserStream(realm, searchDto)
+        .collect(Collectors.toList());
+
+    assertThat(result).extracting(UserModel::getUsername).containsExactly("user1", "user2");
+  }
+
+  @Test
+  @DisplayName("Should return users that have all of the roles")
+  void shouldReturnUsersByAllRoles() {
+    RealmModel realm = createRealm("test-realm");
+    UserEntity user1 = createUser(realm, "user1", true, Collections.emptyMap());
+    UserEntity user2 = createUser(realm, "user2", true, Collections.emptyMap());
+    UserEntity user3 = createUser(realm, "user3", true, Collections.emptyMap());
+    addRoleMapping(user1, DEFAULT_ROLE);
+    addRoleMapping(user1, "auditor");
+    addRoleMapping(user1, "head-officer");
+    addRoleMapping(user2, DEFAULT_ROLE);
+    addRoleMapping(user3, "auditor");
+    addRoleMapping(user3, "head-officer");
+
+    SearchUsersByRoleAndAttributesRequestDto searchDto = new SearchUsersByRoleAndAttributesRequestDto();
+    searchDto.setRoleName(DEFAULT_ROLE);
+    searchDto.setRoleNames(List.of("auditor"));
+    searchDto.setRoleMatch(RoleMatch.ALL);
+
+    List<UserModel> result = extendedJpaUserProvider.searchForUserStream(realm, searchDto)
+        .collect(Collectors.toList());
+
+    assertThat(result).extracting(UserModel::getUsername).containsExactly("user1");
+  }
+
   @Test
   @DisplayName("Should return only the enabled users")
   void shouldReturnOnlyEnabledUsers() {
@@ -318,9 +392,254 @@ class ExtendedJpaUserProviderIT {
     assertThat(result.get(3).getUsername()).isEqualTo("user4");
   }
 
+  @Test
+  @DisplayName("Should find users that have all the attribute values in one query")
+  void shouldFindUsersByAllAttributes() {
+    RealmModel realm = createRealm("test-realm");
+    createUser(realm, "user1", true,
+        Map.of("subjectType", List.of("INDIVIDUAL"), "drfo", List.of("1010101010")));
+    createUser(realm, "user2", true,
+        Map.of("subjectType", List.of("INDIVIDUAL"), "drfo", List.of("2020202020")));
+    createUser(realm, "user3", true, Map.of("drfo", List.of("1010101010")));
+    createUser(createRealm("other-realm"), "user4", true,
+        Map.of("subjectType", List.of("INDIVIDUAL"), "drfo", List.of("1010101010")));
+
+    List<UserModel> result = extendedJpaUserProvider.searchForUserByAttributesStream(realm,
+            Map.of("subjectType", "INDIVIDUAL", "drfo", "1010101010"))
+        .collect(Collectors.toList());
+
+    assertThat(result).extracting(UserModel::getUsername).containsExactly("user1");
+  }
+
+  @Test
+  @DisplayName("Should find users whose attribute values are prefixes of the requested ones")
+  void shouldFindUsersByAttributesThatAreStartFor() {
+    RealmModel realm = createRealm("test-realm");
+    createUser(realm, "user1", true, Map.of("KATOTTG", List.of("UA0102")));
+    createUser(realm, "user2", true, Map.of("KATOTTG", List.of("UA0402003", "UA0505001002")));
+    createUser(realm, "user3", true, Map.of("KATOTTG", List.of("UA0505001")));
+    createUser(realm, "user4", true, Map.of("KATOTTG", List.of("UA0505001002999")));
+
+    var attributes = Map.of("KATOTTG", List.of("UA05050010020412345"));
+
+    List<UserModel> result = extendedJpaUserProvider
+        .searchForUserByAttributesThatAreStartForStream(realm, attributes, 10)
+        .collect(Collectors.toList());
+    List<UserModel> limitedResult = extendedJpaUserProvider
+        .searchForUserByAttributesThatAreStartForStream(realm, attributes, 1)
+        .collect(Collectors.toList());
+
+    assertThat(result).extracting(UserModel::getUsername).containsExactly("user2", "user3");
+    assertThat(limitedResult).extracting(UserModel::getUsername).containsExactly("user2");
+  }
+
+  @Test
+  @DisplayName("Should return users with attribute containing the given value literally")
+  void shouldFindUsersAttributeContains() {
+    RealmModel realm = createRealm("test-realm");
+    UserEntity user1 = createUser(realm, "user1", true, Map.of("fullName", List.of("Ivan Petrenko")));
+    UserEntity user2 = createUser(realm, "user2", true, Map.of("fullName", List.of("Petro Ivanenko")));
+    UserEntity user3 = createUser(realm, "user3", true, Map.of("fullName", List.of("100% Ivan")));
+    UserEntity user4 = createUser(realm, "user4", true, Map.of("fullName", List.of("1000 Ivan")));
+    addRoleMapping(user1, DEFAULT_ROLE);
+    addRoleMapping(user2, DEFAULT_ROLE);
+    addRoleMapping(user3, DEFAULT_ROLE);
+    addRoleMapping(user4, DEFAULT_ROLE);
+
+    SearchUsersByRoleAndAttributesRequestDto searchDto = new SearchUsersByRoleAndAttributesRequestDto();
+    searchDto.setAttributesContains(Map.of("fullName", List.of("etrenk", "0% I")));
+
+    List<UserModel> result = extendedJpaUserProvider.searchForUserStream(realm, searchDto)
+        .collect(Collectors.toList());
+
+    assertThat(result).extracting(UserModel::getUsername).containsExactly("user1", "user3");
+  }
+
+  @Test
+  @DisplayName("Should match values of the listed attributes ignoring case")
+  void shouldFindUsersByAttributesIgnoringCase() {
+    RealmModel realm = createRealm("test-realm");
+    UserEntity user1 = createUser(realm, "user1", true,
+        Map.of("email", List.of("Ivan.Petrenko@Example.com"), "code", List.of("AB12")));
+    UserEntity user2 = createUser(realm, "user2", true,
+        Map.of("email", List.of("petro@example.com"), "code", List.of("ab12")));
+    UserEntity user3 = createUser(realm, "user3", true,
+        Map.of("email", List.of("IVAN@EXAMPLE.COM"), "code", List.of("AB12")));
+    List.of(user1, user2, user3).forEach(user -> addRoleMapping(user, DEFAULT_ROLE));
+
+    SearchUsersByRoleAndAttributesRequestDto equalsDto = new SearchUsersByRoleAndAttributesRequestDto();
+    equalsDto.setAttributesEquals(Map.of("email", List.of("ivan.petrenko@example.com",
+        "ivan@example.com"), "code", List.of("AB12")));
+    equalsDto.setAttributesIgnoreCase(List.of("email"));
+    SearchUsersByRoleAndAttributesRequestDto prefixDto = new SearchUsersByRoleAndAttributesRequestDto();
+    prefixDto.setAttributesStartsWith(Map.of("email", List.of("IVAN")));
+    prefixDto.setAttributesContains(Map.of("email", List.of("PETRENKO")));
+    prefixDto.setAttributesThatAreStartFor(Map.of("code", List.of("Ab1234")));
+    prefixDto.setAttributesIgnoreCase(List.of("email", "code"));
+
+    List<UserModel> equalsResult = extendedJpaUserProvider.searchForUserStream(realm, equalsDto)
+        .collect(Collectors.toList());
+    List<UserModel> prefixResult = extendedJpaUserProvider.searchForUserStream(realm, prefixDto)
+        .collect(Collectors.toList());
+
+    assertThat(equalsResult).extracting(UserModel::getUsername).containsExactly("user1", "user3");
+    assertThat(prefixResult).extracting(UserModel::getUsername).containsExactly("user1");
+  }
+
+  @Test
+  @DisplayName("Should return pages of users ordered by username")
+  void shouldReturnPagesOfUsers() {
+    RealmModel realm = createRealm("test-realm");
+    for (var username : List.of("user3", "user1", "user4", "user2")) {
+      addRoleMapping(createUser(realm, username, true, Map.of()), DEFAULT_ROLE);
+    }
+    addRoleMapping(createUser(createRealm("other-realm"), "user0", true, Map.of()), DEFAULT_ROLE);
+    createUser(realm, "user5", true, Map.of());
+
+    SearchUsersByRoleAndAttributesRequestDto searchDto = new SearchUsersByRoleAndAttributesRequestDto();
+    searchDto.getPagination().setOffset(1);
+    searchDto.getPagination().setLimit(2);
+
+    List<UserModel> result = extendedJpaUserProvider.searchForUserStream(realm, searchDto)
+        .collect(Collectors.toList());
+
+    assertThat(result).extracting(UserModel::getUsername).containsExactly("user2", "user3");
+  }
+
+  @Test
+  @DisplayName("Should return members of the requested groups only")
+  void shouldReturnUsersByGroup() {
+    RealmModel realm = createRealm("test-realm");
+    createGroup(realm, "department", null);
+    createGroup(realm, "unit", "department");
+    UserEntity user1 = createUser(realm, "user1", true, Map.of());
+    UserEntity user2 = createUser(realm, "user2", true, Map.of());
+    UserEntity user3 = createUser(realm, "user3", true, Map.of());
+    List.of(user1, user2, user3).forEach(user -> addRoleMapping(user, DEFAULT_ROLE));
+    addGroupMembership(user1, "department");
+    addGroupMembership(user2, "unit");
+
+    SearchUsersByRoleAndAttributesRequestDto searchDto = new SearchUsersByRoleAndAttributesRequestDto();
+    searchDto.setGroups(List.of("department", "missing-group"));
+
+    List<UserModel> result = extendedJpaUserProvider.searchForUserStream(realm, searchDto)
+        .collect(Collectors.toList());
+
+    assertThat(result).extracting(UserModel::getUsername).containsExactly("user1");
+  }
+
+  @Test
+  @DisplayName("Should return members of the group subtree filtered by attributes as one page")
+  void shouldReturnUsersByGroupSubtree() {
+    RealmModel realm = createRealm("test-realm");
+    createGroup(realm, "department", null);
+    createGroup(realm, "unit", "department");
+    createGroup(realm, "team", "unit");
+    createGroup(realm, "other-department", null);
+    var groups = Map.of("user1", "department", "user2", "team", "user3", "unit",
+        "user4", "team", "user5", "other-department");
+    groups.forEach((username, groupId) -> {
+      UserEntity user = createUser(realm, username, true, Map.of("position",
+          List.of("user3".equals(username) ? "manager" : "engineer")));
+      addRoleMapping(user, DEFAULT_ROLE);
+      addGroupMembership(user, groupId);
+    });
+
+    SearchUsersByRoleAndAttributesRequestDto searchDto = new SearchUsersByRoleAndAttributesRequestDto();
+    searchDto.setGroups(List.of("department"));
+    searchDto.setIncludeSubgroups(true);
+    searchDto.setAttributesEquals(Map.of("position", List.of("engineer")));
+    searchDto.getPagination().setOffset(1);
+    searchDto.getPagination().setLimit(5);
+
+    List<UserModel> result = extendedJpaUserProvider.searchForUserStream(realm, searchDto)
+        .collect(Collectors.toList());
+
+    assertThat(result).extracting(UserModel::getUsername).containsExactly("user2", "user4");
+  }
+
+  @Test
+  @DisplayName("Should count filtered users per attribute value and value prefix")
+  void shouldCountUsersByAttributeValues() {
+    RealmModel realm = createRealm("test-realm");
+    UserEntity user1 = createUser(realm, "user1", true,
+        Map.of("edrpou", List.of("11111111"), "KATOTTG", List.of("UA0102001", "UA0102002")));
+    UserEntity user2 = createUser(realm, "user2", true,
+        Map.of("edrpou", List.of("11111111"), "KATOTTG", List.of("UA0103001")));
+    UserEntity user3 = createUser(realm, "user3", true,
+        Map.of("edrpou", List.of("22222222"), "KATOTTG", List.of("UA0504001")));
+    UserEntity user4 = createUser(realm, "user4", false,
+        Map.of("edrpou", List.of("22222222"), "KATOTTG", List.of("UA0504002")));
+    List.of(user1, user2, user3, user4).forEach(user -> addRoleMapping(user, DEFAULT_ROLE));
+    createUser(realm, "user5", true, Map.of("edrpou", List.of("11111111")));
+
+    SearchUsersByRoleAndAttributesRequestDto searchDto = new SearchUsersByRoleAndAttributesRequestDto();
+    searchDto.setEnabled(true);
+    searchDto.getPagination().setLimit(1);
+
+    var edrpouCounts = extendedJpaUserProvider.countUsersByAttributeValues(realm, searchDto,
+        "edrpou", null, SearchTimeBudget.unlimited());
+    var regionCounts = extendedJpaUserProvider.countUsersByAttributeValues(realm, searchDto,
+        "KATOTTG", 4, SearchTimeBudget.unlimited());
+    var communityCounts = extendedJpaUserProvider.countUsersByAttributeValues(realm, searchDto,
+        "KATOTTG", 6, SearchTimeBudget.unlimited());
+
+    assertThat(edrpouCounts).containsExactly(entry("11111111", 2L), entry("22222222", 1L));
+    assertThat(regionCounts).containsExactly(entry("UA01", 2L), entry("UA05", 1L));
+    assertThat(communityCounts).containsExactly(entry("UA0102", 1L), entry("UA0103", 1L),
+        entry("UA0504", 1L));
+  }
+
+  @Test
+  @DisplayName("Should select ids of filtered users up to the max count")
+  void shouldSearchUserIds() {
+    RealmModel realm = createRealm("test-realm");
+    for (var username : List.of("user3", "user1", "user2", "user4")) {
+      var user = createUser(realm, username, true,
+          Map.of("KATOTTG", List.of("user4".equals(username) ? "UA05" : "UA01")));
+      addRoleMapping(user, DEFAULT_ROLE);
+    }
+    var searchDto = new SearchUsersByRoleAndAttributesRequestDto();
+    searchDto.setAttributesStartsWith(Map.of("KATOTTG", List.of("UA01")));
+
+    var userIds = extendedJpaUserProvider.searchForUserIds(realm, searchDto, 10,
+        SearchTimeBudget.unlimited());
+    var cappedUserIds = extendedJpaUserProvider.searchForUserIds(realm, searchDto, 2,
+        SearchTimeBudget.unlimited());
+
+    assertThat(userIds).containsExactly("user1", "user2", "user3");
+    assertThat(cappedUserIds).containsExactly("user1", "user2");
+  }
+
+  @Test
+  @DisplayName("Should read users that follow the seek position in the order of username")
+  void shouldReadUsersAfterPosition() {
+    RealmModel realm = createRealm("test-realm");
+    for (var username : List.of("user3", "user1", "user5", "user2", "user4")) {
+      createUser(realm, username, true, Map.of("KATOTTG", List.of("UA01")));
+    }
+    entityManager.flush();
+    entityManager.clear();
+
+    var firstPage = extendedJpaUserProvider.getUsersStreamAfter(realm, null, null, 2,
+        UserFetchPlan.ATTRIBUTES).map(UserModel::getUsername).collect(Collectors.toList());
+    var nextPage = extendedJpaUserProvider.getUsersStreamAfter(realm, "user2", "user2", 2,
+        UserFetchPlan.ATTRIBUTES).collect(Collectors.toList());
+    var lastPage = extendedJpaUserProvider.getUsersStreamAfter(realm, "user4", "user4", -1,
+        UserFetchPlan.NONE).map(UserModel::getUsername).collect(Collectors.toList());
+
+    assertThat(firstPage).containsExactly("user1", "user2");
+    assertThat(nextPage).extracting(UserModel::getUsername).containsExactly("user3", "user4");
+    assertThat(nextPage.get(0).getFirstAttribute("KATOTTG")).isEqualTo("UA01");
+    assertThat(lastPage).containsExactly("user5");
+  }
+
   private RealmModel createRealm(String realmId) {
     RealmModel realm = mock(RealmModel.class);
     when(realm.getId()).thenReturn(realmId);
+    when(realm.getEventsListenersStream()).thenAnswer(
+        invocation -> Stream.of(RoleMembershipEventListenerProviderFactory.ID,
+            AttributeIndexEventListenerProviderFactory.ID));
     return realm;
   }
 
@@ -347,6 +666,22 @@ class ExtendedJpaUserProviderIT {
     return userEntity;
   }
 
+  private void createGroup(RealmModel realm, String groupId, String parentId) {
+    GroupEntity group = new GroupEntity();
+    group.setId(groupId);
+    group.setName(groupId);
+    group.setRealm(realm.getId());
+    group.setParentId(parentId == null ? GroupEntity.TOP_PARENT_ID : parentId);
+    entityManager.persist(group);
+  }
+
+  private void addGroupMembership(UserEntity user, String groupId) {
+    UserGroupMembershipEntity membership = new UserGroupMembershipEntity();
+    membership.setUser(user);
+    membership.setGroupId(groupId);
+    entityManager.persist(membership);
+  }
+
   private void addRoleMapping(UserEntity user, String roleId) {
     UserRoleMappingEntity roleMapping = new UserRoleMappingEntity();
     roleMapping.setUser(user);
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext;
+
+import org.junit.jupiter.api.DisplayName;
+
+/**
+ * Runs the scenarios of {@link ExtendedJpaUserProviderIT} with the native PostgreSQL dialect
+ * against H2 in PostgreSQL compatibility mode.
+ */
+@DisplayName("ExtendedJpaUserProvider PostgreSQL Dialect Integration Test")
+class ExtendedJpaUserProviderPostgresIT extends ExtendedJpaUserProviderIT {
+
+  @Override
+  protected String getPersistenceUnitName() {
+    return "test-pg-pu";
+  }
+
+  @Override
+  protected UserSearchDialect getSearchDialect() {
+    return UserSearchDialect.POSTGRESQL;
+  }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.SearchUsersByRoleAndAttributesRequestDto;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.SearchUsersByRoleAndAttributesRequestDto.RoleMatch;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.search.SearchTimeBudget;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.keycloak.credential.CredentialModel;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.UserModel;
+import org.keycloak.models.jpa.entities.CredentialEntity;
+import org.keycloak.models.jpa.entities.UserAttributeEntity;
+import org.keycloak.models.jpa.entities.UserEntity;
+import org.keycloak.models.jpa.entities.UserRequiredActionEntity;
+import org.keycloak.models.jpa.entities.UserRoleMappingEntity;
+
+/**
+ * Guards count of the statements of the searches: it must not grow with the page size.
+ */
+@DisplayName("ExtendedJpaUserProvider Query Count Integration Test")
+class ExtendedJpaUserProviderQueryCountIT {
+
+  private static final int USERS = 60;
+  /**
+   * Counts of the users that have the {@code first<count>} attribute, so a search by it finds
+   * exactly that many users.
+   */
+  private static final List<Integer> MATCHING_USERS = List.of(1, 10, 50);
+  private static final String REALM_ID = "test-realm";
+
+  private EntityManagerFactory entityManagerFactory;
+  private EntityManager entityManager;
+  private QueryStatistics queryStatistics;
+  private ExtendedJpaUserProvider extendedJpaUserProvider;
+  private RealmModel realm;
+
+  @BeforeEach
+  void setUp() {
+    entityManagerFactory = Persistence.createEntityManagerFactory("test-pu");
+    entityManager = entityManagerFactory.createEntityManager();
+    queryStatistics = new QueryStatistics(entityManagerFactory);
+    extendedJpaUserProvider = new ExtendedJpaUserProvider(mock(KeycloakSession.class),
+        entityManager);
+    realm = mock(RealmModel.class);
+    when(realm.getId()).thenReturn(REALM_ID);
+
+    entityManager.getTransaction().begin();
+    for (var i = 0; i < USERS; i++) {
+      var attributes = new HashMap<>(Map.of(
+          "subjectType", "INDIVIDUAL",
+          "drfo", String.format("%010d", i),
+          "KATOTTG", "UA0102" + i));
+      for (var matchingUsers : MATCHING_USERS) {
+        if (i < matchingUsers) {
+          attributes.put("first" + matchingUsers, "true");
+        }
+      }
+      createUser(String.format("user%03d", i), attributes);
+    }
+    entityManager.flush();
+    entityManager.clear();
+  }
+
+  @AfterEach
+  void tearDown() {
+    entityManager.getTransaction().rollback();
+    entityManager.close();
+    entityManagerFactory.close();
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {1, 10, 50})
+  @DisplayName("Should search users by role and attributes with one statement")
+  void shouldSearchByRoleAndAttributesWithOneStatement(int pageSize) {
+    var searchDto = new SearchUsersByRoleAndAttributesRequestDto();
+    searchDto.setRoleNames(List.of("officer", "auditor"));
+    searchDto.setRoleMatch(RoleMatch.ALL);
+    searchDto.setAttributesStartsWith(Map.of("KATOTTG", List.of("UA01")));
+    searchDto.setAttributesEquals(Map.of("subjectType", List.of("INDIVIDUAL")));
+    searchDto.getPagination().setLimit(pageSize);
+    searchDto.getPagination().setOffset(0);
+
+    var measured = queryStatistics.measure(() -> usernames(
+        extendedJpaUserProvider.searchForUserStream(realm, searchDto).collect(Collectors.toList())));
+
+    assertThat(measured.getResult()).hasSize(pageSize);
+    assertSearchCounts(measured.getCounts(), pageSize);
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {1, 10, 50})
+  @DisplayName("Should search users by prefixes of attribute values with one statement")
+  void shouldSearchByAttributesThatAreStartForWithOneStatement(int pageSize) {
+    var measured = queryStatistics.measure(() -> usernames(extendedJpaUserProvider
+        .searchForUserByAttributesThatAreStartForStream(realm,
+            Map.of("KATOTTG", List.of("UA01020")), pageSize)
+        .collect(Collectors.toList())));
+
+    assertThat(measured.getResult()).isNotEmpty().hasSizeLessThanOrEqualTo(pageSize);
+    assertSearchCounts(measured.getCounts(), measured.getResult().size());
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {1, 10, 50})
+  @DisplayName("Should search users by all attribute values with one statement")
+  void shouldSearchByAttributesWithOneStatement(int matchingUsers) {
+    var measured = queryStatistics.measure(() -> usernames(extendedJpaUserProvider
+        .searchForUserByAttributesStream(realm,
+            Map.of("subjectType", "INDIVIDUAL", "first" + matchingUsers, "true"))
+        .collect(Collectors.toList())));
+
+    assertThat(measured.getResult()).hasSize(matchingUsers);
+    assertSearchCounts(measured.getCounts(), matchingUsers);
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {1, 10, 50})
+  @DisplayName("Should hydrate page of users with one statement per association")
+  void shouldHydrateUsersWithStatementPerAssociation(int pageSize) {
+    var searchDto = new SearchUsersByRoleAndAttributesRequestDto();
+    searchDto.setRoleName("officer");
+    searchDto.getPagination().setLimit(pageSize);
+    searchDto.getPagination().setOffset(0);
+
+    var measured = queryStatistics.measure(() -> extendedJpaUserProvider
+        .searchForUserStream(realm, searchDto, SearchTimeBudget.unlimited(),
+            UserFetchPlan.REPRESENTATION)
+        .map(user -> List.of(
+            user.getAttributes().get("drfo"),
+            user.getRequiredActionsStream().collect(Collectors.toList()),
+            extendedJpaUserProvider.getStoredCredentialsByTypeStream(realm, user, "password")
+                .map(CredentialModel::getUserLabel).collect(Collectors.toList())))
+        .collect(Collectors.toList()));
+
+    assertThat(measured.getResult()).hasSize(pageSize)
+        .allSatisfy(hydrated -> assertThat(hydrated).allSatisfy(
+            values -> assertThat(values).hasSize(1)));
+    var counts = measured.getCounts();
+    assertThat(counts.getPreparedStatements()).as("prepared statements: %s", counts)
+        .isEqualTo(4);
+    assertThat(counts.getCollectionFetches()).as("collection fetches: %s", counts)
+        .isZero();
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {0, 4, 6})
+  @DisplayName("Should count users per attribute value with one statement and no entity loads")
+  void shouldCountUsersByAttributeValuesWithOneStatement(int prefixLength) {
+    var searchDto = new SearchUsersByRoleAndAttributesRequestDto();
+    searchDto.setRoleName("officer");
+    searchDto.setAttributesEquals(Map.of("subjectType", List.of("INDIVIDUAL")));
+
+    var measured = queryStatistics.measure(() -> extendedJpaUserProvider
+        .countUsersByAttributeValues(realm, searchDto, "KATOTTG", prefixLength,
+            SearchTimeBudget.unlimited()));
+
+    assertThat(measured.getResult().values().stream().mapToLong(Long::longValue).sum())
+        .isEqualTo(USERS);
+    var counts = measured.getCounts();
+    assertThat(counts.getPreparedStatements()).as("prepared statements: %s", counts)
+        .isEqualTo(1);
+    assertThat(counts.getEntityLoads()).as("entity loads: %s", counts).isZero();
+  }
+
+  private void assertSearchCounts(QueryStatistics.Counts counts, int foundUsers) {
+    assertThat(counts.getPreparedStatements()).as("prepared statements: %s", counts)
+        .isEqualTo(1);
+    assertThat(counts.getEntityLoads()).as("entity loads: %s", counts)
+        .isLessThanOrEqualTo(foundUsers);
+    assertThat(counts.getCollectionFetches()).as("collection fetches: %s", counts)
+        .isZero();
+  }
+
+  private static List<String> usernames(List<UserModel> users) {
+    return users.stream().map(UserModel::getUsername).collect(Collectors.toList());
+  }
+
+  private void createUser(String username, Map<String, String> attributes) {
+    UserEntity userEntity = new UserEntity();
+    userEntity.setId(username);
+    userEntity.setUsername(username);
+    userEntity.setEnabled(true);
+    userEntity.setRealmId(REALM_ID);
+    entityManager.persist(userEntity);
+
+    attributes.forEach((name, value) -> {
+      UserAttributeEntity attributeEntity = new UserAttributeEntity();
+      attributeEntity.setId(UUID.randomUUID().toString());
+      attributeEntity.setUser(userEntity);
+      attributeEntity.setName(name);
+      attributeEntity.setValue(value);
+      entityManager.persist(attributeEntity);
+    });
+
+    UserRequiredActionEntity requiredAction = new UserRequiredActionEntity();
+    requiredAction.setUser(userEntity);
+    requiredAction.setAction("UPDATE_PASSWORD");
+    entityManager.persist(requiredAction);
+
+    CredentialEntity credential = new CredentialEntity();
+    credential.setId(UUID.randomUUID().toString());
+    credential.setUser(userEntity);
+    credential.setType("password");
+    credential.setUserLabel(username);
+    credential.setPriority(10);
+    entityManager.persist(credential);
+
+    for (var roleId : List.of("officer", "auditor")) {
+      UserRoleMappingEntity roleMapping = new UserRoleMappingEntity();
+      roleMapping.setUser(userEntity);
+      roleMapping.setRoleId(roleId);
+      entityManager.persist(roleMapping);
+    }
+  }
+}
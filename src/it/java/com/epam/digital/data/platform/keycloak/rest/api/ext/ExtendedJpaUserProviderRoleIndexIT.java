@@ -0,0 +1,34 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext;
+
+import com.epam.digital.data.platform.keycloak.rest.api.ext.roles.RoleMembershipIndex;
+import org.junit.jupiter.api.DisplayName;
+
+/**
+ * Runs the scenarios of {@link ExtendedJpaUserProviderIT} with role filters evaluated by the role
+ * membership index.
+ */
+@DisplayName("ExtendedJpaUserProvider Role Membership Index Integration Test")
+class ExtendedJpaUserProviderRoleIndexIT extends ExtendedJpaUserProviderIT {
+
+  @Override
+  protected RoleMembershipIndex getRoleMembershipIndex() {
+    return new RoleMembershipIndex(RoleMembershipIndex.Config.builder().build());
+  }
+}
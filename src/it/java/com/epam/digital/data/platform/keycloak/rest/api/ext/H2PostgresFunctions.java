@@ -0,0 +1,34 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext;
+
+/**
+ * PostgreSQL functions that H2 doesn't have in PostgreSQL compatibility mode, registered as
+ * aliases by {@code test-pg-pu} persistence unit.
+ */
+public final class H2PostgresFunctions {
+
+  private H2PostgresFunctions() {
+  }
+
+  public static Boolean startsWith(String value, String prefix) {
+    if (value == null || prefix == null) {
+      return null;
+    }
+    return value.startsWith(prefix);
+  }
+}
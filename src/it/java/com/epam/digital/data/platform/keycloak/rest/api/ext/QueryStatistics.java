@@ -0,0 +1,64 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext;
+
+import java.util.function.Supplier;
+import javax.persistence.EntityManagerFactory;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+/**
+ * Counts statements and loads that Hibernate executes during an action, so tests can put upper
+ * bounds on them and catch N+1 selects.
+ */
+public class QueryStatistics {
+
+  private final Statistics statistics;
+
+  public QueryStatistics(EntityManagerFactory entityManagerFactory) {
+    this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    this.statistics.setStatisticsEnabled(true);
+  }
+
+  public <T> Measured<T> measure(Supplier<T> action) {
+    statistics.clear();
+    var result = action.get();
+    return new Measured<>(result, new Counts(statistics.getPrepareStatementCount(),
+        statistics.getEntityLoadCount(), statistics.getCollectionFetchCount()));
+  }
+
+  @Getter
+  @RequiredArgsConstructor
+  public static class Measured<T> {
+
+    private final T result;
+    private final Counts counts;
+  }
+
+  @Getter
+  @ToString
+  @RequiredArgsConstructor
+  public static class Counts {
+
+    private final long preparedStatements;
+    private final long entityLoads;
+    private final long collectionFetches;
+  }
+}
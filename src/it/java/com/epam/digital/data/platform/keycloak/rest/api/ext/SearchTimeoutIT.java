@@ -0,0 +1,174 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.SearchUsersByRoleAndAttributesRequestDto;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.search.SearchTimeBudget;
+import java.sql.Connection;
+import java.util.Map;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import javax.persistence.PersistenceException;
+import javax.persistence.QueryTimeoutException;
+import lombok.SneakyThrows;
+import org.assertj.core.api.ThrowableAssert.ThrowingCallable;
+import org.h2.api.Trigger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.jpa.entities.UserEntity;
+import org.keycloak.models.jpa.entities.UserRoleMappingEntity;
+
+/**
+ * Checks that a statement cancelled by the database because it outlived the time budget is
+ * recognized as timeout, whether Hibernate reads its result as a list or streams it. Every select
+ * of the users is slowed down by a trigger beyond the shortest query timeout.
+ */
+@DisplayName("Search Timeout Integration Test")
+class SearchTimeoutIT {
+
+  private static final String REALM_ID = "test-realm";
+  /**
+   * H2 checks whether the statement is cancelled once per a number of read rows, so there must be
+   * more users than that.
+   */
+  private static final int USERS = 1000;
+  private static final long SELECT_DELAY_MILLIS = 1500L;
+
+  private static volatile boolean slowSelects;
+
+  private EntityManagerFactory entityManagerFactory;
+  private EntityManager entityManager;
+  private ExtendedJpaUserProvider extendedJpaUserProvider;
+  private RealmModel realm;
+
+  @BeforeEach
+  void setUp() {
+    entityManagerFactory = Persistence.createEntityManagerFactory("test-pu", Map.of(
+        "javax.persistence.jdbc.url", "jdbc:h2:mem:testtimeoutdb;DB_CLOSE_DELAY=-1;MODE=MySQL"));
+    entityManager = entityManagerFactory.createEntityManager();
+    extendedJpaUserProvider = new ExtendedJpaUserProvider(mock(KeycloakSession.class),
+        entityManager);
+    realm = mock(RealmModel.class);
+    when(realm.getId()).thenReturn(REALM_ID);
+
+    entityManager.getTransaction().begin();
+    entityManager.createNativeQuery("create trigger if not exists \"SLOW_USER_SELECT\""
+            + " before select on \"USER_ENTITY\" call '" + SlowSelectTrigger.class.getName() + "'")
+        .executeUpdate();
+    for (var i = 0; i < USERS; i++) {
+      createUser(String.format("user%04d", i));
+    }
+    entityManager.flush();
+    entityManager.clear();
+    slowSelects = true;
+  }
+
+  @AfterEach
+  void tearDown() {
+    slowSelects = false;
+    if (entityManager.getTransaction().isActive()) {
+      entityManager.getTransaction().rollback();
+    }
+    entityManager.close();
+    entityManagerFactory.close();
+  }
+
+  @Test
+  @DisplayName("Should recognize timeout of a search read as a list")
+  void shouldRecognizeTimeoutOfListedSearch() {
+    assertTimeout(() -> extendedJpaUserProvider.searchForUserStream(realm, searchDto(),
+            SearchTimeBudget.ofMillis(1), UserFetchPlan.REPRESENTATION)
+        .collect(Collectors.toList()));
+  }
+
+  @Test
+  @DisplayName("Should recognize timeout of a streamed search")
+  void shouldRecognizeTimeoutOfStreamedSearch() {
+    assertTimeout(() -> extendedJpaUserProvider.searchForUserStream(realm, searchDto(),
+            SearchTimeBudget.ofMillis(1), UserFetchPlan.NONE)
+        .collect(Collectors.toList()));
+  }
+
+  @Test
+  @DisplayName("Should recognize timeout of streamed users read by seek position")
+  void shouldRecognizeTimeoutOfStreamedUsersAfterPosition() {
+    assertTimeout(() -> SearchTimeBudget.ofMillis(1).withQueryTimeout(entityManager,
+        () -> extendedJpaUserProvider.getUsersStreamAfter(realm, null, null, -1,
+                UserFetchPlan.NONE)
+            .collect(Collectors.toList())));
+  }
+
+  @Test
+  @DisplayName("Should throw JPA timeout when counting users per attribute value")
+  void shouldThrowJpaTimeoutOfFacetCounts() {
+    assertThatThrownBy(() -> extendedJpaUserProvider.countUsersByAttributeValues(realm,
+        searchDto(), "KATOTTG", null, SearchTimeBudget.ofMillis(1)))
+        .isInstanceOf(QueryTimeoutException.class);
+  }
+
+  private static void assertTimeout(ThrowingCallable search) {
+    assertThatThrownBy(search)
+        .isInstanceOfSatisfying(PersistenceException.class,
+            e -> assertThat(SearchTimeBudget.isTimeout(e))
+                .as("timeout: %s", e).isTrue());
+  }
+
+  private static SearchUsersByRoleAndAttributesRequestDto searchDto() {
+    var searchDto = new SearchUsersByRoleAndAttributesRequestDto();
+    searchDto.setRoleName("officer");
+    return searchDto;
+  }
+
+  private void createUser(String username) {
+    UserEntity userEntity = new UserEntity();
+    userEntity.setId(username);
+    userEntity.setUsername(username);
+    userEntity.setEnabled(true);
+    userEntity.setRealmId(REALM_ID);
+    entityManager.persist(userEntity);
+
+    UserRoleMappingEntity roleMappingEntity = new UserRoleMappingEntity();
+    roleMappingEntity.setUser(userEntity);
+    roleMappingEntity.setRoleId("officer");
+    entityManager.persist(roleMappingEntity);
+  }
+
+  /**
+   * Delays every select of the users table while {@link #slowSelects} is set.
+   */
+  public static class SlowSelectTrigger implements Trigger {
+
+    @Override
+    @SneakyThrows
+    public void fire(Connection connection, Object[] oldRow, Object[] newRow) {
+      if (slowSelects) {
+        Thread.sleep(SELECT_DELAY_MILLIS);
+      }
+    }
+  }
+}
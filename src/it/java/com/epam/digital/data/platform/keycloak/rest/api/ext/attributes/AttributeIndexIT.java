@@ -0,0 +1,191 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.attributes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.epam.digital.data.platform.keycloak.rest.api.ext.QueryStatistics;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.index.UserIndexChangedEvent;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.jpa.entities.UserAttributeEntity;
+import org.keycloak.models.jpa.entities.UserEntity;
+
+@DisplayName("AttributeIndex Integration Test")
+class AttributeIndexIT {
+
+  private static final String REALM_ID = "test-realm";
+
+  private EntityManagerFactory entityManagerFactory;
+  private EntityManager entityManager;
+  private RealmModel realm;
+  private AttributeIndex index;
+
+  @BeforeEach
+  void setUp() {
+    entityManagerFactory = Persistence.createEntityManagerFactory("test-pu");
+    entityManager = entityManagerFactory.createEntityManager();
+    index = new AttributeIndex(AttributeIndex.Config.builder()
+        .attributes(List.of("drfo", "KATOTTG"))
+        .maxCandidates(3)
+        .build());
+    realm = mock(RealmModel.class);
+    when(realm.getId()).thenReturn(REALM_ID);
+    when(realm.getEventsListenersStream()).thenAnswer(
+        invocation -> Stream.of(AttributeIndexEventListenerProviderFactory.ID));
+
+    entityManager.getTransaction().begin();
+    createUser("user1", Map.of("drfo", "1010101014", "KATOTTG", "UA05050010020412345",
+        "fullName", "Ivan"));
+    createUser("user2", Map.of("drfo", "2020202028", "KATOTTG", "UA05050010020400000"));
+    createUser("user3", Map.of("drfo", "3030303032", "KATOTTG", "UA07000000000000000"));
+  }
+
+  @AfterEach
+  void tearDown() {
+    entityManager.getTransaction().rollback();
+    entityManager.close();
+    entityManagerFactory.close();
+  }
+
+  @Test
+  @DisplayName("Should find users by equality, prefix and start for without querying after the build")
+  void shouldFindUsersByAttributes() {
+    assertThat(index.warm(entityManager, realm)).isTrue();
+
+    var queryStatistics = new QueryStatistics(entityManagerFactory);
+    var measured = queryStatistics.measure(() -> List.of(
+        find(Map.of("drfo", List.of("1010101014", "3030303032")), Map.of(), Map.of()),
+        find(Map.of(), Map.of("KATOTTG", List.of("UA0505")), Map.of()),
+        find(Map.of("drfo", List.of("2020202028")), Map.of("KATOTTG", List.of("UA0505")),
+            Map.of()),
+        find(Map.of(), Map.of(), Map.of("KATOTTG", List.of("UA05050010020412345999"))),
+        find(Map.of("drfo", List.of("unknown")), Map.of(), Map.of())));
+
+    assertThat(measured.getResult()).containsExactly(List.of("user1", "user3"),
+        List.of("user1", "user2"), List.of("user2"), List.of("user1"), List.of());
+    assertThat(measured.getCounts().getPreparedStatements()).isZero();
+
+    var stats = index.getStats(realm);
+    assertThat(stats.isEnabled()).isTrue();
+    assertThat(stats.isBuilt()).isTrue();
+    assertThat(stats.getAttributes()).containsExactly("drfo", "KATOTTG");
+    assertThat(stats.getUsers()).isEqualTo(3);
+    assertThat(stats.getValues()).containsEntry("drfo", 3).containsEntry("KATOTTG", 3);
+    assertThat(stats.getTotalBytes())
+        .isEqualTo(stats.getPostingBytes() + stats.getUserBytes());
+    assertThat(stats.getLookups()).isEqualTo(5);
+    assertThat(stats.getRebuilds()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Should serve only the conditions of the indexed attributes matched by case")
+  void shouldServeIndexedConditionsOnly() {
+    var match = index.findUserIds(entityManager, realm, Map.of("drfo", List.of("1010101014"),
+            "fullName", List.of("Ivan")), Map.of("KATOTTG", List.of("ua0505")), Map.of(),
+        Set.of("KATOTTG")).orElseThrow();
+
+    assertThat(match.getUserIds()).containsExactly("user1");
+    assertThat(match.getAttributesEquals()).containsExactly("drfo");
+    assertThat(match.getAttributesStartsWith()).isEmpty();
+
+    assertThat(index.findUserIds(entityManager, realm, Map.of("fullName", List.of("Ivan")),
+        Map.of(), Map.of(), Set.of())).isEmpty();
+    assertThat(index.getStats(realm).getLookups()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Should re-read attributes of the changed users only")
+  void shouldRefreshChangedUsers() {
+    index.warm(entityManager, realm);
+    createUser("user4", Map.of("drfo", "1010101014"));
+    entityManager.createQuery("delete from UserAttributeEntity a where a.user.id = 'user1'")
+        .executeUpdate();
+
+    index.apply(new UserIndexChangedEvent(REALM_ID, Set.of("user1", "user4")));
+
+    assertThat(find(Map.of("drfo", List.of("1010101014")), Map.of(), Map.of()))
+        .containsExactly("user4");
+    assertThat(find(Map.of(), Map.of("KATOTTG", List.of("UA")), Map.of()))
+        .containsExactly("user2", "user3");
+    var stats = index.getStats(realm);
+    assertThat(stats.getRefreshedUsers()).isEqualTo(2);
+    assertThat(stats.getRebuilds()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Should leave the conditions to the database when too many users match")
+  void shouldFallBackWhenTooManyUsersMatch() {
+    createUser("user4", Map.of("KATOTTG", "UA07000000000000001"));
+
+    var match = index.findUserIds(entityManager, realm, Map.of(),
+        Map.of("KATOTTG", List.of("UA")), Map.of(), Set.of());
+
+    assertThat(match).isEmpty();
+    assertThat(index.getStats(realm).getFallbacks()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Should not index a realm without the event listener")
+  void shouldNotIndexRealmWithoutListener() {
+    when(realm.getEventsListenersStream()).thenAnswer(invocation -> Stream.of("jboss-logging"));
+
+    assertThat(index.warm(entityManager, realm)).isFalse();
+    assertThat(index.findUserIds(entityManager, realm, Map.of("drfo", List.of("1010101014")),
+        Map.of(), Map.of(), Set.of())).isEmpty();
+    var stats = index.getStats(realm);
+    assertThat(stats.isEnabled()).isFalse();
+    assertThat(stats.isBuilt()).isFalse();
+  }
+
+  private List<String> find(Map<String, List<String>> attributesEquals,
+      Map<String, List<String>> attributesStartsWith,
+      Map<String, List<String>> attributesThatAreStartFor) {
+    return index.findUserIds(entityManager, realm, attributesEquals, attributesStartsWith,
+        attributesThatAreStartFor, Set.of()).orElseThrow().getUserIds();
+  }
+
+  private void createUser(String id, Map<String, String> attributes) {
+    var user = new UserEntity();
+    user.setId(id);
+    user.setUsername(id);
+    user.setRealmId(REALM_ID);
+    entityManager.persist(user);
+    attributes.forEach((name, value) -> {
+      var attribute = new UserAttributeEntity();
+      attribute.setId(UUID.randomUUID().toString());
+      attribute.setUser(user);
+      attribute.setName(name);
+      attribute.setValue(value);
+      entityManager.persist(attribute);
+    });
+  }
+}
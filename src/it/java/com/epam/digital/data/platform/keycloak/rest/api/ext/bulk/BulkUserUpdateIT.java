@@ -0,0 +1,280 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.bulk;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import com.epam.digital.data.platform.keycloak.rest.api.ext.QueryStatistics;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.BulkUpdateUserAttributesRequestDto.Operation;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.BulkUpdateUserAttributesRequestDto.OperationType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.keycloak.models.jpa.entities.UserAttributeEntity;
+import org.keycloak.models.jpa.entities.UserEntity;
+import org.keycloak.models.jpa.entities.UserRoleMappingEntity;
+
+@DisplayName("BulkUserUpdate Integration Test")
+class BulkUserUpdateIT {
+
+  private static final String REALM_ID = "test-realm";
+
+  private EntityManagerFactory entityManagerFactory;
+  private EntityManager entityManager;
+  private BulkUserUpdate bulkUserUpdate;
+
+  @BeforeEach
+  void setUp() {
+    entityManagerFactory = Persistence.createEntityManagerFactory("test-pu");
+    entityManager = entityManagerFactory.createEntityManager();
+    bulkUserUpdate = new BulkUserUpdate(entityManager,
+        BulkUserUpdate.Policy.builder().batchSize(20).build());
+    entityManager.getTransaction().begin();
+  }
+
+  @AfterEach
+  void tearDown() {
+    entityManager.getTransaction().rollback();
+    entityManager.close();
+    entityManagerFactory.close();
+  }
+
+  @Test
+  @DisplayName("Should apply operations to attributes of every user")
+  void shouldApplyOperations() {
+    createUser(REALM_ID, "user1", Map.of("edrpou", List.of("11111111"),
+        "KATOTTG", List.of("UA01", "UA02"), "fullName", List.of("Officer One")));
+    createUser(REALM_ID, "user2", Map.of("edrpou", List.of("22222222"),
+        "KATOTTG", List.of("UA02")));
+    flushAndClear();
+
+    var result = bulkUserUpdate.updateAttributes(REALM_ID, List.of("user1", "user2"), List.of(
+        operation(OperationType.REPLACE, "edrpou", List.of(), "11111111", "33333333"),
+        operation(OperationType.SET, "KATOTTG", List.of("UA05"), null, null),
+        operation(OperationType.REMOVE, "fullName", List.of(), null, null)));
+    flushAndClear();
+
+    assertThat(result.getUpdatedUsers()).extracting(UserEntity::getId)
+        .containsExactly("user1", "user2");
+    assertThat(result.getNotFoundUserIds()).isEmpty();
+    assertThat(attributes("user1")).containsExactly(entry("KATOTTG", List.of("UA05")),
+        entry("edrpou", List.of("33333333")));
+    assertThat(attributes("user2")).containsExactly(entry("KATOTTG", List.of("UA05")),
+        entry("edrpou", List.of("22222222")));
+  }
+
+  @Test
+  @DisplayName("Should remove only listed values and skip users that aren't changed")
+  void shouldRemoveListedValues() {
+    createUser(REALM_ID, "user1", Map.of("KATOTTG", List.of("UA01", "UA02")));
+    createUser(REALM_ID, "user2", Map.of("KATOTTG", List.of("UA03")));
+    flushAndClear();
+
+    var result = bulkUserUpdate.updateAttributes(REALM_ID, List.of("user1", "user2"),
+        List.of(operation(OperationType.REMOVE, "KATOTTG", List.of("UA01"), null, null)));
+    flushAndClear();
+
+    assertThat(result.getUpdatedUsers()).extracting(UserEntity::getId).containsExactly("user1");
+    assertThat(attributes("user1")).containsExactly(entry("KATOTTG", List.of("UA02")));
+    assertThat(attributes("user2")).containsExactly(entry("KATOTTG", List.of("UA03")));
+  }
+
+  @Test
+  @DisplayName("Should not update users of other realms")
+  void shouldReportUsersThatAreNotFound() {
+    createUser(REALM_ID, "user1", Map.of());
+    createUser("other-realm", "user2", Map.of("edrpou", List.of("22222222")));
+    flushAndClear();
+
+    var result = bulkUserUpdate.updateAttributes(REALM_ID, List.of("user1", "user2", "user3"),
+        List.of(operation(OperationType.SET, "edrpou", List.of("11111111"), null, null)));
+    flushAndClear();
+
+    assertThat(result.getUpdatedUsers()).extracting(UserEntity::getId).containsExactly("user1");
+    assertThat(result.getNotFoundUserIds()).containsExactly("user2", "user3");
+    assertThat(attributes("user1")).containsExactly(entry("edrpou", List.of("11111111")));
+    assertThat(attributes("user2")).containsExactly(entry("edrpou", List.of("22222222")));
+  }
+
+  @Test
+  @DisplayName("Should keep loaded attributes of the user in sync")
+  void shouldUpdateLoadedAttributes() {
+    createUser(REALM_ID, "user1", Map.of("edrpou", List.of("11111111")));
+    flushAndClear();
+    var user = entityManager.find(UserEntity.class, "user1");
+    assertThat(user.getAttributes()).hasSize(1);
+
+    bulkUserUpdate.updateAttributes(REALM_ID, List.of("user1"),
+        List.of(operation(OperationType.SET, "edrpou", List.of("22222222"), null, null)));
+
+    assertThat(user.getAttributes()).extracting(UserAttributeEntity::getValue)
+        .containsExactly("22222222");
+  }
+
+  @Test
+  @DisplayName("Should update users with count of statements that doesn't grow with the users")
+  void shouldBatchStatements() {
+    var userIds = IntStream.range(0, 60).mapToObj(i -> String.format("user%03d", i))
+        .collect(Collectors.toList());
+    userIds.forEach(userId -> createUser(REALM_ID, userId, Map.of(
+        "edrpou", List.of("11111111"), "KATOTTG", List.of("UA01"))));
+    flushAndClear();
+    var queryStatistics = new QueryStatistics(entityManagerFactory);
+
+    var measured = queryStatistics.measure(() -> bulkUserUpdate.updateAttributes(REALM_ID,
+        userIds, List.of(
+            operation(OperationType.REPLACE, "edrpou", List.of(), "11111111", "22222222"),
+            operation(OperationType.SET, "KATOTTG", List.of("UA05"), null, null))));
+
+    assertThat(measured.getResult().getUpdatedUsers()).hasSize(60);
+    // users, attributes, then batches of updates, inserts and deletes
+    assertThat(measured.getCounts().getPreparedStatements()).isLessThanOrEqualTo(2 + 3 * 3);
+    assertThat(measured.getCounts().getEntityLoads()).isEqualTo(60 + 120);
+  }
+
+  @Test
+  @DisplayName("Should grant role to users that don't have it")
+  void shouldGrantRole() {
+    createUser(REALM_ID, "user1", Map.of());
+    createUser(REALM_ID, "user2", Map.of());
+    addRoleMapping("user2", "officer");
+    flushAndClear();
+
+    var result = bulkUserUpdate.grantRole(REALM_ID, "officer",
+        List.of("user1", "user2", "user3"));
+    flushAndClear();
+
+    assertThat(result.getUpdatedUsers()).extracting(UserEntity::getId).containsExactly("user1");
+    assertThat(result.getNotFoundUserIds()).containsExactly("user3");
+    assertThat(roleUserIds("officer")).containsExactly("user1", "user2");
+  }
+
+  @Test
+  @DisplayName("Should revoke role from users with one statement")
+  void shouldRevokeRole() {
+    var userIds = IntStream.range(0, 60).mapToObj(i -> String.format("user%03d", i))
+        .collect(Collectors.toList());
+    userIds.forEach(userId -> {
+      createUser(REALM_ID, userId, Map.of());
+      addRoleMapping(userId, "officer");
+      addRoleMapping(userId, "auditor");
+    });
+    createUser(REALM_ID, "user-without-role", Map.of());
+    flushAndClear();
+    var queryStatistics = new QueryStatistics(entityManagerFactory);
+    var requestedUserIds = new ArrayList<>(userIds);
+    requestedUserIds.add("user-without-role");
+
+    var measured = queryStatistics.measure(
+        () -> bulkUserUpdate.revokeRole(REALM_ID, "officer", requestedUserIds));
+    flushAndClear();
+
+    assertThat(measured.getResult().getUpdatedUsers()).hasSize(60);
+    // users, role mappings and the delete
+    assertThat(measured.getCounts().getPreparedStatements()).isEqualTo(3);
+    assertThat(roleUserIds("officer")).isEmpty();
+    assertThat(roleUserIds("auditor")).hasSize(60);
+  }
+
+  @Test
+  @DisplayName("Should grant role with count of statements that doesn't grow with the users")
+  void shouldBatchGrantedRoleMappings() {
+    var userIds = IntStream.range(0, 60).mapToObj(i -> String.format("user%03d", i))
+        .collect(Collectors.toList());
+    userIds.forEach(userId -> createUser(REALM_ID, userId, Map.of()));
+    flushAndClear();
+    var queryStatistics = new QueryStatistics(entityManagerFactory);
+
+    var measured = queryStatistics.measure(
+        () -> bulkUserUpdate.grantRole(REALM_ID, "officer", userIds));
+
+    assertThat(measured.getResult().getUpdatedUsers()).hasSize(60);
+    // users, role mappings, then batches of inserts
+    assertThat(measured.getCounts().getPreparedStatements()).isLessThanOrEqualTo(2 + 3);
+  }
+
+  private void addRoleMapping(String userId, String roleId) {
+    var mapping = new UserRoleMappingEntity();
+    mapping.setUser(entityManager.getReference(UserEntity.class, userId));
+    mapping.setRoleId(roleId);
+    entityManager.persist(mapping);
+  }
+
+  private List<String> roleUserIds(String roleId) {
+    return entityManager.createQuery("select m.user.id from UserRoleMappingEntity m "
+            + "where m.roleId = :roleId order by m.user.id", String.class)
+        .setParameter("roleId", roleId)
+        .getResultList();
+  }
+
+  private static Operation operation(OperationType type, String attribute, List<String> values,
+      String from, String to) {
+    var operation = new Operation();
+    operation.setType(type);
+    operation.setAttribute(attribute);
+    operation.setValues(values);
+    operation.setFrom(from);
+    operation.setTo(to);
+    return operation;
+  }
+
+  private void flushAndClear() {
+    entityManager.flush();
+    entityManager.clear();
+  }
+
+  private Map<String, List<String>> attributes(String userId) {
+    return entityManager.createQuery("select a from UserAttributeEntity a "
+            + "where a.user.id = :userId", UserAttributeEntity.class)
+        .setParameter("userId", userId)
+        .getResultStream()
+        .collect(Collectors.groupingBy(UserAttributeEntity::getName, TreeMap::new,
+            Collectors.mapping(UserAttributeEntity::getValue,
+                Collectors.toCollection(ArrayList::new))));
+  }
+
+  private void createUser(String realmId, String username, Map<String, List<String>> attributes) {
+    var user = new UserEntity();
+    user.setId(username);
+    user.setUsername(username);
+    user.setEnabled(true);
+    user.setRealmId(realmId);
+    entityManager.persist(user);
+
+    attributes.forEach((name, values) -> values.forEach(value -> {
+      var attribute = new UserAttributeEntity();
+      attribute.setId(UUID.randomUUID().toString());
+      attribute.setUser(user);
+      attribute.setName(name);
+      attribute.setValue(value);
+      entityManager.persist(attribute);
+    }));
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.bulk;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.epam.digital.data.platform.keycloak.rest.api.ext.QueryStatistics;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.bulk.UserImport.Record;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.UserImportRecordDto;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.UserImportResponseDto.RecordError;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.keycloak.models.ClientModel;
+import org.keycloak.models.GroupModel;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.RequiredActionProviderModel;
+import org.keycloak.models.RoleModel;
+import org.keycloak.models.jpa.entities.UserEntity;
+
+@DisplayName("UserImport Integration Test")
+class UserImportIT {
+
+  private static final String REALM_ID = "test-realm";
+
+  private EntityManagerFactory entityManagerFactory;
+  private EntityManager entityManager;
+  private RealmModel realm;
+  private UserImport userImport;
+
+  @BeforeEach
+  void setUp() {
+    entityManagerFactory = Persistence.createEntityManagerFactory("test-pu");
+    entityManager = entityManagerFactory.createEntityManager();
+    userImport = new UserImport(UserImport.Policy.builder().jdbcBatchSize(20).build());
+
+    realm = mock(RealmModel.class);
+    when(realm.getId()).thenReturn(REALM_ID);
+    var defaultRole = role("default-roles");
+    when(realm.getDefaultRole()).thenReturn(defaultRole);
+    var officer = role("officer");
+    when(realm.getRole("officer")).thenReturn(officer);
+    var client = mock(ClientModel.class);
+    var clientRole = role("app-viewer");
+    when(client.getRole("viewer")).thenReturn(clientRole);
+    when(realm.getClientByClientId("app")).thenReturn(client);
+    var defaultGroup = mock(GroupModel.class);
+    when(defaultGroup.getId()).thenReturn("default-group");
+    when(realm.getDefaultGroupsStream()).thenAnswer(invocation -> Stream.of(defaultGroup));
+    var requiredAction = new RequiredActionProviderModel();
+    requiredAction.setAlias("VERIFY_EMAIL");
+    requiredAction.setEnabled(true);
+    requiredAction.setDefaultAction(true);
+    when(realm.getRequiredActionProvidersStream())
+        .thenAnswer(invocation -> Stream.of(requiredAction));
+
+    entityManager.getTransaction().begin();
+  }
+
+  @AfterEach
+  void tearDown() {
+    entityManager.getTransaction().rollback();
+    entityManager.close();
+    entityManagerFactory.close();
+  }
+
+  @Test
+  @DisplayName("Should create users with attributes, roles and realm defaults")
+  void shouldCreateUsers() {
+    var officer = user("Officer1", "officer1@example.com");
+    officer.setAttributes(Map.of("edrpou", List.of("11111111"), "KATOTTG", List.of("UA01")));
+    officer.setRealmRoles(List.of("officer"));
+    officer.setClientRoles(Map.of("app", List.of("viewer")));
+
+    var result = userImport.importBatch(entityManager, realm, List.of(new Record(1L, officer)));
+
+    assertThat(result.getErrors()).isEmpty();
+    assertThat(result.getCreatedUserIds()).hasSize(1);
+    // user, 2 attributes, 3 role mappings, group membership and required action
+    assertThat(result.getInsertedRows()).isEqualTo(8);
+    var user = entityManager.find(UserEntity.class, result.getCreatedUserIds().get(0));
+    assertThat(user.getUsername()).isEqualTo("officer1");
+    assertThat(user.getEmail()).isEqualTo("officer1@example.com");
+    assertThat(user.isEnabled()).isTrue();
+    assertThat(user.getAttributes()).hasSize(2);
+    assertThat(user.getRequiredActions()).hasSize(1);
+    assertThat(entityManager.createQuery("select m.roleId from UserRoleMappingEntity m "
+            + "where m.user.id = :userId order by m.roleId", String.class)
+        .setParameter("userId", user.getId())
+        .getResultList()).containsExactly("app-viewer", "default-roles", "officer");
+  }
+
+  @Test
+  @DisplayName("Should reject records with taken username or email and unknown roles")
+  void shouldRejectInvalidRecords() {
+    userImport.importBatch(entityManager, realm, List.of(new Record(1L,
+        user("existing", "existing@example.com"))));
+    var unknownRole = user("user3", null);
+    unknownRole.setRealmRoles(List.of("unknown"));
+
+    var result = userImport.importBatch(entityManager, realm, List.of(
+        new Record(1L, user("EXISTING", null)),
+        new Record(2L, user("user2", "existing@example.com")),
+        new Record(3L, unknownRole),
+        new Record(4L, user(null, null)),
+        new Record(5L, user("user5", null)),
+        new Record(6L, user("user5", null))));
+
+    assertThat(result.getCreatedUserIds()).hasSize(1);
+    assertThat(result.getErrors()).extracting(RecordError::getLine, RecordError::getError)
+        .containsExactly(tuple(1L, "Username already exists"),
+            tuple(2L, "Email already exists"),
+            tuple(3L, "Role unknown not found"),
+            tuple(4L, "Username must be set"),
+            tuple(6L, "Username already exists"));
+  }
+
+  @Test
+  @DisplayName("Should import users with count of statements that doesn't grow with the users")
+  void shouldBatchStatements() {
+    var records = IntStream.range(0, 100)
+        .mapToObj(i -> {
+          var user = user(String.format("user%03d", i), null);
+          user.setAttributes(Map.of("edrpou", List.of("11111111")));
+          return new Record(i + 1L, user);
+        })
+        .collect(Collectors.toList());
+    var queryStatistics = new QueryStatistics(entityManagerFactory);
+
+    var measured = queryStatistics.measure(
+        () -> userImport.importBatch(entityManager, realm, records));
+
+    assertThat(measured.getResult().getCreatedUserIds()).hasSize(100);
+    // usernames, then per flush of 20 users a batch of inserts for each of 5 tables
+    assertThat(measured.getCounts().getPreparedStatements()).isLessThanOrEqualTo(1 + 5 * 5);
+  }
+
+  private static UserImportRecordDto user(String username, String email) {
+    var user = new UserImportRecordDto();
+    user.setUsername(username);
+    user.setEmail(email);
+    return user;
+  }
+
+  private static RoleModel role(String id) {
+    var role = mock(RoleModel.class);
+    when(role.getId()).thenReturn(id);
+    return role;
+  }
+}
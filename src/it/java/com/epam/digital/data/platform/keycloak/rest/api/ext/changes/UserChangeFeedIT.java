@@ -0,0 +1,122 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.changes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.keycloak.common.util.Time;
+
+@DisplayName("UserChangeFeed Integration Test")
+class UserChangeFeedIT {
+
+  private static final String REALM_ID = "test-realm";
+
+  private EntityManagerFactory entityManagerFactory;
+  private EntityManager entityManager;
+  private UserChangeFeed feed;
+
+  @BeforeEach
+  void setUp() {
+    entityManagerFactory = Persistence.createEntityManagerFactory("test-pu");
+    entityManager = entityManagerFactory.createEntityManager();
+    feed = new UserChangeFeed(entityManager);
+    entityManager.getTransaction().begin();
+  }
+
+  @AfterEach
+  void tearDown() {
+    entityManager.getTransaction().rollback();
+    entityManager.close();
+    entityManagerFactory.close();
+  }
+
+  @Test
+  @DisplayName("Should read changes of the realm after the cursor in order")
+  void shouldReadChangesAfterCursor() {
+    var now = Time.currentTimeMillis();
+    feed.append(REALM_ID, "user1", UserChangeType.CREATED, now - 3000);
+    feed.append("other-realm", "user2", UserChangeType.CREATED, now - 3000);
+    feed.append(REALM_ID, "user1", UserChangeType.ROLE_MAPPINGS_UPDATED, now - 2000);
+    feed.append(REALM_ID, "user3", UserChangeType.DELETED, now - 1000);
+    entityManager.flush();
+
+    var firstPage = feed.read(REALM_ID, 0L, 2, now);
+    var secondPage = feed.read(REALM_ID, firstPage.get(1).getId(), 2, now);
+
+    assertThat(firstPage).extracting(UserChangeEntity::getUserId, UserChangeEntity::getType)
+        .containsExactly(tuple("user1", UserChangeType.CREATED),
+            tuple("user1", UserChangeType.ROLE_MAPPINGS_UPDATED));
+    assertThat(secondPage).extracting(UserChangeEntity::getUserId, UserChangeEntity::getType)
+        .containsExactly(tuple("user3", UserChangeType.DELETED));
+    assertThat(feed.read(REALM_ID, secondPage.get(0).getId(), 2, now)).isEmpty();
+  }
+
+  @Test
+  @DisplayName("Should not read changes that haven't settled yet")
+  void shouldNotReadUnsettledChanges() {
+    var now = Time.currentTimeMillis();
+    feed.append(REALM_ID, "user1", UserChangeType.UPDATED, now - 10_000);
+    feed.append(REALM_ID, "user2", UserChangeType.UPDATED, now);
+    entityManager.flush();
+
+    var changes = UserChangeFeed.Policy.builder().settleMillis(5000).build()
+        .read(feed, REALM_ID, null, null);
+
+    assertThat(changes).extracting(UserChangeEntity::getUserId).containsExactly("user1");
+  }
+
+  @Test
+  @DisplayName("Should cap count of read changes by the policy")
+  void shouldCapCountOfReadChanges() {
+    var now = Time.currentTimeMillis();
+    for (var i = 0; i < 5; i++) {
+      feed.append(REALM_ID, "user" + i, UserChangeType.UPDATED, now - 10_000);
+    }
+    entityManager.flush();
+    var policy = UserChangeFeed.Policy.builder().maxResults(3).build();
+
+    assertThat(policy.read(feed, REALM_ID, 0L, 10)).hasSize(3);
+    assertThat(policy.read(feed, REALM_ID, 0L, 2)).hasSize(2);
+  }
+
+  @Test
+  @DisplayName("Should remove changes older than the retention")
+  void shouldRemoveExpiredChanges() {
+    var now = Time.currentTimeMillis();
+    feed.append(REALM_ID, "user1", UserChangeType.UPDATED, now - 10_000);
+    feed.append(REALM_ID, "user2", UserChangeType.UPDATED, now - 1000);
+    entityManager.flush();
+
+    var removed = feed.removeOlderThan(now - 5000);
+    entityManager.clear();
+
+    assertThat(removed).isEqualTo(1);
+    assertThat(feed.read(REALM_ID, 0L, 10, now).stream().map(UserChangeEntity::getUserId)
+        .collect(Collectors.toList())).isEqualTo(List.of("user2"));
+  }
+}
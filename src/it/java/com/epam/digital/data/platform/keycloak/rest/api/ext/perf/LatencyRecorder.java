@@ -0,0 +1,102 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.perf;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Collects latencies of the requests of one scenario and summarizes them as percentiles and
+ * throughput.
+ */
+public class LatencyRecorder {
+
+  private final String scenario;
+  private final long[] latenciesNanos;
+  private final AtomicLong errorCount = new AtomicLong();
+  private int count;
+  private long startedNanos;
+  private long finishedNanos;
+
+  public LatencyRecorder(String scenario, int capacity) {
+    this.scenario = scenario;
+    this.latenciesNanos = new long[capacity];
+  }
+
+  public void start() {
+    startedNanos = System.nanoTime();
+  }
+
+  public void finish() {
+    finishedNanos = System.nanoTime();
+  }
+
+  public synchronized void record(long latencyNanos) {
+    if (count < latenciesNanos.length) {
+      latenciesNanos[count++] = latencyNanos;
+    }
+  }
+
+  public void recordError() {
+    errorCount.incrementAndGet();
+  }
+
+  public synchronized ScenarioResult getResult() {
+    var sorted = Arrays.copyOf(latenciesNanos, count);
+    Arrays.sort(sorted);
+    var elapsedSeconds = (finishedNanos - startedNanos) / 1e9;
+    return ScenarioResult.builder()
+        .scenario(scenario)
+        .requests(count)
+        .errors(errorCount.get())
+        .p50Millis(toMillis(percentile(sorted, 0.50)))
+        .p90Millis(toMillis(percentile(sorted, 0.90)))
+        .p99Millis(toMillis(percentile(sorted, 0.99)))
+        .maxMillis(toMillis(count == 0 ? 0 : sorted[count - 1]))
+        .throughputPerSecond(elapsedSeconds > 0 ? count / elapsedSeconds : 0)
+        .build();
+  }
+
+  private static long percentile(long[] sorted, double percentile) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    var index = (int) Math.ceil(percentile * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+  }
+
+  private static double toMillis(long nanos) {
+    return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  @Builder
+  @Getter
+  public static class ScenarioResult {
+
+    private final String scenario;
+    private final int requests;
+    private final long errors;
+    private final double p50Millis;
+    private final double p90Millis;
+    private final double p99Millis;
+    private final double maxMillis;
+    private final double throughputPerSecond;
+  }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.perf;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import lombok.Builder;
+import lombok.Getter;
+import org.hibernate.Session;
+
+/**
+ * Seeds users of a realm straight through JDBC batches, so a million of users with attributes and
+ * role mappings are generated in minutes instead of hours it takes through the entity manager.
+ * <p>
+ * Every user has a unique {@code drfo}, a {@code subjectType}, a hierarchical {@code KATOTTG} code
+ * and filler attributes up to {@link Config#getAttributesPerUser() attributesPerUser}. Values of
+ * {@code subjectType}, {@code KATOTTG} regions and roles are drawn with a power law skew, so the
+ * first values are more frequent than the last ones as it happens in the production data.
+ */
+public class PerfDataGenerator {
+
+  public static final String DRFO = "drfo";
+  public static final String SUBJECT_TYPE = "subjectType";
+  public static final String KATOTTG = "KATOTTG";
+  public static final List<String> SUBJECT_TYPES = List.of("INDIVIDUAL", "ENTREPRENEUR", "LEGAL");
+
+  private static final int REGIONS = 25;
+  private static final int COMMUNITIES_PER_REGION = 50;
+  private static final int SETTLEMENTS_PER_COMMUNITY = 100;
+
+  private final Config config;
+
+  public PerfDataGenerator(Config config) {
+    this.config = config;
+  }
+
+  public static String username(int userIndex) {
+    return String.format("perf-user-%08d", userIndex);
+  }
+
+  public static String drfo(int userIndex) {
+    return String.format("%010d", userIndex);
+  }
+
+  public static String role(int roleIndex) {
+    return "perf-role-" + roleIndex;
+  }
+
+  /**
+   * Returns value that is drawn from {@code count} values with the configured skew: {@code 0}
+   * gives uniform distribution, greater values make the lower indexes more frequent.
+   */
+  public int skewed(Random random, int count) {
+    return Math.min(count - 1,
+        (int) (count * Math.pow(random.nextDouble(), 1 + config.getValueSkew())));
+  }
+
+  public String katottg(Random random) {
+    return String.format("UA%02d%03d%03d", skewed(random, REGIONS) + 1,
+        random.nextInt(COMMUNITIES_PER_REGION) + 1, random.nextInt(SETTLEMENTS_PER_COMMUNITY) + 1);
+  }
+
+  public void generate(EntityManager entityManager, String realmId) {
+    entityManager.getTransaction().begin();
+    entityManager.unwrap(Session.class).doWork(connection -> {
+      if (config.isCreateIndexes()) {
+        createIndexes(connection);
+      }
+      insertUsers(connection, realmId);
+    });
+    entityManager.getTransaction().commit();
+  }
+
+  /**
+   * Creates the user indexes of the Keycloak schema that are missing in the schema generated by
+   * Hibernate, otherwise the attribute lookups would be full scans unlike in production.
+   */
+  private static void createIndexes(Connection connection) throws SQLException {
+    var metaData = connection.getMetaData();
+    try (var statement = connection.createStatement()) {
+      statement.execute(createIndex(metaData, "IDX_USER_ATTRIBUTE", "USER_ATTRIBUTE", "USER_ID"));
+      statement.execute(createIndex(metaData, "IDX_USER_ATTRIBUTE_NAME", "USER_ATTRIBUTE",
+          "NAME", "VALUE"));
+      statement.execute(createIndex(metaData, "IDX_USER_ROLE_MAPPING", "USER_ROLE_MAPPING",
+          "USER_ID"));
+      statement.execute(createIndex(metaData, "IDX_USER_ROLE_MAPPING_ROLE", "USER_ROLE_MAPPING",
+          "ROLE_ID"));
+    }
+  }
+
+  private static String createIndex(DatabaseMetaData metaData, String index, String table,
+      String... columns) throws SQLException {
+    var identifier = identifiers(metaData);
+    return "create index if not exists " + identifier.apply(index) + " on "
+        + identifier.apply(table) + " ("
+        + Arrays.stream(columns).map(identifier).collect(Collectors.joining(", ")) + ")";
+  }
+
+  private void insertUsers(Connection connection, String realmId) throws SQLException {
+    var random = new Random(config.getSeed());
+    var createdTimestamp = System.currentTimeMillis();
+    var metaData = connection.getMetaData();
+    try (var users = prepareInsert(connection, metaData, "USER_ENTITY", "ID", "USERNAME",
+        "EMAIL_CONSTRAINT", "REALM_ID", "ENABLED", "EMAIL_VERIFIED", "CREATED_TIMESTAMP",
+        "NOT_BEFORE");
+        var attributes = prepareInsert(connection, metaData, "USER_ATTRIBUTE", "ID", "NAME",
+            "VALUE", "USER_ID");
+        var roleMappings = prepareInsert(connection, metaData, "USER_ROLE_MAPPING", "ROLE_ID",
+            "USER_ID")) {
+      for (var userIndex = 0; userIndex < config.getUsers(); userIndex++) {
+        var userId = "perf-" + userIndex;
+        users.setString(1, userId);
+        users.setString(2, username(userIndex));
+        users.setString(3, userId);
+        users.setString(4, realmId);
+        users.setBoolean(5, true);
+        users.setBoolean(6, false);
+        users.setLong(7, createdTimestamp);
+        users.setInt(8, 0);
+        users.addBatch();
+
+        addAttribute(attributes, userId, 0, DRFO, drfo(userIndex));
+        addAttribute(attributes, userId, 1, SUBJECT_TYPE,
+            SUBJECT_TYPES.get(skewed(random, SUBJECT_TYPES.size())));
+        addAttribute(attributes, userId, 2, KATOTTG, katottg(random));
+        for (var attributeIndex = 3; attributeIndex < config.getAttributesPerUser();
+            attributeIndex++) {
+          addAttribute(attributes, userId, attributeIndex, "attribute" + attributeIndex,
+              Long.toString(random.nextLong() & Long.MAX_VALUE, 36));
+        }
+
+        var firstRole = skewed(random, config.getRoles());
+        for (var roleIndex = 0; roleIndex < Math.min(config.getRoleMappingsPerUser(),
+            config.getRoles()); roleIndex++) {
+          roleMappings.setString(1, role((firstRole + roleIndex) % config.getRoles()));
+          roleMappings.setString(2, userId);
+          roleMappings.addBatch();
+        }
+
+        if ((userIndex + 1) % config.getBatchSize() == 0) {
+          executeBatches(users, attributes, roleMappings);
+          connection.commit();
+        }
+      }
+      executeBatches(users, attributes, roleMappings);
+    }
+  }
+
+  /**
+   * Prepares insert statement with quoted identifiers in the case the database stores them, as
+   * some of the column names, e.g. {@code VALUE}, are reserved words.
+   */
+  private static PreparedStatement prepareInsert(Connection connection, DatabaseMetaData metaData,
+      String table, String... columns) throws SQLException {
+    var identifier = identifiers(metaData);
+    return connection.prepareStatement("insert into " + identifier.apply(table) + " ("
+        + Arrays.stream(columns).map(identifier).collect(Collectors.joining(", "))
+        + ") values (" + String.join(", ", Collections.nCopies(columns.length, "?")) + ")");
+  }
+
+  private static Function<String, String> identifiers(DatabaseMetaData metaData)
+      throws SQLException {
+    var quote = metaData.getIdentifierQuoteString().trim();
+    var lowerCase = metaData.storesLowerCaseIdentifiers();
+    return name -> quote + (lowerCase ? name.toLowerCase() : name) + quote;
+  }
+
+  private static void addAttribute(PreparedStatement attributes, String userId,
+      int attributeIndex, String name, String value) throws SQLException {
+    attributes.setString(1, userId + "-" + attributeIndex);
+    attributes.setString(2, name);
+    attributes.setString(3, value);
+    attributes.setString(4, userId);
+    attributes.addBatch();
+  }
+
+  private static void executeBatches(PreparedStatement... statements) throws SQLException {
+    for (var statement : statements) {
+      statement.executeBatch();
+    }
+  }
+
+  @Builder
+  @Getter
+  public static class Config {
+
+    @Builder.Default
+    private final int users = 1_000_000;
+    @Builder.Default
+    private final int attributesPerUser = 5;
+    @Builder.Default
+    private final int roles = 20;
+    @Builder.Default
+    private final int roleMappingsPerUser = 2;
+    @Builder.Default
+    private final double valueSkew = 1.5;
+    @Builder.Default
+    private final long seed = 42L;
+    @Builder.Default
+    private final int batchSize = 5_000;
+    @Builder.Default
+    private final boolean createIndexes = true;
+  }
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.perf;
+
+import static com.epam.digital.data.platform.keycloak.rest.api.ext.perf.PerfDataGenerator.DRFO;
+import static com.epam.digital.data.platform.keycloak.rest.api.ext.perf.PerfDataGenerator.KATOTTG;
+import static com.epam.digital.data.platform.keycloak.rest.api.ext.perf.PerfDataGenerator.SUBJECT_TYPE;
+import static com.epam.digital.data.platform.keycloak.rest.api.ext.perf.PerfDataGenerator.SUBJECT_TYPES;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.epam.digital.data.platform.keycloak.rest.api.ext.ExtendedJpaUserProvider;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.UserApiProvider;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.UserApiProviderTestImpl;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.UserFilter;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.SearchUserRequestDto;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.SearchUsersByEqualsAndStartsWithAttributesRequestDto;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.SearchUsersByRoleAndAttributesRequestDto;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.SearchUsersByRoleAndAttributesRequestDto.RoleMatch;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.v2.SearchUsersByAttributesRequestDto;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.search.SearchTimeBudget;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.File;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import lombok.SneakyThrows;
+import org.jboss.logging.Logger;
+import org.jboss.resteasy.spi.HttpRequest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.keycloak.connections.jpa.JpaConnectionProvider;
+import org.keycloak.models.KeycloakContext;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.UserProvider;
+
+/**
+ * Load test of the {@link UserApiProvider} endpoints on a seeded database.
+ * <p>
+ * It's run only by the {@code perf} Maven profile. The data set, the load and the database are
+ * set by system properties:
+ * <ul>
+ *   <li>{@code perf.users}, {@code perf.attributesPerUser}, {@code perf.roles},
+ *   {@code perf.roleMappingsPerUser}, {@code perf.valueSkew}, {@code perf.seed},
+ *   {@code perf.createIndexes} - generated data, see {@link PerfDataGenerator.Config};</li>
+ *   <li>{@code perf.requests}, {@code perf.warmupRequests}, {@code perf.threads} - requests of
+ *   every scenario;</li>
+ *   <li>{@code perf.report} - path of the JSON report;</li>
+ *   <li>{@code perf.jpa.*} - overrides of the {@code test-pu} persistence unit properties, e.g.
+ *   {@code -Dperf.jpa.javax.persistence.jdbc.url=...} to run against another database.</li>
+ * </ul>
+ */
+@TestInstance(Lifecycle.PER_CLASS)
+@DisplayName("UserApiProvider Performance Test")
+class UserApiProviderPerfIT {
+
+  private static final Logger LOGGER = Logger.getLogger(UserApiProviderPerfIT.class);
+  private static final String REALM_ID = "perf-realm";
+  private static final String JPA_PROPERTY_PREFIX = "perf.jpa.";
+
+  private final PerfDataGenerator.Config dataConfig = PerfDataGenerator.Config.builder()
+      .users(intProperty("perf.users", 1_000_000))
+      .attributesPerUser(intProperty("perf.attributesPerUser", 5))
+      .roles(intProperty("perf.roles", 20))
+      .roleMappingsPerUser(intProperty("perf.roleMappingsPerUser", 2))
+      .valueSkew(Double.parseDouble(System.getProperty("perf.valueSkew", "1.5")))
+      .seed(Long.getLong("perf.seed", 42L))
+      .createIndexes(Boolean.parseBoolean(System.getProperty("perf.createIndexes", "true")))
+      .build();
+  private final PerfDataGenerator generator = new PerfDataGenerator(dataConfig);
+  private final int requests = intProperty("perf.requests", 500);
+  private final int warmupRequests = intProperty("perf.warmupRequests", 50);
+  private final int threads = intProperty("perf.threads", 4);
+
+  private EntityManagerFactory entityManagerFactory;
+
+  @BeforeAll
+  void seed() {
+    entityManagerFactory = Persistence.createEntityManagerFactory("test-pu", jpaOverrides());
+    var entityManager = entityManagerFactory.createEntityManager();
+    var startedAt = System.nanoTime();
+    generator.generate(entityManager, REALM_ID);
+    entityManager.close();
+    LOGGER.infof("Generated %d users in %d s", dataConfig.getUsers(),
+        TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startedAt));
+  }
+
+  @AfterAll
+  void tearDown() {
+    entityManagerFactory.close();
+  }
+
+  @Test
+  @DisplayName("Should serve every endpoint with representative query mixes")
+  void shouldServeQueryMixes() {
+    var scenarios = new LinkedHashMap<String, BiFunction<UserApiProvider, Random, Object>>();
+    scenarios.put("search", this::searchByAttributesEquals);
+    scenarios.put("search-by-attributes", this::searchByEqualsAndStartsWith);
+    scenarios.put("search-by-attributes/inverted-starts-with", this::searchByInvertedStartsWith);
+    scenarios.put("v2/search-by-attributes", this::searchV2);
+    scenarios.put("search-by-role-and-attributes", this::searchByRole);
+    scenarios.put("search-by-role-and-attributes/all-roles", this::searchByAllRoles);
+    scenarios.put("stats/admission",
+        (provider, random) -> provider.getAdmissionStats(mock(HttpRequest.class)));
+
+    var results = scenarios.entrySet().stream()
+        .map(scenario -> run(scenario.getKey(), scenario.getValue()))
+        .collect(Collectors.toList());
+    writeReport(results);
+
+    assertThat(results).allSatisfy(result -> assertThat(result.getErrors()).isZero());
+  }
+
+  @SneakyThrows
+  private LatencyRecorder.ScenarioResult run(String scenario,
+      BiFunction<UserApiProvider, Random, Object> request) {
+    var recorder = new LatencyRecorder(scenario, requests);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    var workers = new ArrayList<Runnable>();
+    for (var worker = 0; worker < threads; worker++) {
+      var workerRequests = requests / threads + (worker < requests % threads ? 1 : 0);
+      var seed = dataConfig.getSeed() + worker;
+      workers.add(() -> runWorker(request, recorder, new Random(seed), workerRequests));
+    }
+    recorder.start();
+    var futures = workers.stream().map(executor::submit).collect(Collectors.toList());
+    for (var future : futures) {
+      future.get();
+    }
+    recorder.finish();
+    executor.shutdown();
+
+    var result = recorder.getResult();
+    LOGGER.infof("%s: p50 %.1f ms, p99 %.1f ms, %.1f req/s", scenario, result.getP50Millis(),
+        result.getP99Millis(), result.getThroughputPerSecond());
+    return result;
+  }
+
+  private void runWorker(BiFunction<UserApiProvider, Random, Object> request,
+      LatencyRecorder recorder, Random random, int workerRequests) {
+    var entityManager = entityManagerFactory.createEntityManager();
+    var provider = createProvider(entityManager);
+    try {
+      for (var i = 0; i < warmupRequests / threads; i++) {
+        execute(entityManager, () -> request.apply(provider, random));
+      }
+      for (var i = 0; i < workerRequests; i++) {
+        var startedAt = System.nanoTime();
+        try {
+          execute(entityManager, () -> request.apply(provider, random));
+          recorder.record(System.nanoTime() - startedAt);
+        } catch (RuntimeException e) {
+          LOGGER.warn("Request failed", e);
+          recorder.recordError();
+        }
+      }
+    } finally {
+      entityManager.close();
+    }
+  }
+
+  /**
+   * Executes the request in a read-only transaction the same way Keycloak does for every request,
+   * so the result streams keep their connection.
+   */
+  private static void execute(EntityManager entityManager, Runnable request) {
+    entityManager.getTransaction().begin();
+    try {
+      request.run();
+    } finally {
+      entityManager.getTransaction().rollback();
+      entityManager.clear();
+    }
+  }
+
+  private Object searchByAttributesEquals(UserApiProvider provider, Random random) {
+    var requestDto = new SearchUserRequestDto();
+    requestDto.attributes = new LinkedHashMap<>();
+    requestDto.attributes.put(SUBJECT_TYPE, SUBJECT_TYPES.get(0));
+    requestDto.attributes.put(DRFO, randomDrfo(random));
+    return provider.searchUsersByAttributes(mock(HttpRequest.class), requestDto);
+  }
+
+  private Object searchByEqualsAndStartsWith(UserApiProvider provider, Random random) {
+    var requestDto = new SearchUsersByEqualsAndStartsWithAttributesRequestDto();
+    requestDto.attributesEquals = Map.of(DRFO, randomDrfo(random));
+    requestDto.attributesStartsWith = Map.of(KATOTTG, List.of(generator.katottg(random) + "01"));
+    return provider.searchUsersByAttributes(mock(HttpRequest.class), requestDto);
+  }
+
+  private Object searchByInvertedStartsWith(UserApiProvider provider, Random random) {
+    var requestDto = new SearchUsersByEqualsAndStartsWithAttributesRequestDto();
+    requestDto.attributesEquals = Map.of();
+    requestDto.attributesStartsWith = Map.of(KATOTTG, List.of(generator.katottg(random) + "01"));
+    return provider.searchUsersByAttributes(mock(HttpRequest.class), requestDto);
+  }
+
+  private Object searchV2(UserApiProvider provider, Random random) {
+    var requestDto = new SearchUsersByAttributesRequestDto();
+    requestDto.setAttributesEquals(Map.of(SUBJECT_TYPE,
+        List.of(SUBJECT_TYPES.get(generator.skewed(random, SUBJECT_TYPES.size())))));
+    requestDto.setAttributesStartsWith(
+        Map.of(KATOTTG, List.of(generator.katottg(random).substring(0, 4))));
+    requestDto.getPagination().setLimit(50);
+    requestDto.getPagination().setContinueToken(null);
+    return provider.searchUsersByAttributes(mock(HttpRequest.class), requestDto);
+  }
+
+  private Object searchByRole(UserApiProvider provider, Random random) {
+    var requestDto = new SearchUsersByRoleAndAttributesRequestDto();
+    requestDto.setRoleName(PerfDataGenerator.role(generator.skewed(random,
+        dataConfig.getRoles())));
+    requestDto.setAttributesStartsWith(
+        Map.of(KATOTTG, List.of(generator.katottg(random).substring(0, 4))));
+    requestDto.getPagination().setLimit(50);
+    requestDto.getPagination().setOffset(0);
+    return provider.searchUsersByRoleAndAttributes(mock(HttpRequest.class), requestDto);
+  }
+
+  private Object searchByAllRoles(UserApiProvider provider, Random random) {
+    var firstRole = generator.skewed(random, dataConfig.getRoles());
+    var requestDto = new SearchUsersByRoleAndAttributesRequestDto();
+    requestDto.setRoleNames(List.of(PerfDataGenerator.role(firstRole),
+        PerfDataGenerator.role((firstRole + 1) % dataConfig.getRoles())));
+    requestDto.setRoleMatch(RoleMatch.ALL);
+    requestDto.getPagination().setLimit(50);
+    requestDto.getPagination().setOffset(0);
+    return provider.searchUsersByRoleAndAttributes(mock(HttpRequest.class), requestDto);
+  }
+
+  private String randomDrfo(Random random) {
+    return PerfDataGenerator.drfo(random.nextInt(dataConfig.getUsers()));
+  }
+
+  private UserApiProvider createProvider(EntityManager entityManager) {
+    var session = mock(KeycloakSession.class);
+    var context = mock(KeycloakContext.class);
+    var realm = mock(RealmModel.class);
+    var jpaConnectionProvider = mock(JpaConnectionProvider.class);
+    var userProvider = new ExtendedJpaUserProvider(session, entityManager);
+    when(session.getContext()).thenReturn(context);
+    when(session.users()).thenReturn(userProvider);
+    when(session.getProvider(UserProvider.class)).thenReturn(userProvider);
+    when(session.getProvider(JpaConnectionProvider.class)).thenReturn(jpaConnectionProvider);
+    when(session.getKeycloakSessionFactory()).thenReturn(mock(KeycloakSessionFactory.class));
+    when(jpaConnectionProvider.getEntityManager()).thenReturn(entityManager);
+    when(context.getRealm()).thenReturn(realm);
+    when(realm.getId()).thenReturn(REALM_ID);
+    when(realm.getName()).thenReturn(REALM_ID);
+    return new UserApiProviderTestImpl(session, new UserFilter(),
+        SearchTimeBudget.Policy.builder().build());
+  }
+
+  @SneakyThrows
+  private void writeReport(List<LatencyRecorder.ScenarioResult> results) {
+    var report = new LinkedHashMap<String, Object>();
+    report.put("generatedAt", Instant.now().toString());
+    report.put("data", dataConfig);
+    report.put("requestsPerScenario", requests);
+    report.put("threads", threads);
+    report.put("scenarios", results);
+
+    var reportFile = new File(System.getProperty("perf.report",
+        "target/perf/user-api-perf-report.json"));
+    reportFile.getParentFile().mkdirs();
+    new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(reportFile, report);
+    LOGGER.infof("Performance report is written to %s", reportFile.getAbsolutePath());
+  }
+
+  private static Map<String, Object> jpaOverrides() {
+    var overrides = new HashMap<String, Object>();
+    System.getProperties().stringPropertyNames().stream()
+        .filter(name -> name.startsWith(JPA_PROPERTY_PREFIX))
+        .forEach(name -> overrides.put(name.substring(JPA_PROPERTY_PREFIX.length()),
+            System.getProperty(name)));
+    return overrides;
+  }
+
+  private static int intProperty(String name, int defaultValue) {
+    return Integer.getInteger(name, defaultValue);
+  }
+}
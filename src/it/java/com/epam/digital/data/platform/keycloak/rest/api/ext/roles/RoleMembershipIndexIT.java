@@ -0,0 +1,173 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.roles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.epam.digital.data.platform.keycloak.rest.api.ext.QueryStatistics;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.SearchUsersByRoleAndAttributesRequestDto.RoleMatch;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.index.UserIndexChangedEvent;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.jpa.entities.UserEntity;
+import org.keycloak.models.jpa.entities.UserRoleMappingEntity;
+
+@DisplayName("RoleMembershipIndex Integration Test")
+class RoleMembershipIndexIT {
+
+  private static final String REALM_ID = "test-realm";
+
+  private EntityManagerFactory entityManagerFactory;
+  private EntityManager entityManager;
+  private RealmModel realm;
+  private RoleMembershipIndex index;
+
+  @BeforeEach
+  void setUp() {
+    entityManagerFactory = Persistence.createEntityManagerFactory("test-pu");
+    entityManager = entityManagerFactory.createEntityManager();
+    index = new RoleMembershipIndex(RoleMembershipIndex.Config.builder().maxCandidates(3).build());
+    realm = mock(RealmModel.class);
+    when(realm.getId()).thenReturn(REALM_ID);
+    when(realm.getEventsListenersStream()).thenAnswer(
+        invocation -> Stream.of(RoleMembershipEventListenerProviderFactory.ID));
+
+    entityManager.getTransaction().begin();
+    createUser("user1", "officer", "head");
+    createUser("user2", "officer");
+    createUser("user3", "citizen");
+  }
+
+  @AfterEach
+  void tearDown() {
+    entityManager.getTransaction().rollback();
+    entityManager.close();
+    entityManagerFactory.close();
+  }
+
+  @Test
+  @DisplayName("Should find users by any or all of the roles without querying after the build")
+  void shouldFindUsersByRoles() {
+    assertThat(find(List.of("officer"), RoleMatch.ANY)).containsExactly("user1", "user2");
+
+    var queryStatistics = new QueryStatistics(entityManagerFactory);
+    var measured = queryStatistics.measure(() -> List.of(
+        find(List.of("head", "citizen"), RoleMatch.ANY),
+        find(List.of("officer", "head"), RoleMatch.ALL),
+        find(List.of("officer", "unknown"), RoleMatch.ALL)));
+
+    assertThat(measured.getResult()).containsExactly(List.of("user1", "user3"), List.of("user1"),
+        List.of());
+    assertThat(measured.getCounts().getPreparedStatements()).isZero();
+
+    var stats = index.getStats(realm);
+    assertThat(stats.isEnabled()).isTrue();
+    assertThat(stats.isBuilt()).isTrue();
+    assertThat(stats.getUsers()).isEqualTo(3);
+    assertThat(stats.getRoles()).isEqualTo(3);
+    assertThat(stats.getBitmapBytes()).isPositive();
+    assertThat(stats.getTotalBytes())
+        .isEqualTo(stats.getBitmapBytes() + stats.getUserIdBytes());
+    assertThat(stats.getLookups()).isEqualTo(4);
+    assertThat(stats.getRebuilds()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Should re-read role mappings of the changed users only")
+  void shouldRefreshChangedUsers() {
+    find(List.of("officer"), RoleMatch.ANY);
+    createUser("user4", "officer");
+    entityManager.createQuery("delete from UserRoleMappingEntity m where m.user.id = 'user2'")
+        .executeUpdate();
+
+    index.apply(new UserIndexChangedEvent(REALM_ID, Set.of("user2", "user4")));
+
+    assertThat(find(List.of("officer"), RoleMatch.ANY)).containsExactly("user1", "user4");
+    var stats = index.getStats(realm);
+    assertThat(stats.getUsers()).isEqualTo(3);
+    assertThat(stats.getRefreshedUsers()).isEqualTo(2);
+    assertThat(stats.getRebuilds()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Should rebuild the index on a change of the whole realm")
+  void shouldRebuildOnRealmChange() {
+    find(List.of("officer"), RoleMatch.ANY);
+    entityManager.createQuery("delete from UserRoleMappingEntity m where m.roleId = 'officer'")
+        .executeUpdate();
+
+    index.apply(new UserIndexChangedEvent(REALM_ID, null));
+
+    assertThat(find(List.of("officer"), RoleMatch.ANY)).isEmpty();
+    assertThat(index.getStats(realm).getRebuilds()).isEqualTo(2);
+  }
+
+  @Test
+  @DisplayName("Should leave the role filter to the database when too many users match")
+  void shouldFallBackWhenTooManyUsersMatch() {
+    createUser("user4", "officer");
+    createUser("user5", "officer");
+
+    var userIds = index.findUserIds(entityManager, realm, List.of("officer"), RoleMatch.ANY);
+
+    assertThat(userIds).isEmpty();
+    assertThat(index.getStats(realm).getFallbacks()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Should not index a realm without the event listener")
+  void shouldNotIndexRealmWithoutListener() {
+    when(realm.getEventsListenersStream()).thenAnswer(invocation -> Stream.of("jboss-logging"));
+
+    var userIds = index.findUserIds(entityManager, realm, List.of("officer"), RoleMatch.ANY);
+
+    assertThat(userIds).isEmpty();
+    var stats = index.getStats(realm);
+    assertThat(stats.isEnabled()).isFalse();
+    assertThat(stats.isBuilt()).isFalse();
+  }
+
+  private List<String> find(List<String> roleIds, RoleMatch roleMatch) {
+    return index.findUserIds(entityManager, realm, roleIds, roleMatch).orElseThrow();
+  }
+
+  private void createUser(String id, String... roleIds) {
+    var user = new UserEntity();
+    user.setId(id);
+    user.setUsername(id);
+    user.setRealmId(REALM_ID);
+    entityManager.persist(user);
+    for (var roleId : roleIds) {
+      var mapping = new UserRoleMappingEntity();
+      mapping.setUser(user);
+      mapping.setRoleId(roleId);
+      entityManager.persist(mapping);
+    }
+  }
+}
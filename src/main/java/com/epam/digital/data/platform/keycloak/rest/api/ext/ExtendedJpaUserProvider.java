@@ -19,49 +19,162 @@ package com.epam.digital.data.platform.keycloak.rest.api.ext;
 import static org.keycloak.models.jpa.PaginationUtils.paginateQuery;
 import static org.keycloak.utils.StreamsUtil.closing;
 
+import com.epam.digital.data.platform.keycloak.rest.api.ext.UserFetchPlan.Association;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.attributes.AttributeIndex;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.attributes.AttributeIndex.Match;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.AttributeIndexStatsResponseDto;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.RoleMembershipStatsResponseDto;
 import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.SearchUsersByRoleAndAttributesRequestDto;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.SearchUsersByRoleAndAttributesRequestDto.RoleMatch;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.roles.RoleMembershipIndex;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.search.SearchTimeBudget;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import javax.persistence.EntityGraph;
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
+import javax.persistence.criteria.AbstractQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.From;
 import javax.persistence.criteria.Join;
 import javax.persistence.criteria.JoinType;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+import org.hibernate.Session;
+import org.keycloak.credential.CredentialModel;
+import org.keycloak.models.GroupModel;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.RoleModel;
 import org.keycloak.models.UserModel;
 import org.keycloak.models.jpa.JpaUserProvider;
 import org.keycloak.models.jpa.UserAdapter;
+import org.keycloak.models.jpa.entities.CredentialEntity;
 import org.keycloak.models.jpa.entities.UserAttributeEntity;
 import org.keycloak.models.jpa.entities.UserEntity;
+import org.keycloak.models.jpa.entities.UserGroupMembershipEntity;
 import org.keycloak.models.jpa.entities.UserRoleMappingEntity;
+import org.keycloak.models.utils.KeycloakModelUtils;
 
 public class ExtendedJpaUserProvider extends JpaUserProvider {
 
+  /**
+   * Attributes that are stored as columns of the user, not as attribute rows.
+   */
+  public static final Set<String> USER_COLUMN_ATTRIBUTES = Set.of(UserModel.USERNAME,
+      UserModel.EMAIL, UserModel.FIRST_NAME, UserModel.LAST_NAME, UserModel.EMAIL_VERIFIED,
+      UserModel.ENABLED);
+
+  private static final String FETCH_GRAPH_HINT = "javax.persistence.fetchgraph";
+
+  private static final char LIKE_ESCAPE = '\\';
+
+  private static final String GROUP_PATH_SEPARATOR = "/";
+
+  /**
+   * Max count of user ids bound to one {@code IN} list of a fetch plan query.
+   */
+  private static final int FETCH_BATCH_SIZE = 500;
+
   private final KeycloakSession session;
+  private final UserSearchDialect searchDialect;
+  private final RoleMembershipIndex roleMembershipIndex;
+  private final AttributeIndex attributeIndex;
+  private final Map<String, List<CredentialModel>> fetchedCredentials = new HashMap<>();
 
   public ExtendedJpaUserProvider(KeycloakSession session, EntityManager em) {
+    this(session, em, UserSearchDialect.CRITERIA);
+  }
+
+  public ExtendedJpaUserProvider(KeycloakSession session, EntityManager em,
+      UserSearchDialect searchDialect) {
+    this(session, em, searchDialect, null);
+  }
+
+  /**
+   * @param roleMembershipIndex index to evaluate role filters with, {@code null} means that they
+   *                            are always evaluated by the database
+   */
+  public ExtendedJpaUserProvider(KeycloakSession session, EntityManager em,
+      UserSearchDialect searchDialect, RoleMembershipIndex roleMembershipIndex) {
+    this(session, em, searchDialect, roleMembershipIndex, null);
+  }
+
+  /**
+   * @param roleMembershipIndex index to evaluate role filters with, {@code null} means that they
+   *                            are always evaluated by the database
+   * @param attributeIndex      index to evaluate conditions of the hot attributes with,
+   *                            {@code null} means that they are always evaluated by the database
+   */
+  public ExtendedJpaUserProvider(KeycloakSession session, EntityManager em,
+      UserSearchDialect searchDialect, RoleMembershipIndex roleMembershipIndex,
+      AttributeIndex attributeIndex) {
     super(session, em);
     this.session = session;
+    this.searchDialect = searchDialect;
+    this.roleMembershipIndex = roleMembershipIndex;
+    this.attributeIndex = attributeIndex;
   }
 
   public Stream<UserModel> searchForUserStream(RealmModel realm,
       SearchUsersByRoleAndAttributesRequestDto searchDto) {
+    return searchForUserStream(realm, searchDto, SearchTimeBudget.unlimited());
+  }
+
+  /**
+   * Searches users the same way as {@link #searchForUserStream(RealmModel,
+   * SearchUsersByRoleAndAttributesRequestDto)} with the remaining time budget set as the query
+   * timeout.
+   */
+  public Stream<UserModel> searchForUserStream(RealmModel realm,
+      SearchUsersByRoleAndAttributesRequestDto searchDto, SearchTimeBudget timeBudget) {
+    return searchForUserStream(realm, searchDto, timeBudget, UserFetchPlan.NONE);
+  }
+
+  /**
+   * Searches users the same way as {@link #searchForUserStream(RealmModel,
+   * SearchUsersByRoleAndAttributesRequestDto, SearchTimeBudget)} and loads the associations of the
+   * fetch plan for the whole page. With {@link UserSearchDialect#POSTGRESQL} dialect the page is
+   * selected by a native query.
+   */
+  public Stream<UserModel> searchForUserStream(RealmModel realm,
+      SearchUsersByRoleAndAttributesRequestDto searchDto, SearchTimeBudget timeBudget,
+      UserFetchPlan fetchPlan) {
+    if (searchDialect == UserSearchDialect.POSTGRESQL) {
+      var roleIds = resolveRoleIds(realm, searchDto);
+      var query = new PostgresUserSearchQuery(realm, searchDto, roleIds,
+          findUserIdsByRoles(realm, searchDto, roleIds).orElse(null),
+          findUserIdsByAttributes(realm, searchDto).orElse(null),
+          resolveGroupIds(realm, searchDto));
+      // the statement bypasses Hibernate, so pending changes are flushed as for a native query
+      if (em.isJoinedToTransaction()) {
+        em.flush();
+      }
+      var userIds = em.unwrap(Session.class)
+          .doReturningWork(connection -> query.execute(connection, timeBudget));
+      return hydrate(realm, findUsersByIds(userIds), fetchPlan);
+    }
     CriteriaBuilder builder = em.getCriteriaBuilder();
     CriteriaQuery<UserEntity> query = builder.createQuery(UserEntity.class);
     Root<UserRoleMappingEntity> roleRoot = query.from(UserRoleMappingEntity.class);
     Join<UserRoleMappingEntity, UserEntity> userJoin = roleRoot.join("user");
 
-    var predicates = buildPredicates(realm, searchDto, builder, roleRoot, userJoin);
+    var predicates = buildPredicates(realm, searchDto, query, builder, roleRoot, userJoin);
 
     query.select(userJoin).distinct(true)
         .where(predicates)
@@ -72,13 +185,355 @@ public class ExtendedJpaUserProvider extends JpaUserProvider {
             searchDto.getPagination().getOffset(),
             searchDto.getPagination().getLimit());
 
-    return closing(paginateQuery.getResultStream())
-        .map(user -> new UserAdapter(session, realm, em, user));
+    return toUserModels(realm, timeBudget.applyTo(paginateQuery), fetchPlan);
+  }
+
+  /**
+   * Selects ids of the users filtered the same way as by {@link #searchForUserStream(RealmModel,
+   * SearchUsersByRoleAndAttributesRequestDto)} ordered by id, no user is loaded. The limit of the
+   * filter pagination is capped by {@code maxResults}.
+   */
+  public List<String> searchForUserIds(RealmModel realm,
+      SearchUsersByRoleAndAttributesRequestDto searchDto, int maxResults,
+      SearchTimeBudget timeBudget) {
+    CriteriaBuilder builder = em.getCriteriaBuilder();
+    CriteriaQuery<String> query = builder.createQuery(String.class);
+    Root<UserRoleMappingEntity> roleRoot = query.from(UserRoleMappingEntity.class);
+    Join<UserRoleMappingEntity, UserEntity> userJoin = roleRoot.join("user");
+
+    var predicates = buildPredicates(realm, searchDto, query, builder, roleRoot, userJoin);
+
+    query.select(userJoin.get("id")).distinct(true)
+        .where(predicates)
+        .orderBy(builder.asc(userJoin.get("id")));
+
+    var limit = searchDto.getPagination().getLimit();
+    TypedQuery<String> paginateQuery = paginateQuery(em.createQuery(query),
+        searchDto.getPagination().getOffset(),
+        Objects.isNull(limit) || limit <= 0 ? maxResults : Math.min(limit, maxResults));
+    return timeBudget.applyTo(paginateQuery).getResultList();
+  }
+
+  /**
+   * Counts users filtered the same way as by {@link #searchForUserStream(RealmModel,
+   * SearchUsersByRoleAndAttributesRequestDto)} per value of the attribute with one
+   * {@code GROUP BY} query, no user is loaded. Pagination of the filter is ignored.
+   *
+   * @param realm        realm of the users
+   * @param searchDto    filter of the users
+   * @param attribute    name of the attribute to count users by
+   * @param prefixLength length of the value prefix to bucket values by, {@code null} or
+   *                     non-positive value means the whole value
+   * @param timeBudget   time budget of the query
+   * @return count of users per value ordered by value
+   */
+  public Map<String, Long> countUsersByAttributeValues(RealmModel realm,
+      SearchUsersByRoleAndAttributesRequestDto searchDto, String attribute, Integer prefixLength,
+      SearchTimeBudget timeBudget) {
+    CriteriaBuilder builder = em.getCriteriaBuilder();
+    CriteriaQuery<Object[]> query = builder.createQuery(Object[].class);
+    Root<UserAttributeEntity> attributeRoot = query.from(UserAttributeEntity.class);
+
+    Subquery<String> usersQuery = query.subquery(String.class);
+    Root<UserRoleMappingEntity> roleRoot = usersQuery.from(UserRoleMappingEntity.class);
+    Join<UserRoleMappingEntity, UserEntity> userJoin = roleRoot.join("user");
+    usersQuery.select(userJoin.get("id"))
+        .where(buildPredicates(realm, searchDto, usersQuery, builder, roleRoot, userJoin));
+
+    Expression<String> value = attributeRoot.get("value");
+    if (searchDto.getAttributesIgnoreCase().contains(attribute)) {
+      value = builder.lower(value);
+    }
+    Expression<String> bucket = Objects.nonNull(prefixLength) && prefixLength > 0
+        ? builder.substring(value, 1, prefixLength) : value;
+    query.multiselect(bucket, builder.countDistinct(attributeRoot.get("user")))
+        .where(builder.equal(attributeRoot.get("name"), attribute),
+            attributeRoot.get("user").get("id").in(usersQuery))
+        .groupBy(bucket)
+        .orderBy(builder.asc(bucket));
+
+    // the grouped rows are few, and a timeout of a query read as a list is converted to the JPA one
+    var counts = new LinkedHashMap<String, Long>();
+    timeBudget.applyTo(em.createQuery(query)).getResultList()
+        .forEach(row -> counts.put((String) row[0], (Long) row[1]));
+    return counts;
+  }
+
+  /**
+   * Returns state and memory footprint of the role membership index of the realm.
+   */
+  public RoleMembershipStatsResponseDto getRoleMembershipStats(RealmModel realm) {
+    return Objects.isNull(roleMembershipIndex) ? RoleMembershipStatsResponseDto.builder().build()
+        : roleMembershipIndex.getStats(realm);
+  }
+
+  /**
+   * Returns state and memory footprint of the attribute index of the realm.
+   */
+  public AttributeIndexStatsResponseDto getAttributeIndexStats(RealmModel realm) {
+    return Objects.isNull(attributeIndex) ? AttributeIndexStatsResponseDto.builder().build()
+        : attributeIndex.getStats(realm);
+  }
+
+  /**
+   * Returns users of the realm that follow the given position in the order of username and id.
+   * Service accounts are skipped the same way as by {@link #getUsersStream(RealmModel, Integer,
+   * Integer)}. The position is matched with a range condition on the unique realm and username
+   * index, so reading a page costs the same wherever the page is.
+   *
+   * @param realm      realm of the users
+   * @param username   username of the last read user, {@code null} to read from the first user
+   * @param id         id of the last read user
+   * @param maxResults max count of returned users, negative value means all of them
+   * @param fetchPlan  associations loaded for all returned users
+   */
+  public Stream<UserModel> getUsersStreamAfter(RealmModel realm, String username, String id,
+      int maxResults, UserFetchPlan fetchPlan) {
+    var jpql = new StringBuilder("select u from UserEntity u where u.realmId = :realmId"
+        + " and u.serviceAccountClientLink is null");
+    if (Objects.nonNull(username)) {
+      jpql.append(" and (u.username > :username or (u.username = :username and u.id > :id))");
+    }
+    jpql.append(" order by u.username, u.id");
+    var query = em.createQuery(jpql.toString(), UserEntity.class)
+        .setParameter("realmId", realm.getId());
+    if (Objects.nonNull(username)) {
+      query.setParameter("username", username).setParameter("id", id);
+    }
+    if (maxResults >= 0) {
+      query.setMaxResults(maxResults);
+    }
+    return toUserModels(realm, query, fetchPlan);
+  }
+
+  /**
+   * Searches users that have every attribute with the given value in one query. Entries with
+   * {@code null} value are skipped.
+   *
+   * @param realm      realm of the users
+   * @param attributes attribute names with expected values
+   */
+  public Stream<UserModel> searchForUserByAttributesStream(RealmModel realm,
+      Map<String, String> attributes) {
+    return searchForUserByAttributesStream(realm, attributes, UserFetchPlan.NONE);
+  }
+
+  /**
+   * Searches users the same way as {@link #searchForUserByAttributesStream(RealmModel, Map)} and
+   * loads the associations of the fetch plan for all found users.
+   */
+  public Stream<UserModel> searchForUserByAttributesStream(RealmModel realm,
+      Map<String, String> attributes, UserFetchPlan fetchPlan) {
+    CriteriaBuilder builder = em.getCriteriaBuilder();
+    CriteriaQuery<UserEntity> query = builder.createQuery(UserEntity.class);
+    Root<UserEntity> userRoot = query.from(UserEntity.class);
+
+    List<Predicate> predicates = new ArrayList<>();
+    predicates.add(builder.equal(userRoot.get("realmId"), realm.getId()));
+    var attributesEquals = attributes.entrySet().stream()
+        .filter(entry -> entry.getValue() != null)
+        .collect(Collectors.toMap(Map.Entry::getKey, entry -> List.of(entry.getValue())));
+    var match = findUserIdsByAttributes(realm, attributesEquals, Map.of(), Map.of(), Set.of());
+    match.ifPresent(found -> predicates.add(createPredicateUserIds(found, builder, userRoot)));
+    match.map(found -> Match.remaining(attributesEquals, found.getAttributesEquals()))
+        .orElse(attributesEquals)
+        .forEach((name, values) -> {
+          Join<UserEntity, UserAttributeEntity> attributesJoin = userRoot.join("attributes");
+          predicates.add(builder.equal(attributesJoin.get("name"), name));
+          predicates.add(builder.equal(attributesJoin.get("value"), values.get(0)));
+        });
+
+    query.select(userRoot).distinct(true)
+        .where(predicates.toArray(new Predicate[0]))
+        .orderBy(builder.asc(userRoot.get(UserModel.USERNAME)));
+
+    return toUserModels(realm, em.createQuery(query), fetchPlan);
+  }
+
+  /**
+   * Searches users that for every attribute have a value that is a prefix of one of the requested
+   * values. The prefixes of the requested values are generated and matched with {@code IN}, so
+   * the lookup uses the attribute value index.
+   *
+   * @param realm      realm of the users
+   * @param attributes attribute names with requested values
+   * @param maxResults max count of returned users
+   */
+  public Stream<UserModel> searchForUserByAttributesThatAreStartForStream(RealmModel realm,
+      Map<String, List<String>> attributes, int maxResults) {
+    return searchForUserByAttributesThatAreStartForStream(realm, attributes, maxResults,
+        UserFetchPlan.NONE);
+  }
+
+  /**
+   * Searches users the same way as
+   * {@link #searchForUserByAttributesThatAreStartForStream(RealmModel, Map, int)} and loads the
+   * associations of the fetch plan for all found users.
+   */
+  public Stream<UserModel> searchForUserByAttributesThatAreStartForStream(RealmModel realm,
+      Map<String, List<String>> attributes, int maxResults, UserFetchPlan fetchPlan) {
+    CriteriaBuilder builder = em.getCriteriaBuilder();
+    CriteriaQuery<UserEntity> query = builder.createQuery(UserEntity.class);
+    Root<UserEntity> userRoot = query.from(UserEntity.class);
+
+    List<Predicate> predicates = new ArrayList<>();
+    predicates.add(builder.equal(userRoot.get("realmId"), realm.getId()));
+    var match = findUserIdsByAttributes(realm, Map.of(), Map.of(), attributes, Set.of());
+    match.ifPresent(found -> predicates.add(createPredicateUserIds(found, builder, userRoot)));
+    match.map(found -> Match.remaining(attributes, found.getAttributesThatAreStartFor()))
+        .orElse(attributes)
+        .forEach((name, values) -> {
+          Join<UserEntity, UserAttributeEntity> attributesJoin = userRoot.join("attributes");
+          predicates.add(builder.equal(attributesJoin.get("name"), name));
+          predicates.add(attributesJoin.get("value").in(convertToStartFor(values)));
+        });
+
+    query.select(userRoot).distinct(true)
+        .where(predicates.toArray(new Predicate[0]))
+        .orderBy(builder.asc(userRoot.get(UserModel.USERNAME)));
+
+    return toUserModels(realm, em.createQuery(query).setMaxResults(maxResults), fetchPlan);
+  }
+
+  /**
+   * Returns credentials loaded by a fetch plan if there are any for the user, otherwise loads
+   * them.
+   */
+  @Override
+  public Stream<CredentialModel> getStoredCredentialsStream(RealmModel realm, UserModel user) {
+    var credentials = fetchedCredentials.get(user.getId());
+    return Objects.isNull(credentials) ? super.getStoredCredentialsStream(realm, user)
+        : credentials.stream();
+  }
+
+  @Override
+  public Stream<CredentialModel> getStoredCredentialsByTypeStream(RealmModel realm,
+      UserModel user, String type) {
+    if (!fetchedCredentials.containsKey(user.getId())) {
+      return super.getStoredCredentialsByTypeStream(realm, user, type);
+    }
+    return getStoredCredentialsStream(realm, user)
+        .filter(credential -> Objects.equals(type, credential.getType()));
+  }
+
+  @Override
+  public CredentialModel getStoredCredentialByNameAndType(RealmModel realm, UserModel user,
+      String name, String type) {
+    if (!fetchedCredentials.containsKey(user.getId())) {
+      return super.getStoredCredentialByNameAndType(realm, user, name, type);
+    }
+    return getStoredCredentialsByTypeStream(realm, user, type)
+        .filter(credential -> Objects.equals(name, credential.getUserLabel()))
+        .findFirst().orElse(null);
+  }
+
+  @Override
+  public CredentialModel createCredential(RealmModel realm, UserModel user,
+      CredentialModel credential) {
+    fetchedCredentials.remove(user.getId());
+    return super.createCredential(realm, user, credential);
+  }
+
+  @Override
+  public void updateCredential(RealmModel realm, UserModel user, CredentialModel credential) {
+    fetchedCredentials.remove(user.getId());
+    super.updateCredential(realm, user, credential);
+  }
+
+  @Override
+  public boolean removeStoredCredential(RealmModel realm, UserModel user, String id) {
+    fetchedCredentials.remove(user.getId());
+    return super.removeStoredCredential(realm, user, id);
+  }
+
+  @Override
+  public boolean moveCredentialTo(RealmModel realm, UserModel user, String id,
+      String newPreviousCredentialId) {
+    fetchedCredentials.remove(user.getId());
+    return super.moveCredentialTo(realm, user, id, newPreviousCredentialId);
+  }
+
+  @Override
+  public boolean removeUser(RealmModel realm, UserModel user) {
+    fetchedCredentials.remove(user.getId());
+    return super.removeUser(realm, user);
+  }
+
+  /**
+   * Wraps found users into models. With an empty fetch plan the result is streamed, otherwise all
+   * the users are read first to load their associations by batches.
+   */
+  private Stream<UserModel> toUserModels(RealmModel realm, TypedQuery<UserEntity> query,
+      UserFetchPlan fetchPlan) {
+    if (fetchPlan.isEmpty()) {
+      return closing(query.getResultStream())
+          .map(user -> new UserAdapter(session, realm, em, user));
+    }
+    return hydrate(realm, query.getResultList(), fetchPlan);
+  }
+
+  private Stream<UserModel> hydrate(RealmModel realm, List<UserEntity> users,
+      UserFetchPlan fetchPlan) {
+    for (var from = 0; from < users.size(); from += FETCH_BATCH_SIZE) {
+      var userIds = users.subList(from, Math.min(users.size(), from + FETCH_BATCH_SIZE)).stream()
+          .map(UserEntity::getId)
+          .collect(Collectors.toList());
+      if (fetchPlan.includes(Association.ATTRIBUTES)) {
+        fetchCollection(userIds, "attributes");
+      }
+      if (fetchPlan.includes(Association.REQUIRED_ACTIONS)) {
+        fetchCollection(userIds, "requiredActions");
+      }
+      if (fetchPlan.includes(Association.CREDENTIALS)) {
+        fetchCredentials(userIds);
+      }
+    }
+    return users.stream().map(user -> new UserAdapter(session, realm, em, user));
+  }
+
+  /**
+   * Loads users by ids in the order of the ids.
+   */
+  private List<UserEntity> findUsersByIds(List<String> userIds) {
+    if (userIds.isEmpty()) {
+      return List.of();
+    }
+    var usersById = em.createQuery("select u from UserEntity u where u.id in :userIds",
+            UserEntity.class)
+        .setParameter("userIds", userIds)
+        .getResultStream()
+        .collect(Collectors.toMap(UserEntity::getId, Function.identity()));
+    return userIds.stream().map(usersById::get).filter(Objects::nonNull)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Initializes the collection of the users that are already in the persistence context. Every
+   * collection is loaded by its own query, as fetching several bags at once multiplies the rows.
+   */
+  private void fetchCollection(List<String> userIds, String collectionName) {
+    EntityGraph<UserEntity> graph = em.createEntityGraph(UserEntity.class);
+    graph.addAttributeNodes(collectionName);
+    em.createQuery("select u from UserEntity u where u.id in :userIds", UserEntity.class)
+        .setParameter("userIds", userIds)
+        .setHint(FETCH_GRAPH_HINT, graph)
+        .getResultList();
+  }
+
+  private void fetchCredentials(List<String> userIds) {
+    userIds.forEach(userId -> fetchedCredentials.put(userId, new ArrayList<>()));
+    em.createQuery("select c from CredentialEntity c where c.user.id in :userIds "
+            + "order by c.priority", CredentialEntity.class)
+        .setParameter("userIds", userIds)
+        .getResultList()
+        .forEach(credential -> fetchedCredentials.get(credential.getUser().getId())
+            .add(toModel(credential)));
   }
 
   private Predicate[] buildPredicates(RealmModel realm,
-      SearchUsersByRoleAndAttributesRequestDto searchDto, CriteriaBuilder builder,
-      Root<UserRoleMappingEntity> roleRoot, Join<UserRoleMappingEntity, UserEntity> userJoin) {
+      SearchUsersByRoleAndAttributesRequestDto searchDto, AbstractQuery<?> query,
+      CriteriaBuilder builder, Root<UserRoleMappingEntity> roleRoot,
+      Join<UserRoleMappingEntity, UserEntity> userJoin) {
     List<Predicate> predicates = new ArrayList<>();
 
     predicates.add(builder.equal(userJoin.get("realmId"), realm.getId()));
@@ -89,46 +544,201 @@ public class ExtendedJpaUserProvider extends JpaUserProvider {
     if (searchDto.getUsername() != null) {
       predicates.add(builder.equal(userJoin.get("username"), searchDto.getUsername()));
     }
-    if (searchDto.getRoleName() != null) {
-      RoleModel role = realm.getRole(searchDto.getRoleName());
-      predicates.add(builder.equal(roleRoot.get("roleId"),
-          role != null ? role.getId() : searchDto.getRoleName()));
+    predicates.addAll(
+        createPredicatesRoles(realm, searchDto, query, builder, roleRoot, userJoin));
+    predicates.addAll(
+        createPredicatesGroups(realm, searchDto, query, builder, userJoin));
+
+    var attributesEquals = searchDto.getAttributesEquals();
+    var attributesStartsWith = searchDto.getAttributesStartsWith();
+    var attributesThatAreStartFor = searchDto.getAttributesThatAreStartFor();
+    var match = findUserIdsByAttributes(realm, searchDto);
+    if (match.isPresent()) {
+      predicates.add(createPredicateUserIds(match.get(), builder, userJoin));
+      attributesEquals = Match.remaining(attributesEquals, match.get().getAttributesEquals());
+      attributesStartsWith = Match.remaining(attributesStartsWith,
+          match.get().getAttributesStartsWith());
+      attributesThatAreStartFor = Match.remaining(attributesThatAreStartFor,
+          match.get().getAttributesThatAreStartFor());
     }
 
+    var attributesIgnoreCase = searchDto.getAttributesIgnoreCase();
     predicates.addAll(
-        createPredicatesEquals(searchDto.getAttributesEquals(), builder, userJoin));
+        createPredicatesEquals(attributesEquals, attributesIgnoreCase, builder, userJoin));
     predicates.addAll(
-        createPredicatesStartsWith(searchDto.getAttributesStartsWith(), builder,
+        createPredicatesStartsWith(attributesStartsWith, attributesIgnoreCase, builder,
             userJoin));
     predicates.addAll(
-        createPredicatesInList(searchDto.getAttributesThatAreStartFor(), builder,
+        createPredicatesInList(attributesThatAreStartFor, attributesIgnoreCase, builder,
             userJoin));
+    predicates.addAll(
+        createPredicatesContains(searchDto.getAttributesContains(), attributesIgnoreCase,
+            builder, userJoin));
 
     return predicates.toArray(new Predicate[0]);
   }
 
+  /**
+   * Builds role predicates. For {@link RoleMatch#ANY} the role mapping of the query root must be
+   * one of the roles. For {@link RoleMatch#ALL} the root mapping must be the first role and each
+   * other role is required by a semi-join on the role mappings of the same user.
+   */
+  private List<Predicate> createPredicatesRoles(RealmModel realm,
+      SearchUsersByRoleAndAttributesRequestDto searchDto, AbstractQuery<?> query,
+      CriteriaBuilder builder, Root<UserRoleMappingEntity> roleRoot,
+      Join<UserRoleMappingEntity, UserEntity> userJoin) {
+    var roleIds = resolveRoleIds(realm, searchDto);
+    if (roleIds.isEmpty()) {
+      return List.of();
+    }
+    var indexedUserIds = findUserIdsByRoles(realm, searchDto, roleIds);
+    if (indexedUserIds.isPresent()) {
+      return List.of(indexedUserIds.get().isEmpty() ? builder.disjunction()
+          : userJoin.get("id").in(indexedUserIds.get()));
+    }
+    if (searchDto.getRoleMatch() == RoleMatch.ANY || roleIds.size() == 1) {
+      return List.of(roleRoot.get("roleId").in(roleIds));
+    }
+    List<Predicate> predicates = new ArrayList<>();
+    predicates.add(builder.equal(roleRoot.get("roleId"), roleIds.get(0)));
+    roleIds.stream().skip(1).forEach(roleId -> {
+      Subquery<String> subquery = query.subquery(String.class);
+      Root<UserRoleMappingEntity> mappingRoot = subquery.from(UserRoleMappingEntity.class);
+      subquery.select(mappingRoot.get("roleId"))
+          .where(builder.equal(mappingRoot.get("user"), userJoin),
+              builder.equal(mappingRoot.get("roleId"), roleId));
+      predicates.add(builder.exists(subquery));
+    });
+    return predicates;
+  }
+
+  /**
+   * Returns ids of the users that match the role filter by {@link RoleMembershipIndex}, or
+   * nothing if the filter must be evaluated by the database.
+   */
+  private Optional<List<String>> findUserIdsByRoles(RealmModel realm,
+      SearchUsersByRoleAndAttributesRequestDto searchDto, List<String> roleIds) {
+    if (Objects.isNull(roleMembershipIndex) || roleIds.isEmpty()) {
+      return Optional.empty();
+    }
+    return roleMembershipIndex.findUserIds(em, realm, roleIds, searchDto.getRoleMatch());
+  }
+
+  /**
+   * Returns ids of the users that satisfy the conditions of the hot attributes by
+   * {@link AttributeIndex} with the conditions it served, or nothing if all conditions must be
+   * evaluated by the database.
+   */
+  private Optional<Match> findUserIdsByAttributes(RealmModel realm,
+      SearchUsersByRoleAndAttributesRequestDto searchDto) {
+    return findUserIdsByAttributes(realm, searchDto.getAttributesEquals(),
+        searchDto.getAttributesStartsWith(), searchDto.getAttributesThatAreStartFor(),
+        searchDto.getAttributesIgnoreCase());
+  }
+
+  private Optional<Match> findUserIdsByAttributes(RealmModel realm,
+      Map<String, List<String>> attributesEquals, Map<String, List<String>> attributesStartsWith,
+      Map<String, List<String>> attributesThatAreStartFor, Set<String> attributesIgnoreCase) {
+    if (Objects.isNull(attributeIndex)) {
+      return Optional.empty();
+    }
+    return attributeIndex.findUserIds(em, realm, attributesEquals, attributesStartsWith,
+        attributesThatAreStartFor, attributesIgnoreCase);
+  }
+
+  private static Predicate createPredicateUserIds(Match match, CriteriaBuilder builder,
+      From<?, UserEntity> user) {
+    return match.getUserIds().isEmpty() ? builder.disjunction()
+        : user.get("id").in(match.getUserIds());
+  }
+
+  /**
+   * Returns ids of the requested roles, a name that isn't a role of the realm is used as is.
+   */
+  private static List<String> resolveRoleIds(RealmModel realm,
+      SearchUsersByRoleAndAttributesRequestDto searchDto) {
+    return searchDto.getRoleNames().stream()
+        .map(roleName -> {
+          RoleModel role = realm.getRole(roleName);
+          return role != null ? role.getId() : roleName;
+        })
+        .distinct()
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Builds group predicate: the user must be a member of one of the resolved groups. Group ids are
+   * bound to the membership semi-join, so the page is still selected by one query.
+   */
+  private List<Predicate> createPredicatesGroups(RealmModel realm,
+      SearchUsersByRoleAndAttributesRequestDto searchDto, AbstractQuery<?> query,
+      CriteriaBuilder builder, Join<UserRoleMappingEntity, UserEntity> userJoin) {
+    var groupIds = resolveGroupIds(realm, searchDto);
+    if (groupIds.isEmpty()) {
+      return List.of();
+    }
+    Subquery<String> subquery = query.subquery(String.class);
+    Root<UserGroupMembershipEntity> membershipRoot = subquery.from(UserGroupMembershipEntity.class);
+    subquery.select(membershipRoot.get("groupId"))
+        .where(builder.equal(membershipRoot.get("user"), userJoin),
+            membershipRoot.get("groupId").in(groupIds));
+    return List.of(builder.exists(subquery));
+  }
+
+  /**
+   * Returns ids of the requested groups and, if requested, of all their subgroups. A group that
+   * isn't found is used as is, so it matches no members. The subtree is read level by level with
+   * one query per level, so the search itself binds a ready list of ids.
+   */
+  private List<String> resolveGroupIds(RealmModel realm,
+      SearchUsersByRoleAndAttributesRequestDto searchDto) {
+    var groupIds = new LinkedHashSet<String>();
+    searchDto.getGroups().forEach(group -> {
+      GroupModel groupModel = group.startsWith(GROUP_PATH_SEPARATOR)
+          ? KeycloakModelUtils.findGroupByPath(realm, group) : realm.getGroupById(group);
+      groupIds.add(groupModel != null ? groupModel.getId() : group);
+    });
+    if (!searchDto.isIncludeSubgroups()) {
+      return List.copyOf(groupIds);
+    }
+    List<String> parentIds = List.copyOf(groupIds);
+    while (!parentIds.isEmpty()) {
+      parentIds = em.createQuery("select g.id from GroupEntity g "
+              + "where g.realm = :realmId and g.parentId in :parentIds", String.class)
+          .setParameter("realmId", realm.getId())
+          .setParameter("parentIds", parentIds)
+          .getResultStream()
+          .filter(groupIds::add)
+          .collect(Collectors.toList());
+    }
+    return List.copyOf(groupIds);
+  }
+
   private List<Predicate> createPredicatesEquals(
-      Map<String, List<String>> attributeMap,
+      Map<String, List<String>> attributeMap, Set<String> attributesIgnoreCase,
       CriteriaBuilder builder, Join<UserRoleMappingEntity, UserEntity> userJoin) {
     return attributeMap.entrySet().stream()
         .map(entry -> {
           Join<UserEntity, UserAttributeEntity> attributesJoin = userJoin.join("attributes", JoinType.LEFT);
+          var ignoreCase = attributesIgnoreCase.contains(entry.getKey());
           Predicate keyPredicate = builder.equal(attributesJoin.get("name"), entry.getKey());
-          Predicate valuePredicate = attributesJoin.get("value").in(entry.getValue());
+          Predicate valuePredicate = matchedValue(builder, attributesJoin, ignoreCase)
+              .in(toMatchedCase(entry.getValue(), ignoreCase));
           return builder.and(keyPredicate, valuePredicate);
         })
         .collect(Collectors.toList());
   }
 
   private List<Predicate> createPredicatesStartsWith(
-      Map<String, List<String>> attributeMap,
+      Map<String, List<String>> attributeMap, Set<String> attributesIgnoreCase,
       CriteriaBuilder builder, Join<UserRoleMappingEntity, UserEntity> userJoin) {
     return attributeMap.entrySet().stream()
         .map(entry -> {
           Join<UserEntity, UserAttributeEntity> attributesJoin = userJoin.join("attributes", JoinType.LEFT);
+          var ignoreCase = attributesIgnoreCase.contains(entry.getKey());
           Predicate keyPredicate = builder.equal(attributesJoin.get("name"), entry.getKey());
-          Predicate valuePredicate = builder.or(entry.getValue().stream()
-              .map(value -> builder.like(attributesJoin.get("value"),
+          Predicate valuePredicate = builder.or(toMatchedCase(entry.getValue(), ignoreCase).stream()
+              .map(value -> builder.like(matchedValue(builder, attributesJoin, ignoreCase),
                   value + "%"))
               .toArray(Predicate[]::new));
           return builder.and(keyPredicate, valuePredicate);
@@ -137,19 +747,60 @@ public class ExtendedJpaUserProvider extends JpaUserProvider {
   }
 
   private List<Predicate> createPredicatesInList(
-      Map<String, List<String>> attributeMap,
+      Map<String, List<String>> attributeMap, Set<String> attributesIgnoreCase,
       CriteriaBuilder builder, Join<UserRoleMappingEntity, UserEntity> userJoin) {
     return attributeMap.entrySet().stream()
         .map(entry -> {
           Join<UserEntity, UserAttributeEntity> attributesJoin = userJoin.join("attributes", JoinType.LEFT);
+          var ignoreCase = attributesIgnoreCase.contains(entry.getKey());
           Predicate keyPredicate = builder.equal(attributesJoin.get("name"), entry.getKey());
-          Predicate valuePredicate = attributesJoin.get("value").in(convertToStartFor(entry.getValue()));
+          Predicate valuePredicate = matchedValue(builder, attributesJoin, ignoreCase)
+              .in(convertToStartFor(toMatchedCase(entry.getValue(), ignoreCase)));
           return builder.and(keyPredicate, valuePredicate);
         })
         .collect(Collectors.toList());
   }
 
-  private static List<String> convertToStartFor(List<String> input) {
+  private List<Predicate> createPredicatesContains(
+      Map<String, List<String>> attributeMap, Set<String> attributesIgnoreCase,
+      CriteriaBuilder builder, Join<UserRoleMappingEntity, UserEntity> userJoin) {
+    return attributeMap.entrySet().stream()
+        .map(entry -> {
+          Join<UserEntity, UserAttributeEntity> attributesJoin = userJoin.join("attributes", JoinType.LEFT);
+          var ignoreCase = attributesIgnoreCase.contains(entry.getKey());
+          Predicate keyPredicate = builder.equal(attributesJoin.get("name"), entry.getKey());
+          Predicate valuePredicate = builder.or(toMatchedCase(entry.getValue(), ignoreCase).stream()
+              .map(value -> builder.like(matchedValue(builder, attributesJoin, ignoreCase),
+                  toContainsPattern(value), LIKE_ESCAPE))
+              .toArray(Predicate[]::new));
+          return builder.and(keyPredicate, valuePredicate);
+        })
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Returns the attribute value as is or wrapped into {@code lower()}, the latter is served by the
+   * {@code (NAME, lower(VALUE))} functional index.
+   */
+  private static Expression<String> matchedValue(CriteriaBuilder builder,
+      Join<UserEntity, UserAttributeEntity> attributesJoin, boolean ignoreCase) {
+    Expression<String> value = attributesJoin.get("value");
+    return ignoreCase ? builder.lower(value) : value;
+  }
+
+  static List<String> toMatchedCase(List<String> values, boolean ignoreCase) {
+    return values.stream().map(value -> UserFilter.toMatchedCase(value, ignoreCase))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Returns {@code LIKE} pattern that matches values containing the given one literally.
+   */
+  static String toContainsPattern(String value) {
+    return "%" + value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+  }
+
+  static List<String> convertToStartFor(List<String> input) {
     return input == null ? Collections.emptyList() : input.stream()
         .map(ExtendedJpaUserProvider::generatePrefixes)
         .flatMap(List::stream)
@@ -16,17 +16,77 @@
 
 package com.epam.digital.data.platform.keycloak.rest.api.ext;
 
+import com.epam.digital.data.platform.keycloak.rest.api.ext.attributes.AttributeIndex;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.attributes.AttributeIndexEventListenerProviderFactory;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.roles.RoleMembershipEventListenerProviderFactory;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.roles.RoleMembershipIndex;
+import java.util.Objects;
 import javax.persistence.EntityManager;
+import org.hibernate.Session;
+import org.jboss.logging.Logger;
+import org.keycloak.Config.Scope;
 import org.keycloak.connections.jpa.JpaConnectionProvider;
+import org.keycloak.events.EventListenerProvider;
 import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
 import org.keycloak.models.UserProvider;
 import org.keycloak.models.jpa.JpaUserProviderFactory;
 
 public class ExtendedJpaUserProviderFactory extends JpaUserProviderFactory {
 
+  private static final Logger LOGGER = Logger.getLogger(ExtendedJpaUserProviderFactory.class);
+
+  private UserSearchDialect configuredSearchDialect;
+  private volatile UserSearchDialect detectedSearchDialect;
+  private RoleMembershipIndex roleMembershipIndex;
+  private AttributeIndex attributeIndex;
+
+  @Override
+  public void init(Scope config) {
+    super.init(config);
+    configuredSearchDialect = UserSearchDialect.fromConfig(config.get("searchDialect"));
+  }
+
   @Override
   public UserProvider create(KeycloakSession session) {
     EntityManager em = session.getProvider(JpaConnectionProvider.class).getEntityManager();
-    return new ExtendedJpaUserProvider(session, em);
+    return new ExtendedJpaUserProvider(session, em, getSearchDialect(em), roleMembershipIndex,
+        attributeIndex);
+  }
+
+  @Override
+  public void postInit(KeycloakSessionFactory factory) {
+    super.postInit(factory);
+    var roleMembershipListenerFactory = (RoleMembershipEventListenerProviderFactory)
+        factory.getProviderFactory(EventListenerProvider.class,
+            RoleMembershipEventListenerProviderFactory.ID);
+    if (Objects.nonNull(roleMembershipListenerFactory)) {
+      roleMembershipIndex = roleMembershipListenerFactory.getIndex();
+    }
+    var attributeIndexListenerFactory = (AttributeIndexEventListenerProviderFactory)
+        factory.getProviderFactory(EventListenerProvider.class,
+            AttributeIndexEventListenerProviderFactory.ID);
+    if (Objects.nonNull(attributeIndexListenerFactory)) {
+      attributeIndex = attributeIndexListenerFactory.getIndex();
+    }
+  }
+
+  /**
+   * Returns the configured dialect, otherwise detects it by the database the first time a
+   * provider is created.
+   */
+  private UserSearchDialect getSearchDialect(EntityManager em) {
+    if (Objects.nonNull(configuredSearchDialect)) {
+      return configuredSearchDialect;
+    }
+    if (Objects.isNull(detectedSearchDialect)) {
+      var hibernateSession = em.unwrap(Session.class);
+      var databaseProductName = Objects.isNull(hibernateSession) ? null : hibernateSession
+          .doReturningWork(connection -> connection.getMetaData().getDatabaseProductName());
+      detectedSearchDialect = UserSearchDialect.detect(databaseProductName);
+      LOGGER.infof("Users are searched with %s dialect on %s database", detectedSearchDialect,
+          databaseProductName);
+    }
+    return detectedSearchDialect;
   }
 }
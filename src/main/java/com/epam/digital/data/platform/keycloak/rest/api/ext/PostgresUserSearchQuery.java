@@ -0,0 +1,192 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext;
+
+import com.epam.digital.data.platform.keycloak.rest.api.ext.attributes.AttributeIndex;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.SearchUsersByRoleAndAttributesRequestDto;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.SearchUsersByRoleAndAttributesRequestDto.RoleMatch;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.search.SearchTimeBudget;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import javax.persistence.QueryTimeoutException;
+import org.keycloak.models.RealmModel;
+
+/**
+ * Native PostgreSQL variant of the search by role and attributes.
+ * <p>
+ * Every list of values is bound as a single {@code text[]} parameter, so the statement text
+ * depends only on the set of requested attributes and is reused from the statement cache
+ * regardless of the count of the values. Prefixes are matched with {@code starts_with}, values
+ * with {@code = any(?)} and substrings with {@code like}, which is served by a {@code pg_trgm}
+ * index if there is one. The query returns ids of the page users only; the entities are loaded by
+ * {@link ExtendedJpaUserProvider}.
+ * <p>
+ * Users are matched the same way as by the Criteria query: a user must have at least one role
+ * mapping, and every attribute condition must be satisfied by some value of the attribute. When
+ * the role filter is evaluated by the role membership index, ids of the matching users are bound
+ * instead of the role conditions. The same way ids of the users found by the attribute index are
+ * bound instead of the conditions it served.
+ */
+class PostgresUserSearchQuery {
+
+  private static final String QUERY_CANCELED_SQL_STATE = "57014";
+
+  private final StringBuilder sql = new StringBuilder(
+      "select u.id from user_entity u where u.realm_id = ?");
+  private final List<Object> parameters = new ArrayList<>();
+
+  PostgresUserSearchQuery(RealmModel realm, SearchUsersByRoleAndAttributesRequestDto searchDto,
+      List<String> roleIds, List<String> indexedUserIds, AttributeIndex.Match attributeMatch,
+      List<String> groupIds) {
+    parameters.add(realm.getId());
+    if (Objects.nonNull(searchDto.getEnabled())) {
+      sql.append(" and u.enabled = ?");
+      parameters.add(searchDto.getEnabled());
+    }
+    if (Objects.nonNull(searchDto.getUsername())) {
+      sql.append(" and u.username = ?");
+      parameters.add(searchDto.getUsername());
+    }
+    if (Objects.nonNull(indexedUserIds)) {
+      sql.append(" and u.id = any(?)");
+      parameters.add(indexedUserIds.toArray(String[]::new));
+    } else {
+      appendRoles(searchDto.getRoleMatch(), roleIds);
+    }
+    if (!groupIds.isEmpty()) {
+      sql.append(" and exists (select 1 from user_group_membership g"
+          + " where g.user_id = u.id and g.group_id = any(?))");
+      parameters.add(groupIds.toArray(String[]::new));
+    }
+    var attributesEquals = searchDto.getAttributesEquals();
+    var attributesStartsWith = searchDto.getAttributesStartsWith();
+    var attributesThatAreStartFor = searchDto.getAttributesThatAreStartFor();
+    if (Objects.nonNull(attributeMatch)) {
+      sql.append(" and u.id = any(?)");
+      parameters.add(attributeMatch.getUserIds().toArray(String[]::new));
+      attributesEquals = AttributeIndex.Match.remaining(attributesEquals,
+          attributeMatch.getAttributesEquals());
+      attributesStartsWith = AttributeIndex.Match.remaining(attributesStartsWith,
+          attributeMatch.getAttributesStartsWith());
+      attributesThatAreStartFor = AttributeIndex.Match.remaining(attributesThatAreStartFor,
+          attributeMatch.getAttributesThatAreStartFor());
+    }
+    var attributesIgnoreCase = searchDto.getAttributesIgnoreCase();
+    appendAttributes(attributesEquals, attributesIgnoreCase, "%s = any(?)",
+        UnaryOperator.identity());
+    appendAttributes(attributesStartsWith, attributesIgnoreCase,
+        "exists (select 1 from unnest(?) as p(prefix) where starts_with(%s, p.prefix))",
+        UnaryOperator.identity());
+    appendAttributes(searchDto.getAttributesContains(), attributesIgnoreCase,
+        "exists (select 1 from unnest(?) as p(pattern) where %s like p.pattern)",
+        values -> values.stream().map(ExtendedJpaUserProvider::toContainsPattern)
+            .collect(Collectors.toList()));
+    appendAttributes(attributesThatAreStartFor, attributesIgnoreCase,
+        "%s = any(?)", ExtendedJpaUserProvider::convertToStartFor);
+
+    sql.append(" order by u.username");
+    var pagination = searchDto.getPagination();
+    var offset = pagination.getOffset();
+    var limit = pagination.getLimit();
+    if (Objects.nonNull(limit) && limit >= 0) {
+      sql.append(" limit ?");
+      parameters.add(limit);
+    }
+    if (Objects.nonNull(offset) && offset > 0) {
+      sql.append(" offset ?");
+      parameters.add(offset);
+    }
+  }
+
+  String getSql() {
+    return sql.toString();
+  }
+
+  /**
+   * Executes the query with the remaining time budget as statement timeout.
+   *
+   * @return ids of the found users ordered by username
+   * @throws QueryTimeoutException if the statement is cancelled by the timeout
+   */
+  List<String> execute(Connection connection, SearchTimeBudget timeBudget) throws SQLException {
+    try (var statement = connection.prepareStatement(getSql())) {
+      timeBudget.applyTo(statement);
+      for (var i = 0; i < parameters.size(); i++) {
+        var parameter = parameters.get(i);
+        statement.setObject(i + 1, parameter instanceof String[]
+            ? connection.createArrayOf("text", (String[]) parameter) : parameter);
+      }
+      var userIds = new ArrayList<String>();
+      try (var resultSet = statement.executeQuery()) {
+        while (resultSet.next()) {
+          userIds.add(resultSet.getString(1));
+        }
+      }
+      return userIds;
+    } catch (SQLTimeoutException e) {
+      throw new QueryTimeoutException(e.getMessage(), e);
+    } catch (SQLException e) {
+      if (QUERY_CANCELED_SQL_STATE.equals(e.getSQLState())) {
+        throw new QueryTimeoutException(e.getMessage(), e);
+      }
+      throw e;
+    }
+  }
+
+  private void appendRoles(RoleMatch roleMatch, List<String> roleIds) {
+    if (roleIds.isEmpty()) {
+      sql.append(" and exists (select 1 from user_role_mapping m where m.user_id = u.id)");
+    } else if (roleMatch == RoleMatch.ANY || roleIds.size() == 1) {
+      sql.append(" and exists (select 1 from user_role_mapping m"
+          + " where m.user_id = u.id and m.role_id = any(?))");
+      parameters.add(roleIds.toArray(String[]::new));
+    } else {
+      sql.append(" and (select count(distinct m.role_id) from user_role_mapping m"
+          + " where m.user_id = u.id and m.role_id = any(?)) = ?");
+      parameters.add(roleIds.toArray(String[]::new));
+      parameters.add(roleIds.size());
+    }
+  }
+
+  /**
+   * Appends a condition per attribute. The value condition is a format with the placeholder of the
+   * matched value expression, which is {@code lower(a.value)} for the attributes matched
+   * case-insensitively.
+   */
+  private void appendAttributes(Map<String, List<String>> attributes,
+      Set<String> attributesIgnoreCase, String valueCondition,
+      UnaryOperator<List<String>> valuesMapper) {
+    attributes.forEach((name, values) -> {
+      var ignoreCase = attributesIgnoreCase.contains(name);
+      sql.append(" and exists (select 1 from user_attribute a"
+              + " where a.user_id = u.id and a.name = ? and ")
+          .append(String.format(valueCondition, ignoreCase ? "lower(a.value)" : "a.value"))
+          .append(')');
+      parameters.add(name);
+      parameters.add(valuesMapper.apply(ExtendedJpaUserProvider.toMatchedCase(values, ignoreCase))
+          .toArray(String[]::new));
+    });
+  }
+}
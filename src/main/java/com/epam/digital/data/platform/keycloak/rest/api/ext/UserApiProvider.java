@@ -16,43 +16,181 @@
 
 package com.epam.digital.data.platform.keycloak.rest.api.ext;
 
+import com.epam.digital.data.platform.keycloak.rest.api.ext.admission.AsyncSearchExecutor;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.admission.RetryLaterException;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.admission.SearchBulkhead;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.auth.AdminTokenCache;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.bulk.BulkUserUpdate;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.bulk.UserImport;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.changes.UserChangeFeed;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.AdminTokenCacheStatsResponseDto;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.AdmissionStatsResponseDto;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.AttributeIndexStatsResponseDto;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.BulkUpdateUserAttributesRequestDto;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.BulkUpdateUserAttributesResponseDto;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.BulkUpdateUserRolesRequestDto;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.BulkUpdateUserRolesResponseDto;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.BulkUpdateUserRolesResponseDto.Outcome;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.BulkUpdateUserRolesResponseDto.UserOutcome;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.RoleMembershipStatsResponseDto;
 import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.SearchUserRequestDto;
 import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.SearchUsersByEqualsAndStartsWithAttributesRequestDto;
 import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.SearchUsersByRoleAndAttributesRequestDto;
 import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.SearchUsersByRoleAndAttributesResponseDto;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.SearchUsersFacetsRequestDto;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.SearchUsersFacetsResponseDto;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.SearchUsersFacetsResponseDto.FacetCounts;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.SearchWarmupStatusResponseDto;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.UserChangesResponseDto;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.UserImportResponseDto;
 import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.v2.SearchUsersByAttributesRequestDto;
 import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.v2.SearchUsersByAttributesResponseDto;
 import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.v2.SearchUsersByAttributesResponseDto.Pagination;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.event.UserDataVersions;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.search.ContinueToken;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.search.SearchResponseEncoding;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.search.SearchResultETags;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.search.SearchTimeBudget;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.search.SearchTimings;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.search.SearchWarmup;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.search.SearchTimings.Stage;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.Consumes;
 import javax.ws.rs.Encoded;
 import javax.ws.rs.ForbiddenException;
+import javax.ws.rs.GET;
+import javax.ws.rs.NotFoundException;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import org.hibernate.Session;
+import org.jboss.logging.Logger;
 import org.jboss.resteasy.annotations.cache.NoCache;
 import org.jboss.resteasy.spi.HttpRequest;
+import org.keycloak.connections.jpa.JpaConnectionProvider;
+import org.keycloak.events.admin.OperationType;
+import org.keycloak.events.admin.ResourceType;
 import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
 import org.keycloak.models.UserModel;
 import org.keycloak.models.UserProvider;
+import org.keycloak.models.cache.UserCache;
+import org.keycloak.models.jpa.UserAdapter;
+import org.keycloak.models.jpa.entities.UserEntity;
+import org.keycloak.models.utils.KeycloakModelUtils;
 import org.keycloak.models.utils.ModelToRepresentation;
 import org.keycloak.representations.idm.UserRepresentation;
 import org.keycloak.services.resource.RealmResourceProvider;
+import org.keycloak.services.resources.admin.AdminAuth;
+import org.keycloak.services.resources.admin.AdminEventBuilder;
 import org.keycloak.services.resources.admin.AdminRoot;
+import org.keycloak.services.resources.admin.permissions.AdminPermissionEvaluator;
+import org.keycloak.services.resources.admin.permissions.AdminPermissions;
 import org.keycloak.utils.MediaType;
 
 public class UserApiProvider extends AdminRoot implements RealmResourceProvider {
 
+  private static final Logger LOGGER = Logger.getLogger(UserApiProvider.class);
+
+  private static final long RETRY_AFTER_TIMED_OUT_SECONDS = 1L;
+
+  /**
+   * Users read by one query of a search without pagination, so their attributes are loaded for the
+   * whole chunk instead of one user at a time.
+   */
+  private static final int UNPAGINATED_CHUNK_SIZE = 500;
+
   private final UserFilter userFilter;
+  private final SearchBulkhead searchBulkhead;
+  private final SearchBulkhead bulkWriteBulkhead;
+  private final SearchTimeBudget.Policy timeBudgetPolicy;
+  private final SearchResultETags searchResultETags;
+  private final AdminTokenCache adminTokenCache;
+  private final AsyncSearchExecutor asyncSearchExecutor;
+  private final UserChangeFeed.Policy changeFeedPolicy;
+  private final BulkUserUpdate.Policy bulkUpdatePolicy;
+  private final UserImport.Policy importPolicy;
+  private final SearchResponseEncoding.Policy encodingPolicy;
+  private final SearchWarmup searchWarmup;
+  private final SearchTimings timings;
+  private AdminAuth adminAuth;
 
   public UserApiProvider(KeycloakSession session, UserFilter userFilter) {
+    this(session, userFilter, new SearchBulkhead(SearchBulkhead.Config.builder().build()),
+        new SearchBulkhead(SearchBulkhead.Config.bulkWriteDefaults().build()),
+        SearchTimeBudget.Policy.builder().build(), new SearchResultETags(new UserDataVersions()),
+        new AdminTokenCache(AdminTokenCache.Config.builder().build()),
+        SearchTimings.Policy.builder().build(),
+        new AsyncSearchExecutor(AsyncSearchExecutor.Config.builder().build()),
+        UserChangeFeed.Policy.builder().build(), BulkUserUpdate.Policy.builder().build(),
+        UserImport.Policy.builder().build(), SearchResponseEncoding.Policy.builder().build(),
+        new SearchWarmup(SearchWarmup.Config.builder().build()));
+  }
+
+  public UserApiProvider(KeycloakSession session, UserFilter userFilter,
+      SearchBulkhead searchBulkhead, SearchBulkhead bulkWriteBulkhead,
+      SearchTimeBudget.Policy timeBudgetPolicy,
+      SearchResultETags searchResultETags, AdminTokenCache adminTokenCache,
+      SearchTimings.Policy timingsPolicy, AsyncSearchExecutor asyncSearchExecutor,
+      UserChangeFeed.Policy changeFeedPolicy, BulkUserUpdate.Policy bulkUpdatePolicy,
+      UserImport.Policy importPolicy, SearchResponseEncoding.Policy encodingPolicy,
+      SearchWarmup searchWarmup) {
     this.session = session;
     this.userFilter = userFilter;
+    this.searchBulkhead = searchBulkhead;
+    this.bulkWriteBulkhead = bulkWriteBulkhead;
+    this.timeBudgetPolicy = timeBudgetPolicy;
+    this.searchResultETags = searchResultETags;
+    this.adminTokenCache = adminTokenCache;
+    this.asyncSearchExecutor = asyncSearchExecutor;
+    this.changeFeedPolicy = changeFeedPolicy;
+    this.bulkUpdatePolicy = bulkUpdatePolicy;
+    this.importPolicy = importPolicy;
+    this.encodingPolicy = encodingPolicy;
+    this.searchWarmup = searchWarmup;
+    this.timings = timingsPolicy.start();
+  }
+
+  /**
+   * Creates a provider that continues the authenticated request of the given one in another
+   * session.
+   */
+  private UserApiProvider(UserApiProvider request, KeycloakSession session) {
+    this.session = session;
+    this.userFilter = request.userFilter;
+    this.searchBulkhead = request.searchBulkhead;
+    this.bulkWriteBulkhead = request.bulkWriteBulkhead;
+    this.timeBudgetPolicy = request.timeBudgetPolicy;
+    this.searchResultETags = request.searchResultETags;
+    this.adminTokenCache = request.adminTokenCache;
+    this.asyncSearchExecutor = request.asyncSearchExecutor;
+    this.changeFeedPolicy = request.changeFeedPolicy;
+    this.bulkUpdatePolicy = request.bulkUpdatePolicy;
+    this.importPolicy = request.importPolicy;
+    this.encodingPolicy = request.encodingPolicy;
+    this.searchWarmup = request.searchWarmup;
+    this.timings = request.timings;
+    this.adminAuth = request.adminAuth;
   }
 
   public void close() {
@@ -71,14 +209,27 @@ public class UserApiProvider extends AdminRoot implements RealmResourceProvider
   @POST
   @Path("search")
   @NoCache
-  @Produces({MediaType.APPLICATION_JSON})
+  @Produces({MediaType.APPLICATION_JSON, SearchResponseEncoding.APPLICATION_CBOR})
   @Encoded
-  public List<UserRepresentation> searchUsersByAttributes(@Context final HttpRequest request,
+  public void searchUsersByAttributes(@Context final HttpRequest request,
+      SearchUserRequestDto requestDto, @Suspended final AsyncResponse asyncResponse) {
+    authorizeAndSubmit(request, asyncResponse,
+        provider -> provider.searchUsersByAttributes(request, requestDto));
+  }
+
+  /**
+   * Executes {@link #searchUsersByAttributes(HttpRequest, SearchUserRequestDto, AsyncResponse)}
+   * search synchronously.
+   */
+  @Deprecated(forRemoval = true)
+  public Response searchUsersByAttributes(final HttpRequest request,
       SearchUserRequestDto requestDto) {
     authenticateRealmAdminRequest(request.getHttpHeaders());
-    validateRequestRealm(request, session.getContext().getRealm().getName());
-    return toRepresentation(
-        userFilter.filterUsersByAttributesEquals(session, requestDto.attributes));
+    final var realm = session.getContext().getRealm();
+    validateRequestRealm(request, realm.getName());
+    return executeSearch(request, realm, "search", requestDto, () -> toRepresentation(
+        userFilter.filterUsersByAttributesEquals(session, requestDto.attributes,
+            UserFetchPlan.REPRESENTATION)));
   }
 
   /**
@@ -90,24 +241,42 @@ public class UserApiProvider extends AdminRoot implements RealmResourceProvider
   @POST
   @Path("search-by-attributes")
   @NoCache
-  @Produces({MediaType.APPLICATION_JSON})
+  @Produces({MediaType.APPLICATION_JSON, SearchResponseEncoding.APPLICATION_CBOR})
   @Encoded
-  public List<UserRepresentation> searchUsersByAttributes(@Context final HttpRequest request,
+  public void searchUsersByAttributes(@Context final HttpRequest request,
+      SearchUsersByEqualsAndStartsWithAttributesRequestDto requestDto,
+      @Suspended final AsyncResponse asyncResponse) {
+    authorizeAndSubmit(request, asyncResponse,
+        provider -> provider.searchUsersByAttributes(request, requestDto));
+  }
+
+  /**
+   * Executes {@link #searchUsersByAttributes(HttpRequest,
+   * SearchUsersByEqualsAndStartsWithAttributesRequestDto, AsyncResponse)} search synchronously.
+   */
+  @Deprecated(forRemoval = true)
+  public Response searchUsersByAttributes(final HttpRequest request,
       SearchUsersByEqualsAndStartsWithAttributesRequestDto requestDto) {
     authenticateRealmAdminRequest(request.getHttpHeaders());
-    validateRequestRealm(request, session.getContext().getRealm().getName());
+    final var realm = session.getContext().getRealm();
+    validateRequestRealm(request, realm.getName());
+    return executeSearch(request, realm, "search-by-attributes", requestDto,
+        () -> searchUsersByEqualsAndStartsWith(requestDto));
+  }
+
+  private List<UserRepresentation> searchUsersByEqualsAndStartsWith(
+      SearchUsersByEqualsAndStartsWithAttributesRequestDto requestDto) {
     if (requestDto.attributesEquals == null || requestDto.attributesEquals.isEmpty()) {
-      var userModels = userFilter.filterUsersByAttributesInvertedStartsWith(
-          session.users().getUsersStream(session.getContext().getRealm()),
-          requestDto.attributesStartsWith);
-      return toRepresentation(userModels);
+      return toRepresentation(userFilter.findUsersByAttributesInvertedStartsWith(session,
+          requestDto.attributesStartsWith, UserFetchPlan.REPRESENTATION));
     }
     if (requestDto.attributesStartsWith == null || requestDto.attributesStartsWith.isEmpty()) {
-      return toRepresentation(
-          userFilter.filterUsersByAttributesEquals(session, requestDto.attributesEquals));
+      return toRepresentation(userFilter.filterUsersByAttributesEquals(session,
+          requestDto.attributesEquals, UserFetchPlan.REPRESENTATION));
     }
 
-    var userModels = userFilter.filterUsersByAttributesEquals(session, requestDto.attributesEquals);
+    var userModels = userFilter.filterUsersByAttributesEquals(session, requestDto.attributesEquals,
+        UserFetchPlan.REPRESENTATION);
     userModels = userFilter.filterUsersByAttributesInvertedStartsWith(userModels,
         requestDto.attributesStartsWith);
     return toRepresentation(userModels);
@@ -122,20 +291,43 @@ public class UserApiProvider extends AdminRoot implements RealmResourceProvider
   @POST
   @Path("v2/search-by-attributes")
   @NoCache
-  @Produces({MediaType.APPLICATION_JSON})
+  @Produces({MediaType.APPLICATION_JSON, SearchResponseEncoding.APPLICATION_CBOR})
   @Encoded
-  public SearchUsersByAttributesResponseDto searchUsersByAttributes(
-      @Context final HttpRequest request, SearchUsersByAttributesRequestDto requestDto) {
+  public void searchUsersByAttributes(@Context final HttpRequest request,
+      SearchUsersByAttributesRequestDto requestDto, @Suspended final AsyncResponse asyncResponse) {
+    authorizeAndSubmit(request, asyncResponse,
+        provider -> provider.searchUsersByAttributes(request, requestDto));
+  }
+
+  /**
+   * Executes {@link #searchUsersByAttributes(HttpRequest, SearchUsersByAttributesRequestDto,
+   * AsyncResponse)} search synchronously.
+   */
+  @Deprecated(forRemoval = true)
+  public Response searchUsersByAttributes(final HttpRequest request,
+      SearchUsersByAttributesRequestDto requestDto) {
     final var realm = session.getContext().getRealm();
     authenticateRealmAdminRequest(request.getHttpHeaders());
     validateRequestRealm(request, realm.getName());
+    return executeSearch(request, realm, "v2/search-by-attributes", requestDto,
+        () -> searchUsersByAttributes(realm, requestDto));
+  }
 
-    final var continueToken = new AtomicInteger(
-        Objects.requireNonNullElse(requestDto.getPagination().getContinueToken(), 0));
-    if (continueToken.get() < 0) {
+  /**
+   * Checks the users of the realm page by page in the order of username until the page of the
+   * request is filled. If the users are stored by {@link ExtendedJpaUserProvider} the pages are
+   * read by the seek position of the continue token, otherwise by offset. A request without
+   * pagination reads all the users in chunks of {@link #UNPAGINATED_CHUNK_SIZE}.
+   */
+  private SearchUsersByAttributesResponseDto searchUsersByAttributes(RealmModel realm,
+      SearchUsersByAttributesRequestDto requestDto) {
+    final var timeBudget = timeBudgetPolicy.start(requestDto.getTimeBudgetMillis());
+    final var initialToken = ContinueToken.parse(requestDto.getPagination().getContinueToken());
+    if (initialToken.isEnd()) {
       // continue token shows that all pages were selected
       return SearchUsersByAttributesResponseDto.builder().users(List.of())
-          .pagination(Pagination.builder().continueToken(-1).build()).build();
+          .pagination(Pagination.builder().continueToken(ContinueToken.END_VALUE).build())
+          .build();
     }
 
     final var limit = new AtomicInteger(
@@ -145,67 +337,583 @@ public class UserApiProvider extends AdminRoot implements RealmResourceProvider
       limit.set(-1);
     }
 
+    final var userProvider = session.getProvider(UserProvider.class);
+    final var keysetProvider = userProvider instanceof ExtendedJpaUserProvider
+        ? (ExtendedJpaUserProvider) userProvider : null;
     final var foundUsers = new ArrayList<UserRepresentation>();
+    final var chunkSize = limit.get() > 0 ? limit.get() : UNPAGINATED_CHUNK_SIZE;
 
-    final var oldContinueToken = new AtomicInteger(continueToken.get());
-    do {
-      oldContinueToken.set(continueToken.get());
-      session.users().getUsersStream(realm, continueToken.get(), limit.get())
-          // skip all remaining users if list is filled
-          .filter(userModel -> limit.get() < 0 || foundUsers.size() < (limit.get() + 1))
-          // set count of all processed users as continue token
-          .peek(userModel -> continueToken.incrementAndGet())
-          // filter users by attributesEquals
-          .filter(userModel -> UserFilter.isUserMatchesAttributesEquals(userModel,
-              requestDto.getAttributesEquals()))
-          // filter users by attributesStartWith
-          .filter(userModel -> UserFilter.isUserMatchesAttributesStartsWith(userModel,
-              requestDto.getAttributesStartsWith()))
-          // filter users by attributesThatAreStartFor
-          .filter(userModel -> UserFilter.isUserMatchesAttributesThatAreStartFor(userModel,
-              requestDto.getAttributesThatAreStartFor()))
-          // map to UserRepresentation
-          .map(userModel -> ModelToRepresentation.toRepresentation(session, realm, userModel))
-          // add to list of found users
-          .forEach(foundUsers::add);
-    } while (limit.get() > 0 // if limit<=0 then we need only 1 iteration
-        // if continueToken hasn't changed then user stream was empty, so end loop
-        && oldContinueToken.get() != continueToken.get()
-        // if found enough users end the loop
-        && foundUsers.size() < (limit.get() + 1));
-
-    if (limit.get() < 0 || foundUsers.size() <= limit.get()) {
+    // position of the next user to check, and the position of the last checked one
+    final var continueToken = new AtomicReference<>(initialToken);
+    final var previousToken = new AtomicReference<>(initialToken);
+    // position of the first matched user that doesn't fit the page
+    final var nextPageToken = new AtomicReference<ContinueToken>();
+    final var checkedUsers = new AtomicInteger();
+    var timedOut = false;
+    try {
+      int checkedBefore;
+      do {
+        checkedBefore = checkedUsers.get();
+        var chunkToken = continueToken.get();
+        timeBudget.runWithQueryTimeout(getEntityManager(),
+            () -> getUsersStream(realm, keysetProvider, chunkToken, chunkSize)
+                // skip all remaining users if the page is filled
+                .filter(userModel -> Objects.isNull(nextPageToken.get()))
+                // stop if time budget is used up, but check at least one user to make progress
+                .takeWhile(userModel -> checkedUsers.get() == 0 || !timeBudget.isExhausted())
+                // set position of every checked user as continue token
+                .peek(userModel -> {
+                  checkedUsers.incrementAndGet();
+                  previousToken.set(continueToken.get());
+                  continueToken.set(Objects.nonNull(keysetProvider)
+                      ? ContinueToken.after(userModel) : continueToken.get().skip(1));
+                })
+                // filter users by attributesEquals
+                .filter(userModel -> UserFilter.isUserMatchesAttributesEquals(userModel,
+                    requestDto.getAttributesEquals(), requestDto.getAttributesIgnoreCase()))
+                // filter users by attributesStartWith
+                .filter(userModel -> UserFilter.isUserMatchesAttributesStartsWith(userModel,
+                    requestDto.getAttributesStartsWith(), requestDto.getAttributesIgnoreCase()))
+                // filter users by attributesThatAreStartFor
+                .filter(userModel -> UserFilter.isUserMatchesAttributesThatAreStartFor(userModel,
+                    requestDto.getAttributesThatAreStartFor(),
+                    requestDto.getAttributesIgnoreCase()))
+                .forEach(userModel -> {
+                  if (limit.get() >= 0 && foundUsers.size() == limit.get()) {
+                    // the user is from next page
+                    nextPageToken.set(previousToken.get());
+                  } else {
+                    foundUsers.add(toRepresentation(realm, userModel));
+                  }
+                }));
+      } while (checkedBefore != checkedUsers.get() // if no user was checked the stream was empty
+          // if found enough users end the loop
+          && Objects.isNull(nextPageToken.get())
+          // if time budget is used up return users found so far
+          && !timeBudget.isExhausted());
+    } catch (PersistenceException e) {
+      if (!SearchTimeBudget.isTimeout(e)) {
+        throw e;
+      }
+      if (checkedUsers.get() == 0) {
+        throw searchTimedOut();
+      }
+      timedOut = true;
+    }
+
+    ContinueToken responseToken;
+    if (Objects.nonNull(nextPageToken.get())) {
+      responseToken = nextPageToken.get();
+    } else if (!timedOut && !timeBudget.isExhausted()) {
       // if there were found users only for this page then it's last page
-      continueToken.set(-1);
+      responseToken = ContinueToken.end();
     } else {
-      // remove last found user as they're from next page
-      foundUsers.remove(limit.get());
-      continueToken.decrementAndGet();
+      // otherwise the page is partial and continue token points to the first not checked user
+      responseToken = continueToken.get();
     }
 
     return SearchUsersByAttributesResponseDto.builder().users(foundUsers)
-        .pagination(Pagination.builder().continueToken(continueToken.get()).build())
+        .pagination(Pagination.builder().continueToken(responseToken.encode()).build())
         .build();
   }
 
+  /**
+   * Reads the users that follow the position. An offset token, e.g. of a client that started the
+   * search before the users were read by seek position, is resolved by offset once.
+   */
+  private Stream<UserModel> getUsersStream(RealmModel realm,
+      ExtendedJpaUserProvider keysetProvider, ContinueToken position, int limit) {
+    if (Objects.isNull(keysetProvider) || !position.isKeyset() && position.getOffset() > 0) {
+      return session.users().getUsersStream(realm, position.getOffset(), limit);
+    }
+    return keysetProvider.getUsersStreamAfter(realm, position.getUsername(), position.getId(),
+        limit, UserFetchPlan.ATTRIBUTES);
+  }
+
   @POST
   @Path("search-by-role-and-attributes")
   @NoCache
-  @Produces({MediaType.APPLICATION_JSON})
+  @Produces({MediaType.APPLICATION_JSON, SearchResponseEncoding.APPLICATION_CBOR})
+  @Encoded
+  public void searchUsersByRoleAndAttributes(@Context final HttpRequest request,
+      SearchUsersByRoleAndAttributesRequestDto requestDto,
+      @Suspended final AsyncResponse asyncResponse) {
+    authorizeAndSubmit(request, asyncResponse,
+        provider -> provider.searchUsersByRoleAndAttributes(request, requestDto));
+  }
+
+  /**
+   * Executes {@link #searchUsersByRoleAndAttributes(HttpRequest,
+   * SearchUsersByRoleAndAttributesRequestDto, AsyncResponse)} search synchronously.
+   */
+  public Response searchUsersByRoleAndAttributes(final HttpRequest request,
+      SearchUsersByRoleAndAttributesRequestDto requestDto) {
+    final var realm = session.getContext().getRealm();
+    authenticateRealmAdminRequest(request.getHttpHeaders());
+    validateRequestRealm(request, realm.getName());
+    validateRoleNames(requestDto);
+
+    return executeSearch(request, realm, "search-by-role-and-attributes", requestDto, () -> {
+      var timeBudget = timeBudgetPolicy.start(requestDto.getTimeBudgetMillis());
+      var provider = (ExtendedJpaUserProvider) session.getProvider(UserProvider.class);
+
+      try {
+        var usersStream = provider.searchForUserStream(realm, requestDto, timeBudget,
+            UserFetchPlan.REPRESENTATION);
+        var userRepresentations = usersStream.map(userModel -> toRepresentation(realm, userModel))
+            .collect(Collectors.toList());
+        return SearchUsersByRoleAndAttributesResponseDto.builder().users(userRepresentations)
+            .build();
+      } catch (PersistenceException e) {
+        if (!SearchTimeBudget.isTimeout(e)) {
+          throw e;
+        }
+        throw searchTimedOut();
+      }
+    });
+  }
+
+  /**
+   * Counts users matching the filter of the request per value of every requested attribute. The
+   * counts are computed by the database with {@code GROUP BY}, the users aren't loaded.
+   */
+  @POST
+  @Path("search-by-role-and-attributes/facets")
+  @NoCache
+  @Produces({MediaType.APPLICATION_JSON, SearchResponseEncoding.APPLICATION_CBOR})
   @Encoded
-  public SearchUsersByRoleAndAttributesResponseDto searchUsersByRoleAndAttributes(
-      @Context final HttpRequest request, SearchUsersByRoleAndAttributesRequestDto requestDto) {
+  public void searchUsersFacets(@Context final HttpRequest request,
+      SearchUsersFacetsRequestDto requestDto, @Suspended final AsyncResponse asyncResponse) {
+    authorizeAndSubmit(request, asyncResponse,
+        provider -> provider.searchUsersFacets(request, requestDto));
+  }
+
+  /**
+   * Executes {@link #searchUsersFacets(HttpRequest, SearchUsersFacetsRequestDto, AsyncResponse)}
+   * search synchronously.
+   */
+  public Response searchUsersFacets(final HttpRequest request,
+      SearchUsersFacetsRequestDto requestDto) {
+    final var realm = session.getContext().getRealm();
+    authenticateRealmAdminRequest(request.getHttpHeaders());
+    validateRequestRealm(request, realm.getName());
+    if (requestDto.getFacets().stream().anyMatch(facet -> Objects.isNull(facet.getAttribute()))) {
+      throw new BadRequestException("Facet attribute must be set");
+    }
+    validateRoleNames(requestDto);
+
+    return executeSearch(request, realm, "search-by-role-and-attributes/facets", requestDto,
+        () -> {
+          var timeBudget = timeBudgetPolicy.start(requestDto.getTimeBudgetMillis());
+          var provider = (ExtendedJpaUserProvider) session.getProvider(UserProvider.class);
+
+          try {
+            var facets = requestDto.getFacets().stream()
+                .map(facet -> FacetCounts.builder()
+                    .attribute(facet.getAttribute())
+                    .prefixLength(facet.getPrefixLength())
+                    .counts(provider.countUsersByAttributeValues(realm, requestDto,
+                        facet.getAttribute(), facet.getPrefixLength(), timeBudget))
+                    .build())
+                .collect(Collectors.toList());
+            return SearchUsersFacetsResponseDto.builder().facets(facets).build();
+          } catch (PersistenceException e) {
+            if (!SearchTimeBudget.isTimeout(e)) {
+              throw e;
+            }
+            throw searchTimedOut();
+          }
+        });
+  }
+
+  /**
+   * Returns changes of the realm users recorded after the {@code since} cursor in the order they
+   * were made. The changes are recorded by {@code users-ext-change-feed} event listener, a client
+   * keeps {@code nextCursor} of the response as the cursor of its next request.
+   */
+  @GET
+  @Path("changes")
+  @NoCache
+  @Produces({MediaType.APPLICATION_JSON})
+  public void getUserChanges(@Context final HttpRequest request,
+      @QueryParam("since") Long since, @QueryParam("limit") Integer limit,
+      @Suspended final AsyncResponse asyncResponse) {
+    authorizeAndSubmit(request, asyncResponse,
+        provider -> provider.getUserChanges(request, since, limit));
+  }
+
+  /**
+   * Reads {@link #getUserChanges(HttpRequest, Long, Integer, AsyncResponse)} changes
+   * synchronously.
+   */
+  public Response getUserChanges(final HttpRequest request, Long since, Integer limit) {
     final var realm = session.getContext().getRealm();
     authenticateRealmAdminRequest(request.getHttpHeaders());
     validateRequestRealm(request, realm.getName());
 
+    var cursor = Objects.requireNonNullElse(since, 0L);
+    var changes = searchBulkhead.execute(realm.getName(),
+        () -> changeFeedPolicy.read(UserChangeFeed.of(session), realm.getId(), cursor, limit));
+    return Response.ok(UserChangesResponseDto.builder()
+        .changes(changes.stream()
+            .map(change -> UserChangesResponseDto.Change.builder()
+                .cursor(change.getId())
+                .userId(change.getUserId())
+                .type(change.getType())
+                .time(change.getChangedAt())
+                .build())
+            .collect(Collectors.toList()))
+        .nextCursor(changes.isEmpty() ? cursor : changes.get(changes.size() - 1).getId())
+        .build()).build();
+  }
+
+  /**
+   * Applies set, remove and replace operations to attributes of many users of the realm in one
+   * transaction. Every changed user is evicted from the user cache and gets an {@code UPDATE}
+   * admin event, the same as a user updated through the Admin API.
+   */
+  @POST
+  @Path("bulk/attributes")
+  @NoCache
+  @Produces({MediaType.APPLICATION_JSON})
+  public BulkUpdateUserAttributesResponseDto updateUsersAttributes(
+      @Context final HttpRequest request, BulkUpdateUserAttributesRequestDto requestDto) {
+    final var realm = session.getContext().getRealm();
+    var auth = authenticateRealmAdminRequest(request.getHttpHeaders());
+    validateRequestRealm(request, realm.getName());
+    permissions(realm, auth).users().requireManage();
+    validateBulkUpdate(requestDto);
+
+    var result = bulkWriteBulkhead.execute(realm.getName(),
+        () -> BulkUserUpdate.of(session, bulkUpdatePolicy).updateAttributes(realm.getId(),
+            requestDto.getUserIds(), requestDto.getOperations()));
+
+    onUsersChanged(realm, result.getUpdatedUsers(), new AdminEventBuilder(realm, auth, session,
+        session.getContext().getConnection())
+        .resource(ResourceType.USER)
+        .operation(OperationType.UPDATE));
+    return BulkUpdateUserAttributesResponseDto.builder()
+        .updatedUserIds(result.getUpdatedUsers().stream().map(UserEntity::getId)
+            .collect(Collectors.toList()))
+        .notFoundUserIds(result.getNotFoundUserIds())
+        .build();
+  }
+
+  private void validateBulkUpdate(BulkUpdateUserAttributesRequestDto requestDto) {
+    if (requestDto.getUserIds().isEmpty() || requestDto.getOperations().isEmpty()) {
+      throw new BadRequestException("User ids and operations must be set");
+    }
+    if (requestDto.getUserIds().size() > bulkUpdatePolicy.getMaxUsers()) {
+      throw new BadRequestException(String.format(
+          "At most %d users can be updated by one request", bulkUpdatePolicy.getMaxUsers()));
+    }
+    for (var operation : requestDto.getOperations()) {
+      if (Objects.isNull(operation.getType()) || Objects.isNull(operation.getAttribute())) {
+        throw new BadRequestException("Operation type and attribute must be set");
+      }
+      if (ExtendedJpaUserProvider.USER_COLUMN_ATTRIBUTES.contains(operation.getAttribute())) {
+        throw new BadRequestException(
+            "Attribute " + operation.getAttribute() + " can't be updated in bulk");
+      }
+      if (BulkUpdateUserAttributesRequestDto.OperationType.REPLACE.equals(operation.getType())
+          && (Objects.isNull(operation.getFrom()) || Objects.isNull(operation.getTo()))) {
+        throw new BadRequestException("Replace operation requires from and to values");
+      }
+    }
+  }
+
+  /**
+   * Grants a realm or client role to many users of the realm, or revokes it from them, in one
+   * transaction. The users are listed by ids or selected by a search filter. Every changed user is
+   * evicted from the user cache and gets a role mapping admin event, the same as a user whose role
+   * mappings are changed through the Admin API.
+   */
+  @POST
+  @Path("bulk/role-mappings")
+  @NoCache
+  @Produces({MediaType.APPLICATION_JSON})
+  public BulkUpdateUserRolesResponseDto updateUsersRoles(@Context final HttpRequest request,
+      BulkUpdateUserRolesRequestDto requestDto) {
+    final var realm = session.getContext().getRealm();
+    var auth = authenticateRealmAdminRequest(request.getHttpHeaders());
+    validateRequestRealm(request, realm.getName());
+    validateBulkRoleUpdate(requestDto);
+
+    var client = Objects.isNull(requestDto.getClientId()) ? null
+        : realm.getClientByClientId(requestDto.getClientId());
+    if (Objects.nonNull(requestDto.getClientId()) && Objects.isNull(client)) {
+      throw new NotFoundException("Client not found");
+    }
+    var role = Objects.isNull(client) ? realm.getRole(requestDto.getRoleName())
+        : client.getRole(requestDto.getRoleName());
+    if (Objects.isNull(role)) {
+      throw new NotFoundException("Role not found");
+    }
+    var permissions = permissions(realm, auth);
+    permissions.users().requireManage();
+    permissions.roles().requireMapRole(role);
+
+    var grant = BulkUpdateUserRolesRequestDto.Action.GRANT.equals(requestDto.getAction());
+    return bulkWriteBulkhead.execute(realm.getName(), () -> {
+      var userIds = Objects.isNull(requestDto.getFilter()) ? requestDto.getUserIds()
+          : searchUserIds(realm, requestDto.getFilter());
+      var bulkUserUpdate = BulkUserUpdate.of(session, bulkUpdatePolicy);
+      var result = grant ? bulkUserUpdate.grantRole(realm.getId(), role.getId(), userIds)
+          : bulkUserUpdate.revokeRole(realm.getId(), role.getId(), userIds);
+
+      var adminEvent = new AdminEventBuilder(realm, auth, session,
+          session.getContext().getConnection())
+          .resource(Objects.isNull(client) ? ResourceType.REALM_ROLE_MAPPING
+              : ResourceType.CLIENT_ROLE_MAPPING)
+          .operation(grant ? OperationType.CREATE : OperationType.DELETE)
+          .representation(List.of(ModelToRepresentation.toBriefRepresentation(role)));
+      var pathSegments = Objects.isNull(client) ? new String[]{"role-mappings", "realm"}
+          : new String[]{"role-mappings", "clients", client.getId()};
+      onUsersChanged(realm, result.getUpdatedUsers(), adminEvent, pathSegments);
+
+      var changedUserIds = result.getUpdatedUsers().stream().map(UserEntity::getId)
+          .collect(Collectors.toSet());
+      var notFoundUserIds = Set.copyOf(result.getNotFoundUserIds());
+      return BulkUpdateUserRolesResponseDto.builder()
+          .users(userIds.stream().distinct()
+              .map(userId -> UserOutcome.builder()
+                  .userId(userId)
+                  .outcome(changedUserIds.contains(userId)
+                      ? (grant ? Outcome.GRANTED : Outcome.REVOKED)
+                      : notFoundUserIds.contains(userId) ? Outcome.NOT_FOUND : Outcome.UNCHANGED)
+                  .build())
+              .collect(Collectors.toList()))
+          .build();
+    });
+  }
+
+  /**
+   * Imports users from the NDJSON body, one user with attributes and roles per line. Records are
+   * imported in batches, each in its own transaction, and every created user gets a {@code CREATE}
+   * admin event. Records that can't be imported are reported with their line numbers.
+   */
+  @POST
+  @Path("bulk/import")
+  @NoCache
+  @Consumes({UserImport.NDJSON})
+  @Produces({MediaType.APPLICATION_JSON})
+  public UserImportResponseDto importUsers(@Context final HttpRequest request, InputStream body) {
+    final var realm = session.getContext().getRealm();
+    var auth = authenticateRealmAdminRequest(request.getHttpHeaders());
+    validateRequestRealm(request, realm.getName());
+    permissions(realm, auth).users().requireManage();
+
+    var realmId = realm.getId();
+    var sessionFactory = session.getKeycloakSessionFactory();
+    var connection = session.getContext().getConnection();
+    var userImport = new UserImport(importPolicy);
+    return bulkWriteBulkhead.execute(realm.getName(), () -> userImport.importUsers(realm.getName(),
+        body, records -> {
+          var result = new AtomicReference<UserImport.BatchResult>();
+          KeycloakModelUtils.runJobInTransaction(sessionFactory, batchSession -> {
+            var batchRealm = batchSession.realms().getRealm(realmId);
+            batchSession.getContext().setRealm(batchRealm);
+            result.set(userImport.importBatch(
+                batchSession.getProvider(JpaConnectionProvider.class).getEntityManager(),
+                batchRealm, records));
+            var adminEvent = new AdminEventBuilder(batchRealm, auth, batchSession, connection)
+                .resource(ResourceType.USER)
+                .operation(OperationType.CREATE);
+            result.get().getCreatedUserIds()
+                .forEach(userId -> adminEvent.resourcePath("users", userId).success());
+          });
+          return result.get();
+        }));
+  }
+
+  private static void validateRoleNames(SearchUsersByRoleAndAttributesRequestDto requestDto) {
+    if (requestDto.hasBlankRoleNames()) {
+      throw new BadRequestException("Role names must not be null or blank");
+    }
+  }
+
+  private void validateBulkRoleUpdate(BulkUpdateUserRolesRequestDto requestDto) {
+    if (Objects.isNull(requestDto.getAction()) || Objects.isNull(requestDto.getRoleName())) {
+      throw new BadRequestException("Action and role name must be set");
+    }
+    if (requestDto.getUserIds().isEmpty() == Objects.isNull(requestDto.getFilter())) {
+      throw new BadRequestException("Either user ids or filter must be set");
+    }
+    if (Objects.nonNull(requestDto.getFilter())) {
+      validateRoleNames(requestDto.getFilter());
+    }
+    if (requestDto.getUserIds().size() > bulkUpdatePolicy.getMaxUsers()) {
+      throw new BadRequestException(String.format(
+          "At most %d users can be updated by one request", bulkUpdatePolicy.getMaxUsers()));
+    }
+  }
+
+  /**
+   * Selects ids of the users matching the filter, the filter must not match more users than can
+   * be updated by one request.
+   */
+  private List<String> searchUserIds(RealmModel realm,
+      SearchUsersByRoleAndAttributesRequestDto filter) {
     var provider = (ExtendedJpaUserProvider) session.getProvider(UserProvider.class);
+    try {
+      var userIds = provider.searchForUserIds(realm, filter, bulkUpdatePolicy.getMaxUsers() + 1,
+          timeBudgetPolicy.start(filter.getTimeBudgetMillis()));
+      if (userIds.size() > bulkUpdatePolicy.getMaxUsers()) {
+        throw new BadRequestException(String.format(
+            "Filter matches more than %d users, narrow it or set its pagination",
+            bulkUpdatePolicy.getMaxUsers()));
+      }
+      return userIds;
+    } catch (PersistenceException e) {
+      if (!SearchTimeBudget.isTimeout(e)) {
+        throw e;
+      }
+      throw searchTimedOut();
+    }
+  }
 
-    var usersStream = provider.searchForUserStream(realm, requestDto);
-    var userRepresentations = usersStream.map(
-        userModel -> ModelToRepresentation.toRepresentation(session, realm, userModel)).collect(
-        Collectors.toList());
-    return SearchUsersByRoleAndAttributesResponseDto.builder().users(userRepresentations).build();
+  /**
+   * Evicts the users changed by a bulk update from the user cache and sends the admin event for
+   * each of them with path {@code users/{id}} followed by the given segments.
+   */
+  private void onUsersChanged(RealmModel realm, List<UserEntity> users,
+      AdminEventBuilder adminEvent, String... pathSegments) {
+    var userCache = session.getProvider(UserCache.class);
+    users.forEach(user -> {
+      if (Objects.nonNull(userCache)) {
+        userCache.evict(realm, new UserAdapter(session, realm, getEntityManager(), user));
+      }
+      adminEvent.resourcePath(Stream.concat(Stream.of("users", user.getId()),
+          Stream.of(pathSegments)).toArray(String[]::new)).success();
+    });
+  }
+
+  /**
+   * Returns admission control counters of the node that served the request: active and queued
+   * searches and count of rejected requests in total and for the requested realm.
+   */
+  @GET
+  @Path("stats/admission")
+  @NoCache
+  @Produces({MediaType.APPLICATION_JSON})
+  public AdmissionStatsResponseDto getAdmissionStats(@Context final HttpRequest request) {
+    final var realm = session.getContext().getRealm();
+    authenticateRealmAdminRequest(request.getHttpHeaders());
+    validateRequestRealm(request, realm.getName());
+    return searchBulkhead.getStats(realm.getName());
+  }
+
+  /**
+   * Returns statistics of the admin token cache of this node: count of cached tokens, hits,
+   * misses and count of cached tokens that were found revoked.
+   */
+  @GET
+  @Path("stats/admin-token-cache")
+  @NoCache
+  @Produces({MediaType.APPLICATION_JSON})
+  public AdminTokenCacheStatsResponseDto getAdminTokenCacheStats(
+      @Context final HttpRequest request) {
+    final var realm = session.getContext().getRealm();
+    authenticateRealmAdminRequest(request.getHttpHeaders());
+    validateRequestRealm(request, realm.getName());
+    return adminTokenCache.getStats();
+  }
+
+  /**
+   * Returns state of the role membership index of the realm on this node: count of indexed users
+   * and roles, estimated memory footprint, and counts of lookups, fallbacks to the database,
+   * rebuilds and refreshed users.
+   */
+  @GET
+  @Path("stats/role-membership")
+  @NoCache
+  @Produces({MediaType.APPLICATION_JSON})
+  public RoleMembershipStatsResponseDto getRoleMembershipStats(
+      @Context final HttpRequest request) {
+    final var realm = session.getContext().getRealm();
+    authenticateRealmAdminRequest(request.getHttpHeaders());
+    validateRequestRealm(request, realm.getName());
+    var provider = (ExtendedJpaUserProvider) session.getProvider(UserProvider.class);
+    return provider.getRoleMembershipStats(realm);
+  }
+
+  /**
+   * Returns state of the attribute index of the realm on this node: indexed attributes, count of
+   * indexed users and distinct values per attribute, estimated memory footprint, and counts of
+   * lookups, fallbacks to the database, rebuilds and refreshed users.
+   */
+  @GET
+  @Path("stats/attribute-index")
+  @NoCache
+  @Produces({MediaType.APPLICATION_JSON})
+  public AttributeIndexStatsResponseDto getAttributeIndexStats(
+      @Context final HttpRequest request) {
+    final var realm = session.getContext().getRealm();
+    authenticateRealmAdminRequest(request.getHttpHeaders());
+    validateRequestRealm(request, realm.getName());
+    var provider = (ExtendedJpaUserProvider) session.getProvider(UserProvider.class);
+    return provider.getAttributeIndexStats(realm);
+  }
+
+  /**
+   * Readiness of this node for searches: {@code 204 No Content} once the search warm-up is
+   * finished or if it's disabled, {@code 503 Service Unavailable} until then. It isn't
+   * authenticated, as probes have no admin token, so the response has no body.
+   */
+  @GET
+  @Path("warmup")
+  @NoCache
+  public Response getWarmupReadiness() {
+    return Response.status(searchWarmup.isReady() ? Status.NO_CONTENT : Status.SERVICE_UNAVAILABLE)
+        .build();
+  }
+
+  /**
+   * Returns status of the search warm-up of this node: count of the warmed up realms, executed
+   * iterations and searches, failed searches and duration of the warm-up.
+   */
+  @GET
+  @Path("stats/warmup")
+  @NoCache
+  @Produces({MediaType.APPLICATION_JSON})
+  public SearchWarmupStatusResponseDto getWarmupStats(@Context final HttpRequest request) {
+    final var realm = session.getContext().getRealm();
+    authenticateRealmAdminRequest(request.getHttpHeaders());
+    validateRequestRealm(request, realm.getName());
+    return searchWarmup.getStatus();
+  }
+
+  /**
+   * Authenticates the request is made by admin of the realm once per request.
+   */
+  @Override
+  protected AdminAuth authenticateRealmAdminRequest(HttpHeaders headers) {
+    if (Objects.isNull(adminAuth)) {
+      adminAuth = timings.measure(Stage.AUTH, () -> adminTokenCache.authenticate(session, headers,
+          () -> super.authenticateRealmAdminRequest(headers)));
+    }
+    return adminAuth;
+  }
+
+  /**
+   * Authenticates and validates the request by the request thread and submits the search to
+   * {@link AsyncSearchExecutor}. The search is executed by a provider bound to the session it's
+   * executed in, so it doesn't authenticate the request again.
+   */
+  private void authorizeAndSubmit(HttpRequest request, AsyncResponse asyncResponse,
+      Function<UserApiProvider, Response> search) {
+    authenticateRealmAdminRequest(request.getHttpHeaders());
+    validateRequestRealm(request, session.getContext().getRealm().getName());
+    asyncSearchExecutor.submit(session, asyncResponse, searchSession -> search.apply(
+        searchSession == session ? this : new UserApiProvider(this, searchSession)));
+  }
+
+  /**
+   * Returns permissions of the admin in the realm. Searches only require the admin to be
+   * authenticated, bulk updates check the permissions the same as the Admin API does.
+   */
+  protected AdminPermissionEvaluator permissions(RealmModel realm, AdminAuth auth) {
+    return AdminPermissions.evaluator(session, realm, auth);
   }
 
   protected void validateRequestRealm(HttpRequest request, String realmName) {
@@ -216,8 +924,83 @@ public class UserApiProvider extends AdminRoot implements RealmResourceProvider
     }
   }
 
+  /**
+   * Executes the search within the bulkhead. If user data of the realm is versioned the response
+   * is tagged, and the search isn't executed at all when the client already has the result with
+   * the same tag.
+   * <p>
+   * If timings are enabled the response body is serialized here to measure it, and the stage
+   * durations are returned in {@code Server-Timing} header and logged for sampled slow searches.
+   * The body is serialized here as well when the client negotiated CBOR or a compressed
+   * response, see {@link SearchResponseEncoding}.
+   */
+  private Response executeSearch(HttpRequest request, RealmModel realm, String searchName,
+      Object requestDto, Supplier<Object> search) {
+    var encoding = encodingPolicy.negotiate(request.getHttpHeaders());
+    var eTag = searchResultETags.getETag(realm, searchName, requestDto).map(encoding::tag);
+    if (eTag.isPresent()
+        && SearchResultETags.isNotModified(request.getHttpHeaders(), eTag.get())) {
+      return withServerTiming(SearchResponseEncoding.vary(Response.notModified(eTag.get())))
+          .build();
+    }
+    if (!timings.isEnabled() && encoding.isIdentity()) {
+      var response = SearchResponseEncoding.vary(
+          Response.ok(searchBulkhead.execute(realm.getName(), search)));
+      eTag.ifPresent(response::tag);
+      return response.build();
+    }
+
+    if (timings.isEnabled()) {
+      registerSqlListener();
+    }
+    var result = searchBulkhead.execute(realm.getName(),
+        () -> timings.measure(Stage.HYDRATION, search));
+    var response = withServerTiming(timings.measure(Stage.SERIALIZATION,
+        () -> encoding.toResponse(encoding.serialize(result))));
+    eTag.ifPresent(response::tag);
+    if (timings.isSlowAndSampled()) {
+      LOGGER.warnf("Slow search realm=%s search=%s %s", realm.getName(), searchName,
+          timings.toLogFields());
+    }
+    return response.build();
+  }
+
+  private Response.ResponseBuilder withServerTiming(Response.ResponseBuilder response) {
+    if (timings.isServerTimingEnabled()) {
+      response.header(SearchTimings.SERVER_TIMING_HEADER, timings.toServerTiming());
+    }
+    return response;
+  }
+
+  private void registerSqlListener() {
+    var em = getEntityManager();
+    if (Objects.isNull(em)) {
+      return;
+    }
+    try {
+      em.unwrap(Session.class).addEventListeners(timings.getSqlListener());
+    } catch (PersistenceException e) {
+      LOGGER.debug("SQL statements can't be timed, entity manager isn't Hibernate session", e);
+    }
+  }
+
+  private RetryLaterException searchTimedOut() {
+    return new RetryLaterException(Status.SERVICE_UNAVAILABLE, "search_timed_out",
+        "Search time budget is used up", RETRY_AFTER_TIMED_OUT_SECONDS);
+  }
+
+  private EntityManager getEntityManager() {
+    var jpaConnectionProvider = session.getProvider(JpaConnectionProvider.class);
+    return Objects.isNull(jpaConnectionProvider) ? null : jpaConnectionProvider.getEntityManager();
+  }
+
   protected List<UserRepresentation> toRepresentation(Stream<UserModel> userModelStream) {
-    return userModelStream.map(userModel -> ModelToRepresentation.toRepresentation(session,
-        session.getContext().getRealm(), userModel)).collect(Collectors.toList());
+    return userModelStream.map(userModel -> toRepresentation(session.getContext().getRealm(),
+        userModel)).collect(Collectors.toList());
+  }
+
+  private UserRepresentation toRepresentation(RealmModel realm, UserModel userModel) {
+    return timings.measure(Stage.REPRESENTATION,
+        () -> ModelToRepresentation.toRepresentation(session, realm, userModel));
   }
 }
@@ -16,9 +16,32 @@
 
 package com.epam.digital.data.platform.keycloak.rest.api.ext;
 
+import com.epam.digital.data.platform.keycloak.rest.api.ext.admission.AsyncSearchExecutor;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.admission.SearchBulkhead;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.attributes.AttributeIndexEventListenerProviderFactory;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.auth.AdminTokenCache;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.bulk.BulkUserUpdate;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.bulk.UserImport;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.changes.UserChangeFeed;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.event.UserChangeEventListenerProviderFactory;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.search.SearchResponseEncoding;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.search.SearchResultETags;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.search.SearchTimeBudget;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.search.SearchTimings;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.search.SearchWarmup;
+import java.util.ArrayList;
+import java.util.Objects;
+import org.jboss.logging.Logger;
 import org.keycloak.Config.Scope;
+import org.keycloak.connections.jpa.JpaConnectionProvider;
+import org.keycloak.events.EventListenerProvider;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.RealmModel.RealmRemovedEvent;
+import org.keycloak.models.UserModel.UserRemovedEvent;
+import org.keycloak.models.utils.KeycloakModelUtils;
+import org.keycloak.models.utils.PostMigrationEvent;
 import org.keycloak.services.resource.RealmResourceProvider;
 import org.keycloak.services.resource.RealmResourceProviderFactory;
 
@@ -26,17 +49,105 @@ public class UserApiProviderFactory implements RealmResourceProviderFactory {
 
   public static final String ID = "users";
 
+  private static final Logger LOGGER = Logger.getLogger(UserApiProviderFactory.class);
+
+  private SearchBulkhead searchBulkhead;
+  private SearchBulkhead bulkWriteBulkhead;
+  private SearchTimeBudget.Policy timeBudgetPolicy;
+  private SearchResultETags searchResultETags;
+  private AdminTokenCache adminTokenCache;
+  private SearchTimings.Policy timingsPolicy;
+  private AsyncSearchExecutor asyncSearchExecutor;
+  private UserChangeFeed.Policy changeFeedPolicy;
+  private BulkUserUpdate.Policy bulkUpdatePolicy;
+  private UserImport.Policy importPolicy;
+  private SearchResponseEncoding.Policy encodingPolicy;
+  private SearchWarmup searchWarmup;
+  private int maxLegacySearchResults;
+
   public RealmResourceProvider create(KeycloakSession session) {
-    return new UserApiProvider(session, new UserFilter());
+    return new UserApiProvider(session, new UserFilter(maxLegacySearchResults), searchBulkhead,
+        bulkWriteBulkhead, timeBudgetPolicy, searchResultETags, adminTokenCache, timingsPolicy,
+        asyncSearchExecutor, changeFeedPolicy, bulkUpdatePolicy, importPolicy, encodingPolicy,
+        searchWarmup);
   }
 
   public void init(Scope config) {
+    searchBulkhead = SearchBulkhead.create(config);
+    bulkWriteBulkhead = SearchBulkhead.createForBulkWrites(config);
+    timeBudgetPolicy = SearchTimeBudget.Policy.create(config);
+    adminTokenCache = AdminTokenCache.create(config);
+    timingsPolicy = SearchTimings.Policy.create(config);
+    asyncSearchExecutor = AsyncSearchExecutor.create(config);
+    changeFeedPolicy = UserChangeFeed.Policy.create(config);
+    bulkUpdatePolicy = BulkUserUpdate.Policy.create(config);
+    importPolicy = UserImport.Policy.create(config);
+    encodingPolicy = SearchResponseEncoding.Policy.create(config);
+    searchWarmup = SearchWarmup.create(config);
+    maxLegacySearchResults = config.getInt("maxLegacySearchResults",
+        UserFilter.DEFAULT_MAX_LEGACY_SEARCH_RESULTS);
   }
 
   public void postInit(KeycloakSessionFactory factory) {
+    var userChangeListenerFactory = (UserChangeEventListenerProviderFactory)
+        factory.getProviderFactory(EventListenerProvider.class,
+            UserChangeEventListenerProviderFactory.ID);
+    searchResultETags = new SearchResultETags(userChangeListenerFactory.getUserDataVersions());
+    factory.register(event -> {
+      if (event instanceof UserRemovedEvent) {
+        adminTokenCache.invalidateUser(((UserRemovedEvent) event).getUser().getId());
+      } else if (event instanceof RealmRemovedEvent) {
+        adminTokenCache.invalidateRealm(((RealmRemovedEvent) event).getRealm().getId());
+      } else if (event instanceof PostMigrationEvent) {
+        // the search warm-up reads the attribute index, so it's started once the index is built
+        searchWarmup.start(factory, () -> warmAttributeIndex(factory));
+      }
+    });
+  }
+
+  /**
+   * Builds the attribute index of every realm it's enabled in, so the first searches after start
+   * don't wait for it. It's done by the warm-up thread once the database is migrated, as the
+   * tables may not exist before, and every realm is built in its own transaction. A realm that
+   * fails is left to be built by its first search.
+   */
+  private static void warmAttributeIndex(KeycloakSessionFactory factory) {
+    var attributeIndexListenerFactory = (AttributeIndexEventListenerProviderFactory)
+        factory.getProviderFactory(EventListenerProvider.class,
+            AttributeIndexEventListenerProviderFactory.ID);
+    if (Objects.isNull(attributeIndexListenerFactory)) {
+      return;
+    }
+    var index = attributeIndexListenerFactory.getIndex();
+    var realmIds = new ArrayList<String>();
+    try {
+      KeycloakModelUtils.runJobInTransaction(factory, session -> session.realms()
+          .getRealmsStream()
+          .map(RealmModel::getId)
+          .forEach(realmIds::add));
+    } catch (RuntimeException e) {
+      LOGGER.warn("Attribute index can't be built, realms can't be read", e);
+      return;
+    }
+    for (var realmId : realmIds) {
+      try {
+        KeycloakModelUtils.runJobInTransaction(factory, session -> {
+          var realm = session.realms().getRealm(realmId);
+          if (Objects.nonNull(realm)) {
+            index.warm(session.getProvider(JpaConnectionProvider.class).getEntityManager(),
+                realm);
+          }
+        });
+      } catch (RuntimeException e) {
+        LOGGER.warnf(e, "Attribute index of realm %s can't be built", realmId);
+      }
+    }
   }
 
   public void close() {
+    if (asyncSearchExecutor != null) {
+      asyncSearchExecutor.close();
+    }
   }
 
   public String getId() {
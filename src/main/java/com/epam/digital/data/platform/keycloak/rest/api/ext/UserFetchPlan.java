@@ -0,0 +1,84 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Associations of the found users that {@link ExtendedJpaUserProvider} loads for a whole page of
+ * search results at once, so reading them from the returned users doesn't execute a query per
+ * user.
+ * <p>
+ * Every association is loaded by a separate query keyed by the ids of the page users, so the count
+ * of queries depends on the plan and not on the page size. The plan should contain only the
+ * associations the response actually reads.
+ */
+public final class UserFetchPlan {
+
+  /**
+   * Users are returned as they are, associations are loaded lazily per user.
+   */
+  public static final UserFetchPlan NONE = new UserFetchPlan(EnumSet.noneOf(Association.class));
+
+  /**
+   * Associations that are read by the filters of the users by attributes.
+   */
+  public static final UserFetchPlan ATTRIBUTES = of(Association.ATTRIBUTES);
+
+  /**
+   * Associations that are read by
+   * {@link org.keycloak.models.utils.ModelToRepresentation#toRepresentation(
+   * org.keycloak.models.KeycloakSession, org.keycloak.models.RealmModel,
+   * org.keycloak.models.UserModel) ModelToRepresentation}.
+   */
+  public static final UserFetchPlan REPRESENTATION = of(Association.ATTRIBUTES,
+      Association.REQUIRED_ACTIONS, Association.CREDENTIALS);
+
+  private final Set<Association> associations;
+
+  private UserFetchPlan(Set<Association> associations) {
+    this.associations = associations;
+  }
+
+  public static UserFetchPlan of(Association first, Association... rest) {
+    return new UserFetchPlan(EnumSet.of(first, rest));
+  }
+
+  public boolean isEmpty() {
+    return associations.isEmpty();
+  }
+
+  public boolean includes(Association association) {
+    return associations.contains(association);
+  }
+
+  public enum Association {
+    /**
+     * {@code UserEntity.attributes}, loaded with an entity graph.
+     */
+    ATTRIBUTES,
+    /**
+     * {@code UserEntity.requiredActions}, loaded with an entity graph.
+     */
+    REQUIRED_ACTIONS,
+    /**
+     * Stored credentials of the users, kept by the provider until they are changed.
+     */
+    CREDENTIALS
+  }
+}
@@ -17,60 +17,154 @@
 package com.epam.digital.data.platform.keycloak.rest.api.ext;
 
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import org.jboss.logging.Logger;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.UserModel;
+import org.keycloak.models.UserProvider;
 
 public class UserFilter {
 
+  public static final int DEFAULT_MAX_LEGACY_SEARCH_RESULTS = 1000;
+
+  private static final Logger LOGGER = Logger.getLogger(UserFilter.class);
+
+  private final int maxLegacySearchResults;
+
+  public UserFilter() {
+    this(DEFAULT_MAX_LEGACY_SEARCH_RESULTS);
+  }
+
+  /**
+   * @param maxLegacySearchResults max count of users returned by the realm wide legacy searches
+   */
+  public UserFilter(int maxLegacySearchResults) {
+    this.maxLegacySearchResults = maxLegacySearchResults;
+  }
+
   public static boolean isUserMatchesAttributesEquals(UserModel userModel,
       Map<String, List<String>> attributesEquals) {
+    return isUserMatchesAttributesEquals(userModel, attributesEquals, Set.of());
+  }
+
+  /**
+   * Checks the attributes the same way as {@link #isUserMatchesAttributesEquals(UserModel, Map)},
+   * values of the attributes from {@code attributesIgnoreCase} are compared case-insensitively.
+   */
+  public static boolean isUserMatchesAttributesEquals(UserModel userModel,
+      Map<String, List<String>> attributesEquals, Set<String> attributesIgnoreCase) {
     return attributesEquals.isEmpty() ||
         attributesEquals.entrySet().stream().allMatch(
             entry -> isListEmpty(entry.getValue()) ||
-                userModel.getAttributeStream(entry.getKey()).anyMatch(entry.getValue()::contains));
+                userModel.getAttributeStream(entry.getKey()).anyMatch(value -> entry.getValue()
+                    .stream().anyMatch(requested -> matches(entry.getKey(), attributesIgnoreCase,
+                        value, requested, String::equals))));
   }
 
   public static boolean isUserMatchesAttributesStartsWith(UserModel userModel,
       Map<String, List<String>> attributesStartsWith) {
+    return isUserMatchesAttributesStartsWith(userModel, attributesStartsWith, Set.of());
+  }
+
+  /**
+   * Checks the attributes the same way as
+   * {@link #isUserMatchesAttributesStartsWith(UserModel, Map)}, values of the attributes from
+   * {@code attributesIgnoreCase} are compared case-insensitively.
+   */
+  public static boolean isUserMatchesAttributesStartsWith(UserModel userModel,
+      Map<String, List<String>> attributesStartsWith, Set<String> attributesIgnoreCase) {
     return attributesStartsWith.isEmpty() ||
         attributesStartsWith.entrySet().stream().allMatch(entry -> isListEmpty(entry.getValue()) ||
             userModel.getAttributeStream(entry.getKey())
-                .anyMatch(value -> entry.getValue().stream().anyMatch(value::startsWith)));
+                .anyMatch(value -> entry.getValue().stream().anyMatch(requested -> matches(
+                    entry.getKey(), attributesIgnoreCase, value, requested, String::startsWith))));
   }
 
   public static boolean isUserMatchesAttributesThatAreStartFor(UserModel userModel,
       Map<String, List<String>> attributesThatAreStartFor) {
+    return isUserMatchesAttributesThatAreStartFor(userModel, attributesThatAreStartFor, Set.of());
+  }
+
+  /**
+   * Checks the attributes the same way as
+   * {@link #isUserMatchesAttributesThatAreStartFor(UserModel, Map)}, values of the attributes from
+   * {@code attributesIgnoreCase} are compared case-insensitively.
+   */
+  public static boolean isUserMatchesAttributesThatAreStartFor(UserModel userModel,
+      Map<String, List<String>> attributesThatAreStartFor, Set<String> attributesIgnoreCase) {
     return attributesThatAreStartFor.isEmpty() ||
         attributesThatAreStartFor.entrySet().stream()
             .allMatch(entry -> isListEmpty(entry.getValue()) ||
                 userModel.getAttributeStream(entry.getKey())
                     .anyMatch(value -> entry.getValue().stream()
-                        .anyMatch(attr -> attr.startsWith(value))));
+                        .anyMatch(attr -> matches(entry.getKey(), attributesIgnoreCase, attr,
+                            value, String::startsWith))));
+  }
+
+  /**
+   * Lower-cases values of the attributes that are matched case-insensitively the same way as the
+   * search queries do, so the in-memory and the database matching agree.
+   */
+  static String toMatchedCase(String value, boolean ignoreCase) {
+    return ignoreCase && Objects.nonNull(value) ? value.toLowerCase(Locale.ROOT) : value;
+  }
+
+  private static boolean matches(String attribute, Set<String> attributesIgnoreCase,
+      String value, String requested, BiPredicate<String, String> predicate) {
+    var ignoreCase = attributesIgnoreCase.contains(attribute);
+    return Objects.nonNull(value) && Objects.nonNull(requested) && predicate.test(
+        toMatchedCase(value, ignoreCase), toMatchedCase(requested, ignoreCase));
   }
 
   private static boolean isListEmpty(List<String> list) {
     return Objects.isNull(list) || list.isEmpty();
   }
 
+  /**
+   * Finds users whose first value of every attribute equals to the requested one. If the users are
+   * stored by {@link ExtendedJpaUserProvider} all the attributes are matched by one query,
+   * otherwise only the first attribute is. The first value check is applied to the found users in
+   * both cases.
+   */
   @Deprecated(forRemoval = true)
   public Stream<UserModel> filterUsersByAttributesEquals(KeycloakSession session,
       Map<String, String> attributes) {
-    Stream<UserModel> userModels = Stream.empty();
+    return filterUsersByAttributesEquals(session, attributes, UserFetchPlan.ATTRIBUTES);
+  }
+
+  /**
+   * Finds users the same way as {@link #filterUsersByAttributesEquals(KeycloakSession, Map)}. If
+   * the users are stored by {@link ExtendedJpaUserProvider} the associations of the fetch plan are
+   * loaded for all found users at once.
+   */
+  @Deprecated(forRemoval = true)
+  public Stream<UserModel> filterUsersByAttributesEquals(KeycloakSession session,
+      Map<String, String> attributes, UserFetchPlan fetchPlan) {
     if (attributes == null || attributes.entrySet().isEmpty()) {
-      return userModels;
+      return Stream.empty();
+    }
+    var realm = session.getContext().getRealm();
+    var firstAttribute = attributes.entrySet().iterator().next();
+    if (firstAttribute.getValue() == null) {
+      return Stream.empty();
+    }
+    var userProvider = session.getProvider(UserProvider.class);
+    Stream<UserModel> userModels;
+    if (userProvider instanceof ExtendedJpaUserProvider) {
+      userModels = ((ExtendedJpaUserProvider) userProvider)
+          .searchForUserByAttributesStream(realm, attributes, fetchPlan);
+    } else {
+      userModels = session.users().searchForUserByUserAttributeStream(realm,
+          firstAttribute.getKey(), firstAttribute.getValue());
     }
-    int i = 0;
     for (Entry<String, String> attribute : attributes.entrySet()) {
-      if (i == 0) {
-        userModels = session.users()
-            .searchForUserByUserAttributeStream(session.getContext().getRealm(), attribute.getKey(),
-                attribute.getValue());
-        i++;
-      }
       userModels = userModels.filter(
           userModel -> Objects.equals(userModel.getFirstAttribute(attribute.getKey()),
               attribute.getValue()));
@@ -78,6 +172,51 @@ public class UserFilter {
     return userModels;
   }
 
+  /**
+   * Finds users of the realm that for every attribute have a value that is a prefix of one of the
+   * requested values. At most {@code maxLegacySearchResults} users ordered by username are
+   * returned. If the users are stored by {@link ExtendedJpaUserProvider} the attributes are
+   * matched by the database, otherwise the realm users are filtered in memory.
+   */
+  @Deprecated(forRemoval = true)
+  public Stream<UserModel> findUsersByAttributesInvertedStartsWith(KeycloakSession session,
+      Map<String, List<String>> attributes) {
+    return findUsersByAttributesInvertedStartsWith(session, attributes, UserFetchPlan.NONE);
+  }
+
+  /**
+   * Finds users the same way as
+   * {@link #findUsersByAttributesInvertedStartsWith(KeycloakSession, Map)}. If the users are
+   * stored by {@link ExtendedJpaUserProvider} the associations of the fetch plan are loaded for all
+   * found users at once.
+   */
+  @Deprecated(forRemoval = true)
+  public Stream<UserModel> findUsersByAttributesInvertedStartsWith(KeycloakSession session,
+      Map<String, List<String>> attributes, UserFetchPlan fetchPlan) {
+    if (attributes == null || attributes.isEmpty()
+        || attributes.values().stream().anyMatch(UserFilter::isListEmpty)) {
+      return Stream.empty();
+    }
+    var realm = session.getContext().getRealm();
+    var userProvider = session.getProvider(UserProvider.class);
+    Stream<UserModel> userModels;
+    if (userProvider instanceof ExtendedJpaUserProvider) {
+      userModels = ((ExtendedJpaUserProvider) userProvider)
+          .searchForUserByAttributesThatAreStartForStream(realm, attributes,
+              maxLegacySearchResults + 1, fetchPlan);
+    } else {
+      userModels = filterUsersByAttributesInvertedStartsWith(session.users().getUsersStream(realm),
+          attributes);
+    }
+    var users = userModels.limit(maxLegacySearchResults + 1L).collect(Collectors.toList());
+    if (users.size() > maxLegacySearchResults) {
+      LOGGER.warnf("Legacy search in realm %s matched more than %d users, result is truncated",
+          realm.getName(), maxLegacySearchResults);
+      return users.stream().limit(maxLegacySearchResults);
+    }
+    return users.stream();
+  }
+
   @Deprecated(forRemoval = true)
   public Stream<UserModel> filterUsersByAttributesInvertedStartsWith(Stream<UserModel> userModels,
       Map<String, List<String>> attributes) {
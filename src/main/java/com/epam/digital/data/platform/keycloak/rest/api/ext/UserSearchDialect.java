@@ -0,0 +1,58 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Query engine used by {@link ExtendedJpaUserProvider} to search users by roles and attributes.
+ */
+public enum UserSearchDialect {
+
+  /**
+   * Portable Criteria API query that runs on every database supported by Keycloak.
+   */
+  CRITERIA,
+  /**
+   * Native PostgreSQL query with {@code starts_with} and array parameters, see
+   * {@link PostgresUserSearchQuery}.
+   */
+  POSTGRESQL;
+
+  private static final String POSTGRESQL_PRODUCT_NAME = "PostgreSQL";
+
+  /**
+   * Resolves the dialect by database product name reported by the JDBC driver.
+   */
+  public static UserSearchDialect detect(String databaseProductName) {
+    return Objects.equals(POSTGRESQL_PRODUCT_NAME, databaseProductName) ? POSTGRESQL : CRITERIA;
+  }
+
+  /**
+   * Resolves the configured dialect. {@code auto} or no value means that the dialect is detected
+   * by the database.
+   *
+   * @return configured dialect or {@code null} if it has to be detected
+   */
+  public static UserSearchDialect fromConfig(String value) {
+    if (Objects.isNull(value) || "auto".equalsIgnoreCase(value)) {
+      return null;
+    }
+    return valueOf(value.toUpperCase(Locale.ROOT));
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.admission;
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.ConnectionCallback;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import lombok.Builder;
+import lombok.Getter;
+import org.jboss.logging.Logger;
+import org.keycloak.Config.Scope;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.utils.KeycloakModelUtils;
+
+/**
+ * Executes searches off the HTTP worker threads, so heavy admin searches don't occupy the threads
+ * that serve login pages.
+ * <p>
+ * A search is executed by a bounded pool in its own {@link KeycloakSession} and transaction, with
+ * the realm of the request set to the session context, and its result resumes the suspended
+ * response. When the queue of the pool is full the request is rejected with
+ * {@code 429 Too Many Requests}. The search is cancelled if it takes longer than
+ * {@link Config#getTimeoutMillis() timeoutMillis} or if the client disconnects and the HTTP layer
+ * reports it.
+ * <p>
+ * The mode is disabled by default, in which case the search is executed by the request thread in
+ * the request session.
+ */
+public class AsyncSearchExecutor {
+
+  private static final Logger LOGGER = Logger.getLogger(AsyncSearchExecutor.class);
+
+  private final Config config;
+  private final ExecutorService executor;
+
+  public AsyncSearchExecutor(Config config) {
+    this.config = config;
+    this.executor = config.isEnabled() ? new ThreadPoolExecutor(config.getThreads(),
+        config.getThreads(), 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(Math.max(1, config.getQueueSize())), new SearchThreadFactory())
+        : null;
+  }
+
+  public static AsyncSearchExecutor create(Scope scope) {
+    var defaults = Config.builder().build();
+    return new AsyncSearchExecutor(Config.builder()
+        .enabled(scope.getBoolean("asyncSearchEnabled", defaults.isEnabled()))
+        .threads(scope.getInt("asyncSearchThreads", defaults.getThreads()))
+        .queueSize(scope.getInt("asyncSearchQueueSize", defaults.getQueueSize()))
+        .timeoutMillis(scope.getLong("asyncSearchTimeoutMillis", defaults.getTimeoutMillis()))
+        .retryAfterSeconds(scope.getInt("searchRetryAfterSeconds",
+            defaults.getRetryAfterSeconds()))
+        .build());
+  }
+
+  public boolean isEnabled() {
+    return Objects.nonNull(executor);
+  }
+
+  /**
+   * Executes the search and resumes the response with its result.
+   *
+   * @param session       session of the request
+   * @param asyncResponse suspended response of the request
+   * @param search        search that is executed in the given session
+   */
+  public void submit(KeycloakSession session, AsyncResponse asyncResponse,
+      Function<KeycloakSession, Response> search) {
+    if (!isEnabled()) {
+      resume(asyncResponse, () -> search.apply(session));
+      return;
+    }
+    var sessionFactory = session.getKeycloakSessionFactory();
+    var realmId = session.getContext().getRealm().getId();
+    var future = new AtomicReference<Future<?>>();
+    if (config.getTimeoutMillis() > 0) {
+      asyncResponse.setTimeoutHandler(timedOut -> {
+        cancel(future.get());
+        timedOut.resume(new RetryLaterException(Status.SERVICE_UNAVAILABLE, "search_timed_out",
+            "Search took too long", config.getRetryAfterSeconds()));
+      });
+      asyncResponse.setTimeout(config.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+    }
+    asyncResponse.register((ConnectionCallback) disconnected -> cancel(future.get()));
+    try {
+      future.set(executor.submit(() -> {
+        if (asyncResponse.isDone()) {
+          return;
+        }
+        resume(asyncResponse, () -> {
+          var response = new AtomicReference<Response>();
+          KeycloakModelUtils.runJobInTransaction(sessionFactory, jobSession -> {
+            jobSession.getContext().setRealm(jobSession.realms().getRealm(realmId));
+            response.set(search.apply(jobSession));
+          });
+          return response.get();
+        });
+      }));
+    } catch (RejectedExecutionException e) {
+      LOGGER.debugf("Search request in realm %s rejected, async search queue is full", realmId);
+      asyncResponse.resume(new RetryLaterException(Status.TOO_MANY_REQUESTS, "too_many_requests",
+          "Too many queued searches, retry later", config.getRetryAfterSeconds()));
+    }
+  }
+
+  public void close() {
+    if (isEnabled()) {
+      executor.shutdownNow();
+    }
+  }
+
+  private static void cancel(Future<?> future) {
+    if (Objects.nonNull(future)) {
+      future.cancel(true);
+    }
+  }
+
+  private static void resume(AsyncResponse asyncResponse, Supplier<Response> search) {
+    try {
+      asyncResponse.resume(search.get());
+    } catch (RuntimeException e) {
+      asyncResponse.resume(e);
+    }
+  }
+
+  private static class SearchThreadFactory implements ThreadFactory {
+
+    private final AtomicInteger threadNumber = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      var thread = new Thread(runnable, "users-search-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
+  @Builder
+  @Getter
+  public static class Config {
+
+    private final boolean enabled;
+    @Builder.Default
+    private final int threads = 8;
+    @Builder.Default
+    private final int queueSize = 64;
+    @Builder.Default
+    private final long timeoutMillis = 60_000L;
+    @Builder.Default
+    private final int retryAfterSeconds = 1;
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.admission;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import org.keycloak.representations.idm.OAuth2ErrorRepresentation;
+
+/**
+ * Rejection of a request that may succeed if it's retried later.
+ * <p>
+ * The response is built with an entity, because JAX-RS uses such a response as is, while a
+ * response without entity is replaced by Keycloak error handler and the {@code Retry-After} header
+ * gets lost.
+ */
+public class RetryLaterException extends WebApplicationException {
+
+  public RetryLaterException(Status status, String error, String errorDescription,
+      long retryAfterSeconds) {
+    super(errorDescription, Response.status(status)
+        .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds)
+        .type(MediaType.APPLICATION_JSON_TYPE)
+        .entity(new OAuth2ErrorRepresentation(error, errorDescription))
+        .build());
+  }
+}
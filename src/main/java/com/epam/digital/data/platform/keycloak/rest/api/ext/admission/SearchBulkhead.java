@@ -0,0 +1,249 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.admission;
+
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.AdmissionStatsResponseDto;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import javax.ws.rs.core.Response.Status;
+import lombok.Builder;
+import lombok.Getter;
+import org.jboss.logging.Logger;
+import org.keycloak.Config.Scope;
+
+/**
+ * Admission control for the search endpoints of
+ * {@link com.epam.digital.data.platform.keycloak.rest.api.ext.UserApiProvider}.
+ * <p>
+ * Every search must obtain a permit of its realm and a global permit before it is executed. If no
+ * permit is available the request waits in a bounded queue. Every realm has a queue of its own,
+ * so a saturated realm doesn't cause rejections in the others. Both permits must be obtained
+ * within {@link Config#getQueueTimeoutMillis() queueTimeoutMillis}. When a queue is full or the
+ * wait times out the request is rejected with {@code 429 Too Many Requests} and a
+ * {@code Retry-After} header, so a single client can't occupy all worker threads and database
+ * connections.
+ * <p>
+ * Bulk writes are admitted by a separate instance with small limits of its own, see
+ * {@link #createForBulkWrites(Scope)}, so long running imports and bulk updates can't occupy the
+ * permits of the searches.
+ * <p>
+ * The instances are shared between all sessions, so they're created once by
+ * {@link com.epam.digital.data.platform.keycloak.rest.api.ext.UserApiProviderFactory}.
+ */
+public class SearchBulkhead {
+
+  private static final Logger LOGGER = Logger.getLogger(SearchBulkhead.class);
+
+  private final Config config;
+  private final Semaphore globalPermits;
+  private final Map<String, RealmCompartment> realmCompartments = new ConcurrentHashMap<>();
+  private final AtomicInteger globalQueueDepth = new AtomicInteger();
+  private final AtomicLong admittedCount = new AtomicLong();
+  private final AtomicLong rejectedCount = new AtomicLong();
+
+  public SearchBulkhead(Config config) {
+    this.config = config;
+    this.globalPermits = new Semaphore(config.getMaxConcurrentSearches(), true);
+  }
+
+  public static SearchBulkhead create(Scope scope) {
+    var defaults = Config.builder().build();
+    return new SearchBulkhead(Config.builder()
+        .maxConcurrentSearches(scope.getInt("maxConcurrentSearches",
+            defaults.getMaxConcurrentSearches()))
+        .maxConcurrentSearchesPerRealm(scope.getInt("maxConcurrentSearchesPerRealm",
+            defaults.getMaxConcurrentSearchesPerRealm()))
+        .maxQueuedSearches(scope.getInt("maxQueuedSearches", defaults.getMaxQueuedSearches()))
+        .maxQueuedSearchesPerRealm(scope.getInt("maxQueuedSearchesPerRealm",
+            defaults.getMaxQueuedSearchesPerRealm()))
+        .queueTimeoutMillis(scope.getLong("searchQueueTimeoutMillis",
+            defaults.getQueueTimeoutMillis()))
+        .retryAfterSeconds(scope.getInt("searchRetryAfterSeconds",
+            defaults.getRetryAfterSeconds()))
+        .build());
+  }
+
+  /**
+   * Creates the bulkhead of the bulk endpoints: attribute and role updates and user import.
+   */
+  public static SearchBulkhead createForBulkWrites(Scope scope) {
+    var defaults = Config.bulkWriteDefaults().build();
+    return new SearchBulkhead(Config.bulkWriteDefaults()
+        .maxConcurrentSearches(scope.getInt("maxConcurrentBulkWrites",
+            defaults.getMaxConcurrentSearches()))
+        .maxConcurrentSearchesPerRealm(scope.getInt("maxConcurrentBulkWritesPerRealm",
+            defaults.getMaxConcurrentSearchesPerRealm()))
+        .maxQueuedSearches(scope.getInt("maxQueuedBulkWrites", defaults.getMaxQueuedSearches()))
+        .maxQueuedSearchesPerRealm(scope.getInt("maxQueuedBulkWritesPerRealm",
+            defaults.getMaxQueuedSearchesPerRealm()))
+        .queueTimeoutMillis(scope.getLong("bulkWriteQueueTimeoutMillis",
+            defaults.getQueueTimeoutMillis()))
+        .retryAfterSeconds(scope.getInt("bulkWriteRetryAfterSeconds",
+            defaults.getRetryAfterSeconds()))
+        .build());
+  }
+
+  /**
+   * Executes the action if the realm and the whole node have free capacity for it.
+   *
+   * @param realmName name of the realm the search is executed in
+   * @param action    search itself
+   * @return result of the action
+   * @throws RetryLaterException with status {@code 429} if the bulkhead is saturated
+   */
+  public <T> T execute(String realmName, Supplier<T> action) {
+    // one deadline for both permits, so a request doesn't wait twice the queue timeout
+    var deadlineNanos = System.nanoTime()
+        + TimeUnit.MILLISECONDS.toNanos(config.getQueueTimeoutMillis());
+    var compartment = realmCompartments.computeIfAbsent(realmName,
+        name -> new RealmCompartment(config.getMaxConcurrentSearchesPerRealm()));
+    if (!acquire(compartment.permits, compartment.queueDepth,
+        config.getMaxQueuedSearchesPerRealm(), deadlineNanos)) {
+      throw reject(realmName, compartment);
+    }
+    try {
+      // only the requests holding a realm permit wait for a global one,
+      // so a saturated realm can't fill the global queue by itself
+      if (!acquire(globalPermits, globalQueueDepth, config.getMaxQueuedSearches(),
+          deadlineNanos)) {
+        throw reject(realmName, compartment);
+      }
+      try {
+        admittedCount.incrementAndGet();
+        return action.get();
+      } finally {
+        globalPermits.release();
+      }
+    } finally {
+      compartment.permits.release();
+    }
+  }
+
+  public AdmissionStatsResponseDto getStats(String realmName) {
+    var compartment = realmCompartments.get(realmName);
+    return AdmissionStatsResponseDto.builder()
+        .maxConcurrentSearches(config.getMaxConcurrentSearches())
+        .maxConcurrentSearchesPerRealm(config.getMaxConcurrentSearchesPerRealm())
+        .maxQueuedSearches(config.getMaxQueuedSearches())
+        .maxQueuedSearchesPerRealm(config.getMaxQueuedSearchesPerRealm())
+        .activeSearches(config.getMaxConcurrentSearches() - globalPermits.availablePermits())
+        .queueDepth(queueDepth())
+        .admitted(admittedCount.get())
+        .rejected(rejectedCount.get())
+        .realm(AdmissionStatsResponseDto.RealmStats.builder()
+            .activeSearches(compartment == null ? 0
+                : config.getMaxConcurrentSearchesPerRealm() - compartment.permits.availablePermits())
+            .queueDepth(compartment == null ? 0 : compartment.queueDepth.get())
+            .rejected(compartment == null ? 0 : compartment.rejectedCount.get())
+            .build())
+        .build();
+  }
+
+  /**
+   * Returns count of the requests waiting for a permit of their realm or a global one.
+   */
+  private int queueDepth() {
+    return globalQueueDepth.get() + realmCompartments.values().stream()
+        .mapToInt(compartment -> compartment.queueDepth.get())
+        .sum();
+  }
+
+  private static boolean acquire(Semaphore permits, AtomicInteger queueDepth, int maxQueued,
+      long deadlineNanos) {
+    if (permits.tryAcquire()) {
+      return true;
+    }
+    try {
+      if (queueDepth.incrementAndGet() > maxQueued) {
+        return false;
+      }
+      return permits.tryAcquire(Math.max(0L, deadlineNanos - System.nanoTime()),
+          TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } finally {
+      queueDepth.decrementAndGet();
+    }
+  }
+
+  private RetryLaterException reject(String realmName, RealmCompartment compartment) {
+    rejectedCount.incrementAndGet();
+    compartment.rejectedCount.incrementAndGet();
+    LOGGER.debugf("Request of %s in realm %s rejected, queue depth %d", config.getOperations(),
+        realmName, queueDepth());
+    return new RetryLaterException(Status.TOO_MANY_REQUESTS, "too_many_requests",
+        String.format("Too many concurrent %s, retry later", config.getOperations()),
+        config.getRetryAfterSeconds());
+  }
+
+  private static class RealmCompartment {
+
+    private final Semaphore permits;
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    private RealmCompartment(int maxConcurrentSearches) {
+      this.permits = new Semaphore(maxConcurrentSearches, true);
+    }
+  }
+
+  @Builder
+  @Getter
+  public static class Config {
+
+    @Builder.Default
+    private final int maxConcurrentSearches = 32;
+    @Builder.Default
+    private final int maxConcurrentSearchesPerRealm = 16;
+    /**
+     * Requests waiting for a global permit, only the requests holding a permit of their realm wait
+     * for it.
+     */
+    @Builder.Default
+    private final int maxQueuedSearches = 64;
+    /**
+     * Requests of one realm waiting for a permit of the realm.
+     */
+    @Builder.Default
+    private final int maxQueuedSearchesPerRealm = 32;
+    @Builder.Default
+    private final long queueTimeoutMillis = 2000L;
+    @Builder.Default
+    private final int retryAfterSeconds = 1;
+    /**
+     * Name of the admitted operations used in the messages.
+     */
+    @Builder.Default
+    private final String operations = "searches";
+
+    public static ConfigBuilder bulkWriteDefaults() {
+      return builder()
+          .maxConcurrentSearches(2)
+          .maxConcurrentSearchesPerRealm(1)
+          .maxQueuedSearches(4)
+          .maxQueuedSearchesPerRealm(2)
+          .retryAfterSeconds(10)
+          .operations("bulk writes");
+    }
+  }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.attributes;
+
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.AttributeIndexStatsResponseDto;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.index.UserIndex;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.keycloak.Config.Scope;
+import org.keycloak.models.RealmModel;
+
+/**
+ * In-memory inverted index of the values of the hot attributes, the few ones that almost every
+ * search is filtered by. The search uses it to find candidate users of equality, prefix and
+ * "is a prefix of" conditions on these attributes, so the database only reads the candidates. It's
+ * maintained by {@link AttributeIndexEventListenerProviderFactory#ID} event listener.
+ * <p>
+ * Conditions of the attributes that are matched case-insensitively, and substring conditions,
+ * are always evaluated by the database.
+ */
+public class AttributeIndex extends UserIndex<RealmAttributeIndex> {
+
+  private final Set<String> attributes;
+
+  public AttributeIndex(Config config) {
+    super(AttributeIndexEventListenerProviderFactory.ID,
+        config.getAttributes().isEmpty() ? 0 : config.getMaxCandidates(),
+        config.getMaxAgeMinutes());
+    this.attributes = Collections.unmodifiableSet(new LinkedHashSet<>(config.getAttributes()));
+  }
+
+  /**
+   * Finds ids of the users that satisfy the conditions of the indexed attributes.
+   *
+   * @param em                        entity manager the index is built and refreshed with
+   * @param realm                     realm of the users
+   * @param attributesEquals          values of the attributes to be equal to
+   * @param attributesStartsWith      prefixes of the attribute values
+   * @param attributesThatAreStartFor values the attribute values must be prefixes of
+   * @param attributesIgnoreCase      attributes that are matched case-insensitively
+   * @return ids of the matched users with the conditions they satisfy, or nothing if the index
+   * can't be used for the search and the conditions must be evaluated by the database
+   */
+  public Optional<Match> findUserIds(EntityManager em, RealmModel realm,
+      Map<String, List<String>> attributesEquals, Map<String, List<String>> attributesStartsWith,
+      Map<String, List<String>> attributesThatAreStartFor, Set<String> attributesIgnoreCase) {
+    var equals = servedConditions(attributesEquals, attributesIgnoreCase);
+    var startsWith = servedConditions(attributesStartsWith, attributesIgnoreCase);
+    var startFor = servedConditions(attributesThatAreStartFor, attributesIgnoreCase);
+    if (equals.isEmpty() && startsWith.isEmpty() && startFor.isEmpty()) {
+      return Optional.empty();
+    }
+    return lookup(em, realm, index -> index.findUserIds(equals, startsWith, startFor,
+        getMaxCandidates()))
+        .map(userIds -> new Match(userIds, equals.keySet(), startsWith.keySet(),
+            startFor.keySet()));
+  }
+
+  public AttributeIndexStatsResponseDto getStats(RealmModel realm) {
+    return getStats(realm, (enabled, counters, index) -> {
+      var stats = AttributeIndexStatsResponseDto.builder()
+          .enabled(enabled)
+          .attributes(List.copyOf(attributes));
+      if (Objects.nonNull(counters)) {
+        stats.lookups(counters.getLookups())
+            .fallbacks(counters.getFallbacks())
+            .rebuilds(counters.getRebuilds())
+            .refreshedUsers(counters.getRefreshedUsers())
+            .pendingUsers(counters.getPendingUsers());
+      }
+      if (Objects.nonNull(index)) {
+        stats.built(true)
+            .builtAt(index.getBuiltAtMillis())
+            .users(index.getUsers())
+            .values(index.getValueCounts())
+            .postingBytes(index.getPostingBytes())
+            .userBytes(index.getUserBytes())
+            .totalBytes(index.getEstimatedBytes());
+      }
+      return stats.build();
+    });
+  }
+
+  @Override
+  protected RealmAttributeIndex load(EntityManager em, String realmId) {
+    return RealmAttributeIndex.load(em, realmId, attributes);
+  }
+
+  /**
+   * Returns the conditions the index can serve: of an indexed attribute that is matched
+   * case-sensitively and with at least one requested value.
+   */
+  private Map<String, List<String>> servedConditions(Map<String, List<String>> conditions,
+      Set<String> attributesIgnoreCase) {
+    var served = new LinkedHashMap<String, List<String>>();
+    conditions.forEach((name, values) -> {
+      if (attributes.contains(name) && !attributesIgnoreCase.contains(name)
+          && Objects.nonNull(values) && !values.isEmpty()
+          && values.stream().allMatch(Objects::nonNull)) {
+        served.put(name, values);
+      }
+    });
+    return served;
+  }
+
+  /**
+   * Users found by the index and the conditions of each kind they satisfy, keyed by attribute.
+   */
+  @Getter
+  @RequiredArgsConstructor
+  public static class Match {
+
+    private final List<String> userIds;
+    private final Set<String> attributesEquals;
+    private final Set<String> attributesStartsWith;
+    private final Set<String> attributesThatAreStartFor;
+
+    /**
+     * Returns the conditions that aren't served by the index.
+     */
+    public static Map<String, List<String>> remaining(Map<String, List<String>> conditions,
+        Set<String> served) {
+      return conditions.entrySet().stream()
+          .filter(condition -> !served.contains(condition.getKey()))
+          .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a,
+              LinkedHashMap::new));
+    }
+  }
+
+  /**
+   * {@code attributes} are the indexed ones, the index is disabled if there are none.
+   * {@code maxAgeMinutes} of {@code 0} keeps the index until a change that can't be attributed
+   * to users.
+   */
+  @Builder
+  @Getter
+  public static class Config {
+
+    @Builder.Default
+    private final List<String> attributes = List.of();
+    @Builder.Default
+    private final int maxCandidates = 1000;
+    @Builder.Default
+    private final long maxAgeMinutes = 60L;
+
+    public static Config create(Scope scope) {
+      var defaults = Config.builder().build();
+      var attributes = scope.get("attributes");
+      return Config.builder()
+          .attributes(Objects.isNull(attributes) ? defaults.getAttributes()
+              : Arrays.stream(attributes.split(","))
+                  .map(String::trim)
+                  .filter(attribute -> !attribute.isEmpty())
+                  .distinct()
+                  .collect(Collectors.toUnmodifiableList()))
+          .maxCandidates(scope.getInt("maxCandidates", defaults.getMaxCandidates()))
+          .maxAgeMinutes(scope.getLong("maxAgeMinutes", defaults.getMaxAgeMinutes()))
+          .build();
+    }
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.attributes;
+
+import com.epam.digital.data.platform.keycloak.rest.api.ext.event.UserEvents;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+import org.keycloak.events.Event;
+import org.keycloak.events.EventListenerProvider;
+import org.keycloak.events.EventType;
+import org.keycloak.events.admin.AdminEvent;
+import org.keycloak.models.KeycloakSession;
+
+/**
+ * Reports changes of attributes of users to {@link AttributeIndex}.
+ */
+public class AttributeIndexEventListenerProvider implements EventListenerProvider {
+
+  private static final Set<EventType> ATTRIBUTE_CHANGING_EVENTS = EnumSet.of(EventType.REGISTER,
+      EventType.UPDATE_PROFILE, EventType.UPDATE_EMAIL, EventType.IDENTITY_PROVIDER_FIRST_LOGIN,
+      EventType.IDENTITY_PROVIDER_LINK_ACCOUNT, EventType.DELETE_ACCOUNT);
+
+  private final KeycloakSession session;
+  private final AttributeIndex index;
+
+  public AttributeIndexEventListenerProvider(KeycloakSession session, AttributeIndex index) {
+    this.session = session;
+    this.index = index;
+  }
+
+  @Override
+  public void onEvent(Event event) {
+    if ((ATTRIBUTE_CHANGING_EVENTS.contains(event.getType()) || UserEvents.isBrokeredLogin(event))
+        && Objects.nonNull(event.getUserId())) {
+      index.markChanged(session, event.getRealmId(), event.getUserId());
+    }
+  }
+
+  @Override
+  public void onEvent(AdminEvent event, boolean includeRepresentation) {
+    switch (event.getResourceType()) {
+      case USER:
+        UserEvents.getUserId(event)
+            .ifPresent(userId -> index.markChanged(session, event.getRealmId(), userId));
+        break;
+      case REALM:
+      case USER_FEDERATION_PROVIDER:
+        // partial import and federation sync may change attributes of any user
+        index.markChanged(session, event.getRealmId(), null);
+        break;
+      default:
+        break;
+    }
+  }
+
+  @Override
+  public void close() {
+  }
+}
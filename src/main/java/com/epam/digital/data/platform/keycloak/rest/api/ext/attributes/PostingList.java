@@ -0,0 +1,82 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.attributes;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Sorted ordinals of the users that have an attribute value, kept in a primitive array.
+ */
+class PostingList {
+
+  private static final int INITIAL_CAPACITY = 2;
+
+  private int[] ordinals = new int[INITIAL_CAPACITY];
+  private int size;
+
+  /**
+   * Adds the ordinal. Ordinals read in ascending order, as they are when the index is built, are
+   * appended without a search.
+   */
+  void add(int ordinal) {
+    if (size > 0 && ordinals[size - 1] >= ordinal) {
+      var position = Arrays.binarySearch(ordinals, 0, size, ordinal);
+      if (position >= 0) {
+        return;
+      }
+      insert(-position - 1, ordinal);
+      return;
+    }
+    insert(size, ordinal);
+  }
+
+  void remove(int ordinal) {
+    var position = Arrays.binarySearch(ordinals, 0, size, ordinal);
+    if (position >= 0) {
+      System.arraycopy(ordinals, position + 1, ordinals, position, size - position - 1);
+      size--;
+    }
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  void addTo(BitSet bitmap) {
+    for (var i = 0; i < size; i++) {
+      bitmap.set(ordinals[i]);
+    }
+  }
+
+  /**
+   * Returns the heap size of the list in bytes: the object, the array header and its capacity.
+   */
+  long getBytes() {
+    return 24L + 16L + (long) ordinals.length * Integer.BYTES;
+  }
+
+  private void insert(int position, int ordinal) {
+    if (size == ordinals.length) {
+      ordinals = Arrays.copyOf(ordinals, size + (size >> 1) + 1);
+    }
+    System.arraycopy(ordinals, position, ordinals, position + 1, size - position);
+    ordinals[position] = ordinal;
+    size++;
+  }
+}
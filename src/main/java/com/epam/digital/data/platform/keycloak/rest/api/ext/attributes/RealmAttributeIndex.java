@@ -0,0 +1,302 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.attributes;
+
+import com.epam.digital.data.platform.keycloak.rest.api.ext.index.RealmUserIndex;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.IntStream;
+import javax.persistence.EntityManager;
+
+/**
+ * Values of the indexed attributes of the users of one realm. Every user with an indexed
+ * attribute gets a dense ordinal; per attribute, a value is mapped to the posting list of the
+ * users that have it, so an equality is served by a hash lookup, and the values are kept sorted
+ * for prefix lookups by a binary search.
+ * <p>
+ * The instance isn't thread-safe, access is guarded by {@link AttributeIndex}.
+ */
+class RealmAttributeIndex implements RealmUserIndex {
+
+  /**
+   * Max count of user ids bound to one {@code IN} list of a refresh query.
+   */
+  private static final int REFRESH_BATCH_SIZE = 500;
+
+  /**
+   * Estimated heap size of a string without its characters and of a hash map entry.
+   */
+  private static final long STRING_OVERHEAD_BYTES = 24L + 16L;
+  private static final long MAP_ENTRY_BYTES = 32L;
+
+  private final String realmId;
+  private final Set<String> attributes;
+  private final long builtAtMillis;
+  private final long builtAtNanos;
+  private final Map<String, Integer> ordinals = new HashMap<>();
+  private final List<String> userIds = new ArrayList<>();
+  /**
+   * Indexed names and values of a user by ordinal, as a flat array of name and value pairs.
+   */
+  private final List<String[]> userValues = new ArrayList<>();
+  private final Map<String, AttributeValues> values = new LinkedHashMap<>();
+  private int removedUsers;
+
+  private RealmAttributeIndex(String realmId, Set<String> attributes) {
+    this.realmId = realmId;
+    this.attributes = attributes;
+    this.builtAtMillis = System.currentTimeMillis();
+    this.builtAtNanos = System.nanoTime();
+    attributes.forEach(attribute -> values.put(attribute, new AttributeValues(attribute)));
+  }
+
+  /**
+   * Reads the values of the attributes of the realm users with one query. Users are read in the
+   * order of their ids, so the posting lists are built by appending.
+   */
+  static RealmAttributeIndex load(EntityManager em, String realmId, Set<String> attributes) {
+    var index = new RealmAttributeIndex(realmId, attributes);
+    em.createQuery("select a.user.id, a.name, a.value from UserAttributeEntity a "
+            + "where a.user.realmId = :realmId and a.name in :names order by a.user.id",
+            Object[].class)
+        .setParameter("realmId", realmId)
+        .setParameter("names", attributes)
+        .getResultStream()
+        .forEach(row -> index.add((String) row[0], (String) row[1], (String) row[2]));
+    index.values.values().forEach(AttributeValues::sort);
+    return index;
+  }
+
+  @Override
+  public void refresh(EntityManager em, Collection<String> refreshedUserIds) {
+    var ids = List.copyOf(refreshedUserIds);
+    for (var from = 0; from < ids.size(); from += REFRESH_BATCH_SIZE) {
+      var batch = ids.subList(from, Math.min(from + REFRESH_BATCH_SIZE, ids.size()));
+      var rows = em.createQuery("select a.user.id, a.name, a.value from UserAttributeEntity a "
+                  + "where a.user.realmId = :realmId and a.name in :names "
+                  + "and a.user.id in :userIds",
+              Object[].class)
+          .setParameter("realmId", realmId)
+          .setParameter("names", attributes)
+          .setParameter("userIds", batch)
+          .getResultList();
+      batch.forEach(this::removeUser);
+      rows.forEach(row -> add((String) row[0], (String) row[1], (String) row[2]));
+    }
+    values.values().forEach(AttributeValues::sort);
+  }
+
+  /**
+   * Returns ids of the users that satisfy every condition, or nothing if there are more of them
+   * than {@code maxUsers}. A condition of an attribute matches if any value of the user matches
+   * any of the requested values. Only the indexed attributes may be requested.
+   *
+   * @param attributesEquals          values of the attributes to be equal to
+   * @param attributesStartsWith      prefixes of the attribute values
+   * @param attributesThatAreStartFor values the attribute values must be prefixes of
+   */
+  Optional<List<String>> findUserIds(Map<String, List<String>> attributesEquals,
+      Map<String, List<String>> attributesStartsWith,
+      Map<String, List<String>> attributesThatAreStartFor, int maxUsers) {
+    var conditions = new ArrayList<BitSet>();
+    attributesEquals.forEach((name, requested) -> {
+      var users = new BitSet();
+      requested.forEach(value -> values.get(name).addEqual(value, users));
+      conditions.add(users);
+    });
+    attributesStartsWith.forEach((name, requested) -> {
+      var users = new BitSet();
+      requested.forEach(prefix -> values.get(name).addStartingWith(prefix, users));
+      conditions.add(users);
+    });
+    attributesThatAreStartFor.forEach((name, requested) -> {
+      var users = new BitSet();
+      requested.forEach(value -> IntStream.rangeClosed(1, value.length())
+          .forEach(length -> values.get(name).addEqual(value.substring(0, length), users)));
+      conditions.add(users);
+    });
+    if (conditions.isEmpty()) {
+      return Optional.empty();
+    }
+    var matched = conditions.get(0);
+    conditions.stream().skip(1).forEach(matched::and);
+    if (matched.cardinality() > maxUsers) {
+      return Optional.empty();
+    }
+    var matchedUserIds = new ArrayList<String>(matched.cardinality());
+    matched.stream().forEach(ordinal -> matchedUserIds.add(userIds.get(ordinal)));
+    return Optional.of(matchedUserIds);
+  }
+
+  @Override
+  public long getBuiltAtMillis() {
+    return builtAtMillis;
+  }
+
+  @Override
+  public long getAgeNanos() {
+    return System.nanoTime() - builtAtNanos;
+  }
+
+  @Override
+  public int getUsers() {
+    return ordinals.size();
+  }
+
+  @Override
+  public boolean isFragmented() {
+    return removedUsers > ordinals.size();
+  }
+
+  /**
+   * Returns count of distinct values per attribute.
+   */
+  Map<String, Integer> getValueCounts() {
+    var counts = new LinkedHashMap<String, Integer>();
+    values.forEach((name, attributeValues) -> counts.put(name, attributeValues.postings.size()));
+    return counts;
+  }
+
+  /**
+   * Returns the estimated heap size of the distinct values and their posting lists in bytes.
+   */
+  long getPostingBytes() {
+    return values.values().stream()
+        .flatMap(attributeValues -> attributeValues.postings.entrySet().stream())
+        .mapToLong(posting -> STRING_OVERHEAD_BYTES + posting.getKey().length()
+            + MAP_ENTRY_BYTES + posting.getValue().getBytes())
+        .sum();
+  }
+
+  /**
+   * Returns the estimated heap size of the user ids, their ordinals and their indexed values in
+   * bytes.
+   */
+  long getUserBytes() {
+    var valueArrayBytes = userValues.stream().filter(Objects::nonNull)
+        .mapToLong(pairs -> 16L + (long) pairs.length * Integer.BYTES)
+        .sum();
+    return ordinals.keySet().stream()
+        .mapToLong(userId -> STRING_OVERHEAD_BYTES + userId.length() + MAP_ENTRY_BYTES + 16L
+            + 2L * Integer.BYTES)
+        .sum() + valueArrayBytes + (long) removedUsers * 2L * Integer.BYTES;
+  }
+
+  @Override
+  public long getEstimatedBytes() {
+    return getPostingBytes() + getUserBytes();
+  }
+
+  private void add(String userId, String name, String value) {
+    var attributeValues = values.get(name);
+    if (Objects.isNull(attributeValues) || Objects.isNull(value)) {
+      return;
+    }
+    var ordinal = ordinals.computeIfAbsent(userId, id -> {
+      userIds.add(id);
+      userValues.add(new String[0]);
+      return userIds.size() - 1;
+    });
+    var pairs = userValues.get(ordinal);
+    var extended = Arrays.copyOf(pairs, pairs.length + 2);
+    // the name instance of the index is kept, so users share it
+    extended[pairs.length] = attributeValues.name;
+    extended[pairs.length + 1] = value;
+    userValues.set(ordinal, extended);
+    attributeValues.add(value, ordinal);
+  }
+
+  private void removeUser(String userId) {
+    var ordinal = ordinals.remove(userId);
+    if (Objects.isNull(ordinal)) {
+      return;
+    }
+    var pairs = userValues.get(ordinal);
+    for (var i = 0; i < pairs.length; i += 2) {
+      values.get(pairs[i]).remove(pairs[i + 1], ordinal);
+    }
+    userIds.set(ordinal, null);
+    userValues.set(ordinal, null);
+    removedUsers++;
+  }
+
+  private static class AttributeValues {
+
+    private final String name;
+    private final Map<String, PostingList> postings = new HashMap<>();
+    /**
+     * Distinct values in natural order, {@code null} after the set of values changed until the
+     * index is sorted again, so lookups only read it.
+     */
+    private String[] sortedValues;
+
+    private AttributeValues(String name) {
+      this.name = name;
+    }
+
+    private void sort() {
+      if (Objects.isNull(sortedValues)) {
+        sortedValues = postings.keySet().toArray(String[]::new);
+        Arrays.sort(sortedValues);
+      }
+    }
+
+    private void add(String value, int ordinal) {
+      postings.computeIfAbsent(value, key -> {
+        sortedValues = null;
+        return new PostingList();
+      }).add(ordinal);
+    }
+
+    private void remove(String value, int ordinal) {
+      var posting = postings.get(value);
+      if (Objects.isNull(posting)) {
+        return;
+      }
+      posting.remove(ordinal);
+      if (posting.isEmpty()) {
+        postings.remove(value);
+        sortedValues = null;
+      }
+    }
+
+    private void addEqual(String value, BitSet users) {
+      var posting = postings.get(value);
+      if (Objects.nonNull(posting)) {
+        posting.addTo(users);
+      }
+    }
+
+    private void addStartingWith(String prefix, BitSet users) {
+      var position = Arrays.binarySearch(sortedValues, prefix);
+      for (var i = position >= 0 ? position : -position - 1;
+          i < sortedValues.length && sortedValues[i].startsWith(prefix); i++) {
+        postings.get(sortedValues[i]).addTo(users);
+      }
+    }
+  }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.auth;
+
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.AdminTokenCacheStatsResponseDto;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import javax.ws.rs.core.HttpHeaders;
+import lombok.Builder;
+import lombok.Getter;
+import org.jboss.logging.Logger;
+import org.keycloak.Config.Scope;
+import org.keycloak.common.util.Time;
+import org.keycloak.crypto.KeyUse;
+import org.keycloak.jose.jws.JWSInput;
+import org.keycloak.jose.jws.JWSInputException;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
+import org.keycloak.representations.AccessToken;
+import org.keycloak.services.managers.AppAuthManager;
+import org.keycloak.services.managers.AuthenticationManager;
+import org.keycloak.services.resources.admin.AdminAuth;
+
+/**
+ * Bounded cache of verified admin bearer tokens.
+ * <p>
+ * Service accounts call the extension with the same token many times, so parsing of the token,
+ * verification of its signature and lookup of the realm by token issuer are done once per token.
+ * Entries are keyed by hash of the token and expire at the token's {@code exp} or after
+ * {@link Config#getTtlSeconds() ttlSeconds}, whichever comes first.
+ * <p>
+ * A cached token is still checked on every request with in-memory lookups only: the signing key
+ * must be enabled in the realm, the user session must be valid, the realm not-before policy must
+ * not revoke the token and the user and the client must be enabled. So logout, session or key
+ * revocation take effect on the next request on any cluster node.
+ */
+public class AdminTokenCache {
+
+  private static final Logger LOGGER = Logger.getLogger(AdminTokenCache.class);
+
+  private final Config config;
+  private final Map<String, CachedToken> tokens;
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+  private final AtomicLong revokedCount = new AtomicLong();
+
+  public AdminTokenCache(Config config) {
+    this.config = config;
+    this.tokens = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, CachedToken> eldest) {
+        return size() > config.getMaxEntries();
+      }
+    };
+  }
+
+  public static AdminTokenCache create(Scope scope) {
+    var defaults = Config.builder().build();
+    return new AdminTokenCache(Config.builder()
+        .maxEntries(scope.getInt("adminTokenCacheSize", defaults.getMaxEntries()))
+        .ttlSeconds(scope.getInt("adminTokenCacheTtlSeconds", defaults.getTtlSeconds()))
+        .build());
+  }
+
+  /**
+   * Returns authentication of the cached token if it's still valid, otherwise authenticates the
+   * request with the verifier and caches the result.
+   *
+   * @param session  session of the request
+   * @param headers  headers of the request that contain bearer token
+   * @param verifier full verification of the token
+   */
+  public AdminAuth authenticate(KeycloakSession session, HttpHeaders headers,
+      Supplier<AdminAuth> verifier) {
+    var rawToken = config.getMaxEntries() > 0
+        ? AppAuthManager.extractAuthorizationHeaderToken(headers) : null;
+    if (Objects.isNull(rawToken)) {
+      return verifier.get();
+    }
+    var tokenHash = hash(rawToken);
+    var cachedToken = get(tokenHash);
+    if (Objects.nonNull(cachedToken)) {
+      var adminAuth = restore(session, cachedToken);
+      if (Objects.nonNull(adminAuth)) {
+        hitCount.incrementAndGet();
+        return adminAuth;
+      }
+      revokedCount.incrementAndGet();
+      remove(tokenHash);
+    }
+    missCount.incrementAndGet();
+    var adminAuth = verifier.get();
+    put(tokenHash, rawToken, adminAuth);
+    return adminAuth;
+  }
+
+  public void invalidateRealm(String realmId) {
+    removeIf(cachedToken -> cachedToken.realmId.equals(realmId));
+  }
+
+  public void invalidateUser(String userId) {
+    removeIf(cachedToken -> cachedToken.userId.equals(userId));
+  }
+
+  public AdminTokenCacheStatsResponseDto getStats() {
+    synchronized (tokens) {
+      return AdminTokenCacheStatsResponseDto.builder()
+          .maxEntries(config.getMaxEntries())
+          .entries(tokens.size())
+          .hits(hitCount.get())
+          .misses(missCount.get())
+          .revoked(revokedCount.get())
+          .build();
+    }
+  }
+
+  private AdminAuth restore(KeycloakSession session, CachedToken cachedToken) {
+    var token = cachedToken.token;
+    if (Time.currentTimeMillis() >= cachedToken.expiresAtMillis || token.isExpired()) {
+      return null;
+    }
+    var realm = session.realms().getRealm(cachedToken.realmId);
+    if (Objects.isNull(realm) || token.getIat() < realm.getNotBefore()
+        || !isSigningKeyEnabled(session, realm, cachedToken)) {
+      return null;
+    }
+    var userSession = session.sessions().getUserSession(realm, cachedToken.sessionId);
+    if (!AuthenticationManager.isSessionValid(realm, userSession)) {
+      return null;
+    }
+    var user = session.users().getUserById(realm, cachedToken.userId);
+    var client = realm.getClientById(cachedToken.clientId);
+    if (Objects.isNull(user) || !user.isEnabled() || Objects.isNull(client)
+        || !client.isEnabled()) {
+      return null;
+    }
+    session.getContext().setRealm(realm);
+    return new AdminAuth(realm, token, user, client);
+  }
+
+  private static boolean isSigningKeyEnabled(KeycloakSession session, RealmModel realm,
+      CachedToken cachedToken) {
+    var key = session.keys().getKey(realm, cachedToken.keyId, KeyUse.SIG, cachedToken.algorithm);
+    return Objects.nonNull(key) && key.getStatus().isEnabled();
+  }
+
+  private void put(String tokenHash, String rawToken, AdminAuth adminAuth) {
+    var token = adminAuth.getToken();
+    if (Objects.isNull(token.getSessionState()) || Objects.isNull(token.getExp())
+        || Objects.isNull(token.getIat())) {
+      return;
+    }
+    try {
+      var header = new JWSInput(rawToken).getHeader();
+      var cachedToken = new CachedToken(adminAuth.getRealm().getId(),
+          adminAuth.getUser().getId(), adminAuth.getClient().getId(), token,
+          token.getSessionState(), header.getKeyId(), header.getRawAlgorithm(),
+          Math.min(token.getExp() * 1000L,
+              Time.currentTimeMillis() + config.getTtlSeconds() * 1000L));
+      synchronized (tokens) {
+        tokens.put(tokenHash, cachedToken);
+      }
+    } catch (JWSInputException e) {
+      LOGGER.debug("Verified token couldn't be parsed, it won't be cached", e);
+    }
+  }
+
+  private CachedToken get(String tokenHash) {
+    synchronized (tokens) {
+      return tokens.get(tokenHash);
+    }
+  }
+
+  private void remove(String tokenHash) {
+    synchronized (tokens) {
+      tokens.remove(tokenHash);
+    }
+  }
+
+  private void removeIf(Predicate<CachedToken> predicate) {
+    synchronized (tokens) {
+      tokens.values().removeIf(predicate);
+    }
+  }
+
+  private static String hash(String rawToken) {
+    try {
+      return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256")
+          .digest(rawToken.getBytes(StandardCharsets.US_ASCII)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static class CachedToken {
+
+    private final String realmId;
+    private final String userId;
+    private final String clientId;
+    private final AccessToken token;
+    private final String sessionId;
+    private final String keyId;
+    private final String algorithm;
+    private final long expiresAtMillis;
+
+    private CachedToken(String realmId, String userId, String clientId, AccessToken token,
+        String sessionId, String keyId, String algorithm, long expiresAtMillis) {
+      this.realmId = realmId;
+      this.userId = userId;
+      this.clientId = clientId;
+      this.token = token;
+      this.sessionId = sessionId;
+      this.keyId = keyId;
+      this.algorithm = algorithm;
+      this.expiresAtMillis = expiresAtMillis;
+    }
+  }
+
+  @Builder
+  @Getter
+  public static class Config {
+
+    /**
+     * Max count of cached tokens, {@code 0} disables the cache.
+     */
+    @Builder.Default
+    private final int maxEntries = 1000;
+    @Builder.Default
+    private final int ttlSeconds = 300;
+  }
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.bulk;
+
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.BulkUpdateUserAttributesRequestDto.Operation;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.keycloak.Config.Scope;
+import org.keycloak.connections.jpa.JpaConnectionProvider;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.jpa.entities.UserAttributeEntity;
+import org.keycloak.models.jpa.entities.UserEntity;
+import org.keycloak.models.jpa.entities.UserRoleMappingEntity;
+import org.keycloak.models.utils.KeycloakModelUtils;
+
+/**
+ * Changes many users of a realm in the current transaction.
+ * <p>
+ * The users and their affected attribute or role mapping rows are loaded by one query each, the
+ * changes are computed in memory and written with JDBC batches of
+ * {@link Policy#getBatchSize() batchSize} statements or a single set-based statement, so the count
+ * of round trips doesn't grow with the count of users. The rows are changed directly, so it's up
+ * to the caller to evict the users from the cache and to fire the events.
+ */
+public class BulkUserUpdate {
+
+  private final EntityManager em;
+  private final Policy policy;
+
+  public BulkUserUpdate(EntityManager em, Policy policy) {
+    this.em = em;
+    this.policy = policy;
+  }
+
+  public static BulkUserUpdate of(KeycloakSession session, Policy policy) {
+    return new BulkUserUpdate(session.getProvider(JpaConnectionProvider.class).getEntityManager(),
+        policy);
+  }
+
+  /**
+   * Applies the attribute operations in the listed order to every found user of the realm.
+   *
+   * @param realmId    realm of the users
+   * @param userIds    ids of the users to update
+   * @param operations attribute operations
+   * @return users that were changed by at least one operation and ids that weren't found
+   */
+  public Result updateAttributes(String realmId, List<String> userIds,
+      List<Operation> operations) {
+    var users = findUsers(realmId, userIds);
+    var notFoundUserIds = findNotFoundUserIds(userIds, users);
+    if (users.isEmpty() || operations.isEmpty()) {
+      return new Result(List.of(), notFoundUserIds);
+    }
+
+    var attributes = findAttributes(users.keySet(), operations);
+    var updatedUsers = withJdbcBatchSize(() -> {
+      var updated = new LinkedHashSet<UserEntity>();
+      for (var user : users.values()) {
+        var userAttributes = attributes.getOrDefault(user.getId(), new HashMap<>());
+        for (var operation : operations) {
+          var rows = userAttributes.computeIfAbsent(operation.getAttribute(),
+              name -> new ArrayList<>());
+          if (apply(user, rows, operation)) {
+            updated.add(user);
+          }
+        }
+      }
+      return List.copyOf(updated);
+    });
+    return new Result(updatedUsers, notFoundUserIds);
+  }
+
+  /**
+   * Grants the role to every found user of the realm that doesn't have it yet. The mappings are
+   * inserted with JDBC batches.
+   *
+   * @param realmId realm of the users
+   * @param roleId  id of the realm or client role
+   * @param userIds ids of the users
+   * @return users the role was granted to and ids that weren't found
+   */
+  public Result grantRole(String realmId, String roleId, List<String> userIds) {
+    var users = findUsers(realmId, userIds);
+    var mappedUserIds = findMappedUserIds(roleId, users.keySet());
+    var grantedUsers = users.values().stream()
+        .filter(user -> !mappedUserIds.contains(user.getId()))
+        .collect(Collectors.toList());
+    withJdbcBatchSize(() -> {
+      grantedUsers.forEach(user -> {
+        var mapping = new UserRoleMappingEntity();
+        mapping.setUser(user);
+        mapping.setRoleId(roleId);
+        em.persist(mapping);
+      });
+      return null;
+    });
+    return new Result(grantedUsers, findNotFoundUserIds(userIds, users));
+  }
+
+  /**
+   * Revokes the role from every found user of the realm that has it with one {@code DELETE}
+   * statement.
+   *
+   * @param realmId realm of the users
+   * @param roleId  id of the realm or client role
+   * @param userIds ids of the users
+   * @return users the role was revoked from and ids that weren't found
+   */
+  public Result revokeRole(String realmId, String roleId, List<String> userIds) {
+    var users = findUsers(realmId, userIds);
+    var mappedUserIds = findMappedUserIds(roleId, users.keySet());
+    var revokedUsers = users.values().stream()
+        .filter(user -> mappedUserIds.contains(user.getId()))
+        .collect(Collectors.toList());
+    if (!revokedUsers.isEmpty()) {
+      em.createQuery("delete from UserRoleMappingEntity m where m.roleId = :roleId "
+              + "and m.user.id in :userIds")
+          .setParameter("roleId", roleId)
+          .setParameter("userIds", revokedUsers.stream().map(UserEntity::getId)
+              .collect(Collectors.toList()))
+          .executeUpdate();
+    }
+    return new Result(revokedUsers, findNotFoundUserIds(userIds, users));
+  }
+
+  private Set<String> findMappedUserIds(String roleId, Collection<String> userIds) {
+    if (userIds.isEmpty()) {
+      return Set.of();
+    }
+    return em.createQuery("select m.user.id from UserRoleMappingEntity m "
+            + "where m.roleId = :roleId and m.user.id in :userIds", String.class)
+        .setParameter("roleId", roleId)
+        .setParameter("userIds", userIds)
+        .getResultStream()
+        .collect(Collectors.toSet());
+  }
+
+  private static List<String> findNotFoundUserIds(List<String> userIds,
+      Map<String, UserEntity> users) {
+    return userIds.stream().distinct()
+        .filter(userId -> !users.containsKey(userId))
+        .collect(Collectors.toList());
+  }
+
+  private boolean apply(UserEntity user, List<UserAttributeEntity> rows, Operation operation) {
+    switch (operation.getType()) {
+      case SET:
+        var values = rows.stream().map(UserAttributeEntity::getValue)
+            .collect(Collectors.toList());
+        if (values.equals(operation.getValues())) {
+          return false;
+        }
+        remove(user, rows, List.copyOf(rows));
+        operation.getValues().forEach(value -> rows.add(persist(user, operation, value)));
+        return true;
+      case REMOVE:
+        var removed = operation.getValues().isEmpty() ? List.copyOf(rows) : rows.stream()
+            .filter(row -> operation.getValues().contains(row.getValue()))
+            .collect(Collectors.toList());
+        remove(user, rows, removed);
+        return !removed.isEmpty();
+      case REPLACE:
+        var replaced = rows.stream()
+            .filter(row -> Objects.equals(row.getValue(), operation.getFrom()))
+            .collect(Collectors.toList());
+        replaced.forEach(row -> row.setValue(operation.getTo()));
+        return !replaced.isEmpty();
+      default:
+        throw new IllegalArgumentException("Unsupported operation " + operation.getType());
+    }
+  }
+
+  private UserAttributeEntity persist(UserEntity user, Operation operation, String value) {
+    var row = new UserAttributeEntity();
+    row.setId(KeycloakModelUtils.generateId());
+    row.setName(operation.getAttribute());
+    row.setValue(value);
+    row.setUser(user);
+    em.persist(row);
+    if (isAttributesLoaded(user)) {
+      user.getAttributes().add(row);
+    }
+    return row;
+  }
+
+  private void remove(UserEntity user, List<UserAttributeEntity> rows,
+      List<UserAttributeEntity> removed) {
+    removed.forEach(em::remove);
+    rows.removeAll(removed);
+    if (isAttributesLoaded(user)) {
+      user.getAttributes().removeAll(removed);
+    }
+  }
+
+  /**
+   * The attributes collection of a user loaded earlier in the session is kept in sync, so the
+   * rest of the request sees the new values.
+   */
+  private boolean isAttributesLoaded(UserEntity user) {
+    return em.getEntityManagerFactory().getPersistenceUnitUtil().isLoaded(user, "attributes");
+  }
+
+  private Map<String, UserEntity> findUsers(String realmId, List<String> userIds) {
+    if (userIds.isEmpty()) {
+      return Map.of();
+    }
+    return em.createQuery("select u from UserEntity u where u.realmId = :realmId "
+            + "and u.id in :userIds", UserEntity.class)
+        .setParameter("realmId", realmId)
+        .setParameter("userIds", userIds)
+        .getResultStream()
+        .collect(Collectors.toMap(UserEntity::getId, Function.identity(), (first, second) -> first,
+            LinkedHashMap::new));
+  }
+
+  /**
+   * Loads rows of the attributes affected by the operations grouped by user id and attribute
+   * name.
+   */
+  private Map<String, Map<String, List<UserAttributeEntity>>> findAttributes(
+      Collection<String> userIds, List<Operation> operations) {
+    var names = operations.stream().map(Operation::getAttribute).collect(Collectors.toSet());
+    return em.createQuery("select a from UserAttributeEntity a where a.user.id in :userIds "
+            + "and a.name in :names order by a.id", UserAttributeEntity.class)
+        .setParameter("userIds", userIds)
+        .setParameter("names", names)
+        .getResultStream()
+        .collect(Collectors.groupingBy(row -> row.getUser().getId(),
+            Collectors.groupingBy(UserAttributeEntity::getName, HashMap::new,
+                Collectors.toCollection(ArrayList::new))));
+  }
+
+  /**
+   * Executes the changes and flushes them with JDBC batching enabled for the session, the
+   * previous batch size is restored afterwards.
+   */
+  private <T> T withJdbcBatchSize(Supplier<T> changes) {
+    var hibernateSession = em.unwrap(Session.class);
+    var previousBatchSize = hibernateSession.getJdbcBatchSize();
+    hibernateSession.setJdbcBatchSize(policy.getBatchSize());
+    try {
+      var result = changes.get();
+      em.flush();
+      return result;
+    } finally {
+      hibernateSession.setJdbcBatchSize(previousBatchSize);
+    }
+  }
+
+  @Getter
+  @RequiredArgsConstructor
+  public static class Result {
+
+    private final List<UserEntity> updatedUsers;
+    private final List<String> notFoundUserIds;
+  }
+
+  /**
+   * Limits of the bulk updates: max count of users changed by one request and count of statements
+   * sent to the database in one JDBC batch.
+   */
+  @Builder
+  @Getter
+  public static class Policy {
+
+    @Builder.Default
+    private final int maxUsers = 1000;
+    @Builder.Default
+    private final int batchSize = 100;
+
+    public static Policy create(Scope scope) {
+      var defaults = Policy.builder().build();
+      return Policy.builder()
+          .maxUsers(scope.getInt("bulkUpdateMaxUsers", defaults.getMaxUsers()))
+          .batchSize(scope.getInt("bulkUpdateBatchSize", defaults.getBatchSize()))
+          .build();
+    }
+  }
+}
@@ -0,0 +1,489 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.bulk;
+
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.UserImportRecordDto;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.UserImportResponseDto;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.UserImportResponseDto.RecordError;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.jboss.logging.Logger;
+import org.keycloak.Config.Scope;
+import org.keycloak.common.util.Time;
+import org.keycloak.models.ClientModel;
+import org.keycloak.models.GroupModel;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.RequiredActionProviderModel;
+import org.keycloak.models.RoleModel;
+import org.keycloak.models.jpa.entities.UserAttributeEntity;
+import org.keycloak.models.jpa.entities.UserEntity;
+import org.keycloak.models.jpa.entities.UserGroupMembershipEntity;
+import org.keycloak.models.jpa.entities.UserRequiredActionEntity;
+import org.keycloak.models.jpa.entities.UserRoleMappingEntity;
+import org.keycloak.models.utils.KeycloakModelUtils;
+import org.keycloak.util.JsonSerialization;
+
+/**
+ * Imports users from an NDJSON body, one {@link UserImportRecordDto} per line.
+ * <p>
+ * The body is read as a stream and the records are imported in batches of
+ * {@link Policy#getBatchSize() batchSize}, each batch in its own transaction, so memory use and
+ * lock time don't grow with the size of the body and a failed batch doesn't roll back the batches
+ * imported before it. Within a batch the taken usernames and emails are checked by one query
+ * each, the rows are written with JDBC batches and the persistence context is flushed and cleared
+ * every {@link Policy#getJdbcBatchSize() jdbcBatchSize} records.
+ * <p>
+ * Imported users get the default role, groups and required actions of the realm, the same as
+ * users created through the Admin API. Credentials aren't imported.
+ */
+public class UserImport {
+
+  public static final String NDJSON = "application/x-ndjson";
+
+  private static final Logger LOGGER = Logger.getLogger(UserImport.class);
+
+  private final Policy policy;
+
+  public UserImport(Policy policy) {
+    this.policy = policy;
+  }
+
+  /**
+   * Reads the records of the body and passes them to the importer in batches. Progress is logged
+   * after every batch.
+   *
+   * @param realmName name of the realm the users are imported to
+   * @param body      NDJSON body, blank lines are skipped
+   * @param importer  imports a batch of records in its own transaction
+   * @return counts of the records, throughput and errors of the records that weren't imported
+   */
+  public UserImportResponseDto importUsers(String realmName, InputStream body,
+      BatchImporter importer) {
+    var progress = new Progress(realmName, policy.getMaxReportedErrors());
+    var batch = new ArrayList<Record>(policy.getBatchSize());
+    var lineNumber = 0L;
+    try (var reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+      String line;
+      while (Objects.nonNull(line = reader.readLine())) {
+        lineNumber++;
+        if (line.isBlank()) {
+          continue;
+        }
+        var user = readRecord(line);
+        if (Objects.isNull(user)) {
+          progress.addMalformed(lineNumber);
+        } else {
+          batch.add(new Record(lineNumber, user));
+        }
+        if (batch.size() >= policy.getBatchSize()) {
+          importBatch(batch, importer, progress);
+          batch.clear();
+        }
+      }
+    } catch (IOException e) {
+      LOGGER.warnf(e, "Reading of users import to realm %s failed", realmName);
+      progress.addError(RecordError.builder().line(lineNumber + 1)
+          .error("Body can't be read, import stopped").build());
+    }
+    if (!batch.isEmpty()) {
+      importBatch(batch, importer, progress);
+    }
+    return progress.toResponse();
+  }
+
+  private static UserImportRecordDto readRecord(String line) {
+    try {
+      return JsonSerialization.readValue(line, UserImportRecordDto.class);
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  private void importBatch(List<Record> batch, BatchImporter importer, Progress progress) {
+    BatchResult result;
+    try {
+      result = importer.importBatch(List.copyOf(batch));
+    } catch (RuntimeException e) {
+      LOGGER.warnf(e, "Import of %d users to realm %s failed", batch.size(),
+          progress.realmName);
+      result = new BatchResult(List.of(), batch.stream()
+          .map(record -> error(record, "Batch wasn't imported: " + e.getMessage()))
+          .collect(Collectors.toList()), 0L);
+    }
+    progress.add(batch.size(), result);
+  }
+
+  /**
+   * Creates users of the valid records of the batch in the given entity manager. A record is
+   * rejected if it has no username, its username or email is taken, or it lists an unknown role.
+   *
+   * @param em      entity manager of the batch transaction
+   * @param realm   realm the users are imported to
+   * @param records records of the batch
+   * @return ids of the created users, errors of the rejected records and count of inserted rows
+   */
+  public BatchResult importBatch(EntityManager em, RealmModel realm, List<Record> records) {
+    var takenUsernames = findTaken(em, "username", realm.getId(), records.stream()
+        .map(record -> KeycloakModelUtils.toLowerCaseSafe(record.getUser().getUsername()))
+        .filter(Objects::nonNull)
+        .collect(Collectors.toSet()));
+    var takenEmails = realm.isDuplicateEmailsAllowed() ? null : findTaken(em, "email",
+        realm.getId(), records.stream()
+            .map(record -> KeycloakModelUtils.toLowerCaseSafe(record.getUser().getEmail()))
+            .filter(Objects::nonNull)
+            .collect(Collectors.toSet()));
+    // everything read from the realm is resolved before the persistence context is cleared
+    var roleIds = resolveRoleIds(realm, records);
+    var defaultRole = realm.getDefaultRole();
+    var defaultRoleIds = Objects.isNull(defaultRole) ? List.<String>of()
+        : List.of(defaultRole.getId());
+    var defaultGroupIds = realm.getDefaultGroupsStream().map(GroupModel::getId)
+        .collect(Collectors.toList());
+    var defaultActions = realm.getRequiredActionProvidersStream()
+        .filter(action -> action.isEnabled() && action.isDefaultAction())
+        .map(RequiredActionProviderModel::getAlias)
+        .collect(Collectors.toList());
+
+    var createdUserIds = new ArrayList<String>();
+    var errors = new ArrayList<RecordError>();
+    var insertedRows = 0L;
+    var chunk = new ArrayList<NewUser>();
+    var hibernateSession = em.unwrap(Session.class);
+    var previousBatchSize = hibernateSession.getJdbcBatchSize();
+    hibernateSession.setJdbcBatchSize(policy.getJdbcBatchSize());
+    try {
+      for (var record : records) {
+        var dto = record.getUser();
+        var username = KeycloakModelUtils.toLowerCaseSafe(dto.getUsername());
+        var email = KeycloakModelUtils.toLowerCaseSafe(dto.getEmail());
+        var roleKeys = roleKeys(dto);
+        var unknownRole = roleKeys.stream().filter(key -> Objects.isNull(roleIds.get(key)))
+            .findFirst();
+        if (Objects.isNull(username) || username.isBlank()) {
+          errors.add(error(record, "Username must be set"));
+        } else if (takenUsernames.contains(username)) {
+          errors.add(error(record, "Username already exists"));
+        } else if (Objects.nonNull(email) && Objects.nonNull(takenEmails)
+            && takenEmails.contains(email)) {
+          errors.add(error(record, "Email already exists"));
+        } else if (unknownRole.isPresent()) {
+          errors.add(error(record, "Role " + unknownRole.get() + " not found"));
+        } else {
+          takenUsernames.add(username);
+          if (Objects.nonNull(email) && Objects.nonNull(takenEmails)) {
+            takenEmails.add(email);
+          }
+          var userRoleIds = new LinkedHashSet<>(defaultRoleIds);
+          roleKeys.forEach(key -> userRoleIds.add(roleIds.get(key)));
+          var user = newUser(realm, dto, username, email);
+          chunk.add(new NewUser(user, dto.getAttributes(), userRoleIds));
+          createdUserIds.add(user.getId());
+          if (chunk.size() == policy.getJdbcBatchSize()) {
+            insertedRows += persistChunk(em, chunk, defaultGroupIds, defaultActions);
+          }
+        }
+      }
+      insertedRows += persistChunk(em, chunk, defaultGroupIds, defaultActions);
+    } finally {
+      hibernateSession.setJdbcBatchSize(previousBatchSize);
+    }
+    return new BatchResult(createdUserIds, errors, insertedRows);
+  }
+
+  /**
+   * Persists the chunk table by table, so Hibernate sends the inserts of each table as a single
+   * JDBC batch, then flushes and clears the persistence context. The chunk is emptied.
+   *
+   * @return count of inserted rows
+   */
+  private static long persistChunk(EntityManager em, List<NewUser> chunk,
+      List<String> defaultGroupIds, List<String> defaultActions) {
+    if (chunk.isEmpty()) {
+      return 0L;
+    }
+    chunk.forEach(newUser -> em.persist(newUser.entity));
+    long insertedRows = chunk.size();
+    for (var newUser : chunk) {
+      insertedRows += persistAttributes(em, newUser.entity, newUser.attributes);
+    }
+    for (var newUser : chunk) {
+      newUser.roleIds.forEach(roleId -> persistRoleMapping(em, newUser.entity, roleId));
+      insertedRows += newUser.roleIds.size();
+    }
+    for (var newUser : chunk) {
+      defaultGroupIds.forEach(groupId -> persistGroupMembership(em, newUser.entity, groupId));
+      insertedRows += defaultGroupIds.size();
+    }
+    for (var newUser : chunk) {
+      defaultActions.forEach(action -> persistRequiredAction(em, newUser.entity, action));
+      insertedRows += defaultActions.size();
+    }
+    em.flush();
+    em.clear();
+    chunk.clear();
+    return insertedRows;
+  }
+
+  private static UserEntity newUser(RealmModel realm, UserImportRecordDto dto, String username,
+      String email) {
+    var user = new UserEntity();
+    user.setId(KeycloakModelUtils.generateId());
+    user.setUsername(username);
+    user.setEmail(email, realm.isDuplicateEmailsAllowed());
+    user.setFirstName(dto.getFirstName());
+    user.setLastName(dto.getLastName());
+    user.setEnabled(!Boolean.FALSE.equals(dto.getEnabled()));
+    user.setEmailVerified(Boolean.TRUE.equals(dto.getEmailVerified()));
+    user.setCreatedTimestamp(Time.currentTimeMillis());
+    user.setRealmId(realm.getId());
+    return user;
+  }
+
+  private static int persistAttributes(EntityManager em, UserEntity user,
+      Map<String, List<String>> attributes) {
+    var count = 0;
+    for (var attribute : attributes.entrySet()) {
+      for (var value : attribute.getValue()) {
+        var row = new UserAttributeEntity();
+        row.setId(KeycloakModelUtils.generateId());
+        row.setUser(user);
+        row.setName(attribute.getKey());
+        row.setValue(value);
+        em.persist(row);
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static void persistRoleMapping(EntityManager em, UserEntity user, String roleId) {
+    var mapping = new UserRoleMappingEntity();
+    mapping.setUser(user);
+    mapping.setRoleId(roleId);
+    em.persist(mapping);
+  }
+
+  private static void persistGroupMembership(EntityManager em, UserEntity user, String groupId) {
+    var membership = new UserGroupMembershipEntity();
+    membership.setUser(user);
+    membership.setGroupId(groupId);
+    em.persist(membership);
+  }
+
+  private static void persistRequiredAction(EntityManager em, UserEntity user, String action) {
+    var requiredAction = new UserRequiredActionEntity();
+    requiredAction.setUser(user);
+    requiredAction.setAction(action);
+    em.persist(requiredAction);
+  }
+
+  /**
+   * Returns values of the user field that are already taken in the realm, as a mutable set the
+   * values of the imported users are added to.
+   */
+  private static Set<String> findTaken(EntityManager em, String field, String realmId,
+      Set<String> values) {
+    if (values.isEmpty()) {
+      return new HashSet<>();
+    }
+    return new HashSet<>(em.createQuery("select u." + field + " from UserEntity u "
+            + "where u.realmId = :realmId and u." + field + " in :values", String.class)
+        .setParameter("realmId", realmId)
+        .setParameter("values", values)
+        .getResultList());
+  }
+
+  /**
+   * Resolves the roles listed by the records once per batch. Realm roles are keyed by name and
+   * client roles by {@code clientId/name}, an unknown role is mapped to {@code null}.
+   */
+  private static Map<String, String> resolveRoleIds(RealmModel realm, List<Record> records) {
+    var roleIds = new HashMap<String, String>();
+    var clients = new HashMap<String, ClientModel>();
+    for (var record : records) {
+      record.getUser().getRealmRoles().forEach(name -> roleIds.computeIfAbsent(name,
+          key -> roleId(realm.getRole(name))));
+      record.getUser().getClientRoles().forEach((clientId, names) -> {
+        var client = clients.computeIfAbsent(clientId, realm::getClientByClientId);
+        names.forEach(name -> roleIds.computeIfAbsent(clientId + "/" + name,
+            key -> Objects.isNull(client) ? null : roleId(client.getRole(name))));
+      });
+    }
+    return roleIds;
+  }
+
+  private static Collection<String> roleKeys(UserImportRecordDto dto) {
+    var keys = new ArrayList<>(dto.getRealmRoles());
+    dto.getClientRoles().forEach((clientId, names) ->
+        names.forEach(name -> keys.add(clientId + "/" + name)));
+    return keys;
+  }
+
+  private static String roleId(RoleModel role) {
+    return Objects.isNull(role) ? null : role.getId();
+  }
+
+  private static RecordError error(Record record, String error) {
+    return RecordError.builder()
+        .line(record.getLine())
+        .username(record.getUser().getUsername())
+        .error(error)
+        .build();
+  }
+
+  @RequiredArgsConstructor
+  private static class NewUser {
+
+    private final UserEntity entity;
+    private final Map<String, List<String>> attributes;
+    private final Collection<String> roleIds;
+  }
+
+  /**
+   * Imports a batch of records in its own transaction.
+   */
+  @FunctionalInterface
+  public interface BatchImporter {
+
+    BatchResult importBatch(List<Record> records);
+  }
+
+  @Getter
+  @RequiredArgsConstructor
+  public static class Record {
+
+    private final long line;
+    private final UserImportRecordDto user;
+  }
+
+  @Getter
+  @RequiredArgsConstructor
+  public static class BatchResult {
+
+    private final List<String> createdUserIds;
+    private final List<RecordError> errors;
+    private final long insertedRows;
+  }
+
+  /**
+   * Counters of an import. Only the first {@code maxReportedErrors} errors are kept, the rest are
+   * only counted.
+   */
+  private static class Progress {
+
+    private final String realmName;
+    private final int maxReportedErrors;
+    private final long startNanos = System.nanoTime();
+    private final List<RecordError> errors = new ArrayList<>();
+    private long processed;
+    private long created;
+    private long failed;
+    private long insertedRows;
+
+    private Progress(String realmName, int maxReportedErrors) {
+      this.realmName = realmName;
+      this.maxReportedErrors = maxReportedErrors;
+    }
+
+    private void addMalformed(long line) {
+      processed++;
+      addError(RecordError.builder().line(line).error("Malformed record").build());
+    }
+
+    private void addError(RecordError error) {
+      failed++;
+      if (errors.size() < maxReportedErrors) {
+        errors.add(error);
+      }
+    }
+
+    private void add(int batchSize, BatchResult result) {
+      processed += batchSize;
+      created += result.getCreatedUserIds().size();
+      insertedRows += result.getInsertedRows();
+      result.getErrors().forEach(this::addError);
+      LOGGER.infof("Users import to realm %s: %d records processed, %d created, %d failed, "
+          + "%.0f rows/s", realmName, processed, created, failed, rowsPerSecond());
+    }
+
+    private long durationMillis() {
+      return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private double rowsPerSecond() {
+      return insertedRows * 1000.0 / Math.max(1L, durationMillis());
+    }
+
+    private UserImportResponseDto toResponse() {
+      return UserImportResponseDto.builder()
+          .processed(processed)
+          .created(created)
+          .failed(failed)
+          .insertedRows(insertedRows)
+          .durationMillis(durationMillis())
+          .rowsPerSecond(rowsPerSecond())
+          .errors(List.copyOf(errors))
+          .build();
+    }
+  }
+
+  /**
+   * Limits of the user import: records imported in one transaction, statements sent to the
+   * database in one JDBC batch and errors reported in the response.
+   */
+  @Builder
+  @Getter
+  public static class Policy {
+
+    @Builder.Default
+    private final int batchSize = 500;
+    @Builder.Default
+    private final int jdbcBatchSize = 100;
+    @Builder.Default
+    private final int maxReportedErrors = 100;
+
+    public static Policy create(Scope scope) {
+      var defaults = Policy.builder().build();
+      return Policy.builder()
+          .batchSize(scope.getInt("importBatchSize", defaults.getBatchSize()))
+          .jdbcBatchSize(scope.getInt("importJdbcBatchSize", defaults.getJdbcBatchSize()))
+          .maxReportedErrors(scope.getInt("importMaxReportedErrors",
+              defaults.getMaxReportedErrors()))
+          .build();
+    }
+  }
+}
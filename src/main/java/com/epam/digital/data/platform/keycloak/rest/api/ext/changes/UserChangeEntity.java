@@ -0,0 +1,62 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.changes;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Entry of the change feed: which user of the realm was changed and how. The state of the user
+ * itself isn't stored, consumers read it by the regular endpoints. The id is the cursor of the
+ * feed.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "USERS_EXT_USER_CHANGE", indexes = {
+    @Index(name = "IDX_USERS_EXT_USER_CHANGE_REALM", columnList = "REALM_ID, ID"),
+    @Index(name = "IDX_USERS_EXT_USER_CHANGE_TIME", columnList = "CHANGED_AT")})
+public class UserChangeEntity {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @Column(name = "ID")
+  private Long id;
+
+  @Column(name = "REALM_ID", length = 36, nullable = false)
+  private String realmId;
+
+  @Column(name = "USER_ID", nullable = false)
+  private String userId;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "CHANGE_TYPE", length = 32, nullable = false)
+  private UserChangeType type;
+
+  @Column(name = "CHANGED_AT", nullable = false)
+  private long changedAt;
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.changes;
+
+import java.util.List;
+import java.util.Objects;
+import javax.persistence.EntityManager;
+import lombok.Builder;
+import lombok.Getter;
+import org.keycloak.Config.Scope;
+import org.keycloak.common.util.Time;
+import org.keycloak.connections.jpa.JpaConnectionProvider;
+import org.keycloak.models.KeycloakSession;
+
+/**
+ * Change feed of the users stored in {@link UserChangeEntity} table.
+ * <p>
+ * Entries are appended in the transaction that changes the user, so an entry is visible exactly
+ * when the change is. Ids are generated by the database in insertion order, but concurrent
+ * transactions may commit out of that order, so an entry is read only once it's older than the
+ * settle time. A consumer that stores the last read id as its cursor doesn't skip entries of
+ * transactions that commit within that time.
+ */
+public class UserChangeFeed {
+
+  private final EntityManager em;
+
+  public UserChangeFeed(EntityManager em) {
+    this.em = em;
+  }
+
+  public static UserChangeFeed of(KeycloakSession session) {
+    return new UserChangeFeed(session.getProvider(JpaConnectionProvider.class).getEntityManager());
+  }
+
+  public void append(String realmId, String userId, UserChangeType type, long changedAt) {
+    var change = new UserChangeEntity();
+    change.setRealmId(realmId);
+    change.setUserId(userId);
+    change.setType(type);
+    change.setChangedAt(changedAt);
+    em.persist(change);
+  }
+
+  /**
+   * Reads entries of the realm after the cursor in the order they were appended.
+   *
+   * @param realmId       realm of the changed users
+   * @param since         id of the last entry the consumer has read, {@code 0} to read from the
+   *                      oldest retained entry
+   * @param maxResults    max count of returned entries
+   * @param changedBefore entries appended at or after this time aren't read yet
+   */
+  public List<UserChangeEntity> read(String realmId, long since, int maxResults,
+      long changedBefore) {
+    return em.createQuery("select c from UserChangeEntity c where c.realmId = :realmId "
+            + "and c.id > :since and c.changedAt < :changedBefore order by c.id",
+            UserChangeEntity.class)
+        .setParameter("realmId", realmId)
+        .setParameter("since", since)
+        .setParameter("changedBefore", changedBefore)
+        .setMaxResults(maxResults)
+        .getResultList();
+  }
+
+  /**
+   * Removes entries appended before the given time.
+   *
+   * @return count of removed entries
+   */
+  public int removeOlderThan(long changedBefore) {
+    return em.createQuery("delete from UserChangeEntity c where c.changedAt < :changedBefore")
+        .setParameter("changedBefore", changedBefore)
+        .executeUpdate();
+  }
+
+  /**
+   * Limits of the change feed reads: max count of entries returned by one read and time an entry
+   * has to settle before it's read.
+   */
+  @Builder
+  @Getter
+  public static class Policy {
+
+    @Builder.Default
+    private final int maxResults = 1000;
+    @Builder.Default
+    private final long settleMillis = 5000L;
+
+    public static Policy create(Scope scope) {
+      var defaults = Policy.builder().build();
+      return Policy.builder()
+          .maxResults(scope.getInt("changeFeedMaxResults", defaults.getMaxResults()))
+          .settleMillis(scope.getLong("changeFeedSettleMillis", defaults.getSettleMillis()))
+          .build();
+    }
+
+    /**
+     * Reads entries of the realm after the cursor, at most the requested count capped by
+     * {@link #getMaxResults() maxResults}.
+     */
+    public List<UserChangeEntity> read(UserChangeFeed feed, String realmId, Long since,
+        Integer requestedMaxResults) {
+      var maxResults = Objects.isNull(requestedMaxResults) || requestedMaxResults <= 0
+          ? this.maxResults : Math.min(requestedMaxResults, this.maxResults);
+      return feed.read(realmId, Objects.requireNonNullElse(since, 0L), maxResults,
+          Time.currentTimeMillis() - settleMillis);
+    }
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.changes;
+
+import java.util.List;
+import org.keycloak.connections.jpa.entityprovider.JpaEntityProvider;
+
+/**
+ * Registers the change feed table, it's created by the Liquibase changelog of the extension.
+ */
+public class UserChangeFeedEntityProvider implements JpaEntityProvider {
+
+  @Override
+  public List<Class<?>> getEntities() {
+    return List.of(UserChangeEntity.class);
+  }
+
+  @Override
+  public String getChangelogLocation() {
+    return "META-INF/users-ext-changelog.xml";
+  }
+
+  @Override
+  public String getFactoryId() {
+    return UserChangeFeedEntityProviderFactory.ID;
+  }
+
+  @Override
+  public void close() {
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.changes;
+
+import com.epam.digital.data.platform.keycloak.rest.api.ext.event.UserEvents;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+import org.keycloak.events.Event;
+import org.keycloak.events.EventListenerProvider;
+import org.keycloak.events.EventType;
+import org.keycloak.events.admin.AdminEvent;
+import org.keycloak.events.admin.OperationType;
+import org.keycloak.models.KeycloakSession;
+
+/**
+ * Appends changes of users, their attributes, role mappings and group memberships to
+ * {@link UserChangeFeed}. Removal of users is recorded by
+ * {@link UserChangeFeedEventListenerProviderFactory} on {@code UserRemovedEvent}, which covers
+ * all the ways a user can be removed.
+ */
+public class UserChangeFeedEventListenerProvider implements EventListenerProvider {
+
+  private static final Set<EventType> USER_UPDATING_EVENTS = EnumSet.of(
+      EventType.UPDATE_PROFILE, EventType.UPDATE_EMAIL, EventType.VERIFY_EMAIL,
+      EventType.FEDERATED_IDENTITY_LINK, EventType.REMOVE_FEDERATED_IDENTITY,
+      EventType.IDENTITY_PROVIDER_FIRST_LOGIN, EventType.IDENTITY_PROVIDER_LINK_ACCOUNT);
+
+  private final KeycloakSession session;
+
+  public UserChangeFeedEventListenerProvider(KeycloakSession session) {
+    this.session = session;
+  }
+
+  @Override
+  public void onEvent(Event event) {
+    var type = toChangeType(event);
+    if (Objects.nonNull(type) && Objects.nonNull(event.getUserId())) {
+      UserChangeFeed.of(session).append(event.getRealmId(), event.getUserId(), type,
+          event.getTime());
+    }
+  }
+
+  @Override
+  public void onEvent(AdminEvent event, boolean includeRepresentation) {
+    var type = toChangeType(event);
+    if (Objects.nonNull(type)) {
+      UserEvents.getUserId(event).ifPresent(userId -> UserChangeFeed.of(session)
+          .append(event.getRealmId(), userId, type, event.getTime()));
+    }
+  }
+
+  @Override
+  public void close() {
+  }
+
+  private static UserChangeType toChangeType(Event event) {
+    if (EventType.REGISTER.equals(event.getType())) {
+      return UserChangeType.CREATED;
+    }
+    return USER_UPDATING_EVENTS.contains(event.getType()) || UserEvents.isBrokeredLogin(event)
+        ? UserChangeType.UPDATED : null;
+  }
+
+  private static UserChangeType toChangeType(AdminEvent event) {
+    switch (event.getResourceType()) {
+      case USER:
+        if (OperationType.CREATE.equals(event.getOperationType())) {
+          return UserChangeType.CREATED;
+        }
+        return OperationType.DELETE.equals(event.getOperationType())
+            ? null : UserChangeType.UPDATED;
+      case REALM_ROLE_MAPPING:
+      case CLIENT_ROLE_MAPPING:
+        return UserChangeType.ROLE_MAPPINGS_UPDATED;
+      case GROUP_MEMBERSHIP:
+        return UserChangeType.GROUPS_UPDATED;
+      default:
+        return null;
+    }
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.changes;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import lombok.Builder;
+import lombok.Getter;
+import org.jboss.logging.Logger;
+import org.keycloak.Config.Scope;
+import org.keycloak.common.util.Time;
+import org.keycloak.events.EventListenerProvider;
+import org.keycloak.events.EventListenerProviderFactory;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.UserModel.UserRemovedEvent;
+import org.keycloak.models.utils.KeycloakModelUtils;
+import org.keycloak.timer.TimerProvider;
+
+/**
+ * Event listener that must be enabled in the realm's events config for the extension to record
+ * changes of the realm users to the change feed. Entries older than
+ * {@link Config#getRetentionHours() retentionHours} are removed periodically.
+ */
+public class UserChangeFeedEventListenerProviderFactory implements EventListenerProviderFactory {
+
+  public static final String ID = "users-ext-change-feed";
+
+  private static final Logger LOGGER = Logger.getLogger(
+      UserChangeFeedEventListenerProviderFactory.class);
+
+  private Config config;
+
+  @Override
+  public EventListenerProvider create(KeycloakSession session) {
+    return new UserChangeFeedEventListenerProvider(session);
+  }
+
+  @Override
+  public void init(Scope scope) {
+    config = Config.create(scope);
+  }
+
+  @Override
+  public void postInit(KeycloakSessionFactory factory) {
+    factory.register(event -> {
+      if (event instanceof UserRemovedEvent) {
+        var userRemovedEvent = (UserRemovedEvent) event;
+        var realm = userRemovedEvent.getRealm();
+        if (realm.getEventsListenersStream().anyMatch(ID::equals)) {
+          UserChangeFeed.of(userRemovedEvent.getKeycloakSession()).append(realm.getId(),
+              userRemovedEvent.getUser().getId(), UserChangeType.DELETED,
+              Time.currentTimeMillis());
+        }
+      }
+    });
+    if (config.getRetentionHours() > 0 && config.getCleanupIntervalMinutes() > 0) {
+      KeycloakModelUtils.runJobInTransaction(factory, session -> {
+        var timer = session.getProvider(TimerProvider.class);
+        if (Objects.isNull(timer)) {
+          LOGGER.warn("Timer provider isn't available, change feed entries aren't removed");
+          return;
+        }
+        timer.scheduleTask(this::removeExpiredChanges,
+            TimeUnit.MINUTES.toMillis(config.getCleanupIntervalMinutes()), ID + "-cleanup");
+      });
+    }
+  }
+
+  @Override
+  public void close() {
+  }
+
+  @Override
+  public String getId() {
+    return ID;
+  }
+
+  void removeExpiredChanges(KeycloakSession session) {
+    var removed = UserChangeFeed.of(session).removeOlderThan(
+        Time.currentTimeMillis() - TimeUnit.HOURS.toMillis(config.getRetentionHours()));
+    LOGGER.debugf("Removed %d expired change feed entries", removed);
+  }
+
+  /**
+   * Retention of the change feed, {@code 0} keeps the entries forever.
+   */
+  @Builder
+  @Getter
+  public static class Config {
+
+    @Builder.Default
+    private final long retentionHours = 168L;
+    @Builder.Default
+    private final long cleanupIntervalMinutes = 60L;
+
+    public static Config create(Scope scope) {
+      var defaults = Config.builder().build();
+      return Config.builder()
+          .retentionHours(scope.getLong("retentionHours", defaults.getRetentionHours()))
+          .cleanupIntervalMinutes(scope.getLong("cleanupIntervalMinutes",
+              defaults.getCleanupIntervalMinutes()))
+          .build();
+    }
+  }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.changes;
+
+/**
+ * Kind of change of a user recorded in the change feed. Attribute changes are recorded as
+ * {@link #UPDATED}.
+ */
+public enum UserChangeType {
+  CREATED,
+  UPDATED,
+  DELETED,
+  ROLE_MAPPINGS_UPDATED,
+  GROUPS_UPDATED
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.dto;
+
+import java.util.List;
+import java.util.Map;
+import lombok.Builder;
+import lombok.Getter;
+
+@Builder
+@Getter
+public class AttributeIndexStatsResponseDto {
+
+  private final boolean enabled;
+  private final List<String> attributes;
+  private final boolean built;
+  private final Long builtAt;
+  private final int users;
+  private final Map<String, Integer> values;
+  private final int pendingUsers;
+  private final long postingBytes;
+  private final long userBytes;
+  private final long totalBytes;
+  private final long lookups;
+  private final long fallbacks;
+  private final long rebuilds;
+  private final long refreshedUsers;
+}
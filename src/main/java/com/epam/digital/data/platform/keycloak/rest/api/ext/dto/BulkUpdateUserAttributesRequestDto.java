@@ -0,0 +1,77 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.dto;
+
+import java.util.List;
+import java.util.Objects;
+import javax.annotation.Nonnull;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Request of the bulk attribute update: the operations are applied in the listed order to every
+ * user of {@code userIds} in one transaction.
+ */
+@Setter
+public class BulkUpdateUserAttributesRequestDto {
+
+  private List<String> userIds;
+  private List<Operation> operations;
+
+  @Nonnull
+  public List<String> getUserIds() {
+    return List.copyOf(Objects.requireNonNullElse(userIds, List.of()));
+  }
+
+  @Nonnull
+  public List<Operation> getOperations() {
+    return List.copyOf(Objects.requireNonNullElse(operations, List.of()));
+  }
+
+  /**
+   * Change of one attribute:
+   * <ul>
+   *   <li>{@code SET} - the attribute gets exactly the {@code values};</li>
+   *   <li>{@code REMOVE} - the {@code values} are removed from the attribute, or the whole
+   *   attribute if no values are listed;</li>
+   *   <li>{@code REPLACE} - the {@code from} value of the attribute is replaced with the
+   *   {@code to} value, users that don't have the {@code from} value aren't changed.</li>
+   * </ul>
+   */
+  @Setter
+  @Getter
+  public static class Operation {
+
+    private OperationType type;
+    private String attribute;
+    private List<String> values;
+    private String from;
+    private String to;
+
+    @Nonnull
+    public List<String> getValues() {
+      return List.copyOf(Objects.requireNonNullElse(values, List.of()));
+    }
+  }
+
+  public enum OperationType {
+    SET,
+    REMOVE,
+    REPLACE
+  }
+}
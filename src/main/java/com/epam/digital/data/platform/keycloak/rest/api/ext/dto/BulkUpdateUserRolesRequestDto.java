@@ -0,0 +1,51 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.dto;
+
+import java.util.List;
+import java.util.Objects;
+import javax.annotation.Nonnull;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Request of the bulk role mapping update: the realm role {@code roleName}, or the client role of
+ * {@code clientId} if it's set, is granted to or revoked from the users. The users are listed by
+ * {@code userIds} or selected by {@code filter} the same way as by
+ * {@code search-by-role-and-attributes}, including its pagination.
+ */
+@Setter
+@Getter
+public class BulkUpdateUserRolesRequestDto {
+
+  private Action action;
+  private String roleName;
+  private String clientId;
+  private List<String> userIds;
+  private SearchUsersByRoleAndAttributesRequestDto filter;
+
+  @Nonnull
+  public List<String> getUserIds() {
+    return List.copyOf(Objects.requireNonNullElse(userIds, List.of()));
+  }
+
+  public enum Action {
+    GRANT,
+    REVOKE
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.dto;
+
+import java.util.List;
+import lombok.Builder;
+import lombok.Getter;
+
+@Builder
+@Getter
+public class BulkUpdateUserRolesResponseDto {
+
+  private final List<UserOutcome> users;
+
+  @Builder
+  @Getter
+  public static class UserOutcome {
+
+    private final String userId;
+    private final Outcome outcome;
+  }
+
+  /**
+   * Result of the request for one user: {@code UNCHANGED} means the user already had the granted
+   * role or didn't have the revoked one, {@code NOT_FOUND} - there is no such user in the realm.
+   */
+  public enum Outcome {
+    GRANTED,
+    REVOKED,
+    UNCHANGED,
+    NOT_FOUND
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.dto;
+
+import lombok.Builder;
+import lombok.Getter;
+
+@Builder
+@Getter
+public class RoleMembershipStatsResponseDto {
+
+  private final boolean enabled;
+  private final boolean built;
+  private final Long builtAt;
+  private final int users;
+  private final int roles;
+  private final int pendingUsers;
+  private final long bitmapBytes;
+  private final long userIdBytes;
+  private final long totalBytes;
+  private final long lookups;
+  private final long fallbacks;
+  private final long rebuilds;
+  private final long refreshedUsers;
+}
@@ -16,9 +16,11 @@
 
 package com.epam.digital.data.platform.keycloak.rest.api.ext.dto;
 
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import javax.annotation.Nonnull;
 import lombok.Getter;
 import lombok.Setter;
@@ -31,12 +33,65 @@ public class SearchUsersByRoleAndAttributesRequestDto {
   private String username;
   @Getter
   private String roleName;
+  private List<String> roleNames;
+  private RoleMatch roleMatch;
+  private List<String> groups;
+  private Boolean includeSubgroups;
   private Map<String, List<String>> attributesEquals;
   private Map<String, List<String>> attributesStartsWith;
   private Map<String, List<String>> attributesThatAreStartFor;
+  private Map<String, List<String>> attributesContains;
+  private List<String> attributesIgnoreCase;
 
   @Getter
   private OffsetPagination pagination = new OffsetPagination();
+  @Getter
+  private Integer timeBudgetMillis;
+
+  /**
+   * Returns names of the roles to search users by: {@code roleName} and {@code roleNames}
+   * combined without duplicates.
+   */
+  @Nonnull
+  public List<String> getRoleNames() {
+    var names = new LinkedHashSet<String>();
+    if (Objects.nonNull(roleName)) {
+      names.add(roleName);
+    }
+    names.addAll(Objects.requireNonNullElse(roleNames, List.of()));
+    return List.copyOf(names);
+  }
+
+  /**
+   * Returns whether {@code roleNames} contains a {@code null} or blank name, such a request can't
+   * be matched by role.
+   */
+  public boolean hasBlankRoleNames() {
+    return Objects.nonNull(roleNames)
+        && roleNames.stream().anyMatch(name -> Objects.isNull(name) || name.isBlank());
+  }
+
+  @Nonnull
+  public RoleMatch getRoleMatch() {
+    return Objects.requireNonNullElse(roleMatch, RoleMatch.ANY);
+  }
+
+  /**
+   * Returns ids or paths (starting with {@code /}) of the groups to search users by, a user must
+   * be a member of at least one of them.
+   */
+  @Nonnull
+  public List<String> getGroups() {
+    return List.copyOf(Objects.requireNonNullElse(groups, List.of()));
+  }
+
+  /**
+   * Returns whether members of the subgroups of {@link #getGroups() groups} at any depth are
+   * matched as well.
+   */
+  public boolean isIncludeSubgroups() {
+    return Boolean.TRUE.equals(includeSubgroups);
+  }
 
   @Nonnull
   public Map<String, List<String>> getAttributesEquals() {
@@ -53,6 +108,29 @@ public class SearchUsersByRoleAndAttributesRequestDto {
     return Map.copyOf(Objects.requireNonNullElse(attributesThatAreStartFor, Map.of()));
   }
 
+  @Nonnull
+  public Map<String, List<String>> getAttributesContains() {
+    return Map.copyOf(Objects.requireNonNullElse(attributesContains, Map.of()));
+  }
+
+  /**
+   * Returns names of the attributes whose values are matched case-insensitively by every
+   * predicate of the request.
+   */
+  @Nonnull
+  public Set<String> getAttributesIgnoreCase() {
+    return Set.copyOf(Objects.requireNonNullElse(attributesIgnoreCase, List.of()));
+  }
+
+  /**
+   * How users are matched by {@link #getRoleNames() roleNames}: {@code ANY} - user has at least one
+   * of the roles, {@code ALL} - user has every role.
+   */
+  public enum RoleMatch {
+    ANY,
+    ALL
+  }
+
   @Setter
   @Getter
   public static class OffsetPagination {
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.dto;
+
+import java.util.List;
+import java.util.Objects;
+import javax.annotation.Nonnull;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Request of attribute facets: users are filtered the same way as by
+ * {@link SearchUsersByRoleAndAttributesRequestDto} and counted per value of every requested
+ * attribute. Pagination of the filter is ignored, all the filtered users are counted.
+ */
+@Setter
+public class SearchUsersFacetsRequestDto extends SearchUsersByRoleAndAttributesRequestDto {
+
+  private List<Facet> facets;
+
+  @Nonnull
+  public List<Facet> getFacets() {
+    return List.copyOf(Objects.requireNonNullElse(facets, List.of()));
+  }
+
+  /**
+   * Attribute to count users by. If {@code prefixLength} is set values are bucketed by their first
+   * {@code prefixLength} characters, e.g. region codes by the region prefix.
+   */
+  @Setter
+  @Getter
+  public static class Facet {
+
+    private String attribute;
+    private Integer prefixLength;
+  }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.dto;
+
+import java.util.List;
+import java.util.Map;
+import lombok.Builder;
+import lombok.Getter;
+
+@Builder
+@Getter
+public class SearchUsersFacetsResponseDto {
+  private final List<FacetCounts> facets;
+
+  /**
+   * Count of the filtered users per value (or value prefix) of the attribute. A user with several
+   * values in one bucket is counted once.
+   */
+  @Builder
+  @Getter
+  public static class FacetCounts {
+
+    private final String attribute;
+    private final Integer prefixLength;
+    private final Map<String, Long> counts;
+  }
+}
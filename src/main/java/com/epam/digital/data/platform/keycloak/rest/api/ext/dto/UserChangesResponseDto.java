@@ -0,0 +1,44 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.dto;
+
+import com.epam.digital.data.platform.keycloak.rest.api.ext.changes.UserChangeType;
+import java.util.List;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Page of the change feed. {@code nextCursor} is the {@code since} value of the next request, it
+ * equals to the requested one if there are no new changes yet.
+ */
+@Builder
+@Getter
+public class UserChangesResponseDto {
+  private final List<Change> changes;
+  private final long nextCursor;
+
+  @Builder
+  @Getter
+  public static class Change {
+
+    private final long cursor;
+    private final String userId;
+    private final UserChangeType type;
+    private final long time;
+  }
+}
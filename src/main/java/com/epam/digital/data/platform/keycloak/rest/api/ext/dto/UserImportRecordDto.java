@@ -0,0 +1,79 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.dto;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import javax.annotation.Nonnull;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * One line of the NDJSON body of the user import. A user is enabled unless {@code enabled} is
+ * {@code false}; {@code clientRoles} maps client ids to names of their roles. {@code null}
+ * attribute values, role names and clients without roles are ignored.
+ */
+@Setter
+@Getter
+public class UserImportRecordDto {
+
+  private String username;
+  private String email;
+  private String firstName;
+  private String lastName;
+  private Boolean enabled;
+  private Boolean emailVerified;
+  private Map<String, List<String>> attributes;
+  private List<String> realmRoles;
+  private Map<String, List<String>> clientRoles;
+
+  @Nonnull
+  public Map<String, List<String>> getAttributes() {
+    return withoutNulls(attributes);
+  }
+
+  @Nonnull
+  public List<String> getRealmRoles() {
+    return withoutNulls(realmRoles);
+  }
+
+  @Nonnull
+  public Map<String, List<String>> getClientRoles() {
+    return withoutNulls(clientRoles);
+  }
+
+  private static List<String> withoutNulls(List<String> values) {
+    if (Objects.isNull(values)) {
+      return List.of();
+    }
+    return values.stream().filter(Objects::nonNull).collect(Collectors.toUnmodifiableList());
+  }
+
+  private static Map<String, List<String>> withoutNulls(Map<String, List<String>> values) {
+    if (Objects.isNull(values)) {
+      return Map.of();
+    }
+    return values.entrySet().stream()
+        .filter(entry -> Objects.nonNull(entry.getKey()) && Objects.nonNull(entry.getValue()))
+        .collect(Collectors.toUnmodifiableMap(Entry::getKey,
+            entry -> withoutNulls(entry.getValue())));
+  }
+}
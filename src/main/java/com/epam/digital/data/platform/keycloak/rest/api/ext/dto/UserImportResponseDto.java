@@ -0,0 +1,47 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.dto;
+
+import java.util.List;
+import lombok.Builder;
+import lombok.Getter;
+
+@Builder
+@Getter
+public class UserImportResponseDto {
+
+  private final long processed;
+  private final long created;
+  private final long failed;
+  private final long insertedRows;
+  private final long durationMillis;
+  private final double rowsPerSecond;
+  private final List<RecordError> errors;
+
+  /**
+   * Record that wasn't imported, {@code line} is the 1-based line of the record in the body.
+   */
+  @Builder
+  @Getter
+  public static class RecordError {
+
+    private final long line;
+    private final String username;
+    private final String error;
+  }
+}
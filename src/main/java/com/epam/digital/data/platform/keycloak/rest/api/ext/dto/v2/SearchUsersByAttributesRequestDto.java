@@ -19,6 +19,7 @@ package com.epam.digital.data.platform.keycloak.rest.api.ext.dto.v2;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import javax.annotation.Nonnull;
 import lombok.Getter;
 import lombok.Setter;
@@ -46,9 +47,17 @@ import org.jboss.resteasy.spi.HttpRequest;
  * example {@code getAttributesEquals()} map contains attribute {@code attr1} with values
  * {@code ["value1", "value2"]} then user must have an attribute named {@code attr1} with any of the
  * values to be returned.
+ * <li>Values of the attributes listed in
+ * {@link SearchUsersByAttributesRequestDto#getAttributesIgnoreCase() getAttributesIgnoreCase()}
+ * are matched case-insensitively by all the maps.
  * <p>
  * Pagination of the request implemented with {@code continuationToken}. It means that response will
  * return a token which must be used as anchor for the next page.
+ * <p>
+ * {@link SearchUsersByAttributesRequestDto#getTimeBudgetMillis() getTimeBudgetMillis()} overrides
+ * the time the search is allowed to take. When it's used up the response contains users found so
+ * far and a {@code continuationToken} of the first not checked user, so the page may contain less
+ * users than the limit even if it's not the last one.
  *
  * @see com.epam.digital.data.platform.keycloak.rest.api.ext.UserApiProvider#searchUsersByAttributes(HttpRequest,
  * SearchUsersByAttributesRequestDto) request method itself
@@ -60,9 +69,12 @@ public class SearchUsersByAttributesRequestDto {
   private Map<String, List<String>> attributesEquals;
   private Map<String, List<String>> attributesStartsWith;
   private Map<String, List<String>> attributesThatAreStartFor;
+  private List<String> attributesIgnoreCase;
 
   @Getter
   private Pagination pagination = new Pagination();
+  @Getter
+  private Integer timeBudgetMillis;
 
   @Nonnull
   public Map<String, List<String>> getAttributesEquals() {
@@ -79,11 +91,24 @@ public class SearchUsersByAttributesRequestDto {
     return Map.copyOf(Objects.requireNonNullElse(attributesThatAreStartFor, Map.of()));
   }
 
+  /**
+   * Returns names of the attributes whose values are matched case-insensitively by every
+   * predicate of the request.
+   */
+  @Nonnull
+  public Set<String> getAttributesIgnoreCase() {
+    return Set.copyOf(Objects.requireNonNullElse(attributesIgnoreCase, List.of()));
+  }
+
   @Setter
   @Getter
   public static class Pagination {
 
     private Integer limit;
-    private Integer continueToken;
+    /**
+     * Opaque position returned by the previous page. Integer offsets issued by earlier versions
+     * are accepted as well.
+     */
+    private String continueToken;
   }
 }
@@ -32,6 +32,6 @@ public class SearchUsersByAttributesResponseDto {
   @Getter
   public static class Pagination {
 
-    private Integer continueToken;
+    private String continueToken;
   }
 }
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.event;
+
+import java.util.EnumSet;
+import java.util.Set;
+import org.keycloak.events.Event;
+import org.keycloak.events.EventListenerProvider;
+import org.keycloak.events.EventType;
+import org.keycloak.events.admin.AdminEvent;
+import org.keycloak.events.admin.ResourceType;
+import org.keycloak.models.KeycloakSession;
+
+/**
+ * Tracks events that change users, their attributes or role mappings, so that
+ * {@link UserDataVersions} of the realm are incremented.
+ */
+public class UserChangeEventListenerProvider implements EventListenerProvider {
+
+  private static final Set<EventType> USER_CHANGING_EVENTS = EnumSet.of(
+      EventType.REGISTER, EventType.UPDATE_PROFILE, EventType.UPDATE_EMAIL,
+      EventType.VERIFY_EMAIL, EventType.UPDATE_PASSWORD, EventType.UPDATE_TOTP,
+      EventType.REMOVE_TOTP, EventType.CUSTOM_REQUIRED_ACTION, EventType.DELETE_ACCOUNT,
+      EventType.FEDERATED_IDENTITY_LINK, EventType.REMOVE_FEDERATED_IDENTITY,
+      EventType.IDENTITY_PROVIDER_FIRST_LOGIN, EventType.IDENTITY_PROVIDER_LINK_ACCOUNT);
+
+  private static final Set<ResourceType> USER_CHANGING_RESOURCES = EnumSet.of(
+      ResourceType.USER, ResourceType.REALM_ROLE_MAPPING, ResourceType.CLIENT_ROLE_MAPPING,
+      ResourceType.GROUP_MEMBERSHIP, ResourceType.GROUP, ResourceType.REALM_ROLE,
+      ResourceType.CLIENT_ROLE, ResourceType.USER_FEDERATION_PROVIDER);
+
+  private final KeycloakSession session;
+  private final UserDataVersions userDataVersions;
+
+  public UserChangeEventListenerProvider(KeycloakSession session,
+      UserDataVersions userDataVersions) {
+    this.session = session;
+    this.userDataVersions = userDataVersions;
+  }
+
+  @Override
+  public void onEvent(Event event) {
+    if (USER_CHANGING_EVENTS.contains(event.getType()) || UserEvents.isBrokeredLogin(event)) {
+      userDataVersions.markChanged(session, event.getRealmId());
+    }
+  }
+
+  @Override
+  public void onEvent(AdminEvent event, boolean includeRepresentation) {
+    if (USER_CHANGING_RESOURCES.contains(event.getResourceType())) {
+      userDataVersions.markChanged(session, event.getRealmId());
+    }
+  }
+
+  @Override
+  public void close() {
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.event;
+
+import org.keycloak.Config.Scope;
+import org.keycloak.events.EventListenerProvider;
+import org.keycloak.events.EventListenerProviderFactory;
+import org.keycloak.models.ClientModel;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.RoleContainerModel.RoleRemovedEvent;
+import org.keycloak.models.RoleModel;
+import org.keycloak.models.UserModel.UserRemovedEvent;
+
+/**
+ * Event listener that must be enabled in the realm's events config for the extension to track
+ * changes of user data of the realm.
+ */
+public class UserChangeEventListenerProviderFactory implements EventListenerProviderFactory {
+
+  public static final String ID = "users-ext-user-changes";
+
+  private final UserDataVersions userDataVersions = new UserDataVersions();
+
+  @Override
+  public EventListenerProvider create(KeycloakSession session) {
+    return new UserChangeEventListenerProvider(session, userDataVersions);
+  }
+
+  @Override
+  public void init(Scope config) {
+  }
+
+  @Override
+  public void postInit(KeycloakSessionFactory factory) {
+    userDataVersions.registerClusterListener(factory);
+    factory.register(event -> {
+      if (event instanceof UserRemovedEvent) {
+        var userRemovedEvent = (UserRemovedEvent) event;
+        userDataVersions.markChanged(userRemovedEvent.getKeycloakSession(),
+            userRemovedEvent.getRealm().getId());
+      } else if (event instanceof RoleRemovedEvent) {
+        var roleRemovedEvent = (RoleRemovedEvent) event;
+        userDataVersions.markChanged(roleRemovedEvent.getKeycloakSession(),
+            getRealmId(roleRemovedEvent.getRole()));
+      }
+    });
+  }
+
+  @Override
+  public void close() {
+  }
+
+  @Override
+  public String getId() {
+    return ID;
+  }
+
+  public UserDataVersions getUserDataVersions() {
+    return userDataVersions;
+  }
+
+  private static String getRealmId(RoleModel role) {
+    var container = role.getContainer();
+    if (container instanceof RealmModel) {
+      return ((RealmModel) container).getId();
+    }
+    return container instanceof ClientModel ? ((ClientModel) container).getRealm().getId() : null;
+  }
+}
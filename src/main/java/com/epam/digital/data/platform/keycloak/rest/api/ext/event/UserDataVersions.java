@@ -0,0 +1,110 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.event;
+
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.jboss.logging.Logger;
+import org.keycloak.cluster.ClusterProvider;
+import org.keycloak.cluster.ClusterProvider.DCNotify;
+import org.keycloak.models.AbstractKeycloakTransaction;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.utils.KeycloakModelUtils;
+
+/**
+ * Per-realm counters of changes of users, their attributes and role mappings.
+ * <p>
+ * A counter is incremented after the transaction that changed user data is committed, and the
+ * change is propagated to the other cluster nodes, so a version read on any node never stays the
+ * same while data it describes changes. Counters aren't shared between nodes, so a version is
+ * comparable only together with {@link #getEpoch() epoch} of the node that produced it.
+ */
+public class UserDataVersions {
+
+  static final String CLUSTER_TASK_KEY = "users-ext-user-data-changed";
+
+  private static final Logger LOGGER = Logger.getLogger(UserDataVersions.class);
+
+  private final long epoch = new SecureRandom().nextLong();
+  private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+  public long getEpoch() {
+    return epoch;
+  }
+
+  public long getVersion(String realmId) {
+    var version = versions.get(realmId);
+    return Objects.isNull(version) ? 0L : version.get();
+  }
+
+  /**
+   * Registers listener of the changes made on the other cluster nodes.
+   */
+  public void registerClusterListener(KeycloakSessionFactory sessionFactory) {
+    KeycloakModelUtils.runJobInTransaction(sessionFactory, session -> {
+      var clusterProvider = session.getProvider(ClusterProvider.class);
+      if (Objects.isNull(clusterProvider)) {
+        LOGGER.warn("Cluster provider isn't available, user data versions are node-local");
+        return;
+      }
+      clusterProvider.registerListener(CLUSTER_TASK_KEY,
+          event -> increment(((UserDataChangedEvent) event).getRealmId()));
+    });
+  }
+
+  /**
+   * Marks user data of the realm as changed once the current transaction of the session
+   * completes. Changes of one realm made in the same transaction, e.g. by a bulk update, are
+   * propagated once.
+   */
+  public void markChanged(KeycloakSession session, String realmId) {
+    if (Objects.isNull(realmId)) {
+      return;
+    }
+    var markedAttribute = CLUSTER_TASK_KEY + "." + realmId;
+    if (Objects.nonNull(session.getAttribute(markedAttribute))) {
+      return;
+    }
+    session.setAttribute(markedAttribute, Boolean.TRUE);
+    session.getTransactionManager().enlistAfterCompletion(new AbstractKeycloakTransaction() {
+      @Override
+      protected void commitImpl() {
+        session.removeAttribute(markedAttribute);
+        increment(realmId);
+        var clusterProvider = session.getProvider(ClusterProvider.class);
+        if (Objects.nonNull(clusterProvider)) {
+          clusterProvider.notify(CLUSTER_TASK_KEY, new UserDataChangedEvent(realmId), true,
+              DCNotify.ALL_DCS);
+        }
+      }
+
+      @Override
+      protected void rollbackImpl() {
+        // nothing has changed
+        session.removeAttribute(markedAttribute);
+      }
+    });
+  }
+
+  void increment(String realmId) {
+    versions.computeIfAbsent(realmId, id -> new AtomicLong()).incrementAndGet();
+  }
+}
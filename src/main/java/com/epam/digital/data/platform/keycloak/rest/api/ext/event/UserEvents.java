@@ -0,0 +1,55 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.event;
+
+import java.util.Objects;
+import java.util.Optional;
+import org.keycloak.events.Details;
+import org.keycloak.events.Event;
+import org.keycloak.events.EventType;
+import org.keycloak.events.admin.AdminEvent;
+
+/**
+ * Classification of the events shared by the listeners that track changes of users.
+ */
+public final class UserEvents {
+
+  private static final String USERS_RESOURCE_PATH = "users";
+
+  private UserEvents() {
+  }
+
+  /**
+   * Returns whether the event is a login through an identity provider. Identity provider mappers
+   * may update attributes and role mappings of the user on every brokered login.
+   */
+  public static boolean isBrokeredLogin(Event event) {
+    return EventType.LOGIN.equals(event.getType()) && event.getDetails() != null
+        && event.getDetails().containsKey(Details.IDENTITY_PROVIDER);
+  }
+
+  /**
+   * Returns id of the user the admin event changed, read from its {@code users/{id}} resource
+   * path, or empty if the event doesn't concern a single user.
+   */
+  public static Optional<String> getUserId(AdminEvent event) {
+    var path = Objects.requireNonNullElse(event.getResourcePath(), "").split("/");
+    return path.length >= 2 && USERS_RESOURCE_PATH.equals(path[0])
+        ? Optional.of(path[1]) : Optional.empty();
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.index;
+
+import java.util.Collection;
+import javax.persistence.EntityManager;
+
+/**
+ * In-memory index of the users of one realm maintained by {@link UserIndex}. Implementations
+ * aren't thread-safe, access is guarded by the owning index.
+ */
+public interface RealmUserIndex {
+
+  /**
+   * Re-reads the indexed data of the users. A user that has no indexed data any more, e.g. a
+   * removed one, is removed from the index.
+   */
+  void refresh(EntityManager em, Collection<String> userIds);
+
+  long getBuiltAtMillis();
+
+  long getAgeNanos();
+
+  int getUsers();
+
+  /**
+   * Returns whether more ordinals belong to removed users than to present ones, so a rebuild
+   * would make the index notably smaller.
+   */
+  boolean isFragmented();
+
+  /**
+   * Returns the estimated heap size of the index in bytes.
+   */
+  long getEstimatedBytes();
+}
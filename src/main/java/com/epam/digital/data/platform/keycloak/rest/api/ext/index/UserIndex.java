@@ -0,0 +1,333 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.index;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import javax.persistence.EntityManager;
+import lombok.Builder;
+import lombok.Getter;
+import org.jboss.logging.Logger;
+import org.keycloak.cluster.ClusterProvider;
+import org.keycloak.cluster.ClusterProvider.DCNotify;
+import org.keycloak.models.AbstractKeycloakTransaction;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.utils.KeycloakModelUtils;
+
+/**
+ * Per-realm in-memory index of the users that the searches use to find candidate users without
+ * scanning the database.
+ * <p>
+ * The index of a realm is used only if the event listener of the index is enabled in the realm,
+ * as it's kept up to date by the events the listener receives. It's built by {@link #warm} or
+ * lazily by the first search that needs it. A changed user is re-read by the next search, a
+ * change that can't be attributed to users makes the next search rebuild the whole index of the
+ * realm. The index is also rebuilt once it's older than {@code maxAgeMinutes}, which bounds the
+ * staleness caused by changes that aren't reported by events.
+ * <p>
+ * Changes are propagated to the other cluster nodes once the transaction that made them commits.
+ * A search falls back to the database while another thread builds the index of the realm or when
+ * more than {@code maxCandidates} users match.
+ *
+ * @param <T> index of one realm
+ */
+public abstract class UserIndex<T extends RealmUserIndex> {
+
+  private static final Logger LOGGER = Logger.getLogger(UserIndex.class);
+
+  private final String listenerId;
+  private final String clusterTaskKey;
+  private final int maxCandidates;
+  private final long maxAgeMinutes;
+  private final Map<String, RealmEntry<T>> realms = new ConcurrentHashMap<>();
+
+  /**
+   * @param listenerId    id of the event listener that maintains the index
+   * @param maxCandidates max count of users a lookup may return, {@code 0} disables the index
+   * @param maxAgeMinutes age the index of a realm is rebuilt at, {@code 0} keeps it until a
+   *                      change that can't be attributed to users
+   */
+  protected UserIndex(String listenerId, int maxCandidates, long maxAgeMinutes) {
+    this.listenerId = listenerId;
+    this.clusterTaskKey = listenerId + "-changed";
+    this.maxCandidates = maxCandidates;
+    this.maxAgeMinutes = maxAgeMinutes;
+  }
+
+  /**
+   * Returns whether the index is used for the searches in the realm.
+   */
+  public boolean isEnabled(RealmModel realm) {
+    return maxCandidates > 0 && realm.getEventsListenersStream().anyMatch(listenerId::equals);
+  }
+
+  protected int getMaxCandidates() {
+    return maxCandidates;
+  }
+
+  /**
+   * Reads the index of the realm from the database.
+   */
+  protected abstract T load(EntityManager em, String realmId);
+
+  /**
+   * Builds the index of the realm unless it's built already, waiting for a build in progress.
+   *
+   * @return whether the index is built
+   */
+  public boolean warm(EntityManager em, RealmModel realm) {
+    if (!isEnabled(realm)) {
+      return false;
+    }
+    var entry = realms.computeIfAbsent(realm.getId(), id -> new RealmEntry<>());
+    entry.lock.writeLock().lock();
+    try {
+      if (entry.needsMaintenance(this)) {
+        maintain(entry, em, realm.getId());
+      }
+      return true;
+    } finally {
+      entry.lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Looks up the index of the realm, bringing it up to date first.
+   *
+   * @param lookup lookup of the index, returns nothing if the index can't serve the search
+   * @return result of the lookup, or nothing if the search must be served by the database
+   */
+  protected <R> Optional<R> lookup(EntityManager em, RealmModel realm,
+      Function<T, Optional<R>> lookup) {
+    if (!isEnabled(realm)) {
+      return Optional.empty();
+    }
+    var entry = realms.computeIfAbsent(realm.getId(), id -> new RealmEntry<>());
+    entry.lookups.incrementAndGet();
+    var lock = entry.lock;
+    if (entry.needsMaintenance(this)) {
+      if (!lock.writeLock().tryLock()) {
+        entry.fallbacks.incrementAndGet();
+        return Optional.empty();
+      }
+      try {
+        maintain(entry, em, realm.getId());
+        lock.readLock().lock();
+      } finally {
+        lock.writeLock().unlock();
+      }
+    } else {
+      lock.readLock().lock();
+    }
+    try {
+      var result = lookup.apply(entry.index);
+      if (result.isEmpty()) {
+        entry.fallbacks.incrementAndGet();
+      }
+      return result;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Marks indexed data of the user as changed once the current transaction of the session
+   * commits. Changes of one realm made in the same transaction are propagated together.
+   *
+   * @param userId id of the changed user, {@code null} means that any user of the realm may have
+   *               changed
+   */
+  public void markChanged(KeycloakSession session, String realmId, String userId) {
+    if (Objects.isNull(realmId)) {
+      return;
+    }
+    var changesAttribute = clusterTaskKey + "." + realmId;
+    @SuppressWarnings("unchecked")
+    var changes = (Set<String>) session.getAttribute(changesAttribute);
+    if (Objects.isNull(changes)) {
+      var changedUserIds = new HashSet<String>();
+      changes = changedUserIds;
+      session.setAttribute(changesAttribute, changes);
+      session.getTransactionManager().enlistAfterCompletion(new AbstractKeycloakTransaction() {
+        @Override
+        protected void commitImpl() {
+          session.removeAttribute(changesAttribute);
+          var event = new UserIndexChangedEvent(realmId,
+              changedUserIds.contains(null) ? null : Set.copyOf(changedUserIds));
+          apply(event);
+          var clusterProvider = session.getProvider(ClusterProvider.class);
+          if (Objects.nonNull(clusterProvider)) {
+            clusterProvider.notify(clusterTaskKey, event, true, DCNotify.ALL_DCS);
+          }
+        }
+
+        @Override
+        protected void rollbackImpl() {
+          // nothing has changed
+          session.removeAttribute(changesAttribute);
+        }
+      });
+    }
+    changes.add(userId);
+  }
+
+  /**
+   * Drops the index of the realm, e.g. when the realm is removed.
+   */
+  public void remove(String realmId) {
+    realms.remove(realmId);
+  }
+
+  /**
+   * Registers listener of the changes made on the other cluster nodes.
+   */
+  public void registerClusterListener(KeycloakSessionFactory sessionFactory) {
+    KeycloakModelUtils.runJobInTransaction(sessionFactory, session -> {
+      var clusterProvider = session.getProvider(ClusterProvider.class);
+      if (Objects.isNull(clusterProvider)) {
+        LOGGER.warnf("Cluster provider isn't available, %s index is node-local", listenerId);
+        return;
+      }
+      clusterProvider.registerListener(clusterTaskKey,
+          event -> apply((UserIndexChangedEvent) event));
+    });
+  }
+
+  /**
+   * Describes the index of the realm.
+   *
+   * @param statsBuilder builds the description from the counters, {@code null} if the index of
+   *                     the realm wasn't used yet, and the index, {@code null} if it isn't built
+   */
+  protected <D> D getStats(RealmModel realm, StatsBuilder<T, D> statsBuilder) {
+    var entry = realms.get(realm.getId());
+    if (Objects.isNull(entry)) {
+      return statsBuilder.build(isEnabled(realm), null, null);
+    }
+    var counters = Counters.builder()
+        .lookups(entry.lookups.get())
+        .fallbacks(entry.fallbacks.get())
+        .rebuilds(entry.rebuilds.get())
+        .refreshedUsers(entry.refreshedUsers.get())
+        .pendingUsers(entry.pendingUserIds.size())
+        .build();
+    entry.lock.readLock().lock();
+    try {
+      return statsBuilder.build(isEnabled(realm), counters, entry.index);
+    } finally {
+      entry.lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Applies the change to the index of the realm, the change is read by the next search.
+   */
+  public void apply(UserIndexChangedEvent event) {
+    var entry = realms.get(event.getRealmId());
+    if (Objects.isNull(entry)) {
+      return;
+    }
+    if (Objects.isNull(event.getUserIds())) {
+      entry.stale = true;
+    } else {
+      entry.pendingUserIds.addAll(event.getUserIds());
+    }
+  }
+
+  private boolean isExpired(T index) {
+    return maxAgeMinutes > 0
+        && index.getAgeNanos() >= TimeUnit.MINUTES.toNanos(maxAgeMinutes);
+  }
+
+  /**
+   * Rebuilds or refreshes the index, must be called with the write lock held. Pending changes are
+   * taken before the data is read, so a change committed meanwhile is applied by the next search.
+   */
+  private void maintain(RealmEntry<T> entry, EntityManager em, String realmId) {
+    var current = entry.index;
+    if (Objects.isNull(current) || entry.stale || current.isFragmented() || isExpired(current)) {
+      entry.stale = false;
+      entry.pendingUserIds.clear();
+      var startNanos = System.nanoTime();
+      var index = load(em, realmId);
+      entry.index = index;
+      entry.rebuilds.incrementAndGet();
+      LOGGER.infof("Index %s of realm %s built in %d ms: %d users, %d bytes", listenerId,
+          realmId, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos),
+          index.getUsers(), index.getEstimatedBytes());
+      return;
+    }
+    if (!entry.pendingUserIds.isEmpty()) {
+      var userIds = drain(entry.pendingUserIds);
+      current.refresh(em, userIds);
+      entry.refreshedUsers.addAndGet(userIds.size());
+    }
+  }
+
+  private static Collection<String> drain(Set<String> userIds) {
+    var drained = new HashSet<String>();
+    userIds.removeIf(drained::add);
+    return drained;
+  }
+
+  @FunctionalInterface
+  protected interface StatsBuilder<T, D> {
+
+    D build(boolean enabled, Counters counters, T index);
+  }
+
+  @Builder
+  @Getter
+  protected static class Counters {
+
+    private final long lookups;
+    private final long fallbacks;
+    private final long rebuilds;
+    private final long refreshedUsers;
+    private final int pendingUsers;
+  }
+
+  private static class RealmEntry<T extends RealmUserIndex> {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Set<String> pendingUserIds = ConcurrentHashMap.newKeySet();
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+    private final AtomicLong rebuilds = new AtomicLong();
+    private final AtomicLong refreshedUsers = new AtomicLong();
+    private volatile T index;
+    private volatile boolean stale;
+
+    private boolean needsMaintenance(UserIndex<T> owner) {
+      var current = index;
+      return Objects.isNull(current) || stale || !pendingUserIds.isEmpty()
+          || owner.isExpired(current);
+    }
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.roles;
+
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.SearchUsersByRoleAndAttributesRequestDto.RoleMatch;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.index.RealmUserIndex;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import javax.persistence.EntityManager;
+
+/**
+ * Role mappings of the users of one realm. Every user with a role mapping gets a dense ordinal
+ * and every role a bitmap of the ordinals of its members, so a role filter is evaluated by a few
+ * word-wise operations on the bitmaps.
+ * <p>
+ * The instance isn't thread-safe, access is guarded by {@link RoleMembershipIndex}.
+ */
+class RealmRoleMembership implements RealmUserIndex {
+
+  /**
+   * Max count of user ids bound to one {@code IN} list of a refresh query.
+   */
+  private static final int REFRESH_BATCH_SIZE = 500;
+
+  /**
+   * Estimated heap size of a user id entry: the string, the ordinal map entry with its boxed
+   * ordinal and the slot of the ordinal list, not counting the characters of the id.
+   */
+  private static final long USER_ENTRY_OVERHEAD_BYTES = 24L + 16L + 32L + 16L + 4L;
+
+  private static final BitSet NO_MEMBERS = new BitSet();
+
+  private final String realmId;
+  private final long builtAtMillis;
+  private final long builtAtNanos;
+  private final Map<String, Integer> ordinals = new HashMap<>();
+  private final List<String> userIds = new ArrayList<>();
+  private final Map<String, BitSet> members = new HashMap<>();
+  private int removedUsers;
+
+  private RealmRoleMembership(String realmId) {
+    this.realmId = realmId;
+    this.builtAtMillis = System.currentTimeMillis();
+    this.builtAtNanos = System.nanoTime();
+  }
+
+  /**
+   * Reads all role mappings of the realm with one query. Users are read in the order of their
+   * ids, so the ordinals of the initial users follow the order of the ids.
+   */
+  static RealmRoleMembership load(EntityManager em, String realmId) {
+    var membership = new RealmRoleMembership(realmId);
+    em.createQuery("select m.user.id, m.roleId from UserRoleMappingEntity m "
+            + "where m.user.realmId = :realmId order by m.user.id", Object[].class)
+        .setParameter("realmId", realmId)
+        .getResultStream()
+        .forEach(row -> membership.add((String) row[0], (String) row[1]));
+    return membership;
+  }
+
+  /**
+   * Re-reads role mappings of the users with one query per {@value #REFRESH_BATCH_SIZE} users. A
+   * user without role mappings, e.g. a removed one, is removed from the bitmaps.
+   */
+  @Override
+  public void refresh(EntityManager em, Collection<String> refreshedUserIds) {
+    var ids = List.copyOf(refreshedUserIds);
+    for (var from = 0; from < ids.size(); from += REFRESH_BATCH_SIZE) {
+      var batch = ids.subList(from, Math.min(from + REFRESH_BATCH_SIZE, ids.size()));
+      var roles = new HashMap<String, Set<String>>();
+      em.createQuery("select m.user.id, m.roleId from UserRoleMappingEntity m "
+              + "where m.user.realmId = :realmId and m.user.id in :userIds", Object[].class)
+          .setParameter("realmId", realmId)
+          .setParameter("userIds", batch)
+          .getResultStream()
+          .forEach(row -> roles.computeIfAbsent((String) row[0], id -> new HashSet<>())
+              .add((String) row[1]));
+      batch.forEach(userId -> replace(userId, roles.getOrDefault(userId, Set.of())));
+    }
+  }
+
+  /**
+   * Returns ids of the users that have any or all of the roles, or nothing if there are more of
+   * them than {@code maxUsers}. A role without members, or an id that isn't a role, matches no
+   * users.
+   */
+  Optional<List<String>> findUserIds(List<String> roleIds, RoleMatch roleMatch, int maxUsers) {
+    var matched = new BitSet();
+    for (var i = 0; i < roleIds.size(); i++) {
+      var roleMembers = members.getOrDefault(roleIds.get(i), NO_MEMBERS);
+      if (i == 0 || roleMatch == RoleMatch.ANY) {
+        matched.or(roleMembers);
+      } else {
+        matched.and(roleMembers);
+      }
+    }
+    if (matched.cardinality() > maxUsers) {
+      return Optional.empty();
+    }
+    var matchedUserIds = new ArrayList<String>(matched.cardinality());
+    matched.stream().forEach(ordinal -> matchedUserIds.add(userIds.get(ordinal)));
+    return Optional.of(matchedUserIds);
+  }
+
+  @Override
+  public long getBuiltAtMillis() {
+    return builtAtMillis;
+  }
+
+  @Override
+  public long getAgeNanos() {
+    return System.nanoTime() - builtAtNanos;
+  }
+
+  @Override
+  public int getUsers() {
+    return ordinals.size();
+  }
+
+  int getRoles() {
+    return members.size();
+  }
+
+  @Override
+  public boolean isFragmented() {
+    return removedUsers > ordinals.size();
+  }
+
+  /**
+   * Returns the heap size of the bitmaps in bytes.
+   */
+  long getBitmapBytes() {
+    return members.values().stream().mapToLong(bitmap -> bitmap.size() / Byte.SIZE).sum();
+  }
+
+  @Override
+  public long getEstimatedBytes() {
+    return getBitmapBytes() + getUserIdBytes();
+  }
+
+  /**
+   * Returns the estimated heap size of the user ids and their ordinals in bytes.
+   */
+  long getUserIdBytes() {
+    return ordinals.keySet().stream()
+        .mapToLong(userId -> USER_ENTRY_OVERHEAD_BYTES + userId.length())
+        .sum() + (long) removedUsers * Integer.BYTES;
+  }
+
+  private void add(String userId, String roleId) {
+    var ordinal = ordinals.computeIfAbsent(userId, id -> {
+      userIds.add(id);
+      return userIds.size() - 1;
+    });
+    members.computeIfAbsent(roleId, id -> new BitSet()).set(ordinal);
+  }
+
+  private void replace(String userId, Set<String> roleIds) {
+    var ordinal = ordinals.get(userId);
+    if (Objects.nonNull(ordinal)) {
+      members.values().forEach(bitmap -> bitmap.clear(ordinal));
+      members.values().removeIf(BitSet::isEmpty);
+      if (roleIds.isEmpty()) {
+        ordinals.remove(userId);
+        userIds.set(ordinal, null);
+        removedUsers++;
+        return;
+      }
+    }
+    roleIds.forEach(roleId -> add(userId, roleId));
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.roles;
+
+import com.epam.digital.data.platform.keycloak.rest.api.ext.event.UserEvents;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+import org.keycloak.events.Event;
+import org.keycloak.events.EventListenerProvider;
+import org.keycloak.events.EventType;
+import org.keycloak.events.admin.AdminEvent;
+import org.keycloak.events.admin.OperationType;
+import org.keycloak.models.KeycloakSession;
+
+/**
+ * Reports changes of role mappings of users to {@link RoleMembershipIndex}. A user created or
+ * registered is reported as well, as it's granted the default roles of the realm.
+ */
+public class RoleMembershipEventListenerProvider implements EventListenerProvider {
+
+  private static final Set<EventType> ROLE_GRANTING_EVENTS = EnumSet.of(EventType.REGISTER,
+      EventType.IDENTITY_PROVIDER_FIRST_LOGIN, EventType.DELETE_ACCOUNT);
+
+  private final KeycloakSession session;
+  private final RoleMembershipIndex index;
+
+  public RoleMembershipEventListenerProvider(KeycloakSession session, RoleMembershipIndex index) {
+    this.session = session;
+    this.index = index;
+  }
+
+  @Override
+  public void onEvent(Event event) {
+    if ((ROLE_GRANTING_EVENTS.contains(event.getType()) || UserEvents.isBrokeredLogin(event))
+        && Objects.nonNull(event.getUserId())) {
+      index.markChanged(session, event.getRealmId(), event.getUserId());
+    }
+  }
+
+  @Override
+  public void onEvent(AdminEvent event, boolean includeRepresentation) {
+    var userId = UserEvents.getUserId(event);
+    switch (event.getResourceType()) {
+      case USER:
+        if (!OperationType.UPDATE.equals(event.getOperationType())) {
+          userId.ifPresent(id -> index.markChanged(session, event.getRealmId(), id));
+        }
+        break;
+      case REALM_ROLE_MAPPING:
+      case CLIENT_ROLE_MAPPING:
+        userId.ifPresent(id -> index.markChanged(session, event.getRealmId(), id));
+        break;
+      case REALM_ROLE:
+      case CLIENT_ROLE:
+      case CLIENT:
+        if (OperationType.DELETE.equals(event.getOperationType())) {
+          index.markChanged(session, event.getRealmId(), null);
+        }
+        break;
+      case REALM:
+      case USER_FEDERATION_PROVIDER:
+        // partial import and federation sync may change role mappings of any user
+        index.markChanged(session, event.getRealmId(), null);
+        break;
+      default:
+        break;
+    }
+  }
+
+  @Override
+  public void close() {
+  }
+}
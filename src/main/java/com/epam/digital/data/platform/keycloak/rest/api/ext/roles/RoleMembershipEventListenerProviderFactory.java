@@ -0,0 +1,91 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.roles;
+
+import org.keycloak.Config.Scope;
+import org.keycloak.events.EventListenerProvider;
+import org.keycloak.events.EventListenerProviderFactory;
+import org.keycloak.models.ClientModel;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.RealmModel.RealmRemovedEvent;
+import org.keycloak.models.RoleContainerModel.RoleRemovedEvent;
+import org.keycloak.models.RoleModel;
+import org.keycloak.models.UserModel.UserRemovedEvent;
+
+/**
+ * Event listener that must be enabled in the realm's events config for the searches in the realm
+ * to evaluate role filters with {@link RoleMembershipIndex}. The index is shared by all sessions,
+ * so it's owned by the factory.
+ */
+public class RoleMembershipEventListenerProviderFactory implements EventListenerProviderFactory {
+
+  public static final String ID = "users-ext-role-membership";
+
+  private RoleMembershipIndex index;
+
+  @Override
+  public EventListenerProvider create(KeycloakSession session) {
+    return new RoleMembershipEventListenerProvider(session, index);
+  }
+
+  @Override
+  public void init(Scope scope) {
+    index = new RoleMembershipIndex(RoleMembershipIndex.Config.create(scope));
+  }
+
+  @Override
+  public void postInit(KeycloakSessionFactory factory) {
+    index.registerClusterListener(factory);
+    factory.register(event -> {
+      if (event instanceof UserRemovedEvent) {
+        var userRemovedEvent = (UserRemovedEvent) event;
+        index.markChanged(userRemovedEvent.getKeycloakSession(),
+            userRemovedEvent.getRealm().getId(), userRemovedEvent.getUser().getId());
+      } else if (event instanceof RoleRemovedEvent) {
+        var roleRemovedEvent = (RoleRemovedEvent) event;
+        index.markChanged(roleRemovedEvent.getKeycloakSession(),
+            getRealmId(roleRemovedEvent.getRole()), null);
+      } else if (event instanceof RealmRemovedEvent) {
+        index.remove(((RealmRemovedEvent) event).getRealm().getId());
+      }
+    });
+  }
+
+  @Override
+  public void close() {
+  }
+
+  @Override
+  public String getId() {
+    return ID;
+  }
+
+  public RoleMembershipIndex getIndex() {
+    return index;
+  }
+
+  private static String getRealmId(RoleModel role) {
+    var container = role.getContainer();
+    if (container instanceof RealmModel) {
+      return ((RealmModel) container).getId();
+    }
+    return container instanceof ClientModel ? ((ClientModel) container).getRealm().getId() : null;
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.roles;
+
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.RoleMembershipStatsResponseDto;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.SearchUsersByRoleAndAttributesRequestDto.RoleMatch;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.index.UserIndex;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import javax.persistence.EntityManager;
+import lombok.Builder;
+import lombok.Getter;
+import org.keycloak.Config.Scope;
+import org.keycloak.models.RealmModel;
+
+/**
+ * In-memory index of the role mappings of the users, used to evaluate role filters of the
+ * searches without joining {@code USER_ROLE_MAPPING}. It's maintained by
+ * {@link RoleMembershipEventListenerProviderFactory#ID} event listener, a removed role makes the
+ * index of the realm rebuilt. Roles granted without an event, e.g. by a federation provider, are
+ * seen after the index is rebuilt.
+ */
+public class RoleMembershipIndex extends UserIndex<RealmRoleMembership> {
+
+  public RoleMembershipIndex(Config config) {
+    super(RoleMembershipEventListenerProviderFactory.ID, config.getMaxCandidates(),
+        config.getMaxAgeMinutes());
+  }
+
+  /**
+   * Finds ids of the users that have any or all of the roles.
+   *
+   * @param em        entity manager the index is built and refreshed with
+   * @param realm     realm of the users
+   * @param roleIds   ids of the roles, must not be empty
+   * @param roleMatch whether a user must have any or all of the roles
+   * @return ids of the matched users, or nothing if the index can't be used for the search and
+   * the role filter must be evaluated by the database
+   */
+  public Optional<List<String>> findUserIds(EntityManager em, RealmModel realm,
+      List<String> roleIds, RoleMatch roleMatch) {
+    return lookup(em, realm,
+        membership -> membership.findUserIds(roleIds, roleMatch, getMaxCandidates()));
+  }
+
+  public RoleMembershipStatsResponseDto getStats(RealmModel realm) {
+    return getStats(realm, (enabled, counters, membership) -> {
+      var stats = RoleMembershipStatsResponseDto.builder().enabled(enabled);
+      if (Objects.nonNull(counters)) {
+        stats.lookups(counters.getLookups())
+            .fallbacks(counters.getFallbacks())
+            .rebuilds(counters.getRebuilds())
+            .refreshedUsers(counters.getRefreshedUsers())
+            .pendingUsers(counters.getPendingUsers());
+      }
+      if (Objects.nonNull(membership)) {
+        stats.built(true)
+            .builtAt(membership.getBuiltAtMillis())
+            .users(membership.getUsers())
+            .roles(membership.getRoles())
+            .bitmapBytes(membership.getBitmapBytes())
+            .userIdBytes(membership.getUserIdBytes())
+            .totalBytes(membership.getEstimatedBytes());
+      }
+      return stats.build();
+    });
+  }
+
+  @Override
+  protected RealmRoleMembership load(EntityManager em, String realmId) {
+    return RealmRoleMembership.load(em, realmId);
+  }
+
+  /**
+   * {@code maxCandidates} of {@code 0} disables the index, {@code maxAgeMinutes} of {@code 0}
+   * keeps the index until a change that can't be attributed to users.
+   */
+  @Builder
+  @Getter
+  public static class Config {
+
+    @Builder.Default
+    private final int maxCandidates = 1000;
+    @Builder.Default
+    private final long maxAgeMinutes = 60L;
+
+    public static Config create(Scope scope) {
+      var defaults = Config.builder().build();
+      return Config.builder()
+          .maxCandidates(scope.getInt("maxCandidates", defaults.getMaxCandidates()))
+          .maxAgeMinutes(scope.getLong("maxAgeMinutes", defaults.getMaxAgeMinutes()))
+          .build();
+    }
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.search;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Base64;
+import java.util.Objects;
+import javax.ws.rs.BadRequestException;
+import lombok.Getter;
+import org.keycloak.models.UserModel;
+
+/**
+ * Continue token of the paged search of {@code v2/search-by-attributes}.
+ * <p>
+ * A token is opaque for the client and encodes the seek position of the next page: username and
+ * id of the last checked user, so the next page is read by a range condition regardless of how
+ * many users precede it, and users created meanwhile don't shift the pages. {@code -1} means that
+ * all pages were read. Integer tokens of the previous versions, offsets of the next page, are still
+ * accepted.
+ */
+@Getter
+public final class ContinueToken {
+
+  public static final String END_VALUE = "-1";
+
+  private static final ContinueToken START = new ContinueToken(0, null, null);
+  private static final ContinueToken END = new ContinueToken(-1, null, null);
+
+  private static final byte KEYSET_VERSION = 1;
+
+  private final int offset;
+  private final String username;
+  private final String id;
+
+  private ContinueToken(int offset, String username, String id) {
+    this.offset = offset;
+    this.username = username;
+    this.id = id;
+  }
+
+  public static ContinueToken start() {
+    return START;
+  }
+
+  public static ContinueToken end() {
+    return END;
+  }
+
+  public static ContinueToken offset(int offset) {
+    return offset < 0 ? END : new ContinueToken(offset, null, null);
+  }
+
+  /**
+   * Returns the position right after the user.
+   */
+  public static ContinueToken after(UserModel user) {
+    return new ContinueToken(0, user.getUsername(), user.getId());
+  }
+
+  /**
+   * Decodes the token of a request, no token means the first page.
+   *
+   * @throws BadRequestException if the token is malformed
+   */
+  public static ContinueToken parse(String token) {
+    if (Objects.isNull(token) || token.isBlank()) {
+      return START;
+    }
+    var value = token.trim();
+    if (value.chars().allMatch(c -> Character.isDigit(c) || c == '-')) {
+      try {
+        return offset(Integer.parseInt(value));
+      } catch (NumberFormatException e) {
+        throw new BadRequestException("Malformed continue token");
+      }
+    }
+    try (var in = new DataInputStream(
+        new ByteArrayInputStream(Base64.getUrlDecoder().decode(value)))) {
+      if (in.readByte() != KEYSET_VERSION) {
+        throw new BadRequestException("Unsupported continue token");
+      }
+      return new ContinueToken(0, in.readUTF(), in.readUTF());
+    } catch (IOException | IllegalArgumentException e) {
+      throw new BadRequestException("Malformed continue token");
+    }
+  }
+
+  public boolean isEnd() {
+    return this == END;
+  }
+
+  /**
+   * Returns whether the token is a position of a user, otherwise it's an offset.
+   */
+  public boolean isKeyset() {
+    return Objects.nonNull(username);
+  }
+
+  /**
+   * Returns the offset token that is the given count of users further.
+   */
+  public ContinueToken skip(int count) {
+    return offset(offset + count);
+  }
+
+  /**
+   * Encodes the token for the response.
+   */
+  public String encode() {
+    if (!isKeyset()) {
+      return Integer.toString(offset);
+    }
+    var bytes = new ByteArrayOutputStream(username.length() + id.length() + 8);
+    try (var out = new DataOutputStream(bytes)) {
+      out.writeByte(KEYSET_VERSION);
+      out.writeUTF(username);
+      out.writeUTF(id);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+  }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.search;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import lombok.Builder;
+import lombok.Getter;
+import org.keycloak.Config.Scope;
+import org.keycloak.util.JsonSerialization;
+
+/**
+ * Encoding of a search response negotiated by {@code Accept} and {@code Accept-Encoding} headers
+ * of the request.
+ * <p>
+ * The body is JSON unless the client prefers {@code application/cbor}, which is encoded by the
+ * same Jackson model, so the properties are the same, but it's about half the size and cheaper to
+ * write. Independently of the format the body is compressed with {@code gzip} or {@code deflate}
+ * if the client accepts it and the body is at least {@link Policy#getMinCompressBytes()
+ * minCompressBytes} long. A request without the headers gets plain JSON as before.
+ */
+public class SearchResponseEncoding {
+
+  public static final String APPLICATION_CBOR = "application/cbor";
+  public static final MediaType APPLICATION_CBOR_TYPE = MediaType.valueOf(APPLICATION_CBOR);
+
+  private static final String VARY_HEADER = "Vary";
+  private static final String CONTENT_ENCODING_HEADER = "Content-Encoding";
+
+  private static final ObjectMapper CBOR_MAPPER = new ObjectMapper(new CBORFactory())
+      .configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false)
+      .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+  private static final SearchResponseEncoding DEFAULT =
+      new SearchResponseEncoding(Format.JSON, Coding.IDENTITY, 0);
+
+  private final Format format;
+  private final Coding coding;
+  private final int minCompressBytes;
+
+  private SearchResponseEncoding(Format format, Coding coding, int minCompressBytes) {
+    this.format = format;
+    this.coding = coding;
+    this.minCompressBytes = minCompressBytes;
+  }
+
+  public static SearchResponseEncoding identity() {
+    return DEFAULT;
+  }
+
+  /**
+   * Returns whether the response is plain JSON, so the entity may be written by the JAX-RS
+   * provider as is.
+   */
+  public boolean isIdentity() {
+    return format == Format.JSON && coding == Coding.IDENTITY;
+  }
+
+  public MediaType getMediaType() {
+    return format.mediaType;
+  }
+
+  /**
+   * Returns the tag of this representation of the result: every format and content coding gets
+   * its own strong tag.
+   */
+  public EntityTag tag(EntityTag eTag) {
+    if (isIdentity()) {
+      return eTag;
+    }
+    var value = new StringBuilder(eTag.getValue());
+    if (format != Format.JSON) {
+      value.append('-').append(format.name);
+    }
+    if (coding != Coding.IDENTITY) {
+      value.append('-').append(coding.name);
+    }
+    return new EntityTag(value.toString(), eTag.isWeak());
+  }
+
+  /**
+   * Serializes the result in the negotiated format.
+   */
+  public byte[] serialize(Object result) {
+    try {
+      return format.mapper().writeValueAsBytes(result);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Builds a response with the serialized body, compressed if the client accepts it and the body
+   * is long enough.
+   */
+  public Response.ResponseBuilder toResponse(byte[] body) {
+    var compressed = coding != Coding.IDENTITY && body.length >= minCompressBytes;
+    var response = Response.ok(compressed ? coding.compress(body) : body, format.mediaType);
+    if (compressed) {
+      response.header(CONTENT_ENCODING_HEADER, coding.name);
+    }
+    return vary(response);
+  }
+
+  /**
+   * Adds {@code Vary} header, so caches keep the representations of the negotiated encodings
+   * apart.
+   */
+  public static Response.ResponseBuilder vary(Response.ResponseBuilder response) {
+    return response.header(VARY_HEADER, HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING);
+  }
+
+  private enum Format {
+    JSON("json", MediaType.APPLICATION_JSON_TYPE),
+    CBOR("cbor", APPLICATION_CBOR_TYPE);
+
+    private final String name;
+    private final MediaType mediaType;
+
+    Format(String name, MediaType mediaType) {
+      this.name = name;
+      this.mediaType = mediaType;
+    }
+
+    private ObjectMapper mapper() {
+      return this == CBOR ? CBOR_MAPPER : JsonSerialization.mapper;
+    }
+  }
+
+  private enum Coding {
+    IDENTITY("identity"),
+    GZIP("gzip"),
+    DEFLATE("deflate");
+
+    private final String name;
+
+    Coding(String name) {
+      this.name = name;
+    }
+
+    private byte[] compress(byte[] body) {
+      var compressed = new ByteArrayOutputStream(body.length / 4 + 64);
+      try (OutputStream out = this == GZIP ? new GZIPOutputStream(compressed)
+          : new DeflaterOutputStream(compressed)) {
+        out.write(body);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return compressed.toByteArray();
+    }
+  }
+
+  /**
+   * Negotiates the encoding of a request. CBOR and compression are enabled by default, but are
+   * only used by the clients that ask for them.
+   */
+  @Builder
+  @Getter
+  public static class Policy {
+
+    @Builder.Default
+    private final boolean cborEnabled = true;
+    @Builder.Default
+    private final boolean compressionEnabled = true;
+    @Builder.Default
+    private final int minCompressBytes = 1024;
+
+    public static Policy create(Scope scope) {
+      var defaults = Policy.builder().build();
+      return Policy.builder()
+          .cborEnabled(scope.getBoolean("searchCborEnabled", defaults.isCborEnabled()))
+          .compressionEnabled(scope.getBoolean("searchCompressionEnabled",
+              defaults.isCompressionEnabled()))
+          .minCompressBytes(scope.getInt("searchCompressionMinBytes",
+              defaults.getMinCompressBytes()))
+          .build();
+    }
+
+    public SearchResponseEncoding negotiate(HttpHeaders headers) {
+      if (Objects.isNull(headers)) {
+        return DEFAULT;
+      }
+      var format = negotiateFormat(headers.getAcceptableMediaTypes());
+      var coding = compressionEnabled
+          ? negotiateCoding(headers.getRequestHeader(HttpHeaders.ACCEPT_ENCODING))
+          : Coding.IDENTITY;
+      return format == Format.JSON && coding == Coding.IDENTITY ? DEFAULT
+          : new SearchResponseEncoding(format, coding, minCompressBytes);
+    }
+
+    /**
+     * Returns the first supported format of the acceptable media types, which are ordered by
+     * preference. A wildcard gets JSON.
+     */
+    private Format negotiateFormat(List<MediaType> acceptableMediaTypes) {
+      if (Objects.isNull(acceptableMediaTypes)) {
+        return Format.JSON;
+      }
+      for (var mediaType : acceptableMediaTypes) {
+        if (mediaType.isCompatible(MediaType.APPLICATION_JSON_TYPE)) {
+          return Format.JSON;
+        }
+        if (cborEnabled && mediaType.isCompatible(APPLICATION_CBOR_TYPE)) {
+          return Format.CBOR;
+        }
+      }
+      return Format.JSON;
+    }
+
+    /**
+     * Returns the supported content coding with the highest quality, {@code gzip} wins a tie.
+     */
+    private static Coding negotiateCoding(List<String> acceptEncoding) {
+      if (Objects.isNull(acceptEncoding)) {
+        return Coding.IDENTITY;
+      }
+      var coding = Coding.IDENTITY;
+      var quality = 0.0;
+      for (var header : acceptEncoding) {
+        for (var element : header.split(",")) {
+          var parameters = element.split(";");
+          var name = parameters[0].trim().toLowerCase(Locale.ROOT);
+          var candidate = "gzip".equals(name) || "*".equals(name) ? Coding.GZIP
+              : "deflate".equals(name) ? Coding.DEFLATE : null;
+          var candidateQuality = parseQuality(parameters);
+          if (Objects.nonNull(candidate) && (candidateQuality > quality
+              || candidateQuality == quality && candidate == Coding.GZIP && quality > 0)) {
+            coding = candidate;
+            quality = candidateQuality;
+          }
+        }
+      }
+      return coding;
+    }
+
+    private static double parseQuality(String[] parameters) {
+      for (var i = 1; i < parameters.length; i++) {
+        var parameter = parameters[i].trim();
+        if (parameter.startsWith("q=")) {
+          try {
+            return Double.parseDouble(parameter.substring(2));
+          } catch (NumberFormatException e) {
+            return 0.0;
+          }
+        }
+      }
+      return 1.0;
+    }
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.search;
+
+import com.epam.digital.data.platform.keycloak.rest.api.ext.event.UserChangeEventListenerProviderFactory;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.event.UserDataVersions;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.Optional;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import org.keycloak.models.RealmModel;
+
+/**
+ * Entity tags of search results.
+ * <p>
+ * A tag is derived from the search name, the request body and the {@link UserDataVersions version}
+ * of user data of the realm, so it stays the same until any user of the realm changes. The version
+ * is tracked only for realms that have {@link UserChangeEventListenerProviderFactory#ID} event
+ * listener enabled, other realms get no tags and their searches are always executed.
+ */
+public class SearchResultETags {
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+      .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true)
+      .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+  private static final int TAG_LENGTH_BYTES = 18;
+
+  private final UserDataVersions userDataVersions;
+
+  public SearchResultETags(UserDataVersions userDataVersions) {
+    this.userDataVersions = userDataVersions;
+  }
+
+  public Optional<EntityTag> getETag(RealmModel realm, String searchName, Object requestDto) {
+    if (realm.getEventsListenersStream()
+        .noneMatch(UserChangeEventListenerProviderFactory.ID::equals)) {
+      return Optional.empty();
+    }
+    var source = String.join("|", Long.toString(userDataVersions.getEpoch()), realm.getId(),
+        Long.toString(userDataVersions.getVersion(realm.getId())), searchName,
+        toJson(requestDto));
+    var digest = Arrays.copyOf(sha256(source), TAG_LENGTH_BYTES);
+    return Optional.of(new EntityTag(Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(digest)));
+  }
+
+  /**
+   * Checks if {@code If-None-Match} header of the request contains the tag.
+   */
+  public static boolean isNotModified(HttpHeaders headers, EntityTag eTag) {
+    var ifNoneMatch = headers.getRequestHeader(HttpHeaders.IF_NONE_MATCH);
+    if (Objects.isNull(ifNoneMatch)) {
+      return false;
+    }
+    return ifNoneMatch.stream()
+        .flatMap(value -> Arrays.stream(value.split(",")))
+        .map(String::trim)
+        .anyMatch(value -> "*".equals(value) || eTag.getValue().equals(unquote(value)));
+  }
+
+  private static String unquote(String value) {
+    var tag = value.startsWith("W/") ? value.substring(2) : value;
+    if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+      return tag.substring(1, tag.length() - 1);
+    }
+    return tag;
+  }
+
+  private static String toJson(Object requestDto) {
+    try {
+      return OBJECT_MAPPER.writeValueAsString(requestDto);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("Couldn't serialize search request", e);
+    }
+  }
+
+  private static byte[] sha256(String source) {
+    try {
+      return MessageDigest.getInstance("SHA-256")
+          .digest(source.getBytes(StandardCharsets.UTF_8));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.search;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import javax.persistence.Query;
+import javax.persistence.QueryTimeoutException;
+import lombok.Builder;
+import lombok.Getter;
+import org.keycloak.Config.Scope;
+
+/**
+ * Time that a single search request is allowed to spend in the database.
+ * <p>
+ * The budget is used in two ways: it's set as JPA query timeout hint so the database cancels a
+ * statement that outlives the request, and it's checked by the paging loops so they stop reading
+ * further chunks and return a partial page with a continue token instead.
+ */
+public class SearchTimeBudget {
+
+  public static final String QUERY_TIMEOUT_HINT = "javax.persistence.query.timeout";
+
+  /**
+   * Hibernate rounds the timeout hint to whole seconds and treats {@code 0} as no timeout, so
+   * smaller values are raised to this one.
+   */
+  private static final long MIN_QUERY_TIMEOUT_MILLIS = 1000L;
+
+  private static final SearchTimeBudget UNLIMITED = new SearchTimeBudget(0L, System::nanoTime);
+
+  private final long budgetMillis;
+  private final LongSupplier ticker;
+  private final long deadlineNanos;
+
+  private SearchTimeBudget(long budgetMillis, LongSupplier ticker) {
+    this.budgetMillis = budgetMillis;
+    this.ticker = ticker;
+    this.deadlineNanos = ticker.getAsLong() + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+  }
+
+  public static SearchTimeBudget ofMillis(long budgetMillis) {
+    return ofMillis(budgetMillis, System::nanoTime);
+  }
+
+  /**
+   * Starts a budget measured by the given source of nanosecond time instead of
+   * {@link System#nanoTime()}.
+   */
+  public static SearchTimeBudget ofMillis(long budgetMillis, LongSupplier ticker) {
+    return budgetMillis > 0 ? new SearchTimeBudget(budgetMillis, ticker) : UNLIMITED;
+  }
+
+  public static SearchTimeBudget unlimited() {
+    return UNLIMITED;
+  }
+
+  /**
+   * Returns whether the exception is thrown because the database cancelled a statement that
+   * outlived its timeout. Hibernate converts the timeout to the JPA exception only for a query read
+   * as a list, a streamed query and a statement executed by {@code doReturningWork} throw the
+   * Hibernate one.
+   */
+  public static boolean isTimeout(PersistenceException e) {
+    return e instanceof QueryTimeoutException
+        || e instanceof org.hibernate.QueryTimeoutException;
+  }
+
+  public boolean isLimited() {
+    return budgetMillis > 0;
+  }
+
+  public boolean isExhausted() {
+    return isLimited() && ticker.getAsLong() - deadlineNanos >= 0;
+  }
+
+  public long remainingMillis() {
+    if (!isLimited()) {
+      return Long.MAX_VALUE;
+    }
+    return Math.max(0L, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - ticker.getAsLong()));
+  }
+
+  /**
+   * Sets the remaining budget as timeout hint of the query.
+   */
+  public <Q extends Query> Q applyTo(Q query) {
+    if (isLimited()) {
+      query.setHint(QUERY_TIMEOUT_HINT, queryTimeoutMillis());
+    }
+    return query;
+  }
+
+  /**
+   * Sets the remaining budget rounded up to whole seconds as query timeout of the JDBC statement.
+   */
+  public void applyTo(Statement statement) throws SQLException {
+    if (isLimited()) {
+      statement.setQueryTimeout((int) Math.min(Integer.MAX_VALUE,
+          TimeUnit.MILLISECONDS.toSeconds(queryTimeoutMillis() + 999L)));
+    }
+  }
+
+  /**
+   * Executes the action with the remaining budget set as default query timeout of the entity
+   * manager. It's needed for the queries that are built by Keycloak itself, so there is no way to
+   * set a hint to them directly. The previous value of the property is restored afterwards.
+   */
+  public <T> T withQueryTimeout(EntityManager em, Supplier<T> action) {
+    if (!isLimited() || Objects.isNull(em)) {
+      return action.get();
+    }
+    var previousTimeout = em.getProperties().get(QUERY_TIMEOUT_HINT);
+    em.setProperty(QUERY_TIMEOUT_HINT, queryTimeoutMillis());
+    try {
+      return action.get();
+    } finally {
+      em.setProperty(QUERY_TIMEOUT_HINT, Objects.requireNonNullElse(previousTimeout, 0));
+    }
+  }
+
+  public void runWithQueryTimeout(EntityManager em, Runnable action) {
+    withQueryTimeout(em, () -> {
+      action.run();
+      return null;
+    });
+  }
+
+  private int queryTimeoutMillis() {
+    return (int) Math.min(Integer.MAX_VALUE,
+        Math.max(MIN_QUERY_TIMEOUT_MILLIS, remainingMillis()));
+  }
+
+  /**
+   * Resolves budget of a request: a value requested by the client is capped by
+   * {@link Policy#getMaxBudgetMillis() maxBudgetMillis}, if there is no requested value the
+   * default one is used. Non-positive values mean that the budget is unlimited.
+   */
+  @Builder
+  @Getter
+  public static class Policy {
+
+    @Builder.Default
+    private final long defaultBudgetMillis = 10_000L;
+    @Builder.Default
+    private final long maxBudgetMillis = 30_000L;
+    /**
+     * Source of nanosecond time the budgets are measured by.
+     */
+    @Builder.Default
+    private final LongSupplier ticker = System::nanoTime;
+
+    public static Policy create(Scope scope) {
+      var defaults = Policy.builder().build();
+      return Policy.builder()
+          .defaultBudgetMillis(scope.getLong("searchTimeBudgetMillis",
+              defaults.getDefaultBudgetMillis()))
+          .maxBudgetMillis(scope.getLong("maxSearchTimeBudgetMillis",
+              defaults.getMaxBudgetMillis()))
+          .build();
+    }
+
+    public SearchTimeBudget start(Integer requestedBudgetMillis) {
+      if (Objects.isNull(requestedBudgetMillis) || requestedBudgetMillis <= 0) {
+        return ofMillis(defaultBudgetMillis, ticker);
+      }
+      return ofMillis(maxBudgetMillis > 0
+          ? Math.min(requestedBudgetMillis, maxBudgetMillis) : requestedBudgetMillis, ticker);
+    }
+  }
+}
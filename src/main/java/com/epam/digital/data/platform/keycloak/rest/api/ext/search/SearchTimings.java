@@ -0,0 +1,219 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.search;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.Builder;
+import lombok.Getter;
+import org.hibernate.BaseSessionEventListener;
+import org.hibernate.SessionEventListener;
+import org.keycloak.Config.Scope;
+
+/**
+ * Breakdown of the time a single search request spends in its stages.
+ * <p>
+ * Time is accounted exclusively: when a stage is entered inside another one, the outer stage is
+ * paused until the inner one is exited. So statements executed while users are converted to
+ * representations count as {@link Stage#SQL} and not as {@link Stage#REPRESENTATION}. Statements
+ * are tracked by the {@link #getSqlListener() Hibernate session listener}.
+ * <p>
+ * The instance belongs to a single request and isn't thread safe.
+ */
+public class SearchTimings {
+
+  public static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+  private final Policy policy;
+  private final long startedNanos;
+  private final long[] stageNanos = new long[Stage.values().length];
+  private final Deque<Stage> activeStages = new ArrayDeque<>();
+  private long lastSwitchNanos;
+
+  private SearchTimings(Policy policy) {
+    this.policy = policy;
+    this.startedNanos = policy.getTicker().getAsLong();
+  }
+
+  public boolean isEnabled() {
+    return policy.isServerTimingEnabled() || policy.getSlowSearchThresholdMillis() > 0;
+  }
+
+  public boolean isServerTimingEnabled() {
+    return policy.isServerTimingEnabled();
+  }
+
+  public <T> T measure(Stage stage, Supplier<T> action) {
+    if (!isEnabled()) {
+      return action.get();
+    }
+    enter(stage);
+    try {
+      return action.get();
+    } finally {
+      exit();
+    }
+  }
+
+  public long getMillis(Stage stage) {
+    return TimeUnit.NANOSECONDS.toMillis(stageNanos[stage.ordinal()]);
+  }
+
+  public long getTotalMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(policy.getTicker().getAsLong() - startedNanos);
+  }
+
+  /**
+   * Returns value of {@code Server-Timing} header with duration of every stage and the total
+   * duration of the request so far, e.g. {@code auth;dur=1.2, sql;dur=15.0, total;dur=20.4}.
+   */
+  public String toServerTiming() {
+    return Stream.concat(
+            Stream.of(Stage.values())
+                .map(stage -> metric(stage.getMetricName(), stageNanos[stage.ordinal()])),
+            Stream.of(metric("total", policy.getTicker().getAsLong() - startedNanos)))
+        .collect(Collectors.joining(", "));
+  }
+
+  /**
+   * Returns {@code true} if the request took longer than the slow search threshold and it's
+   * sampled to be logged.
+   */
+  public boolean isSlowAndSampled() {
+    return policy.getSlowSearchThresholdMillis() > 0
+        && getTotalMillis() >= policy.getSlowSearchThresholdMillis()
+        && ThreadLocalRandom.current().nextDouble() < policy.getSlowSearchLogSampleRate();
+  }
+
+  /**
+   * Returns the stage durations as {@code key=value} pairs for the slow search log.
+   */
+  public String toLogFields() {
+    return Stream.of(Stage.values())
+        .map(stage -> stage.getMetricName() + "_ms=" + getMillis(stage))
+        .collect(Collectors.joining(" ", "total_ms=" + getTotalMillis() + " ", ""));
+  }
+
+  public SessionEventListener getSqlListener() {
+    return new BaseSessionEventListener() {
+      @Override
+      public void jdbcExecuteStatementStart() {
+        enter(Stage.SQL);
+      }
+
+      @Override
+      public void jdbcExecuteStatementEnd() {
+        exit();
+      }
+    };
+  }
+
+  private void enter(Stage stage) {
+    accrue();
+    activeStages.push(stage);
+  }
+
+  private void exit() {
+    accrue();
+    activeStages.poll();
+  }
+
+  private void accrue() {
+    var now = policy.getTicker().getAsLong();
+    var activeStage = activeStages.peek();
+    if (activeStage != null) {
+      stageNanos[activeStage.ordinal()] += now - lastSwitchNanos;
+    }
+    lastSwitchNanos = now;
+  }
+
+  private static String metric(String name, long nanos) {
+    return String.format(Locale.ROOT, "%s;dur=%.1f", name, nanos / 1_000_000d);
+  }
+
+  @Getter
+  public enum Stage {
+    /**
+     * Verification of the admin token.
+     */
+    AUTH("auth"),
+    /**
+     * Execution of the SQL statements.
+     */
+    SQL("sql"),
+    /**
+     * Loading of the users from the result sets and filtering of them.
+     */
+    HYDRATION("hydration"),
+    /**
+     * Conversion of the users to representations.
+     */
+    REPRESENTATION("representation"),
+    /**
+     * Serialization of the response body to JSON.
+     */
+    SERIALIZATION("serialization");
+
+    private final String metricName;
+
+    Stage(String metricName) {
+      this.metricName = metricName;
+    }
+  }
+
+  /**
+   * Configuration of the timings: {@code Server-Timing} response header and log of the sampled
+   * slow searches are opt-in, the timings aren't measured at all if both are disabled.
+   */
+  @Builder
+  @Getter
+  public static class Policy {
+
+    private final boolean serverTimingEnabled;
+    @Builder.Default
+    private final long slowSearchThresholdMillis = 0L;
+    @Builder.Default
+    private final double slowSearchLogSampleRate = 0.1d;
+    /**
+     * Source of nanosecond time the stages are measured by.
+     */
+    @Builder.Default
+    private final LongSupplier ticker = System::nanoTime;
+
+    public static Policy create(Scope scope) {
+      var defaults = Policy.builder().build();
+      return Policy.builder()
+          .serverTimingEnabled(scope.getBoolean("serverTimingEnabled", false))
+          .slowSearchThresholdMillis(scope.getLong("slowSearchThresholdMillis",
+              defaults.getSlowSearchThresholdMillis()))
+          .slowSearchLogSampleRate(Double.parseDouble(scope.get("slowSearchLogSampleRate",
+              Double.toString(defaults.getSlowSearchLogSampleRate()))))
+          .build();
+    }
+
+    public SearchTimings start() {
+      return new SearchTimings(this);
+    }
+  }
+}
@@ -0,0 +1,350 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.search;
+
+import com.epam.digital.data.platform.keycloak.rest.api.ext.ExtendedJpaUserProvider;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.UserFetchPlan;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.UserFilter;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.SearchUsersByRoleAndAttributesRequestDto;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.SearchWarmupStatusResponseDto;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.Builder;
+import lombok.Getter;
+import org.jboss.logging.Logger;
+import org.keycloak.Config.Scope;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.UserModel;
+import org.keycloak.models.UserProvider;
+import org.keycloak.models.utils.KeycloakModelUtils;
+import org.keycloak.models.utils.ModelToRepresentation;
+
+/**
+ * Warm-up of the search endpoints after start of the node.
+ * <p>
+ * The first searches after a rollout are several times slower, as Hibernate builds the plans of
+ * the criteria queries, the database prepares the statements and the JIT compiles the user
+ * filters, representation and serialization. The warm-up executes the common query shapes of the
+ * endpoints against the users of the configured realms for
+ * {@link Config#getIterations() iterations} times. Filter values are taken from the attributes of
+ * the first users of the realm, so the plans are built for the real data distribution.
+ * <p>
+ * Every search is executed in its own transaction that is rolled back, so nothing the searches
+ * may have touched is stored and a failed search doesn't abort the ones after it. The warm-up is
+ * executed by a background thread once the database is migrated, if the realms can't be read it's
+ * retried with backoff. Its result is reported by the {@code users/warmup} endpoint, which can be
+ * used as readiness probe, so the node joins the load balancer already warm. It's disabled by
+ * default.
+ */
+public class SearchWarmup {
+
+  private static final Logger LOGGER = Logger.getLogger(SearchWarmup.class);
+
+  private static final int PAGE_SIZE = 50;
+
+  private final Config config;
+  private final AtomicReference<Status> status;
+  private final AtomicInteger realms = new AtomicInteger();
+  private final AtomicInteger iterations = new AtomicInteger();
+  private final AtomicLong searches = new AtomicLong();
+  private final AtomicLong failedSearches = new AtomicLong();
+  private final AtomicLong durationMillis = new AtomicLong();
+
+  public SearchWarmup(Config config) {
+    this.config = config;
+    this.status = new AtomicReference<>(config.isEnabled() ? Status.PENDING : Status.DISABLED);
+  }
+
+  public static SearchWarmup create(Scope scope) {
+    var defaults = Config.builder().build();
+    var realms = scope.get("searchWarmupRealms");
+    return new SearchWarmup(Config.builder()
+        .enabled(scope.getBoolean("searchWarmupEnabled", defaults.isEnabled()))
+        .realms(Objects.isNull(realms) ? defaults.getRealms()
+            : Arrays.stream(realms.split(","))
+                .map(String::trim)
+                .filter(realm -> !realm.isEmpty())
+                .distinct()
+                .collect(Collectors.toUnmodifiableList()))
+        .iterations(scope.getInt("searchWarmupIterations", defaults.getIterations()))
+        .maxDurationMillis(scope.getLong("searchWarmupMaxDurationMillis",
+            defaults.getMaxDurationMillis()))
+        .build());
+  }
+
+  /**
+   * Starts a background thread that executes the preparation, e.g. builds the indexes the searches
+   * read, and then the warm-up if it's enabled and wasn't started yet. While the preparation is
+   * executed the warm-up is still pending, so the node isn't ready.
+   */
+  public void start(KeycloakSessionFactory factory, Runnable preparation) {
+    var thread = new Thread(() -> {
+      preparation.run();
+      run(factory);
+    }, "users-search-warmup");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Executes the warm-up by the calling thread if it's enabled and wasn't started yet.
+   */
+  public void run(KeycloakSessionFactory factory) {
+    if (status.compareAndSet(Status.PENDING, Status.RUNNING)) {
+      execute(factory);
+    }
+  }
+
+  /**
+   * Returns whether the node is ready to serve searches: the warm-up is finished or disabled.
+   * Failed single searches don't stop the warm-up.
+   */
+  public boolean isReady() {
+    var current = status.get();
+    return current == Status.READY || current == Status.DISABLED;
+  }
+
+  public SearchWarmupStatusResponseDto getStatus() {
+    return SearchWarmupStatusResponseDto.builder()
+        .status(status.get().name())
+        .ready(isReady())
+        .realms(realms.get())
+        .iterations(iterations.get())
+        .searches(searches.get())
+        .failedSearches(failedSearches.get())
+        .durationMillis(durationMillis.get())
+        .build();
+  }
+
+  private void execute(KeycloakSessionFactory factory) {
+    var startNanos = System.nanoTime();
+    var deadlineNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(config.getMaxDurationMillis());
+    var realmIds = new ArrayList<String>();
+    var extended = new AtomicBoolean();
+    var retryDelayMillis = config.getRetryDelayMillis();
+    while (!findRealms(factory, realmIds, extended)) {
+      LOGGER.warnf("Search warm-up retried in %d ms", retryDelayMillis);
+      try {
+        Thread.sleep(retryDelayMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      retryDelayMillis = Math.min(retryDelayMillis * 2, config.getMaxRetryDelayMillis());
+    }
+    realms.set(realmIds.size());
+    for (var iteration = 0; iteration < config.getIterations()
+        && System.nanoTime() - deadlineNanos < 0; iteration++) {
+      for (var realmId : realmIds) {
+        warm(factory, realmId, iteration, extended.get());
+      }
+      iterations.incrementAndGet();
+    }
+    durationMillis.set(elapsedMillis(startNanos));
+    status.set(Status.READY);
+    LOGGER.infof("Search warm-up finished in %d ms: %d realms, %d iterations, %d searches,"
+            + " %d failed", durationMillis.get(), realms.get(), iterations.get(),
+        searches.get(), failedSearches.get());
+  }
+
+  /**
+   * Reads ids of the realms to warm up and whether the users are stored by
+   * {@link ExtendedJpaUserProvider}.
+   *
+   * @return {@code false} if the realms can't be read, e.g. the database is unavailable
+   */
+  private boolean findRealms(KeycloakSessionFactory factory, List<String> realmIds,
+      AtomicBoolean extended) {
+    try {
+      realmIds.clear();
+      KeycloakModelUtils.runJobInTransaction(factory, session -> {
+        session.realms().getRealmsStream()
+            .filter(realm -> config.getRealms().isEmpty()
+                || config.getRealms().contains(realm.getName()))
+            .map(RealmModel::getId)
+            .forEach(realmIds::add);
+        extended.set(session.getProvider(UserProvider.class) instanceof ExtendedJpaUserProvider);
+      });
+      return true;
+    } catch (RuntimeException e) {
+      LOGGER.warn("Search warm-up can't read the realms", e);
+      return false;
+    }
+  }
+
+  private void warm(KeycloakSessionFactory factory, String realmId, int iteration,
+      boolean extended) {
+    // first page of v2/search-by-attributes filtered in memory, its users are the source of the
+    // filter values
+    var attribute = search(factory, realmId, (session, realm) -> {
+      var users = (extended
+          ? extendedProvider(session).getUsersStreamAfter(realm, null, null, PAGE_SIZE,
+          UserFetchPlan.ATTRIBUTES)
+          : session.users().getUsersStream(realm, 0, PAGE_SIZE))
+          .collect(Collectors.toList());
+      var sampled = sampleAttribute(users, iteration);
+      if (Objects.nonNull(sampled)) {
+        var values = values(sampled);
+        var prefixes = prefixes(sampled);
+        serialize(session, realm, users.stream()
+            .filter(user -> UserFilter.isUserMatchesAttributesEquals(user, values))
+            .filter(user -> UserFilter.isUserMatchesAttributesStartsWith(user, prefixes))
+            .filter(user -> UserFilter.isUserMatchesAttributesThatAreStartFor(user, values)));
+      }
+      return sampled;
+    });
+    if (Objects.isNull(attribute) || !extended) {
+      return;
+    }
+
+    // search-by-role-and-attributes by equality and by prefix
+    var equalsRequest = new SearchUsersByRoleAndAttributesRequestDto();
+    equalsRequest.setAttributesEquals(values(attribute));
+    equalsRequest.getPagination().setLimit(PAGE_SIZE);
+    search(factory, realmId, (session, realm) -> serialize(session, realm,
+        extendedProvider(session).searchForUserStream(realm, equalsRequest,
+            SearchTimeBudget.unlimited(), UserFetchPlan.REPRESENTATION)));
+    var startsWithRequest = new SearchUsersByRoleAndAttributesRequestDto();
+    startsWithRequest.setAttributesStartsWith(prefixes(attribute));
+    startsWithRequest.getPagination().setLimit(PAGE_SIZE);
+    search(factory, realmId, (session, realm) -> serialize(session, realm,
+        extendedProvider(session).searchForUserStream(realm, startsWithRequest,
+            SearchTimeBudget.unlimited(), UserFetchPlan.REPRESENTATION)));
+
+    // legacy search-by-attributes and its inverted prefix search
+    search(factory, realmId, (session, realm) -> serialize(session, realm,
+        extendedProvider(session).searchForUserByAttributesStream(realm,
+            Map.of(attribute.getKey(), attribute.getValue()), UserFetchPlan.REPRESENTATION)));
+    search(factory, realmId, (session, realm) -> serialize(session, realm,
+        extendedProvider(session).searchForUserByAttributesThatAreStartForStream(realm,
+            values(attribute), PAGE_SIZE, UserFetchPlan.REPRESENTATION)));
+  }
+
+  private static ExtendedJpaUserProvider extendedProvider(KeycloakSession session) {
+    return (ExtendedJpaUserProvider) session.getProvider(UserProvider.class);
+  }
+
+  private static Map<String, List<String>> values(Entry<String, String> attribute) {
+    return Map.of(attribute.getKey(), List.of(attribute.getValue()));
+  }
+
+  private static Map<String, List<String>> prefixes(Entry<String, String> attribute) {
+    return Map.of(attribute.getKey(), List.of(attribute.getValue()
+        .substring(0, Math.max(1, attribute.getValue().length() / 2))));
+  }
+
+  /**
+   * Returns one of the attribute values of the users, a different one for every iteration.
+   */
+  private static Entry<String, String> sampleAttribute(List<UserModel> users, int iteration) {
+    var attributes = users.stream()
+        .flatMap(user -> user.getAttributes().entrySet().stream())
+        // attributes stored as columns of the user don't represent attribute filters
+        .filter(attribute -> !ExtendedJpaUserProvider.USER_COLUMN_ATTRIBUTES
+            .contains(attribute.getKey()))
+        .flatMap(attribute -> attribute.getValue().stream()
+            .filter(value -> Objects.nonNull(value) && !value.isEmpty())
+            .map(value -> new SimpleImmutableEntry<>(attribute.getKey(), value)))
+        .collect(Collectors.toList());
+    return attributes.isEmpty() ? null : attributes.get(iteration % attributes.size());
+  }
+
+  private static byte[] serialize(KeycloakSession session, RealmModel realm,
+      Stream<UserModel> users) {
+    return SearchResponseEncoding.identity().serialize(users
+        .map(user -> ModelToRepresentation.toRepresentation(session, realm, user))
+        .collect(Collectors.toList()));
+  }
+
+  /**
+   * Executes a single search in its own transaction that is rolled back, so nothing the search may
+   * have touched is stored and a failed statement doesn't abort the transaction of the next
+   * search. Its failure doesn't stop the warm-up.
+   *
+   * @return result of the search or {@code null} if it failed or the realm was removed
+   */
+  private <T> T search(KeycloakSessionFactory factory, String realmId,
+      BiFunction<KeycloakSession, RealmModel, T> search) {
+    searches.incrementAndGet();
+    var result = new AtomicReference<T>();
+    try {
+      KeycloakModelUtils.runJobInTransaction(factory, session -> {
+        session.getTransactionManager().setRollbackOnly();
+        var realm = session.realms().getRealm(realmId);
+        if (Objects.nonNull(realm)) {
+          session.getContext().setRealm(realm);
+          result.set(search.apply(session, realm));
+        }
+      });
+      return result.get();
+    } catch (RuntimeException e) {
+      failedSearches.incrementAndGet();
+      LOGGER.debug("Warm-up search failed", e);
+      return null;
+    }
+  }
+
+  private static long elapsedMillis(long startNanos) {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+  }
+
+  public enum Status {
+    DISABLED,
+    PENDING,
+    RUNNING,
+    READY
+  }
+
+  @Builder
+  @Getter
+  public static class Config {
+
+    private final boolean enabled;
+    /**
+     * Names of the realms to warm up, all realms if empty.
+     */
+    @Builder.Default
+    private final List<String> realms = List.of();
+    @Builder.Default
+    private final int iterations = 50;
+    @Builder.Default
+    private final long maxDurationMillis = 60_000L;
+    /**
+     * Delay of the first retry if the realms can't be read, every next one is doubled.
+     */
+    @Builder.Default
+    private final long retryDelayMillis = 1_000L;
+    @Builder.Default
+    private final long maxRetryDelayMillis = 30_000L;
+  }
+}
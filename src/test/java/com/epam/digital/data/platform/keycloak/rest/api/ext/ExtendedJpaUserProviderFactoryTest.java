@@ -19,9 +19,12 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import javax.persistence.EntityManager;
 import org.junit.jupiter.api.DisplayName;
+import org.hibernate.Session;
 import org.junit.jupiter.api.Test;
+import org.keycloak.Config.Scope;
 import org.keycloak.connections.jpa.JpaConnectionProvider;
 import org.keycloak.models.KeycloakSession;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
 
 @DisplayName("ExtendedJpaUserProviderFactory Test")
@@ -44,6 +47,44 @@ class ExtendedJpaUserProviderFactoryTest {
     assertThat(result)
         .isNotNull()
         .isInstanceOf(ExtendedJpaUserProvider.class)
-        .hasFieldOrPropertyWithValue("session", session);
+        .hasFieldOrPropertyWithValue("session", session)
+        .hasFieldOrPropertyWithValue("searchDialect", UserSearchDialect.CRITERIA);
+  }
+
+  @Test
+  @DisplayName("Should detect PostgreSQL search dialect by database product name")
+  void shouldDetectPostgresqlSearchDialect() {
+    var session = mockSession();
+    var hibernateSession = Mockito.mock(Session.class);
+    Mockito.when(session.getProvider(JpaConnectionProvider.class).getEntityManager()
+        .unwrap(Session.class)).thenReturn(hibernateSession);
+    Mockito.when(hibernateSession.doReturningWork(ArgumentMatchers.any()))
+        .thenReturn("PostgreSQL");
+    factory.init(Mockito.mock(Scope.class));
+
+    assertThat(factory.create(session))
+        .hasFieldOrPropertyWithValue("searchDialect", UserSearchDialect.POSTGRESQL);
+    assertThat(factory.create(session))
+        .hasFieldOrPropertyWithValue("searchDialect", UserSearchDialect.POSTGRESQL);
+    Mockito.verify(hibernateSession).doReturningWork(ArgumentMatchers.any());
+  }
+
+  @Test
+  @DisplayName("Should use configured search dialect")
+  void shouldUseConfiguredSearchDialect() {
+    var config = Mockito.mock(Scope.class);
+    Mockito.when(config.get("searchDialect")).thenReturn("postgresql");
+    factory.init(config);
+
+    assertThat(factory.create(mockSession()))
+        .hasFieldOrPropertyWithValue("searchDialect", UserSearchDialect.POSTGRESQL);
+  }
+
+  private static KeycloakSession mockSession() {
+    var session = Mockito.mock(KeycloakSession.class);
+    var provider = Mockito.mock(JpaConnectionProvider.class);
+    Mockito.when(session.getProvider(JpaConnectionProvider.class)).thenReturn(provider);
+    Mockito.when(provider.getEntityManager()).thenReturn(Mockito.mock(EntityManager.class));
+    return session;
   }
 }
@@ -17,14 +17,35 @@
 package com.epam.digital.data.platform.keycloak.rest.api.ext;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import com.epam.digital.data.platform.keycloak.rest.api.ext.admission.RetryLaterException;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.BulkUpdateUserAttributesRequestDto;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.BulkUpdateUserAttributesRequestDto.Operation;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.BulkUpdateUserAttributesRequestDto.OperationType;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.BulkUpdateUserRolesRequestDto;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.BulkUpdateUserRolesRequestDto.Action;
 import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.SearchUserRequestDto;
 import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.SearchUsersByEqualsAndStartsWithAttributesRequestDto;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.SearchUsersByRoleAndAttributesRequestDto;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.SearchUsersFacetsRequestDto;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.SearchUsersFacetsRequestDto.Facet;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.SearchUsersFacetsResponseDto;
+import java.sql.SQLTimeoutException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
+import javax.persistence.QueryTimeoutException;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.core.Response;
 import org.jboss.resteasy.spi.HttpRequest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -32,6 +53,7 @@ import org.keycloak.models.KeycloakContext;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.UserProvider;
+import org.keycloak.representations.idm.UserRepresentation;
 import org.keycloak.storage.adapter.InMemoryUserAdapter;
 
 class UserApiProviderLogicTest {
@@ -65,8 +87,8 @@ class UserApiProviderLogicTest {
     when(userProvider.searchForUserByUserAttributeStream(realm, "key1", "value1"))
         .thenReturn(Stream.of(userModel));
 
-    var userRepresentations = userApiProviderTestImpl.searchUsersByAttributes(
-        mock(HttpRequest.class), requestDto);
+    var userRepresentations = getUsers(userApiProviderTestImpl.searchUsersByAttributes(
+        mock(HttpRequest.class), requestDto));
 
     assertEquals(0, userRepresentations.size());
   }
@@ -84,8 +106,8 @@ class UserApiProviderLogicTest {
     when(userProvider.searchForUserByUserAttributeStream(realm, "key2", "value2"))
         .thenReturn(Stream.of(userModel));
 
-    var userRepresentations = userApiProviderTestImpl.searchUsersByAttributes(
-        mock(HttpRequest.class), requestDto);
+    var userRepresentations = getUsers(userApiProviderTestImpl.searchUsersByAttributes(
+        mock(HttpRequest.class), requestDto));
 
     assertEquals(1, userRepresentations.size());
     assertEquals(2, userRepresentations.get(0).getAttributes().size());
@@ -101,8 +123,8 @@ class UserApiProviderLogicTest {
     requestDto.attributesEquals = Map.of();
     requestDto.attributesStartsWith = Map.of();
 
-    var userRepresentations = userApiProviderTestImpl.searchUsersByAttributes(
-        mock(HttpRequest.class), requestDto);
+    var userRepresentations = getUsers(userApiProviderTestImpl.searchUsersByAttributes(
+        mock(HttpRequest.class), requestDto));
 
     assertEquals(0, userRepresentations.size());
   }
@@ -115,7 +137,7 @@ class UserApiProviderLogicTest {
     requestDto.attributesStartsWith = Map.of("KATOTTG", List.of("UA0102030405"));
 
     var userRepresentations =
-        userApiProviderTestImpl.searchUsersByAttributes(mock(HttpRequest.class), requestDto);
+        getUsers(userApiProviderTestImpl.searchUsersByAttributes(mock(HttpRequest.class), requestDto));
 
     assertEquals(2, userRepresentations.size());
     assertEquals(1, userRepresentations.get(0).getAttributes().get("KATOTTG").size());
@@ -130,7 +152,7 @@ class UserApiProviderLogicTest {
     requestDto.attributesStartsWith = Map.of();
 
     var userRepresentations =
-        userApiProviderTestImpl.searchUsersByAttributes(mock(HttpRequest.class), requestDto);
+        getUsers(userApiProviderTestImpl.searchUsersByAttributes(mock(HttpRequest.class), requestDto));
 
     assertEquals(2, userRepresentations.size());
     assertEquals(1, userRepresentations.get(0).getAttributes().get("key1").size());
@@ -145,13 +167,148 @@ class UserApiProviderLogicTest {
     requestDto.attributesStartsWith = Map.of("KATOTTG", List.of("UA0102030405"));
 
     var userRepresentations =
-        userApiProviderTestImpl.searchUsersByAttributes(mock(HttpRequest.class), requestDto);
+        getUsers(userApiProviderTestImpl.searchUsersByAttributes(mock(HttpRequest.class), requestDto));
 
     assertEquals(1, userRepresentations.size());
     assertEquals(1, userRepresentations.get(0).getAttributes().get("key1").size());
     assertEquals(1, userRepresentations.get(0).getAttributes().get("KATOTTG").size());
   }
 
+  @Test
+  void shouldReturnUserCountsPerRequestedFacet() {
+    var extendedProvider = mock(ExtendedJpaUserProvider.class);
+    when(session.getProvider(UserProvider.class)).thenReturn(extendedProvider);
+    var requestDto = new SearchUsersFacetsRequestDto();
+    var edrpou = new Facet();
+    edrpou.setAttribute("edrpou");
+    var region = new Facet();
+    region.setAttribute("KATOTTG");
+    region.setPrefixLength(4);
+    requestDto.setFacets(List.of(edrpou, region));
+    when(extendedProvider.countUsersByAttributeValues(eq(realm), eq(requestDto), eq("edrpou"),
+        isNull(), any())).thenReturn(Map.of("11111111", 2L));
+    when(extendedProvider.countUsersByAttributeValues(eq(realm), eq(requestDto), eq("KATOTTG"),
+        eq(4), any())).thenReturn(Map.of("UA01", 3L));
+
+    var facets = ((SearchUsersFacetsResponseDto) userApiProviderTestImpl.searchUsersFacets(
+        mock(HttpRequest.class), requestDto).getEntity()).getFacets();
+
+    assertEquals(2, facets.size());
+    assertEquals("edrpou", facets.get(0).getAttribute());
+    assertEquals(Map.of("11111111", 2L), facets.get(0).getCounts());
+    assertEquals(4, facets.get(1).getPrefixLength());
+    assertEquals(Map.of("UA01", 3L), facets.get(1).getCounts());
+  }
+
+  @Test
+  void shouldRejectFacetWithoutAttribute() {
+    var requestDto = new SearchUsersFacetsRequestDto();
+    requestDto.setFacets(List.of(new Facet()));
+
+    assertThrows(BadRequestException.class,
+        () -> userApiProviderTestImpl.searchUsersFacets(mock(HttpRequest.class), requestDto));
+  }
+
+  @Test
+  void shouldRejectNullOrBlankRoleNames() {
+    var requestDto = new SearchUsersByRoleAndAttributesRequestDto();
+    requestDto.setRoleNames(Arrays.asList("officer", null));
+    var blankRequestDto = new SearchUsersByRoleAndAttributesRequestDto();
+    blankRequestDto.setRoleNames(List.of("officer", " "));
+
+    assertThrows(BadRequestException.class, () -> userApiProviderTestImpl
+        .searchUsersByRoleAndAttributes(mock(HttpRequest.class), requestDto));
+    assertThrows(BadRequestException.class, () -> userApiProviderTestImpl
+        .searchUsersByRoleAndAttributes(mock(HttpRequest.class), blankRequestDto));
+  }
+
+  @Test
+  void shouldRejectSearchWithUsedUpTimeBudget() {
+    var extendedProvider = mock(ExtendedJpaUserProvider.class);
+    when(session.getProvider(UserProvider.class)).thenReturn(extendedProvider);
+    // a streamed query throws the Hibernate exception, the JPA one only a query read as a list
+    when(extendedProvider.searchForUserStream(eq(realm),
+        any(SearchUsersByRoleAndAttributesRequestDto.class), any(), any()))
+        .thenThrow(new org.hibernate.QueryTimeoutException("Statement cancelled",
+            new SQLTimeoutException(), "select"))
+        .thenThrow(new QueryTimeoutException());
+
+    for (var attempt = 0; attempt < 2; attempt++) {
+      var exception = assertThrows(RetryLaterException.class, () -> userApiProviderTestImpl
+          .searchUsersByRoleAndAttributes(mock(HttpRequest.class),
+              new SearchUsersByRoleAndAttributesRequestDto()));
+      assertEquals(503, exception.getResponse().getStatus());
+    }
+  }
+
+  @Test
+  void shouldRejectBulkUpdateOfTooManyUsers() {
+    var operation = new Operation();
+    operation.setType(OperationType.SET);
+    operation.setAttribute("edrpou");
+    var requestDto = new BulkUpdateUserAttributesRequestDto();
+    requestDto.setUserIds(Collections.nCopies(1001, "id"));
+    requestDto.setOperations(List.of(operation));
+
+    assertThrows(BadRequestException.class, () -> userApiProviderTestImpl.updateUsersAttributes(
+        mock(HttpRequest.class), requestDto));
+  }
+
+  @Test
+  void shouldRejectBulkUpdateOfUserColumns() {
+    var operation = new Operation();
+    operation.setType(OperationType.SET);
+    operation.setAttribute("email");
+    var requestDto = new BulkUpdateUserAttributesRequestDto();
+    requestDto.setUserIds(List.of("id"));
+    requestDto.setOperations(List.of(operation));
+
+    assertThrows(BadRequestException.class, () -> userApiProviderTestImpl.updateUsersAttributes(
+        mock(HttpRequest.class), requestDto));
+  }
+
+  @Test
+  void shouldRejectReplaceWithoutValues() {
+    var operation = new Operation();
+    operation.setType(OperationType.REPLACE);
+    operation.setAttribute("edrpou");
+    operation.setFrom("11111111");
+    var requestDto = new BulkUpdateUserAttributesRequestDto();
+    requestDto.setUserIds(List.of("id"));
+    requestDto.setOperations(List.of(operation));
+
+    assertThrows(BadRequestException.class, () -> userApiProviderTestImpl.updateUsersAttributes(
+        mock(HttpRequest.class), requestDto));
+  }
+
+  @Test
+  void shouldRejectBulkRoleUpdateWithBothUserIdsAndFilter() {
+    var requestDto = new BulkUpdateUserRolesRequestDto();
+    requestDto.setAction(Action.GRANT);
+    requestDto.setRoleName("officer");
+    requestDto.setUserIds(List.of("id"));
+    requestDto.setFilter(new SearchUsersByRoleAndAttributesRequestDto());
+
+    assertThrows(BadRequestException.class, () -> userApiProviderTestImpl.updateUsersRoles(
+        mock(HttpRequest.class), requestDto));
+  }
+
+  @Test
+  void shouldRejectBulkRoleUpdateOfUnknownRole() {
+    var requestDto = new BulkUpdateUserRolesRequestDto();
+    requestDto.setAction(Action.REVOKE);
+    requestDto.setRoleName("unknown");
+    requestDto.setUserIds(List.of("id"));
+
+    assertThrows(NotFoundException.class, () -> userApiProviderTestImpl.updateUsersRoles(
+        mock(HttpRequest.class), requestDto));
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<UserRepresentation> getUsers(Response response) {
+    return (List<UserRepresentation>) response.getEntity();
+  }
+
   private void prepareKeycloakUsers() {
     var userModel1 = new InMemoryUserAdapter(session, realm, "id");
     userModel1.setAttribute("key1", List.of("value1"));
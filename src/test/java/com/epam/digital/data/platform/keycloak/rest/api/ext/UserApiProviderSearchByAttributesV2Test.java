@@ -20,16 +20,28 @@ package com.epam.digital.data.platform.keycloak.rest.api.ext;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 
 import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.v2.SearchUsersByAttributesRequestDto;
 import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.v2.SearchUsersByAttributesResponseDto;
 import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.v2.SearchUsersByAttributesResponseDto.Pagination;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.event.UserChangeEventListenerProviderFactory;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.search.ContinueToken;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.search.SearchTimeBudget;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.search.SearchTimings;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.SneakyThrows;
@@ -37,10 +49,12 @@ import org.jboss.resteasy.spi.HttpRequest;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.keycloak.models.*;
 import org.keycloak.representations.idm.UserRepresentation;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 class UserApiProviderSearchByAttributesV2Test {
@@ -49,6 +63,7 @@ class UserApiProviderSearchByAttributesV2Test {
   private static Map<String, User> userStorageMap;
 
   HttpRequest request;
+  KeycloakSession session;
   UserApiProvider userApiProvider;
 
   ObjectMapper objectMapper;
@@ -74,7 +89,7 @@ class UserApiProviderSearchByAttributesV2Test {
   void setUp() {
     objectMapper = new ObjectMapper();
 
-    var session = Mockito.mock(KeycloakSession.class);
+    session = Mockito.mock(KeycloakSession.class);
     var context = Mockito.mock(KeycloakContext.class);
     var realm = Mockito.mock(RealmModel.class);
     var userProvider = Mockito.mock(UserProvider.class);
@@ -108,7 +123,8 @@ class UserApiProviderSearchByAttributesV2Test {
       SearchUsersByAttributesResponseDto expectedResponseDto) {
     var requestDto = objectMapper.readValue(requestString, SearchUsersByAttributesRequestDto.class);
 
-    var actualResponseDto = userApiProvider.searchUsersByAttributes(request, requestDto);
+    var actualResponseDto = (SearchUsersByAttributesResponseDto) userApiProvider.searchUsersByAttributes(
+        request, requestDto).getEntity();
 
     Assertions.assertEquals(expectedResponseDto.getUsers().size(),
         actualResponseDto.getUsers().size());
@@ -127,48 +143,225 @@ class UserApiProviderSearchByAttributesV2Test {
     });
   }
 
+  @Test
+  @SneakyThrows
+  void searchUsersByAttributesShouldReturnPartialPagesWhenTimeBudgetIsUsedUp() {
+    // every read user takes 3 ms of the 5 ms budget
+    var nanoTime = new AtomicLong();
+    var slowUserApiProvider = new UserApiProviderTestImpl(session, new UserFilter(),
+        SearchTimeBudget.Policy.builder().defaultBudgetMillis(5).ticker(nanoTime::get).build());
+    var userProvider = session.users();
+    Mockito.doAnswer(invocation -> {
+      var firstResult = (int) invocation.getArgument(1);
+      var maxResults = (int) invocation.getArgument(2);
+      return userStorage.stream().skip(firstResult).limit(maxResults)
+          .peek(user -> nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(3)))
+          .map(this::mapToUserModelMock);
+    }).when(userProvider).getUsersStream(any(), anyInt(), anyInt());
+
+    var foundUserNames = new ArrayList<String>();
+    var partialPages = 0;
+    var continueToken = "0";
+    do {
+      var requestDto = objectMapper.readValue(
+          "{\"attributesStartsWith\":{\"hierarchy\":[\"100\",\"101.200\"]},"
+              + "\"pagination\":{\"limit\":3,\"continueToken\":" + continueToken + "}}",
+          SearchUsersByAttributesRequestDto.class);
+      var responseDto = (SearchUsersByAttributesResponseDto) slowUserApiProvider
+          .searchUsersByAttributes(request, requestDto).getEntity();
+      continueToken = responseDto.getPagination().getContinueToken();
+      if (!"-1".equals(continueToken) && responseDto.getUsers().size() < 3) {
+        partialPages++;
+      }
+      responseDto.getUsers().forEach(user -> foundUserNames.add(user.getUsername()));
+    } while (!"-1".equals(continueToken));
+
+    Assertions.assertEquals(
+        List.of("user1", "user3", "user4", "user5", "user6", "user7", "user8"), foundUserNames);
+    Assertions.assertTrue(partialPages > 0);
+  }
+
+  @Test
+  @SneakyThrows
+  void searchUsersByAttributesShouldReadUnpaginatedSearchInChunksWithAttributes() {
+    var keysetProvider = Mockito.mock(ExtendedJpaUserProvider.class);
+    when(session.getProvider(UserProvider.class)).thenReturn(keysetProvider);
+    Mockito.doAnswer(invocation -> {
+      var username = (String) invocation.getArgument(1);
+      var maxResults = (int) invocation.getArgument(3);
+      return userStorage.stream()
+          .filter(user -> username == null || user.getUserName().compareTo(username) > 0)
+          .limit(maxResults)
+          .map(this::mapToUserModelMock);
+    }).when(keysetProvider).getUsersStreamAfter(any(), any(), any(), anyInt(), any());
+    var requestDto = objectMapper.readValue(
+        "{\"attributesStartsWith\":{\"hierarchy\":[\"100\",\"101.200\"]}}",
+        SearchUsersByAttributesRequestDto.class);
+
+    var responseDto = (SearchUsersByAttributesResponseDto) userApiProvider
+        .searchUsersByAttributes(request, requestDto).getEntity();
+
+    Assertions.assertEquals(
+        List.of("user1", "user3", "user4", "user5", "user6", "user7", "user8"),
+        responseDto.getUsers().stream().map(UserRepresentation::getUsername)
+            .collect(Collectors.toList()));
+    Assertions.assertEquals("-1", responseDto.getPagination().getContinueToken());
+    // the chunk after the last user is empty and ends the search
+    Mockito.verify(keysetProvider, Mockito.times(2)).getUsersStreamAfter(any(), any(), any(),
+        eq(500), eq(UserFetchPlan.ATTRIBUTES));
+    Mockito.verifyNoMoreInteractions(keysetProvider);
+  }
+
+  @Test
+  @SneakyThrows
+  void searchUsersByAttributesShouldSeekByKeysetTokenAfterIntegerToken() {
+    var keysetProvider = Mockito.mock(ExtendedJpaUserProvider.class);
+    when(session.getProvider(UserProvider.class)).thenReturn(keysetProvider);
+    Mockito.doAnswer(invocation -> {
+      var username = (String) invocation.getArgument(1);
+      var maxResults = (int) invocation.getArgument(3);
+      return userStorage.stream()
+          .filter(user -> username == null || user.getUserName().compareTo(username) > 0)
+          .limit(maxResults)
+          .map(this::mapToUserModelMock);
+    }).when(keysetProvider).getUsersStreamAfter(any(), any(), any(), anyInt(), any());
+
+    var foundUserNames = new ArrayList<String>();
+    var continueTokens = new ArrayList<String>();
+    // integer token of a client that started the search before keyset tokens
+    var continueToken = "2";
+    do {
+      var requestDto = objectMapper.readValue(
+          "{\"attributesStartsWith\":{\"hierarchy\":[\"100\",\"101.200\"]},"
+              + "\"pagination\":{\"limit\":2,\"continueToken\":" + continueToken + "}}",
+          SearchUsersByAttributesRequestDto.class);
+      var responseDto = (SearchUsersByAttributesResponseDto) userApiProvider
+          .searchUsersByAttributes(request, requestDto).getEntity();
+      continueTokens.add(responseDto.getPagination().getContinueToken());
+      responseDto.getUsers().forEach(user -> foundUserNames.add(user.getUsername()));
+      continueToken = "\"" + responseDto.getPagination().getContinueToken() + "\"";
+    } while (!"\"-1\"".equals(continueToken));
+
+    Assertions.assertEquals(List.of("user3", "user4", "user5", "user6", "user7", "user8"),
+        foundUserNames);
+    Assertions.assertEquals(3, continueTokens.size());
+    Assertions.assertEquals("user4", ContinueToken.parse(continueTokens.get(0)).getUsername());
+    Assertions.assertEquals("user6", ContinueToken.parse(continueTokens.get(1)).getUsername());
+    Assertions.assertEquals("-1", continueTokens.get(2));
+    Mockito.verify(session.users()).getUsersStream(any(), Mockito.eq(2), Mockito.eq(2));
+  }
+
+  @Test
+  @SneakyThrows
+  void searchUsersByAttributesShouldReturnNotModifiedWithoutSearchIfTagMatches() {
+    var realm = session.getContext().getRealm();
+    Mockito.doReturn("realmId").when(realm).getId();
+    Mockito.doAnswer(invocation -> Stream.of(UserChangeEventListenerProviderFactory.ID))
+        .when(realm).getEventsListenersStream();
+    var headers = Mockito.mock(HttpHeaders.class);
+    Mockito.doReturn(headers).when(request).getHttpHeaders();
+    var requestDto = objectMapper.readValue("{\"attributesEquals\":{\"attribute1\":[\"value1\"]}}",
+        SearchUsersByAttributesRequestDto.class);
+
+    var response = userApiProvider.searchUsersByAttributes(request, requestDto);
+    Assertions.assertEquals(200, response.getStatus());
+    Assertions.assertNotNull(response.getEntityTag());
+
+    Mockito.doReturn(List.of("\"" + response.getEntityTag().getValue() + "\""))
+        .when(headers).getRequestHeader(HttpHeaders.IF_NONE_MATCH);
+    Mockito.clearInvocations(session.users());
+    var notModifiedResponse = userApiProvider.searchUsersByAttributes(request, requestDto);
+
+    Assertions.assertEquals(304, notModifiedResponse.getStatus());
+    Assertions.assertEquals(response.getEntityTag(), notModifiedResponse.getEntityTag());
+    Mockito.verifyNoInteractions(session.users());
+  }
+
+  @Test
+  @SneakyThrows
+  void searchUsersByAttributesShouldReturnServerTimingIfEnabled() {
+    var timedUserApiProvider = new UserApiProviderTestImpl(session, new UserFilter(),
+        SearchTimeBudget.Policy.builder().build(),
+        SearchTimings.Policy.builder().serverTimingEnabled(true).build());
+    var requestDto = objectMapper.readValue("{\"attributesEquals\":{\"attribute1\":[\"value1\"]}}",
+        SearchUsersByAttributesRequestDto.class);
+
+    var response = timedUserApiProvider.searchUsersByAttributes(request, requestDto);
+
+    Assertions.assertEquals(200, response.getStatus());
+    var responseBody = objectMapper.readTree((byte[]) response.getEntity());
+    Assertions.assertEquals(1, responseBody.get("users").size());
+    Assertions.assertEquals("user1", responseBody.get("users").get(0).get("username").asText());
+    Assertions.assertTrue(response.getHeaderString(SearchTimings.SERVER_TIMING_HEADER).matches(
+        "auth;dur=[0-9.]+, sql;dur=[0-9.]+, hydration;dur=[0-9.]+, representation;dur=[0-9.]+, "
+            + "serialization;dur=[0-9.]+, total;dur=[0-9.]+"));
+  }
+
+  @Test
+  void searchUsersByAttributesShouldResumeAsyncResponseWithSearchResult() {
+    var asyncResponse = Mockito.mock(AsyncResponse.class);
+
+    userApiProvider.searchUsersByAttributes(request, new SearchUsersByAttributesRequestDto(),
+        asyncResponse);
+
+    var captor = ArgumentCaptor.forClass(Object.class);
+    Mockito.verify(asyncResponse).resume(captor.capture());
+    var response = (Response) captor.getValue();
+    Assertions.assertEquals(200, response.getStatus());
+    Assertions.assertInstanceOf(SearchUsersByAttributesResponseDto.class, response.getEntity());
+  }
+
+  @Test
+  void searchUsersByAttributesShouldNotReturnServerTimingByDefault() {
+    var response = userApiProvider.searchUsersByAttributes(request,
+        new SearchUsersByAttributesRequestDto());
+
+    Assertions.assertNull(response.getHeaderString(SearchTimings.SERVER_TIMING_HEADER));
+    Assertions.assertInstanceOf(SearchUsersByAttributesResponseDto.class, response.getEntity());
+  }
+
   static Object[][] getRequestAndExpectedResponse() {
     return new Object[][]{{
         "{\"attributesEquals\":{\"attribute1\":[\"value1\",\"value2\"]}}",
-        createResponseDto(List.of("user1", "user2"), Pagination.builder().continueToken(-1).build())
+        createResponseDto(List.of("user1", "user2"), Pagination.builder().continueToken("-1").build())
     }, {
         "{\"attributesEquals\":{\"attribute1\":[\"value3\"],\"attribute2\":[]}}",
-        createResponseDto(List.of("user8"), Pagination.builder().continueToken(-1).build())
+        createResponseDto(List.of("user8"), Pagination.builder().continueToken("-1").build())
     }, {
         "{\"attributesStartsWith\":{\"hierarchy\":[\"100\",\"101.200\"]}}",
         createResponseDto(List.of("user1", "user3", "user4", "user5", "user6", "user7", "user8"),
-            Pagination.builder().continueToken(-1).build())
+            Pagination.builder().continueToken("-1").build())
     }, {
         "{\"attributesStartsWith\":{\"hierarchy\":[\"100\",\"101.200\"]},\"pagination\":{\"limit\":2}}",
-        createResponseDto(List.of("user1", "user3"), Pagination.builder().continueToken(3).build())
+        createResponseDto(List.of("user1", "user3"), Pagination.builder().continueToken("3").build())
     }, {
         "{\"attributesStartsWith\":{\"hierarchy\":[\"100\",\"101.200\"]},\"pagination\":{\"limit\":2,\"continueToken\":3}}",
-        createResponseDto(List.of("user4", "user5"), Pagination.builder().continueToken(5).build())
+        createResponseDto(List.of("user4", "user5"), Pagination.builder().continueToken("5").build())
     }, {
         "{\"attributesStartsWith\":{\"hierarchy\":[\"100\",\"101.200\"]},\"pagination\":{\"limit\":2,\"continueToken\":5}}",
-        createResponseDto(List.of("user6", "user7"), Pagination.builder().continueToken(7).build())
+        createResponseDto(List.of("user6", "user7"), Pagination.builder().continueToken("7").build())
     }, {
         "{\"attributesStartsWith\":{\"hierarchy\":[\"100\",\"101.200\"]},\"pagination\":{\"limit\":2,\"continueToken\":7}}",
-        createResponseDto(List.of("user8"), Pagination.builder().continueToken(-1).build())
+        createResponseDto(List.of("user8"), Pagination.builder().continueToken("-1").build())
     }, {
         "{\"attributesEquals\":{},\"pagination\":{\"limit\":4,\"continueToken\":0}}",
         createResponseDto(List.of("user1", "user2", "user3", "user4"),
-            Pagination.builder().continueToken(4).build())
+            Pagination.builder().continueToken("4").build())
     }, {
         "{\"attributesThatAreStartFor\":{},\"pagination\":{\"limit\":4,\"continueToken\":4}}",
         createResponseDto(List.of("user5", "user6", "user7", "user8"),
-            Pagination.builder().continueToken(-1).build())
+            Pagination.builder().continueToken("-1").build())
     }, {
         "{\"pagination\":{\"limit\":4,\"continueToken\":-1}}",
-        createResponseDto(List.of(), Pagination.builder().continueToken(-1).build())
+        createResponseDto(List.of(), Pagination.builder().continueToken("-1").build())
     }, {
         "{\"attributesThatAreStartFor\":{\"hierarchy\":[\"100.200\",\"101\"]},\"pagination\":{\"limit\":-2123,\"continueToken\":0}}",
         createResponseDto(List.of("user1", "user2", "user3"),
-            Pagination.builder().continueToken(-1).build())
+            Pagination.builder().continueToken("-1").build())
     }, {
         "{\"attributesStartsWith\":{\"hierarchy\":[\"100.200\"]},\"attributesThatAreStartFor\":{\"hierarchy\":[\"100.200.301.400.500\"]}}",
         createResponseDto(List.of("user3", "user7", "user8"),
-            Pagination.builder().continueToken(-1).build())
+            Pagination.builder().continueToken("-1").build())
     },
     };
   }
@@ -16,6 +16,18 @@
 
 package com.epam.digital.data.platform.keycloak.rest.api.ext;
 
+import com.epam.digital.data.platform.keycloak.rest.api.ext.admission.AsyncSearchExecutor;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.admission.SearchBulkhead;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.auth.AdminTokenCache;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.bulk.BulkUserUpdate;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.bulk.UserImport;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.changes.UserChangeFeed;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.event.UserDataVersions;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.search.SearchResponseEncoding;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.search.SearchResultETags;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.search.SearchTimeBudget;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.search.SearchTimings;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.search.SearchWarmup;
 import java.util.HashMap;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -23,9 +35,12 @@ import java.util.stream.Stream;
 import javax.ws.rs.core.HttpHeaders;
 import org.jboss.resteasy.spi.HttpRequest;
 import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
 import org.keycloak.models.UserModel;
 import org.keycloak.representations.idm.UserRepresentation;
 import org.keycloak.services.resources.admin.AdminAuth;
+import org.keycloak.services.resources.admin.permissions.AdminPermissionEvaluator;
+import org.mockito.Mockito;
 
 public class UserApiProviderTestImpl extends UserApiProvider {
 
@@ -33,10 +48,32 @@ public class UserApiProviderTestImpl extends UserApiProvider {
     super(session, userFilter);
   }
 
+  public UserApiProviderTestImpl(KeycloakSession session, UserFilter userFilter,
+      SearchTimeBudget.Policy timeBudgetPolicy) {
+    this(session, userFilter, timeBudgetPolicy, SearchTimings.Policy.builder().build());
+  }
+
+  public UserApiProviderTestImpl(KeycloakSession session, UserFilter userFilter,
+      SearchTimeBudget.Policy timeBudgetPolicy, SearchTimings.Policy timingsPolicy) {
+    super(session, userFilter, new SearchBulkhead(SearchBulkhead.Config.builder().build()),
+        new SearchBulkhead(SearchBulkhead.Config.bulkWriteDefaults().build()), timeBudgetPolicy,
+        new SearchResultETags(new UserDataVersions()),
+        new AdminTokenCache(AdminTokenCache.Config.builder().build()), timingsPolicy,
+        new AsyncSearchExecutor(AsyncSearchExecutor.Config.builder().build()),
+        UserChangeFeed.Policy.builder().build(), BulkUserUpdate.Policy.builder().build(),
+        UserImport.Policy.builder().build(), SearchResponseEncoding.Policy.builder().build(),
+        new SearchWarmup(SearchWarmup.Config.builder().build()));
+  }
+
   @Override
   public void validateRequestRealm(HttpRequest request, String realmName) {
   }
 
+  @Override
+  protected AdminPermissionEvaluator permissions(RealmModel realm, AdminAuth auth) {
+    return Mockito.mock(AdminPermissionEvaluator.class, Mockito.RETURNS_DEEP_STUBS);
+  }
+
   @Override
   protected AdminAuth authenticateRealmAdminRequest(HttpHeaders headers) {
     return null;
@@ -17,13 +17,19 @@
 package com.epam.digital.data.platform.keycloak.rest.api.ext;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
+import org.keycloak.models.UserProvider;
 import org.keycloak.storage.adapter.InMemoryUserAdapter;
 
 class UserFilterTest extends KeycloakBaseTest {
@@ -66,6 +72,47 @@ class UserFilterTest extends KeycloakBaseTest {
     assertEquals("11110000", result.get(0).getFirstAttribute("drfo"));
   }
 
+  @Test
+  void shouldSearchByAllAttributesAtOnceWithExtendedProvider() {
+    var extendedProvider = mock(ExtendedJpaUserProvider.class);
+    when(session.getProvider(UserProvider.class)).thenReturn(extendedProvider);
+    var userModel1 = new InMemoryUserAdapter(session, realm, "id");
+    userModel1.setAttribute("fullName", List.of("Alex"));
+    userModel1.setAttribute("drfo", List.of("11110000"));
+    var userModel2 = new InMemoryUserAdapter(session, realm, "id");
+    userModel2.setAttribute("fullName", List.of("Alex"));
+    userModel2.setAttribute("drfo", List.of("22226666", "11110000"));
+    var attributes = Map.of("fullName", "Alex", "drfo", "11110000");
+    when(extendedProvider.searchForUserByAttributesStream(realm, attributes,
+        UserFetchPlan.ATTRIBUTES))
+        .thenReturn(Stream.of(userModel1, userModel2));
+
+    var result = userFilter.filterUsersByAttributesEquals(session, attributes)
+        .collect(Collectors.toList());
+
+    assertEquals(List.of(userModel1), result);
+    verifyNoInteractions(userProvider);
+  }
+
+  @Test
+  void shouldMatchAttributesIgnoringCaseOnlyForListedAttributes() {
+    var userModel = new InMemoryUserAdapter(session, realm, "id");
+    userModel.setAttribute("contactEmail", List.of("Alex.Smith@Example.com"));
+    userModel.setAttribute("KATOTTG", List.of("UA0102"));
+    var ignoreCase = Set.of("contactEmail");
+
+    assertTrue(UserFilter.isUserMatchesAttributesEquals(userModel,
+        Map.of("contactEmail", List.of("alex.smith@example.com")), ignoreCase));
+    assertTrue(UserFilter.isUserMatchesAttributesStartsWith(userModel,
+        Map.of("contactEmail", List.of("ALEX.")), ignoreCase));
+    assertFalse(UserFilter.isUserMatchesAttributesStartsWith(userModel,
+        Map.of("KATOTTG", List.of("ua01")), ignoreCase));
+    assertFalse(UserFilter.isUserMatchesAttributesEquals(userModel,
+        Map.of("contactEmail", List.of("alex.smith@example.com"))));
+    assertTrue(UserFilter.isUserMatchesAttributesThatAreStartFor(userModel,
+        Map.of("KATOTTG", List.of("ua010203")), Set.of("KATOTTG")));
+  }
+
   @Test
   void filterUsersByAttributesStartsWith() {
     var userModel1 = new InMemoryUserAdapter(session, realm, "id");
@@ -83,4 +130,21 @@ class UserFilterTest extends KeycloakBaseTest {
     assertEquals(1, result.size());
     assertEquals(2, result.get(0).getAttributeStream("KATOTTG").count());
   }
+
+  @Test
+  void shouldLimitUsersFoundByAttributesInvertedStartsWith() {
+    var userModel1 = new InMemoryUserAdapter(session, realm, "id1");
+    userModel1.setAttribute("KATOTTG", List.of("UA0102"));
+    var userModel2 = new InMemoryUserAdapter(session, realm, "id2");
+    userModel2.setAttribute("KATOTTG", List.of("UA01"));
+    var userModel3 = new InMemoryUserAdapter(session, realm, "id3");
+    userModel3.setAttribute("KATOTTG", List.of("UA01020304"));
+    when(userProvider.getUsersStream(realm))
+        .thenReturn(Stream.of(userModel1, userModel2, userModel3));
+
+    var result = new UserFilter(1).findUsersByAttributesInvertedStartsWith(session,
+        Map.of("KATOTTG", List.of("UA0102030405"))).collect(Collectors.toList());
+
+    assertEquals(List.of(userModel1), result);
+  }
 }
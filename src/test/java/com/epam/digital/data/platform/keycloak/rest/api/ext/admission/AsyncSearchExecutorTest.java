@@ -0,0 +1,163 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.admission;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.keycloak.models.KeycloakContext;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.KeycloakTransactionManager;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.RealmProvider;
+import org.mockito.ArgumentCaptor;
+
+@DisplayName("AsyncSearchExecutor Test")
+class AsyncSearchExecutorTest {
+
+  private final KeycloakSession session = mock(KeycloakSession.class);
+  private final KeycloakSession jobSession = mock(KeycloakSession.class);
+  private final KeycloakContext jobContext = mock(KeycloakContext.class);
+  private final RealmModel realm = mock(RealmModel.class);
+  private final AsyncResponse asyncResponse = mock(AsyncResponse.class);
+  private final CountDownLatch release = new CountDownLatch(1);
+  private AsyncSearchExecutor executor;
+
+  @BeforeEach
+  void setUp() {
+    var sessionFactory = mock(KeycloakSessionFactory.class);
+    var context = mock(KeycloakContext.class);
+    var realms = mock(RealmProvider.class);
+    when(session.getKeycloakSessionFactory()).thenReturn(sessionFactory);
+    when(session.getContext()).thenReturn(context);
+    when(context.getRealm()).thenReturn(realm);
+    when(realm.getId()).thenReturn("realm-id");
+    when(sessionFactory.create()).thenReturn(jobSession);
+    when(jobSession.getTransactionManager()).thenReturn(mock(KeycloakTransactionManager.class));
+    when(jobSession.getContext()).thenReturn(jobContext);
+    when(jobSession.realms()).thenReturn(realms);
+    when(realms.getRealm("realm-id")).thenReturn(realm);
+  }
+
+  @AfterEach
+  void tearDown() {
+    release.countDown();
+    if (executor != null) {
+      executor.close();
+    }
+  }
+
+  @Test
+  @DisplayName("Should execute search in request session when async mode is disabled")
+  void shouldExecuteSearchInRequestSessionWhenDisabled() {
+    executor = new AsyncSearchExecutor(AsyncSearchExecutor.Config.builder().build());
+    var searchThread = new Thread[1];
+
+    executor.submit(session, asyncResponse, searchSession -> {
+      assertThat(searchSession).isSameAs(session);
+      searchThread[0] = Thread.currentThread();
+      return Response.ok().build();
+    });
+
+    assertThat(executor.isEnabled()).isFalse();
+    assertThat(searchThread[0]).isSameAs(Thread.currentThread());
+    assertThat(resumedResponse().getStatus()).isEqualTo(200);
+  }
+
+  @Test
+  @DisplayName("Should execute search in a new session of the pool when async mode is enabled")
+  void shouldExecuteSearchInNewSessionWhenEnabled() {
+    executor = new AsyncSearchExecutor(AsyncSearchExecutor.Config.builder().enabled(true).build());
+    var searchThread = new Thread[1];
+
+    executor.submit(session, asyncResponse, searchSession -> {
+      assertThat(searchSession).isSameAs(jobSession);
+      searchThread[0] = Thread.currentThread();
+      return Response.ok().build();
+    });
+
+    assertThat(resumedResponse().getStatus()).isEqualTo(200);
+    assertThat(searchThread[0].getName()).startsWith("users-search-");
+    verify(jobContext).setRealm(realm);
+    verify(jobSession).close();
+    verify(asyncResponse).setTimeout(60_000L, TimeUnit.MILLISECONDS);
+  }
+
+  @Test
+  @DisplayName("Should resume response with the exception the search failed with")
+  void shouldResumeWithException() {
+    executor = new AsyncSearchExecutor(AsyncSearchExecutor.Config.builder().enabled(true).build());
+    var exception = new IllegalStateException();
+
+    executor.submit(session, asyncResponse, searchSession -> {
+      throw exception;
+    });
+
+    verify(asyncResponse, timeout(5000)).resume(exception);
+    verify(jobSession, timeout(5000)).close();
+  }
+
+  @Test
+  @DisplayName("Should reject search with 429 when the queue of the pool is full")
+  void shouldRejectWhenQueueIsFull() {
+    executor = new AsyncSearchExecutor(AsyncSearchExecutor.Config.builder()
+        .enabled(true)
+        .threads(1)
+        .queueSize(1)
+        .retryAfterSeconds(5)
+        .build());
+    var blockedResponse = mock(AsyncResponse.class);
+    executor.submit(session, blockedResponse, searchSession -> awaitRelease());
+    executor.submit(session, mock(AsyncResponse.class), searchSession -> awaitRelease());
+
+    executor.submit(session, asyncResponse, searchSession -> Response.ok().build());
+
+    var captor = ArgumentCaptor.forClass(Throwable.class);
+    verify(asyncResponse).resume(captor.capture());
+    assertThat(captor.getValue()).isInstanceOf(RetryLaterException.class);
+    var response = ((RetryLaterException) captor.getValue()).getResponse();
+    assertThat(response.getStatus()).isEqualTo(429);
+    assertThat(response.getHeaderString(HttpHeaders.RETRY_AFTER)).isEqualTo("5");
+  }
+
+  private Response resumedResponse() {
+    var captor = ArgumentCaptor.forClass(Object.class);
+    verify(asyncResponse, timeout(5000)).resume(captor.capture());
+    return (Response) captor.getValue();
+  }
+
+  @SneakyThrows
+  private Response awaitRelease() {
+    release.await(5, TimeUnit.SECONDS);
+    return Response.ok().build();
+  }
+}
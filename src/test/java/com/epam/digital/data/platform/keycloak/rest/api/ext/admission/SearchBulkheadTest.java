@@ -0,0 +1,203 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.admission;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.core.HttpHeaders;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.keycloak.Config.Scope;
+
+@DisplayName("SearchBulkhead Test")
+class SearchBulkheadTest {
+
+  private final CountDownLatch started = new CountDownLatch(1);
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  @AfterEach
+  void tearDown() {
+    release.countDown();
+  }
+
+  @Test
+  @DisplayName("Should execute search when there are free permits")
+  void shouldExecuteSearch() {
+    var bulkhead = new SearchBulkhead(SearchBulkhead.Config.builder().build());
+
+    var result = bulkhead.execute("realm", () -> "result");
+
+    assertThat(result).isEqualTo("result");
+    assertThat(bulkhead.getStats("realm").getAdmitted()).isEqualTo(1);
+    assertThat(bulkhead.getStats("realm").getActiveSearches()).isZero();
+  }
+
+  @Test
+  @DisplayName("Should reject search with 429 when realm permits are exhausted")
+  void shouldRejectWhenRealmSaturated() {
+    var bulkhead = new SearchBulkhead(SearchBulkhead.Config.builder()
+        .maxConcurrentSearchesPerRealm(1)
+        .maxQueuedSearchesPerRealm(0)
+        .retryAfterSeconds(5)
+        .build());
+    occupy(bulkhead, "realm");
+
+    assertThatThrownBy(() -> bulkhead.execute("realm", () -> "result"))
+        .isInstanceOf(RetryLaterException.class)
+        .satisfies(e -> {
+          var response = ((RetryLaterException) e).getResponse();
+          assertThat(response.getStatus()).isEqualTo(429);
+          assertThat(response.getHeaderString(HttpHeaders.RETRY_AFTER)).isEqualTo("5");
+        });
+    assertThat(bulkhead.execute("other-realm", () -> "result")).isEqualTo("result");
+
+    var stats = bulkhead.getStats("realm");
+    assertThat(stats.getRejected()).isEqualTo(1);
+    assertThat(stats.getRealm().getRejected()).isEqualTo(1);
+    assertThat(stats.getRealm().getActiveSearches()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Should reject search of any realm when global permits are exhausted")
+  void shouldRejectWhenGloballySaturated() {
+    var bulkhead = new SearchBulkhead(SearchBulkhead.Config.builder()
+        .maxConcurrentSearches(1)
+        .queueTimeoutMillis(10)
+        .build());
+    occupy(bulkhead, "realm");
+
+    assertThatThrownBy(() -> bulkhead.execute("other-realm", () -> "result"))
+        .isInstanceOf(RetryLaterException.class);
+    assertThat(bulkhead.getStats("other-realm").getRealm().getRejected()).isEqualTo(1);
+    assertThat(bulkhead.getStats("other-realm").getQueueDepth()).isZero();
+  }
+
+  @Test
+  @DisplayName("Should not reject search of other realm when realm queue is full")
+  void shouldQueueRealmsSeparately() {
+    var bulkhead = new SearchBulkhead(SearchBulkhead.Config.builder()
+        .maxConcurrentSearches(1)
+        .maxConcurrentSearchesPerRealm(1)
+        .maxQueuedSearches(1)
+        .maxQueuedSearchesPerRealm(1)
+        .queueTimeoutMillis(5000)
+        .build());
+    occupy(bulkhead, "realm");
+    CompletableFuture.runAsync(() -> bulkhead.execute("realm", () -> "result"));
+    awaitQueueDepth(bulkhead, 1);
+
+    assertThatThrownBy(() -> bulkhead.execute("realm", () -> "result"))
+        .isInstanceOf(RetryLaterException.class);
+    var otherRealm = CompletableFuture.supplyAsync(
+        () -> bulkhead.execute("other-realm", () -> "result"));
+    awaitQueueDepth(bulkhead, 2);
+    release.countDown();
+
+    assertThat(otherRealm.join()).isEqualTo("result");
+    assertThat(bulkhead.getStats("other-realm").getRealm().getRejected()).isZero();
+  }
+
+  @Test
+  @DisplayName("Should wait for realm and global permits within one queue timeout")
+  void shouldWaitWithinOneQueueTimeout() {
+    var bulkhead = new SearchBulkhead(SearchBulkhead.Config.builder()
+        .maxConcurrentSearches(1)
+        .maxConcurrentSearchesPerRealm(1)
+        .queueTimeoutMillis(500)
+        .build());
+    occupy(bulkhead, "other-realm");
+    // holds the realm permit while it waits for the global one
+    CompletableFuture.runAsync(() -> bulkhead.execute("realm", () -> "result"));
+    awaitQueueDepth(bulkhead, 1);
+
+    var startedNanos = System.nanoTime();
+    assertThatThrownBy(() -> bulkhead.execute("realm", () -> "result"))
+        .isInstanceOf(RetryLaterException.class);
+
+    assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos))
+        .isLessThan(900);
+    assertThat(bulkhead.getStats("realm").getRealm().getRejected()).isEqualTo(2);
+  }
+
+  @Test
+  @DisplayName("Should release permits when search fails")
+  void shouldReleasePermitsOnFailure() {
+    var bulkhead = new SearchBulkhead(SearchBulkhead.Config.builder()
+        .maxConcurrentSearches(1)
+        .maxQueuedSearches(0)
+        .build());
+
+    assertThatThrownBy(() -> bulkhead.execute("realm", () -> {
+      throw new IllegalStateException();
+    })).isInstanceOf(IllegalStateException.class);
+
+    assertThat(bulkhead.execute("realm", () -> "result")).isEqualTo("result");
+  }
+
+  @Test
+  @DisplayName("Should admit bulk writes by their own limits")
+  void shouldRejectBulkWritesByOwnLimits() {
+    var scope = mock(Scope.class);
+    when(scope.getInt(anyString(), anyInt())).thenAnswer(invocation -> invocation.getArgument(1));
+    when(scope.getLong(anyString(), anyLong())).thenAnswer(invocation -> invocation.getArgument(1));
+    var bulkWrites = SearchBulkhead.createForBulkWrites(scope);
+    occupy(bulkWrites, "realm");
+
+    assertThatThrownBy(() -> bulkWrites.execute("realm", () -> "result"))
+        .isInstanceOf(RetryLaterException.class)
+        .hasMessageContaining("bulk writes")
+        .satisfies(e -> assertThat(((RetryLaterException) e).getResponse()
+            .getHeaderString(HttpHeaders.RETRY_AFTER)).isEqualTo("10"));
+    var stats = bulkWrites.getStats("realm");
+    assertThat(stats.getMaxConcurrentSearches()).isEqualTo(2);
+    assertThat(stats.getMaxConcurrentSearchesPerRealm()).isEqualTo(1);
+    verify(scope).getInt("maxConcurrentBulkWritesPerRealm", 1);
+  }
+
+  @SneakyThrows
+  private void occupy(SearchBulkhead bulkhead, String realm) {
+    CompletableFuture.runAsync(() -> bulkhead.execute(realm, this::awaitRelease));
+    assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+  }
+
+  @SneakyThrows
+  private void awaitQueueDepth(SearchBulkhead bulkhead, int queueDepth) {
+    var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (bulkhead.getStats("realm").getQueueDepth() < queueDepth) {
+      assertThat(System.nanoTime()).isLessThan(deadline);
+      Thread.sleep(5);
+    }
+  }
+
+  @SneakyThrows
+  private Object awaitRelease() {
+    started.countDown();
+    return release.await(5, TimeUnit.SECONDS);
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.attributes;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.keycloak.events.Details;
+import org.keycloak.events.Event;
+import org.keycloak.events.EventType;
+import org.keycloak.events.admin.AdminEvent;
+import org.keycloak.events.admin.OperationType;
+import org.keycloak.events.admin.ResourceType;
+import org.keycloak.models.KeycloakSession;
+
+@DisplayName("AttributeIndexEventListenerProvider Test")
+class AttributeIndexEventListenerProviderTest {
+
+  private final KeycloakSession session = mock(KeycloakSession.class);
+  private final AttributeIndex index = mock(AttributeIndex.class);
+  private final AttributeIndexEventListenerProvider listener =
+      new AttributeIndexEventListenerProvider(session, index);
+
+  @Test
+  @DisplayName("Should report users changed through the Admin API")
+  void shouldReportChangedUsers() {
+    listener.onEvent(adminEvent(ResourceType.USER, OperationType.CREATE, "users/user1"), false);
+    listener.onEvent(adminEvent(ResourceType.USER, OperationType.UPDATE, "users/user2"), false);
+    listener.onEvent(adminEvent(ResourceType.REALM, OperationType.ACTION, "partialImport"),
+        false);
+
+    verify(index).markChanged(session, "realm-id", "user1");
+    verify(index).markChanged(session, "realm-id", "user2");
+    verify(index).markChanged(session, "realm-id", null);
+    verifyNoMoreInteractions(index);
+  }
+
+  @Test
+  @DisplayName("Should report users that updated their profile or logged in through a broker")
+  void shouldReportUserEvents() {
+    listener.onEvent(event(EventType.UPDATE_PROFILE, Map.of()));
+    listener.onEvent(event(EventType.LOGIN, Map.of(Details.IDENTITY_PROVIDER, "idp")));
+
+    verify(index, times(2)).markChanged(session, "realm-id", "user1");
+  }
+
+  @Test
+  @DisplayName("Should ignore events that don't change attributes of users")
+  void shouldIgnoreOtherEvents() {
+    listener.onEvent(adminEvent(ResourceType.REALM_ROLE_MAPPING, OperationType.CREATE,
+        "users/user1/role-mappings/realm"), false);
+    listener.onEvent(adminEvent(ResourceType.GROUP, OperationType.UPDATE, "groups/group1"),
+        false);
+    listener.onEvent(event(EventType.LOGIN, Map.of()));
+
+    verify(index, never()).markChanged(any(), anyString(), any());
+  }
+
+  private static AdminEvent adminEvent(ResourceType resourceType, OperationType operationType,
+      String resourcePath) {
+    var event = new AdminEvent();
+    event.setRealmId("realm-id");
+    event.setResourceType(resourceType);
+    event.setOperationType(operationType);
+    event.setResourcePath(resourcePath);
+    return event;
+  }
+
+  private static Event event(EventType type, Map<String, String> details) {
+    var event = new Event();
+    event.setType(type);
+    event.setRealmId("realm-id");
+    event.setUserId("user1");
+    event.setDetails(details);
+    return event;
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.attributes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.BitSet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("PostingList Test")
+class PostingListTest {
+
+  @Test
+  @DisplayName("Should keep ordinals sorted and distinct whatever the order they are added in")
+  void shouldKeepOrdinalsSorted() {
+    var postings = new PostingList();
+    postings.add(1);
+    postings.add(5);
+    postings.add(3);
+    postings.add(5);
+    postings.add(0);
+
+    assertThat(toBitSet(postings).stream()).containsExactly(0, 1, 3, 5);
+  }
+
+  @Test
+  @DisplayName("Should remove ordinals")
+  void shouldRemoveOrdinals() {
+    var postings = new PostingList();
+    postings.add(1);
+    postings.add(2);
+
+    postings.remove(1);
+    postings.remove(7);
+
+    assertThat(toBitSet(postings).stream()).containsExactly(2);
+    postings.remove(2);
+    assertThat(postings.isEmpty()).isTrue();
+  }
+
+  private static BitSet toBitSet(PostingList postings) {
+    var bitmap = new BitSet();
+    postings.addTo(bitmap);
+    return bitmap;
+  }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.auth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedHashMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.keycloak.common.util.Time;
+import org.keycloak.crypto.KeyStatus;
+import org.keycloak.crypto.KeyUse;
+import org.keycloak.crypto.KeyWrapper;
+import org.keycloak.models.ClientModel;
+import org.keycloak.models.KeyManager;
+import org.keycloak.models.KeycloakContext;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.RealmProvider;
+import org.keycloak.models.UserModel;
+import org.keycloak.models.UserProvider;
+import org.keycloak.models.UserSessionModel;
+import org.keycloak.models.UserSessionProvider;
+import org.keycloak.representations.AccessToken;
+import org.keycloak.services.resources.admin.AdminAuth;
+
+@DisplayName("AdminTokenCache Test")
+class AdminTokenCacheTest {
+
+  private final KeycloakSession session = mock(KeycloakSession.class);
+  private final RealmModel realm = mock(RealmModel.class);
+  private final UserModel user = mock(UserModel.class);
+  private final ClientModel client = mock(ClientModel.class);
+  private final UserSessionModel userSession = mock(UserSessionModel.class);
+  private final KeyWrapper key = new KeyWrapper();
+  private final HttpHeaders headers = mock(HttpHeaders.class);
+  private final AtomicInteger verifications = new AtomicInteger();
+  private AdminAuth adminAuth;
+
+  @BeforeEach
+  void setUp() {
+    var realms = mock(RealmProvider.class);
+    var users = mock(UserProvider.class);
+    var sessions = mock(UserSessionProvider.class);
+    var keys = mock(KeyManager.class);
+    when(session.realms()).thenReturn(realms);
+    when(session.users()).thenReturn(users);
+    when(session.sessions()).thenReturn(sessions);
+    when(session.keys()).thenReturn(keys);
+    when(session.getContext()).thenReturn(mock(KeycloakContext.class));
+    when(realms.getRealm("realm-id")).thenReturn(realm);
+    when(users.getUserById(realm, "user-id")).thenReturn(user);
+    when(sessions.getUserSession(realm, "session-id")).thenReturn(userSession);
+    when(keys.getKey(realm, "kid", KeyUse.SIG, "RS256")).thenReturn(key);
+    when(realm.getId()).thenReturn("realm-id");
+    when(realm.getClientById("client-id")).thenReturn(client);
+    when(realm.getSsoSessionIdleTimeout()).thenReturn(1800);
+    when(realm.getSsoSessionMaxLifespan()).thenReturn(36000);
+    when(user.getId()).thenReturn("user-id");
+    when(user.isEnabled()).thenReturn(true);
+    when(client.getId()).thenReturn("client-id");
+    when(client.isEnabled()).thenReturn(true);
+    when(userSession.getStarted()).thenReturn(Time.currentTime());
+    when(userSession.getLastSessionRefresh()).thenReturn(Time.currentTime());
+    key.setStatus(KeyStatus.ACTIVE);
+
+    var token = new AccessToken();
+    token.setSessionState("session-id");
+    token.iat((long) Time.currentTime());
+    token.exp((long) Time.currentTime() + 300);
+    adminAuth = new AdminAuth(realm, token, user, client);
+
+    var requestHeaders = new MultivaluedHashMap<String, String>();
+    requestHeaders.putSingle(HttpHeaders.AUTHORIZATION, "Bearer " + rawToken());
+    when(headers.getRequestHeaders()).thenReturn(requestHeaders);
+  }
+
+  @Test
+  @DisplayName("Should verify token once and restore it from cache afterwards")
+  void shouldReuseVerifiedToken() {
+    var cache = new AdminTokenCache(AdminTokenCache.Config.builder().build());
+
+    var first = cache.authenticate(session, headers, this::fullVerification);
+    var second = cache.authenticate(session, headers, this::fullVerification);
+
+    assertThat(verifications.get()).isEqualTo(1);
+    assertThat(second.getToken()).isSameAs(first.getToken());
+    assertThat(second.getUser()).isSameAs(user);
+    verify(session.getContext()).setRealm(realm);
+    var stats = cache.getStats();
+    assertThat(stats.getEntries()).isEqualTo(1);
+    assertThat(stats.getHits()).isEqualTo(1);
+    assertThat(stats.getMisses()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Should verify token again when its session is revoked")
+  void shouldVerifyAgainWhenSessionRevoked() {
+    var cache = new AdminTokenCache(AdminTokenCache.Config.builder().build());
+    cache.authenticate(session, headers, this::fullVerification);
+
+    when(session.sessions().getUserSession(eq(realm), any())).thenReturn(null);
+    cache.authenticate(session, headers, this::fullVerification);
+
+    assertThat(verifications.get()).isEqualTo(2);
+    assertThat(cache.getStats().getRevoked()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Should verify token again when signing key is disabled")
+  void shouldVerifyAgainWhenKeyDisabled() {
+    var cache = new AdminTokenCache(AdminTokenCache.Config.builder().build());
+    cache.authenticate(session, headers, this::fullVerification);
+
+    key.setStatus(KeyStatus.DISABLED);
+    cache.authenticate(session, headers, this::fullVerification);
+
+    assertThat(verifications.get()).isEqualTo(2);
+  }
+
+  @Test
+  @DisplayName("Should verify token again when cached tokens of the user are invalidated")
+  void shouldVerifyAgainWhenUserInvalidated() {
+    var cache = new AdminTokenCache(AdminTokenCache.Config.builder().build());
+    cache.authenticate(session, headers, this::fullVerification);
+
+    cache.invalidateUser("user-id");
+    cache.authenticate(session, headers, this::fullVerification);
+
+    assertThat(verifications.get()).isEqualTo(2);
+    assertThat(cache.getStats().getRevoked()).isZero();
+  }
+
+  @Test
+  @DisplayName("Should verify every request when cache is disabled")
+  void shouldNotCacheWhenDisabled() {
+    var cache = new AdminTokenCache(AdminTokenCache.Config.builder().maxEntries(0).build());
+
+    cache.authenticate(session, headers, this::fullVerification);
+    cache.authenticate(session, headers, this::fullVerification);
+
+    assertThat(verifications.get()).isEqualTo(2);
+    assertThat(cache.getStats().getEntries()).isZero();
+  }
+
+  private AdminAuth fullVerification() {
+    verifications.incrementAndGet();
+    return adminAuth;
+  }
+
+  private static String rawToken() {
+    var encoder = Base64.getUrlEncoder().withoutPadding();
+    return encoder.encodeToString("{\"alg\":\"RS256\",\"kid\":\"kid\"}"
+        .getBytes(StandardCharsets.UTF_8)) + "."
+        + encoder.encodeToString("{}".getBytes(StandardCharsets.UTF_8)) + "."
+        + encoder.encodeToString("signature".getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.bulk;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.epam.digital.data.platform.keycloak.rest.api.ext.bulk.UserImport.BatchResult;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.bulk.UserImport.Record;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.UserImportRecordDto;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.UserImportResponseDto.RecordError;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import org.hibernate.Session;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.RoleModel;
+import org.keycloak.util.JsonSerialization;
+
+@DisplayName("UserImport Test")
+class UserImportTest {
+
+  private final List<List<Long>> importedBatches = new ArrayList<>();
+
+  @Test
+  @DisplayName("Should import records in batches and report malformed ones")
+  void shouldImportRecordsInBatches() {
+    var userImport = new UserImport(UserImport.Policy.builder().batchSize(2).build());
+    var body = String.join("\n",
+        "{\"username\": \"user1\", \"attributes\": {\"edrpou\": [\"11111111\"]}}",
+        "{\"username\": \"user2\"}",
+        "",
+        "{\"username\": ",
+        "{\"username\": \"user3\", \"realmRoles\": [\"officer\"]}");
+
+    var response = userImport.importUsers("realm", toStream(body), this::createAll);
+
+    assertThat(importedBatches).containsExactly(List.of(1L, 2L), List.of(5L));
+    assertThat(response.getProcessed()).isEqualTo(4);
+    assertThat(response.getCreated()).isEqualTo(3);
+    assertThat(response.getFailed()).isEqualTo(1);
+    assertThat(response.getInsertedRows()).isEqualTo(3);
+    assertThat(response.getErrors()).extracting(RecordError::getLine, RecordError::getError)
+        .containsExactly(tuple(4L, "Malformed record"));
+  }
+
+  @Test
+  @DisplayName("Should report every record of a failed batch and continue with the next one")
+  void shouldReportFailedBatch() {
+    var userImport = new UserImport(UserImport.Policy.builder().batchSize(2).build());
+    var body = "{\"username\": \"user1\"}\n{\"username\": \"user2\"}\n{\"username\": \"user3\"}";
+
+    var response = userImport.importUsers("realm", toStream(body), records -> {
+      if (records.get(0).getLine() == 1L) {
+        throw new IllegalStateException("connection lost");
+      }
+      return createAll(records);
+    });
+
+    assertThat(response.getCreated()).isEqualTo(1);
+    assertThat(response.getFailed()).isEqualTo(2);
+    assertThat(response.getErrors()).extracting(RecordError::getUsername)
+        .containsExactly("user1", "user2");
+    assertThat(response.getErrors().get(0).getError()).contains("connection lost");
+  }
+
+  @Test
+  @DisplayName("Should count all errors but report only the configured number of them")
+  void shouldCapReportedErrors() {
+    var userImport = new UserImport(UserImport.Policy.builder().maxReportedErrors(2).build());
+    var body = "x\ny\nz";
+
+    var response = userImport.importUsers("realm", toStream(body), this::createAll);
+
+    assertThat(response.getFailed()).isEqualTo(3);
+    assertThat(response.getErrors()).extracting(RecordError::getLine).containsExactly(1L, 2L);
+    assertThat(importedBatches).isEmpty();
+  }
+
+  @Test
+  @DisplayName("Should ignore null attribute values and role names of a record")
+  void shouldIgnoreNullValues() throws IOException {
+    var userImport = new UserImport(UserImport.Policy.builder().build());
+    var em = mock(EntityManager.class);
+    var takenQuery = mock(TypedQuery.class, RETURNS_SELF);
+    when(em.createQuery(anyString(), eq(String.class))).thenReturn(takenQuery);
+    when(takenQuery.getResultList()).thenReturn(List.of());
+    when(em.unwrap(Session.class)).thenReturn(mock(Session.class));
+    var realm = mock(RealmModel.class);
+    var officer = mock(RoleModel.class);
+    when(officer.getId()).thenReturn("officer-id");
+    when(realm.getRole("officer")).thenReturn(officer);
+    when(realm.getDefaultGroupsStream()).thenReturn(Stream.empty());
+    when(realm.getRequiredActionProvidersStream()).thenReturn(Stream.empty());
+    var records = List.of(
+        record(1L, "{\"username\": \"user1\", \"attributes\": {\"edrpou\": [\"11111111\"]}}"),
+        record(2L, "{\"username\": \"user2\", \"attributes\": {\"drfo\": null}}"),
+        record(3L, "{\"username\": \"user3\", \"realmRoles\": [\"officer\", null]}"),
+        record(4L, "{\"username\": \"user4\", \"clientRoles\": {\"portal\": null}}"),
+        record(5L, "{\"username\": \"user5\", \"attributes\": {\"drfo\": [\"1\", null]}}"));
+
+    var result = userImport.importBatch(em, realm, records);
+
+    assertThat(result.getErrors()).isEmpty();
+    assertThat(result.getCreatedUserIds()).hasSize(5);
+    assertThat(result.getInsertedRows()).isEqualTo(8);
+  }
+
+  private BatchResult createAll(List<Record> records) {
+    importedBatches.add(records.stream().map(Record::getLine).collect(Collectors.toList()));
+    return new BatchResult(records.stream().map(record -> record.getUser().getUsername())
+        .collect(Collectors.toList()), List.of(), records.size());
+  }
+
+  private static Record record(long line, String json) throws IOException {
+    return new Record(line, JsonSerialization.readValue(json, UserImportRecordDto.class));
+  }
+
+  private static ByteArrayInputStream toStream(String body) {
+    return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+  }
+}
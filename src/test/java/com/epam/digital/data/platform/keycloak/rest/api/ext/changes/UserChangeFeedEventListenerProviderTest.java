@@ -0,0 +1,126 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.changes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.keycloak.connections.jpa.JpaConnectionProvider;
+import org.keycloak.events.Details;
+import org.keycloak.events.Event;
+import org.keycloak.events.EventType;
+import org.keycloak.events.admin.AdminEvent;
+import org.keycloak.events.admin.OperationType;
+import org.keycloak.events.admin.ResourceType;
+import org.keycloak.models.KeycloakSession;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+@DisplayName("UserChangeFeedEventListenerProvider Test")
+class UserChangeFeedEventListenerProviderTest {
+
+  private final EntityManager entityManager = mock(EntityManager.class);
+  private UserChangeFeedEventListenerProvider listener;
+
+  @BeforeEach
+  void setUp() {
+    var session = mock(KeycloakSession.class);
+    var connectionProvider = mock(JpaConnectionProvider.class);
+    when(session.getProvider(JpaConnectionProvider.class)).thenReturn(connectionProvider);
+    when(connectionProvider.getEntityManager()).thenReturn(entityManager);
+    listener = new UserChangeFeedEventListenerProvider(session);
+  }
+
+  @Test
+  @DisplayName("Should record changes of users made through the Admin API")
+  void shouldRecordAdminChanges() {
+    listener.onEvent(adminEvent(ResourceType.USER, OperationType.CREATE, "users/user1"), false);
+    listener.onEvent(adminEvent(ResourceType.USER, OperationType.UPDATE, "users/user1"), false);
+    listener.onEvent(adminEvent(ResourceType.REALM_ROLE_MAPPING, OperationType.CREATE,
+        "users/user1/role-mappings/realm"), false);
+    listener.onEvent(adminEvent(ResourceType.GROUP_MEMBERSHIP, OperationType.DELETE,
+        "users/user1/groups/group1"), false);
+
+    var changes = ArgumentCaptor.forClass(UserChangeEntity.class);
+    verify(entityManager, Mockito.times(4)).persist(changes.capture());
+    assertThat(changes.getAllValues()).allSatisfy(change -> {
+      assertThat(change.getRealmId()).isEqualTo("realm-id");
+      assertThat(change.getUserId()).isEqualTo("user1");
+      assertThat(change.getChangedAt()).isEqualTo(1000L);
+    });
+    assertThat(changes.getAllValues()).extracting(UserChangeEntity::getType).containsExactly(
+        UserChangeType.CREATED, UserChangeType.UPDATED, UserChangeType.ROLE_MAPPINGS_UPDATED,
+        UserChangeType.GROUPS_UPDATED);
+  }
+
+  @Test
+  @DisplayName("Should ignore admin events that don't change a user")
+  void shouldIgnoreOtherAdminEvents() {
+    listener.onEvent(adminEvent(ResourceType.USER, OperationType.DELETE, "users/user1"), false);
+    listener.onEvent(adminEvent(ResourceType.REALM_ROLE_MAPPING, OperationType.CREATE,
+        "groups/group1/role-mappings/realm"), false);
+    listener.onEvent(adminEvent(ResourceType.CLIENT, OperationType.UPDATE, "clients/client1"),
+        false);
+
+    verify(entityManager, never()).persist(Mockito.any());
+  }
+
+  @Test
+  @DisplayName("Should record registration and profile updates of users")
+  void shouldRecordUserEvents() {
+    listener.onEvent(event(EventType.REGISTER, Map.of()));
+    listener.onEvent(event(EventType.UPDATE_PROFILE, Map.of()));
+    listener.onEvent(event(EventType.LOGIN, Map.of(Details.IDENTITY_PROVIDER, "idp")));
+    listener.onEvent(event(EventType.LOGIN, Map.of()));
+    listener.onEvent(event(EventType.UPDATE_PASSWORD, Map.of()));
+
+    var changes = ArgumentCaptor.forClass(UserChangeEntity.class);
+    verify(entityManager, Mockito.times(3)).persist(changes.capture());
+    assertThat(changes.getAllValues()).extracting(UserChangeEntity::getType).containsExactly(
+        UserChangeType.CREATED, UserChangeType.UPDATED, UserChangeType.UPDATED);
+  }
+
+  private static AdminEvent adminEvent(ResourceType resourceType, OperationType operationType,
+      String resourcePath) {
+    var event = new AdminEvent();
+    event.setRealmId("realm-id");
+    event.setResourceType(resourceType);
+    event.setOperationType(operationType);
+    event.setResourcePath(resourcePath);
+    event.setTime(1000L);
+    return event;
+  }
+
+  private static Event event(EventType type, Map<String, String> details) {
+    var event = new Event();
+    event.setType(type);
+    event.setRealmId("realm-id");
+    event.setUserId("user1");
+    event.setDetails(details);
+    event.setTime(1000L);
+    return event;
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.roles;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.keycloak.events.Details;
+import org.keycloak.events.Event;
+import org.keycloak.events.EventType;
+import org.keycloak.events.admin.AdminEvent;
+import org.keycloak.events.admin.OperationType;
+import org.keycloak.events.admin.ResourceType;
+import org.keycloak.models.KeycloakSession;
+
+@DisplayName("RoleMembershipEventListenerProvider Test")
+class RoleMembershipEventListenerProviderTest {
+
+  private final KeycloakSession session = mock(KeycloakSession.class);
+  private final RoleMembershipIndex index = mock(RoleMembershipIndex.class);
+  private final RoleMembershipEventListenerProvider listener =
+      new RoleMembershipEventListenerProvider(session, index);
+
+  @Test
+  @DisplayName("Should report users whose role mappings were changed through the Admin API")
+  void shouldReportChangedUsers() {
+    listener.onEvent(adminEvent(ResourceType.USER, OperationType.CREATE, "users/user1"), false);
+    listener.onEvent(adminEvent(ResourceType.REALM_ROLE_MAPPING, OperationType.CREATE,
+        "users/user2/role-mappings/realm"), false);
+    listener.onEvent(adminEvent(ResourceType.CLIENT_ROLE_MAPPING, OperationType.DELETE,
+        "users/user3/role-mappings/clients/client1"), false);
+
+    verify(index).markChanged(session, "realm-id", "user1");
+    verify(index).markChanged(session, "realm-id", "user2");
+    verify(index).markChanged(session, "realm-id", "user3");
+    verifyNoMoreInteractions(index);
+  }
+
+  @Test
+  @DisplayName("Should report the whole realm when a role is removed")
+  void shouldReportRealmOnRoleRemoval() {
+    listener.onEvent(adminEvent(ResourceType.REALM_ROLE, OperationType.DELETE, "roles/officer"),
+        false);
+
+    verify(index).markChanged(session, "realm-id", null);
+  }
+
+  @Test
+  @DisplayName("Should ignore events that don't change role mappings of users")
+  void shouldIgnoreOtherEvents() {
+    listener.onEvent(adminEvent(ResourceType.USER, OperationType.UPDATE, "users/user1"), false);
+    listener.onEvent(adminEvent(ResourceType.REALM_ROLE_MAPPING, OperationType.CREATE,
+        "groups/group1/role-mappings/realm"), false);
+    listener.onEvent(adminEvent(ResourceType.REALM_ROLE, OperationType.UPDATE, "roles/officer"),
+        false);
+    listener.onEvent(event(EventType.LOGIN, Map.of()));
+    listener.onEvent(event(EventType.UPDATE_PROFILE, Map.of()));
+
+    verify(index, never()).markChanged(any(), anyString(), any());
+  }
+
+  @Test
+  @DisplayName("Should report registered users and users logged in through a broker")
+  void shouldReportUserEvents() {
+    listener.onEvent(event(EventType.REGISTER, Map.of()));
+    listener.onEvent(event(EventType.LOGIN, Map.of(Details.IDENTITY_PROVIDER, "idp")));
+
+    verify(index, times(2)).markChanged(session, "realm-id", "user1");
+  }
+
+  private static AdminEvent adminEvent(ResourceType resourceType, OperationType operationType,
+      String resourcePath) {
+    var event = new AdminEvent();
+    event.setRealmId("realm-id");
+    event.setResourceType(resourceType);
+    event.setOperationType(operationType);
+    event.setResourcePath(resourcePath);
+    return event;
+  }
+
+  private static Event event(EventType type, Map<String, String> details) {
+    var event = new Event();
+    event.setType(type);
+    event.setRealmId("realm-id");
+    event.setUserId("user1");
+    event.setDetails(details);
+    return event;
+  }
+}
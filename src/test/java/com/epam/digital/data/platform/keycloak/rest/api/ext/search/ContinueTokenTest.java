@@ -0,0 +1,74 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import javax.ws.rs.BadRequestException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.keycloak.models.UserModel;
+
+@DisplayName("ContinueToken Test")
+class ContinueTokenTest {
+
+  @Test
+  @DisplayName("Should encode the position of a user as opaque token and decode it back")
+  void shouldRoundTripKeysetToken() {
+    var user = mock(UserModel.class);
+    when(user.getUsername()).thenReturn("officer-\u00e4");
+    when(user.getId()).thenReturn("5a8c0d3e-1f2b-4c6d-8e9f-0a1b2c3d4e5f");
+
+    var encoded = ContinueToken.after(user).encode();
+    var token = ContinueToken.parse(encoded);
+
+    assertThat(encoded).matches("[A-Za-z0-9_-]+");
+    assertThat(token.isKeyset()).isTrue();
+    assertThat(token.isEnd()).isFalse();
+    assertThat(token.getUsername()).isEqualTo("officer-\u00e4");
+    assertThat(token.getId()).isEqualTo("5a8c0d3e-1f2b-4c6d-8e9f-0a1b2c3d4e5f");
+  }
+
+  @Test
+  @DisplayName("Should accept integer offsets, -1 and missing token")
+  void shouldParseOffsetTokens() {
+    assertThat(ContinueToken.parse(null)).isSameAs(ContinueToken.start());
+    assertThat(ContinueToken.parse(" ")).isSameAs(ContinueToken.start());
+    assertThat(ContinueToken.parse("-1").isEnd()).isTrue();
+    assertThat(ContinueToken.parse("-1").encode()).isEqualTo(ContinueToken.END_VALUE);
+
+    var token = ContinueToken.parse("40");
+    assertThat(token.isKeyset()).isFalse();
+    assertThat(token.getOffset()).isEqualTo(40);
+    assertThat(token.skip(2).encode()).isEqualTo("42");
+  }
+
+  @Test
+  @DisplayName("Should reject malformed tokens with 400")
+  void shouldRejectMalformedTokens() {
+    assertThatThrownBy(() -> ContinueToken.parse("4-2"))
+        .isInstanceOf(BadRequestException.class);
+    assertThatThrownBy(() -> ContinueToken.parse("not a token"))
+        .isInstanceOf(BadRequestException.class);
+    assertThatThrownBy(() -> ContinueToken.parse("Ag"))
+        .isInstanceOf(BadRequestException.class);
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("SearchResponseEncoding Test")
+class SearchResponseEncodingTest {
+
+  private static final Map<String, Object> RESULT = Map.of("users",
+      List.of(Map.of("username", "user1", "attributes", Map.of("drfo", List.of("1010101014")))));
+
+  private final SearchResponseEncoding.Policy policy = SearchResponseEncoding.Policy.builder()
+      .minCompressBytes(0)
+      .build();
+
+  @Test
+  @DisplayName("Should keep JSON without compression when the client doesn't ask for others")
+  void shouldKeepJsonByDefault() {
+    var encoding = policy.negotiate(headers(List.of(MediaType.WILDCARD_TYPE), null));
+
+    assertThat(encoding.isIdentity()).isTrue();
+    assertThat(encoding.getMediaType()).isEqualTo(MediaType.APPLICATION_JSON_TYPE);
+    assertThat(encoding.tag(new EntityTag("tag"))).isEqualTo(new EntityTag("tag"));
+    assertThat(policy.negotiate(headers(null, null)).isIdentity()).isTrue();
+  }
+
+  @Test
+  @DisplayName("Should encode CBOR with the same properties as JSON")
+  @SneakyThrows
+  void shouldEncodeCbor() {
+    var encoding = policy.negotiate(headers(List.of(SearchResponseEncoding.APPLICATION_CBOR_TYPE,
+        MediaType.APPLICATION_JSON_TYPE), null));
+
+    var response = encoding.toResponse(encoding.serialize(RESULT)).build();
+
+    assertThat(response.getMediaType()).isEqualTo(SearchResponseEncoding.APPLICATION_CBOR_TYPE);
+    assertThat(response.getHeaderString("Content-Encoding")).isNull();
+    assertThat(new ObjectMapper(new CBORFactory()).readValue((byte[]) response.getEntity(),
+        Map.class)).isEqualTo(RESULT);
+    assertThat(encoding.tag(new EntityTag("tag"))).isEqualTo(new EntityTag("tag-cbor"));
+  }
+
+  @Test
+  @DisplayName("Should compress with the accepted coding of the highest quality")
+  @SneakyThrows
+  void shouldCompress() {
+    var gzip = policy.negotiate(headers(null, "deflate;q=0.5, gzip"));
+    var deflate = policy.negotiate(headers(null, "gzip;q=0, deflate"));
+
+    var gzipResponse = gzip.toResponse(gzip.serialize(RESULT)).build();
+    var deflateResponse = deflate.toResponse(deflate.serialize(RESULT)).build();
+
+    assertThat(gzipResponse.getHeaderString("Content-Encoding")).isEqualTo("gzip");
+    assertThat(gzipResponse.getHeaderString("Vary")).isEqualTo("Accept, Accept-Encoding");
+    assertThat(new ObjectMapper().readValue(new GZIPInputStream(
+        new ByteArrayInputStream((byte[]) gzipResponse.getEntity())), Map.class))
+        .isEqualTo(RESULT);
+    assertThat(deflateResponse.getHeaderString("Content-Encoding")).isEqualTo("deflate");
+    assertThat(new ObjectMapper().readValue(new InflaterInputStream(
+        new ByteArrayInputStream((byte[]) deflateResponse.getEntity())), Map.class))
+        .isEqualTo(RESULT);
+    assertThat(gzip.tag(new EntityTag("tag"))).isEqualTo(new EntityTag("tag-gzip"));
+  }
+
+  @Test
+  @DisplayName("Should not compress bodies shorter than the minimum")
+  void shouldNotCompressShortBodies() {
+    var encoding = SearchResponseEncoding.Policy.builder().build()
+        .negotiate(headers(null, "gzip"));
+
+    var response = encoding.toResponse(encoding.serialize(RESULT)).build();
+
+    assertThat(response.getHeaderString("Content-Encoding")).isNull();
+    assertThat(response.getMediaType()).isEqualTo(MediaType.APPLICATION_JSON_TYPE);
+  }
+
+  private static HttpHeaders headers(List<MediaType> accept, String acceptEncoding) {
+    var headers = mock(HttpHeaders.class);
+    when(headers.getAcceptableMediaTypes()).thenReturn(accept);
+    when(headers.getRequestHeader(HttpHeaders.ACCEPT_ENCODING))
+        .thenReturn(acceptEncoding == null ? null : List.of(acceptEncoding));
+    return headers;
+  }
+}
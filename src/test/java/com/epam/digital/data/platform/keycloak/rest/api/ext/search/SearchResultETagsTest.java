@@ -0,0 +1,124 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.SearchUsersByRoleAndAttributesRequestDto;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.event.UserChangeEventListenerProviderFactory;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.event.UserDataVersions;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakTransaction;
+import org.keycloak.models.KeycloakTransactionManager;
+import org.keycloak.models.RealmModel;
+import org.mockito.ArgumentCaptor;
+
+@DisplayName("SearchResultETags Test")
+class SearchResultETagsTest {
+
+  private final UserDataVersions userDataVersions = new UserDataVersions();
+  private final SearchResultETags searchResultETags = new SearchResultETags(userDataVersions);
+  private final RealmModel realm = mock(RealmModel.class);
+
+  @BeforeEach
+  void setUp() {
+    when(realm.getId()).thenReturn("realm-id");
+    when(realm.getEventsListenersStream())
+        .thenAnswer(invocation -> Stream.of("jboss-logging",
+            UserChangeEventListenerProviderFactory.ID));
+  }
+
+  @Test
+  @DisplayName("Should return the same tag for equal requests while user data isn't changed")
+  void shouldReturnSameTagForEqualRequests() {
+    var eTag = searchResultETags.getETag(realm, "search", createRequest("officer", "1", "2"));
+    var sameETag = searchResultETags.getETag(realm, "search", createRequest("officer", "1", "2"));
+    var otherETag = searchResultETags.getETag(realm, "search", createRequest("head", "1", "2"));
+
+    assertThat(eTag).isPresent().isEqualTo(sameETag);
+    assertThat(otherETag).isPresent().isNotEqualTo(eTag);
+  }
+
+  @Test
+  @DisplayName("Should return new tag after user data of the realm is changed")
+  void shouldReturnNewTagAfterChange() {
+    var eTag = searchResultETags.getETag(realm, "search", createRequest("officer", "1", "2"));
+
+    commitChange();
+
+    assertThat(userDataVersions.getVersion("realm-id")).isEqualTo(1);
+    assertThat(searchResultETags.getETag(realm, "search", createRequest("officer", "1", "2")))
+        .isPresent().isNotEqualTo(eTag);
+  }
+
+  @Test
+  @DisplayName("Should not return tag if realm doesn't track user data changes")
+  void shouldNotReturnTagWithoutListener() {
+    when(realm.getEventsListenersStream()).thenAnswer(invocation -> Stream.of("jboss-logging"));
+
+    assertThat(searchResultETags.getETag(realm, "search", createRequest("officer", "1", "2")))
+        .isEmpty();
+  }
+
+  @Test
+  @DisplayName("Should match If-None-Match header values")
+  void shouldMatchIfNoneMatch() {
+    var eTag = new EntityTag("abc");
+    var headers = mock(HttpHeaders.class);
+
+    when(headers.getRequestHeader(HttpHeaders.IF_NONE_MATCH)).thenReturn(List.of("\"xyz\", W/\"abc\""));
+    assertThat(SearchResultETags.isNotModified(headers, eTag)).isTrue();
+
+    when(headers.getRequestHeader(HttpHeaders.IF_NONE_MATCH)).thenReturn(List.of("\"xyz\""));
+    assertThat(SearchResultETags.isNotModified(headers, eTag)).isFalse();
+
+    when(headers.getRequestHeader(HttpHeaders.IF_NONE_MATCH)).thenReturn(null);
+    assertThat(SearchResultETags.isNotModified(headers, eTag)).isFalse();
+  }
+
+  private void commitChange() {
+    var session = mock(KeycloakSession.class);
+    var transactionManager = mock(KeycloakTransactionManager.class);
+    when(session.getTransactionManager()).thenReturn(transactionManager);
+
+    userDataVersions.markChanged(session, "realm-id");
+
+    var transaction = ArgumentCaptor.forClass(KeycloakTransaction.class);
+    verify(transactionManager).enlistAfterCompletion(transaction.capture());
+    transaction.getValue().begin();
+    transaction.getValue().commit();
+  }
+
+  private static SearchUsersByRoleAndAttributesRequestDto createRequest(String roleName,
+      String... drfo) {
+    var request = new SearchUsersByRoleAndAttributesRequestDto();
+    request.setRoleName(roleName);
+    request.setAttributesEquals(Map.of("drfo", List.of(drfo), "edrpou", List.of("123")));
+    return request;
+  }
+}
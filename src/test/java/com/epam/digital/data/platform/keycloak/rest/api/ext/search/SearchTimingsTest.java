@@ -0,0 +1,114 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.epam.digital.data.platform.keycloak.rest.api.ext.search.SearchTimings.Stage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("SearchTimings Test")
+class SearchTimingsTest {
+
+  private final AtomicLong nanoTime = new AtomicLong();
+
+  @Test
+  @DisplayName("Should pause outer stage while inner stage and SQL statements are measured")
+  void shouldMeasureStagesExclusively() {
+    var timings = SearchTimings.Policy.builder()
+        .serverTimingEnabled(true)
+        .ticker(nanoTime::get)
+        .build()
+        .start();
+    var sqlListener = timings.getSqlListener();
+
+    timings.measure(Stage.HYDRATION, () -> {
+      advance(20);
+      sqlListener.jdbcExecuteStatementStart();
+      advance(60);
+      sqlListener.jdbcExecuteStatementEnd();
+      return timings.measure(Stage.REPRESENTATION, () -> advance(40));
+    });
+    advance(5);
+
+    assertThat(timings.getMillis(Stage.SQL)).isEqualTo(60L);
+    assertThat(timings.getMillis(Stage.REPRESENTATION)).isEqualTo(40L);
+    assertThat(timings.getMillis(Stage.HYDRATION)).isEqualTo(20L);
+    assertThat(timings.getMillis(Stage.AUTH)).isZero();
+    assertThat(timings.getTotalMillis()).isEqualTo(125L);
+  }
+
+  @Test
+  @DisplayName("Should format stage durations as Server-Timing metrics")
+  void shouldFormatServerTiming() {
+    var timings = SearchTimings.Policy.builder()
+        .serverTimingEnabled(true)
+        .ticker(nanoTime::get)
+        .build()
+        .start();
+
+    timings.measure(Stage.AUTH, () -> advance(5));
+    nanoTime.addAndGet(TimeUnit.MICROSECONDS.toNanos(1250));
+
+    assertThat(timings.toServerTiming())
+        .isEqualTo("auth;dur=5.0, sql;dur=0.0, hydration;dur=0.0, representation;dur=0.0, "
+            + "serialization;dur=0.0, total;dur=6.3");
+    assertThat(timings.toLogFields())
+        .isEqualTo("total_ms=6 auth_ms=5 sql_ms=0 hydration_ms=0 representation_ms=0 "
+            + "serialization_ms=0");
+  }
+
+  @Test
+  @DisplayName("Should sample only searches slower than threshold")
+  void shouldSampleSlowSearches() {
+    var policy = SearchTimings.Policy.builder()
+        .slowSearchThresholdMillis(10)
+        .slowSearchLogSampleRate(1.0d)
+        .ticker(nanoTime::get)
+        .build();
+
+    var search = policy.start();
+    search.measure(Stage.HYDRATION, () -> advance(9));
+    assertThat(search.isSlowAndSampled()).isFalse();
+
+    search.measure(Stage.HYDRATION, () -> advance(1));
+    assertThat(search.isSlowAndSampled()).isTrue();
+    assertThat(search.getMillis(Stage.HYDRATION)).isEqualTo(10L);
+    assertThat(search.isServerTimingEnabled()).isFalse();
+  }
+
+  @Test
+  @DisplayName("Should not measure anything if timings are disabled")
+  void shouldNotMeasureIfDisabled() {
+    var timings = SearchTimings.Policy.builder().ticker(nanoTime::get).build().start();
+
+    var result = timings.measure(Stage.HYDRATION, () -> advance(5));
+
+    assertThat(result).isEqualTo("done");
+    assertThat(timings.isEnabled()).isFalse();
+    assertThat(timings.getMillis(Stage.HYDRATION)).isZero();
+    assertThat(timings.isSlowAndSampled()).isFalse();
+  }
+
+  private String advance(long millis) {
+    nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    return "done";
+  }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2025 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.epam.digital.data.platform.keycloak.rest.api.ext.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.epam.digital.data.platform.keycloak.rest.api.ext.ExtendedJpaUserProvider;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.UserFetchPlan;
+import com.epam.digital.data.platform.keycloak.rest.api.ext.dto.SearchUsersByRoleAndAttributesRequestDto;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.keycloak.models.KeycloakContext;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.KeycloakTransactionManager;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.RealmProvider;
+import org.keycloak.models.SubjectCredentialManager;
+import org.keycloak.models.UserModel;
+import org.keycloak.models.UserProvider;
+
+@DisplayName("SearchWarmup Test")
+class SearchWarmupTest {
+
+  private final KeycloakSessionFactory sessionFactory = mock(KeycloakSessionFactory.class);
+  private final KeycloakSession session = mock(KeycloakSession.class);
+  private final KeycloakTransactionManager transactionManager =
+      mock(KeycloakTransactionManager.class);
+  private final ExtendedJpaUserProvider userProvider = mock(ExtendedJpaUserProvider.class);
+  private final RealmModel realm = mock(RealmModel.class);
+  private final RealmModel otherRealm = mock(RealmModel.class);
+
+  @BeforeEach
+  void setUp() {
+    var realms = mock(RealmProvider.class);
+    var user = mock(UserModel.class);
+    when(sessionFactory.create()).thenReturn(session);
+    when(session.getTransactionManager()).thenReturn(transactionManager);
+    when(session.getContext()).thenReturn(mock(KeycloakContext.class));
+    when(session.realms()).thenReturn(realms);
+    when(session.users()).thenReturn(userProvider);
+    when(session.getProvider(UserProvider.class)).thenReturn(userProvider);
+    when(realms.getRealmsStream()).thenAnswer(invocation -> Stream.of(realm, otherRealm));
+    when(realms.getRealm("realm-id")).thenReturn(realm);
+    when(realm.getId()).thenReturn("realm-id");
+    when(realm.getName()).thenReturn("realm");
+    when(otherRealm.getName()).thenReturn("other-realm");
+    when(user.getId()).thenReturn("user-id");
+    when(user.getUsername()).thenReturn("user");
+    when(user.getAttributes()).thenReturn(Map.of(UserModel.USERNAME, List.of("user"),
+        "KATOTTG", List.of("UA05050010020412345")));
+    when(user.getAttributeStream("KATOTTG"))
+        .thenAnswer(invocation -> Stream.of("UA05050010020412345"));
+    when(user.credentialManager()).thenReturn(mock(SubjectCredentialManager.class));
+    when(user.getRequiredActionsStream()).thenAnswer(invocation -> Stream.empty());
+    when(userProvider.getUsersStreamAfter(any(), isNull(), isNull(), anyInt(), any()))
+        .thenAnswer(invocation -> Stream.of(user));
+  }
+
+  @Test
+  @DisplayName("Should be ready without warm-up when it's disabled")
+  void shouldBeReadyWhenDisabled() {
+    var warmup = new SearchWarmup(SearchWarmup.Config.builder().build());
+
+    warmup.run(sessionFactory);
+
+    assertThat(warmup.isReady()).isTrue();
+    assertThat(warmup.getStatus().getStatus()).isEqualTo("DISABLED");
+    verifyNoInteractions(sessionFactory);
+  }
+
+  @Test
+  @DisplayName("Should execute searches of the configured realms in rolled back transactions")
+  void shouldWarmUpConfiguredRealms() {
+    var warmup = new SearchWarmup(SearchWarmup.Config.builder()
+        .enabled(true)
+        .realms(List.of("realm"))
+        .iterations(3)
+        .build());
+    assertThat(warmup.isReady()).isFalse();
+
+    warmup.run(sessionFactory);
+
+    var status = warmup.getStatus();
+    assertThat(warmup.isReady()).isTrue();
+    assertThat(status.getStatus()).isEqualTo("READY");
+    assertThat(status.getRealms()).isEqualTo(1);
+    assertThat(status.getIterations()).isEqualTo(3);
+    assertThat(status.getSearches()).isEqualTo(15);
+    assertThat(status.getFailedSearches()).isZero();
+    verify(transactionManager, times(15)).setRollbackOnly();
+    verify(userProvider, times(3)).getUsersStreamAfter(eq(realm), isNull(), isNull(), anyInt(),
+        any());
+    verify(userProvider, times(6)).searchForUserStream(eq(realm),
+        any(SearchUsersByRoleAndAttributesRequestDto.class), any(), any());
+    verify(userProvider, times(3)).searchForUserByAttributesStream(realm,
+        Map.of("KATOTTG", "UA05050010020412345"),
+        UserFetchPlan.REPRESENTATION);
+    verify(otherRealm, never()).getId();
+  }
+
+  @Test
+  @DisplayName("Should stay pending while the preparation runs on the background thread")
+  void shouldRunPreparationBeforeWarmUp() throws InterruptedException {
+    var warmup = new SearchWarmup(SearchWarmup.Config.builder()
+        .enabled(true)
+        .realms(List.of("realm"))
+        .iterations(1)
+        .build());
+    var statusInPreparation = new AtomicReference<String>();
+    var finished = new CountDownLatch(1);
+
+    warmup.start(sessionFactory, () -> {
+      statusInPreparation.set(warmup.getStatus().getStatus());
+      finished.countDown();
+    });
+
+    assertThat(finished.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(statusInPreparation.get()).isEqualTo("PENDING");
+    await(warmup);
+    assertThat(warmup.getStatus().getStatus()).isEqualTo("READY");
+  }
+
+  @Test
+  @DisplayName("Should stop after the max duration")
+  void shouldStopAfterMaxDuration() {
+    var warmup = new SearchWarmup(SearchWarmup.Config.builder()
+        .enabled(true)
+        .iterations(1000)
+        .maxDurationMillis(0)
+        .build());
+
+    warmup.run(sessionFactory);
+
+    assertThat(warmup.getStatus().getStatus()).isEqualTo("READY");
+    assertThat(warmup.getStatus().getIterations()).isZero();
+  }
+
+  @Test
+  @DisplayName("Should retry the warm-up if the realms can't be read")
+  void shouldRetryIfRealmsCantBeRead() {
+    when(sessionFactory.create())
+        .thenThrow(new IllegalStateException("Database is unavailable"))
+        .thenThrow(new IllegalStateException("Database is unavailable"))
+        .thenReturn(session);
+    var warmup = new SearchWarmup(SearchWarmup.Config.builder()
+        .enabled(true)
+        .realms(List.of("realm"))
+        .iterations(1)
+        .retryDelayMillis(1)
+        .build());
+
+    warmup.run(sessionFactory);
+
+    assertThat(warmup.isReady()).isTrue();
+    assertThat(warmup.getStatus().getStatus()).isEqualTo("READY");
+    assertThat(warmup.getStatus().getRealms()).isEqualTo(1);
+    assertThat(warmup.getStatus().getIterations()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Should continue with the next search in a new transaction if a search failed")
+  void shouldContinueAfterFailedSearch() {
+    when(userProvider.searchForUserStream(eq(realm),
+        any(SearchUsersByRoleAndAttributesRequestDto.class), any(), any()))
+        .thenThrow(new IllegalStateException("current transaction is aborted"));
+    var warmup = new SearchWarmup(SearchWarmup.Config.builder()
+        .enabled(true)
+        .realms(List.of("realm"))
+        .iterations(1)
+        .build());
+
+    warmup.run(sessionFactory);
+
+    assertThat(warmup.getStatus().getSearches()).isEqualTo(5);
+    assertThat(warmup.getStatus().getFailedSearches()).isEqualTo(2);
+    verify(transactionManager, times(5)).setRollbackOnly();
+    verify(userProvider).searchForUserByAttributesStream(realm,
+        Map.of("KATOTTG", "UA05050010020412345"), UserFetchPlan.REPRESENTATION);
+  }
+
+  private static void await(SearchWarmup warmup) throws InterruptedException {
+    var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!warmup.isReady() && System.nanoTime() - deadline < 0) {
+      Thread.sleep(10);
+    }
+  }
+}